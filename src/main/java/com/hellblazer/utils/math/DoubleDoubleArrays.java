@@ -0,0 +1,270 @@
+package com.hellblazer.utils.math;
+
+/**
+ * Double-double arithmetic on primitive arrays, without allocation.
+ * <p>
+ * A double-double is stored as a pair of doubles at an offset of an array: the
+ * high component at the offset, and the low component after it, as in
+ * {@link DoubleDouble}. A vector of n double-doubles is packed into 2n
+ * consecutive doubles. Each operation reads its operands before writing its
+ * result, so the result of a scalar operation may overwrite an operand. The
+ * results are the same as those of the corresponding operations of
+ * {@link DoubleDouble}.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public strictfp final class DoubleDoubleArrays {
+
+    /**
+     * Computes the sum of the double-doubles a and b
+     *
+     * @param out
+     *            - the array of the sum
+     * @param oi
+     *            - the offset of the sum in its array
+     */
+    public static void add(double[] a, int ai, double[] b, int bi,
+                           double[] out, int oi) {
+        add(a[ai], a[ai + 1], b[bi], b[bi + 1], out, oi);
+    }
+
+    /**
+     * Computes the sum of the double-double a and the double b
+     *
+     * @param out
+     *            - the array of the sum
+     * @param oi
+     *            - the offset of the sum in its array
+     */
+    public static void add(double[] a, int ai, double b, double[] out, int oi) {
+        add(a[ai], a[ai + 1], b, 0.0, out, oi);
+    }
+
+    /**
+     * Computes y = a*x + y for the vectors x and y, of n double-doubles each,
+     * and the double-double a
+     */
+    public static void axpy(double[] a, int ai, double[] x, int xi,
+                            double[] y, int yi, int n) {
+        double ahi = a[ai];
+        double alo = a[ai + 1];
+        for (int i = 0; i < 2 * n; i += 2) {
+            double yhi = y[yi + i];
+            double ylo = y[yi + i + 1];
+            multiply(ahi, alo, x[xi + i], x[xi + i + 1], y, yi + i);
+            add(y[yi + i], y[yi + i + 1], yhi, ylo, y, yi + i);
+        }
+    }
+
+    /**
+     * Computes the quotient of the double-doubles a and b
+     *
+     * @param out
+     *            - the array of the quotient
+     * @param oi
+     *            - the offset of the quotient in its array
+     */
+    public static void divide(double[] a, int ai, double[] b, int bi,
+                              double[] out, int oi) {
+        double hi = a[ai];
+        double lo = a[ai + 1];
+        double yhi = b[bi];
+        double ylo = b[bi + 1];
+        double C, c, U, u;
+        C = hi / yhi;
+        U = C * yhi;
+        u = TwoProduct.error(C, yhi, U);
+        c = (hi - U - u + lo - C * ylo) / yhi;
+        u = C + c;
+        out[oi] = u;
+        out[oi + 1] = C - u + c;
+    }
+
+    /**
+     * Computes the dot product of the vectors x and y, of n double-doubles
+     * each
+     *
+     * @param out
+     *            - the array of the dot product
+     * @param oi
+     *            - the offset of the dot product in its array
+     */
+    public static void dot(double[] x, int xi, double[] y, int yi, int n,
+                           double[] out, int oi) {
+        // The dot product is accumulated in locals, as in multiply() and add()
+        double hi = 0.0;
+        double lo = 0.0;
+        for (int i = 0; i < 2 * n; i += 2) {
+            double ahi = x[xi + i];
+            double alo = x[xi + i + 1];
+            double bhi = y[yi + i];
+            double blo = y[yi + i + 1];
+            double C = ahi * bhi;
+            double c = TwoProduct.error(ahi, bhi, C) + (ahi * blo + alo * bhi);
+            double phi = C + c;
+            double plo = c + (C - phi);
+            double H, h, T, t, S, s, e, f;
+            S = hi + phi;
+            T = lo + plo;
+            e = S - hi;
+            f = T - lo;
+            s = S - e;
+            t = T - f;
+            s = phi - e + (hi - s);
+            t = plo - f + (lo - t);
+            e = s + T;
+            H = S + e;
+            h = e + (S - H);
+            e = t + h;
+            hi = H + e;
+            lo = e + (H - hi);
+        }
+        out[oi] = hi;
+        out[oi + 1] = lo;
+    }
+
+    /**
+     * Computes the product of the double-doubles a and b
+     *
+     * @param out
+     *            - the array of the product
+     * @param oi
+     *            - the offset of the product in its array
+     */
+    public static void multiply(double[] a, int ai, double[] b, int bi,
+                                double[] out, int oi) {
+        multiply(a[ai], a[ai + 1], b[bi], b[bi + 1], out, oi);
+    }
+
+    /**
+     * Computes the product of the double-double a and the double b
+     *
+     * @param out
+     *            - the array of the product
+     * @param oi
+     *            - the offset of the product in its array
+     */
+    public static void multiply(double[] a, int ai, double b, double[] out,
+                                int oi) {
+        multiply(a[ai], a[ai + 1], b, 0.0, out, oi);
+    }
+
+    /**
+     * Computes the positive square root of the double-double a, or NaN if a is
+     * NaN or negative
+     *
+     * @param out
+     *            - the array of the square root
+     * @param oi
+     *            - the offset of the square root in its array
+     */
+    public static void sqrt(double[] a, int ai, double[] out, int oi) {
+        double hi = a[ai];
+        double lo = a[ai + 1];
+        if (hi == 0.0 && lo == 0.0) {
+            out[oi] = 0.0;
+            out[oi + 1] = 0.0;
+            return;
+        }
+        if (hi < 0.0 || hi == 0.0 && lo < 0.0) {
+            out[oi] = Double.NaN;
+            out[oi + 1] = Double.NaN;
+            return;
+        }
+        // Karp's trick, as in DoubleDouble.sqrt()
+        double x = 1.0 / Math.sqrt(hi);
+        double ax = hi * x;
+        multiply(ax, 0.0, ax, 0.0, out, oi);
+        add(hi, lo, -out[oi], -out[oi + 1], out, oi);
+        double d2 = out[oi] * (x * 0.5);
+        add(ax, 0.0, d2, 0.0, out, oi);
+    }
+
+    /**
+     * Computes the difference of the double-doubles a and b
+     *
+     * @param out
+     *            - the array of the difference
+     * @param oi
+     *            - the offset of the difference in its array
+     */
+    public static void subtract(double[] a, int ai, double[] b, int bi,
+                                double[] out, int oi) {
+        add(a[ai], a[ai + 1], -b[bi], -b[bi + 1], out, oi);
+    }
+
+    /**
+     * Computes the sum of the vector x of n double-doubles
+     *
+     * @param out
+     *            - the array of the sum
+     * @param oi
+     *            - the offset of the sum in its array
+     */
+    public static void sum(double[] x, int xi, int n, double[] out, int oi) {
+        // The sum is accumulated in locals, as in add()
+        double hi = 0.0;
+        double lo = 0.0;
+        for (int i = xi; i < xi + 2 * n; i += 2) {
+            double bhi = x[i];
+            double blo = x[i + 1];
+            double H, h, T, t, S, s, e, f;
+            S = hi + bhi;
+            T = lo + blo;
+            e = S - hi;
+            f = T - lo;
+            s = S - e;
+            t = T - f;
+            s = bhi - e + (hi - s);
+            t = blo - f + (lo - t);
+            e = s + T;
+            H = S + e;
+            h = e + (S - H);
+            e = t + h;
+            hi = H + e;
+            lo = e + (H - hi);
+        }
+        out[oi] = hi;
+        out[oi + 1] = lo;
+    }
+
+    /**
+     * Computes the sum of (ahi, alo) and (bhi, blo), as DoubleDouble.add()
+     */
+    private static void add(double ahi, double alo, double bhi, double blo,
+                            double[] out, int oi) {
+        double H, h, T, t, S, s, e, f;
+        S = ahi + bhi;
+        T = alo + blo;
+        e = S - ahi;
+        f = T - alo;
+        s = S - e;
+        t = T - f;
+        s = bhi - e + (ahi - s);
+        t = blo - f + (alo - t);
+        e = s + T;
+        H = S + e;
+        h = e + (S - H);
+        e = t + h;
+        double zhi = H + e;
+        out[oi] = zhi;
+        out[oi + 1] = e + (H - zhi);
+    }
+
+    /**
+     * Computes the product of (ahi, alo) and (bhi, blo), as
+     * DoubleDouble.multiply()
+     */
+    private static void multiply(double ahi, double alo, double bhi,
+                                 double blo, double[] out, int oi) {
+        double C = ahi * bhi;
+        double c = TwoProduct.error(ahi, bhi, C) + (ahi * blo + alo * bhi);
+        double zhi = C + c;
+        out[oi] = zhi;
+        out[oi + 1] = c + (C - zhi);
+    }
+
+    private DoubleDoubleArrays() {
+    }
+}
@@ -6,6 +6,9 @@ available at http://www.eclipse.org/legal/cpl-v10.html
  ****************************************************************************/
 package com.hellblazer.utils.math;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * Robust geometric predicates.
  * <p>
@@ -24,15 +27,210 @@ package com.hellblazer.utils.math;
  * <p>
  * These predicates are adapted from those developed by Jonathan Shewchuk, 1997,
  * Delaunay Refinement Mesh Generation: Ph.D. dissertation, Carnegie Mellon
- * University. (Currently, the methods here do not use Shewchuk's adaptive
- * four-stage pipeline. Instead, only two - the fastest and the exact stages -
- * are used.)
+ * University. The predicates leftOfPlane, inCircle and inSphere use Shewchuk's
+ * adaptive four-stage pipeline: after the fast stage, stages B and C compute
+ * successively more accurate approximations with tighter error bounds, so that
+ * the exact stage is only reached by nearly degenerate inputs. The predicate
+ * inOrthoSphere uses stage B only, and leftOfLine only the fastest and the
+ * exact stages.
+ * <p>
+ * The methods taking float coordinates share the fast stage, but resolve the
+ * points it cannot with a float stage: when the differences of the float
+ * coordinates are themselves floats, as they are for nearby points, their
+ * products are exact in double, and the determinants are computed exactly from
+ * two-component minors, or for leftOfLine with a single subtraction. Otherwise
+ * the float stage reverts to the adaptive stages.
+ * <p>
+ * The exact stages compute in the preallocated buffers of a {@link Context}.
+ * The roundoff errors of their products are computed by a fused multiply-add
+ * where the platform has one, and otherwise by Dekker's splitting.
+ * Callers evaluating many predicates in one thread may pass their own context;
+ * otherwise a context of the current thread is used.
  * 
  * @author Dave Hale, Colorado School of Mines
  * @version 2001.04.03, 2006.08.02
  */
 public final class Geometry {
 
+    /**
+     * A workspace for the exact arithmetic of the predicates. The expansions
+     * of the exact stages are computed in buffers allocated once by the
+     * context, so that predicates evaluated with a context do not allocate.
+     * <p>
+     * A context is about 1 MB and must not be shared by concurrent threads.
+     * The predicates that do not take a context use a context of the current
+     * thread, allocated when the thread first requires exact arithmetic.
+     */
+    public static final class Context {
+        private final double[] ab      = new double[16];
+        private final double[] abdet   = new double[15360];
+        private final double[] ac      = new double[16];
+        private final double[] adet    = new double[7680];
+        private final double[] axby    = new double[8];
+        private final double[] axcy    = new double[8];
+        private final double[] axdy    = new double[8];
+        private final double[] bc      = new double[16];
+        private final double[] bd      = new double[16];
+        private final double[] bdet    = new double[7680];
+        private final double[] bxay    = new double[8];
+        private final double[] bxcy    = new double[8];
+        private final double[] bxdy    = new double[8];
+        private final double[] ca      = new double[4];
+        private final double[] cd      = new double[16];
+        private final double[] cddet   = new double[15360];
+        private final double[] cdet    = new double[7680];
+        private final double[] cxay    = new double[8];
+        private final double[] cxby    = new double[8];
+        private final double[] cxdy    = new double[8];
+        private final double[] da      = new double[16];
+        private final double[] ddet    = new double[7680];
+        private final double[] det     = new double[30720];
+        private final double[] detw    = new double[384];
+        private final double[] detwt   = new double[384];
+        private final double[] detx    = new double[384];
+        private final double[] detxt   = new double[384];
+        private final double[] detxtxt = new double[768];
+        private final double[] detxx   = new double[768];
+        private final double[] detxxt  = new double[768];
+        private final double[] detxy   = new double[4608];
+        private final double[] detxyz  = new double[6912];
+        private final double[] dety    = new double[384];
+        private final double[] detyt   = new double[384];
+        private final double[] detytyt = new double[768];
+        private final double[] detyy   = new double[768];
+        private final double[] detyyt  = new double[768];
+        private final double[] detz    = new double[384];
+        private final double[] detzt   = new double[384];
+        private final double[] detztzt = new double[768];
+        private final double[] detzz   = new double[768];
+        private final double[] detzzt  = new double[768];
+        private final double[] dxay    = new double[8];
+        private final double[] dxby    = new double[8];
+        private final double[] dxcy    = new double[8];
+        private final double[] t128    = new double[128];
+        private final double[] t16     = new double[16];
+        private final double[] t192    = new double[192];
+        private final double[] t24     = new double[24];
+        private final double[] t32     = new double[32];
+        private final double[] t32a    = new double[32];
+        private final double[] t32b    = new double[32];
+        private final double[] t32t    = new double[32];
+        private final double[] t48     = new double[48];
+        private final double[] t64a    = new double[64];
+        private final double[] t64b    = new double[64];
+        private final double[] t64c    = new double[64];
+        private final double[] t8a     = new double[8];
+        private final double[] t8b     = new double[8];
+        private final double[] t8c     = new double[8];
+        private final double[] w2      = new double[768];
+        private final double[] x1      = new double[1536];
+        private final double[] x2      = new double[2304];
+        private final double[] y1      = new double[1536];
+        private final double[] y2      = new double[2304];
+        private final double[] z1      = new double[1536];
+        private final double[] z2      = new double[2304];
+        private final Two      two     = new Two();
+    }
+
+    /**
+     * The evaluation of a batch predicate over a range of points, divided
+     * recursively among the workers of a fork join pool.
+     */
+    private static class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[]      bytes;
+        private final double[]    fixed;
+        private final int         from;
+        private final int         grain;
+        private final int[]       ints;
+        private final int         predicate;
+        private final int         to;
+        private final double[]    xs;
+        private final double[]    ys;
+        private final double[]    zs;
+
+        private Batch(int predicate, double[] fixed, double[] xs, double[] ys,
+                      double[] zs, int from, int to, byte[] bytes, int[] ints,
+                      int grain) {
+            this.predicate = predicate;
+            this.fixed = fixed;
+            this.xs = xs;
+            this.ys = ys;
+            this.zs = zs;
+            this.from = from;
+            this.to = to;
+            this.bytes = bytes;
+            this.ints = ints;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                evaluate();
+                return;
+            }
+            int middle = from + to >>> 1;
+            invokeAll(new Batch(predicate, fixed, xs, ys, zs, from, middle,
+                                bytes, ints, grain),
+                      new Batch(predicate, fixed, xs, ys, zs, middle, to,
+                                bytes, ints, grain));
+        }
+
+        /**
+         * Evaluate the range in this thread, with the workspace of the thread
+         */
+        private void evaluate() {
+            double[] f = fixed;
+            switch (predicate) {
+                case IN_CIRCLE:
+                    if (bytes != null) {
+                        inCircle(f[0], f[1], f[2], f[3], f[4], f[5], xs, ys,
+                                 from, to, bytes, null);
+                    } else {
+                        inCircle(f[0], f[1], f[2], f[3], f[4], f[5], xs, ys,
+                                 from, to, ints, null);
+                    }
+                    break;
+                case IN_SPHERE:
+                    if (bytes != null) {
+                        inSphere(f[0], f[1], f[2], f[3], f[4], f[5], f[6], f[7],
+                                 f[8], f[9], f[10], f[11], xs, ys, zs, from,
+                                 to, bytes, null);
+                    } else {
+                        inSphere(f[0], f[1], f[2], f[3], f[4], f[5], f[6], f[7],
+                                 f[8], f[9], f[10], f[11], xs, ys, zs, from,
+                                 to, ints, null);
+                    }
+                    break;
+                case LEFT_OF_LINE:
+                    if (bytes != null) {
+                        leftOfLine(f[0], f[1], f[2], f[3], xs, ys, from, to,
+                                   bytes, null);
+                    } else {
+                        leftOfLine(f[0], f[1], f[2], f[3], xs, ys, from, to,
+                                   ints, null);
+                    }
+                    break;
+                case LEFT_OF_PLANE:
+                    if (bytes != null) {
+                        leftOfPlane(f[0], f[1], f[2], f[3], f[4], f[5], f[6],
+                                    f[7], f[8], xs, ys, zs, from, to, bytes,
+                                    null);
+                    } else {
+                        leftOfPlane(f[0], f[1], f[2], f[3], f[4], f[5], f[6],
+                                    f[7], f[8], xs, ys, zs, from, to, ints,
+                                    null);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown predicate: "
+                                                    + predicate);
+            }
+        }
+    }
+
     /**
      * Two doubles.
      */
@@ -40,6 +238,26 @@ public final class Geometry {
         double x, y;
     }
 
+    /**
+     * The workspaces of the threads.
+     */
+    private static final ThreadLocal<Context> CONTEXTS = new ThreadLocal<Context>() {
+        @Override
+        protected Context initialValue() {
+            return new Context();
+        }
+    };
+
+    /**
+     * The predicates of the parallel batches, and the least number of points
+     * evaluated by each task of a batch.
+     */
+    private static final int    GRAIN         = 1024;
+    private static final int    IN_CIRCLE     = 0;
+    private static final int    IN_SPHERE     = 1;
+    private static final int    LEFT_OF_LINE  = 2;
+    private static final int    LEFT_OF_PLANE = 3;
+
     /**
      * Constants.
      */
@@ -47,14 +265,28 @@ public final class Geometry {
 
     private static final double INCERRBOUND;
 
+    private static final double INCERRBOUNDB;
+
+    private static final double INCERRBOUNDC;
+
     private static final double INSERRBOUND;
 
+    private static final double INSERRBOUNDB;
+
+    private static final double INSERRBOUNDC;
+
     private static final double IOSERRBOUND;
 
     private static final double O2DERRBOUND;
 
     private static final double O3DERRBOUND;
 
+    private static final double O3DERRBOUNDB;
+
+    private static final double O3DERRBOUNDC;
+
+    private static final double RESULTERRBOUND;
+
     private static final double SPLITTER;
 
     static {
@@ -76,6 +308,13 @@ public final class Geometry {
         INCERRBOUND = 11.0 * EPSILON;
         INSERRBOUND = 17.0 * EPSILON;
         IOSERRBOUND = 19.0 * EPSILON;
+        RESULTERRBOUND = (3.0 + 8.0 * EPSILON) * EPSILON;
+        O3DERRBOUNDB = (3.0 + 28.0 * EPSILON) * EPSILON;
+        O3DERRBOUNDC = (26.0 + 288.0 * EPSILON) * EPSILON * EPSILON;
+        INCERRBOUNDB = (4.0 + 48.0 * EPSILON) * EPSILON;
+        INCERRBOUNDC = (44.0 + 576.0 * EPSILON) * EPSILON * EPSILON;
+        INSERRBOUNDB = (5.0 + 72.0 * EPSILON) * EPSILON;
+        INSERRBOUNDC = (71.0 + 1408.0 * EPSILON) * EPSILON * EPSILON;
     }
 
     /**
@@ -304,55 +543,24 @@ public final class Geometry {
      */
     public static double inCircle(double xa, double ya, double xb, double yb,
                                   double xc, double yc, double xd, double yd) {
-        double adx = xa - xd;
-        double bdx = xb - xd;
-        double cdx = xc - xd;
-        double ady = ya - yd;
-        double bdy = yb - yd;
-        double cdy = yc - yd;
-
-        double bdxcdy = bdx * cdy;
-        double cdxbdy = cdx * bdy;
-        double alift = adx * adx + ady * ady;
-
-        double cdxady = cdx * ady;
-        double adxcdy = adx * cdy;
-        double blift = bdx * bdx + bdy * bdy;
-
-        double adxbdy = adx * bdy;
-        double bdxady = bdx * ady;
-        double clift = cdx * cdx + cdy * cdy;
-
-        double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy)
-                     + clift * (adxbdy - bdxady);
-
-        if (bdxcdy < 0.0) {
-            bdxcdy = -bdxcdy;
-        }
-        if (cdxbdy < 0.0) {
-            cdxbdy = -cdxbdy;
-        }
-        if (adxcdy < 0.0) {
-            adxcdy = -adxcdy;
-        }
-        if (cdxady < 0.0) {
-            cdxady = -cdxady;
-        }
-        if (adxbdy < 0.0) {
-            adxbdy = -adxbdy;
-        }
-        if (bdxady < 0.0) {
-            bdxady = -bdxady;
-        }
-
-        double permanent = alift * (bdxcdy + cdxbdy) + blift
-                           * (cdxady + adxcdy) + clift * (adxbdy + bdxady);
-        double errbound = INCERRBOUND * permanent;
-        if (det > errbound || -det > errbound) {
-            return det;
-        }
+        return inCircle(xa, ya, xb, yb, xc, yc, xd, yd, null);
+    }
 
-        return inCircleExact(xa, ya, xb, yb, xc, yc, xd, yd);
+    /**
+     * Determines if a point d is inside the circle defined by the points a, b,
+     * and c. The latter are assumed to be in CCW order, such that the method
+     * {@link #leftOfLine} would return a positive number.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     * @return positive, if inside the circle; negative, if outside the circle;
+     *         zero, otherwise.
+     */
+    public static double inCircle(double xa, double ya, double xb, double yb,
+                                  double xc, double yc, double xd, double yd,
+                                  Context context) {
+        return inCircle(xa, ya, xb, yb, xc, yc, xd, yd, context, false);
     }
 
     /**
@@ -365,7 +573,37 @@ public final class Geometry {
      */
     public static double inCircle(double[] pa, double[] pb, double[] pc,
                                   double[] pd) {
-        return inCircle(pa[0], pa[1], pb[0], pb[1], pc[0], pc[1], pd[0], pd[1]);
+        return inCircle(pa, pb, pc, pd, null);
+    }
+
+    /**
+     * Determines if a point d is inside the circle defined by the points a, b,
+     * and c. The latter are assumed to be in CCW order, such that the method
+     * {@link #leftOfLine} would return a positive number.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     * @return positive, if inside the circle; negative, if outside the circle;
+     *         zero, otherwise.
+     */
+    public static double inCircle(double[] pa, double[] pb, double[] pc,
+                                  double[] pd, Context context) {
+        return inCircle(pa[0], pa[1], pb[0], pb[1], pc[0], pc[1], pd[0], pd[1],
+                        context);
+    }
+
+    /**
+     * Determines if a point d is inside the circle defined by the points a, b,
+     * and c. The latter are assumed to be in CCW order, such that the method
+     * {@link #leftOfLine} would return a positive number.
+     * 
+     * @return positive, if inside the circle; negative, if outside the circle;
+     *         zero, otherwise.
+     */
+    public static double inCircle(float[] pa, float[] pb, float[] pc,
+                                  float[] pd) {
+        return inCircle(pa, pb, pc, pd, null);
     }
 
     /**
@@ -373,11 +611,143 @@ public final class Geometry {
      * and c. The latter are assumed to be in CCW order, such that the method
      * {@link #leftOfLine} would return a positive number.
      * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
      * @return positive, if inside the circle; negative, if outside the circle;
      *         zero, otherwise.
      */
-    public static double inCircle(float[] pa, float[] pb, float[] pc, float[] pd) {
-        return inCircle(pa[0], pa[1], pb[0], pb[1], pc[0], pc[1], pd[0], pd[1]);
+    public static double inCircle(float[] pa, float[] pb, float[] pc, float[] pd,
+                                  Context context) {
+        return inCircle(pa[0], pa[1], pb[0], pb[1], pc[0], pc[1], pd[0], pd[1],
+                        context, true);
+    }
+
+    /**
+     * Determines, for each of a range of points d, if d is inside the circle
+     * defined by the points a, b, and c. The latter are assumed to be in CCW
+     * order, such that the method {@link #leftOfLine} would return a positive
+     * number. The points d are given as a structure of arrays of their
+     * coordinates.
+     * <p>
+     * The fast filter is evaluated for the whole range first, in a loop free
+     * of branches and calls; only the points it could not resolve are
+     * evaluated adaptively.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is inside the circle, outside it, or on it
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     */
+    public static void inCircle(double xa, double ya, double xb, double yb,
+                                double xc, double yc, double[] xs, double[] ys,
+                                int from, int to, byte[] signs,
+                                Context context) {
+        for (int i = from; i < to; i++) {
+            double adx = xa - xs[i];
+            double bdx = xb - xs[i];
+            double cdx = xc - xs[i];
+            double ady = ya - ys[i];
+            double bdy = yb - ys[i];
+            double cdy = yc - ys[i];
+            double bdxcdy = bdx * cdy;
+            double cdxbdy = cdx * bdy;
+            double alift = adx * adx + ady * ady;
+            double cdxady = cdx * ady;
+            double adxcdy = adx * cdy;
+            double blift = bdx * bdx + bdy * bdy;
+            double adxbdy = adx * bdy;
+            double bdxady = bdx * ady;
+            double clift = cdx * cdx + cdy * cdy;
+            double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy)
+                         + clift * (adxbdy - bdxady);
+            double permanent = alift * (Math.abs(bdxcdy) + Math.abs(cdxbdy))
+                               + blift * (Math.abs(cdxady) + Math.abs(adxcdy))
+                               + clift * (Math.abs(adxbdy) + Math.abs(bdxady));
+            double errbound = INCERRBOUND * permanent;
+            signs[i] = (byte) ((det > errbound ? 1 : 0)
+                               - (-det > errbound ? 1 : 0));
+        }
+        Context local = context;
+        for (int i = from; i < to; i++) {
+            if (signs[i] == 0) {
+                if (local == null) {
+                    local = local(context);
+                }
+                double det = inCircle(xa, ya, xb, yb, xc, yc, xs[i], ys[i],
+                                      local);
+                signs[i] = (byte) (det > 0.0 ? 1 : det < 0.0 ? -1 : 0);
+            }
+        }
+    }
+
+    /**
+     * Determines, for each of a range of points d, if d is inside the circle
+     * defined by the points a, b, and c. The latter are assumed to be in CCW
+     * order, such that the method {@link #leftOfLine} would return a positive
+     * number. The points d are given as a structure of arrays of their
+     * coordinates.
+     * <p>
+     * The fast filter is evaluated for the whole range first, in a loop free
+     * of branches and calls; only the points it could not resolve are
+     * evaluated adaptively.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is inside the circle, outside it, or on it
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     */
+    public static void inCircle(double xa, double ya, double xb, double yb,
+                                double xc, double yc, double[] xs, double[] ys,
+                                int from, int to, int[] signs, Context context) {
+        for (int i = from; i < to; i++) {
+            double adx = xa - xs[i];
+            double bdx = xb - xs[i];
+            double cdx = xc - xs[i];
+            double ady = ya - ys[i];
+            double bdy = yb - ys[i];
+            double cdy = yc - ys[i];
+            double bdxcdy = bdx * cdy;
+            double cdxbdy = cdx * bdy;
+            double alift = adx * adx + ady * ady;
+            double cdxady = cdx * ady;
+            double adxcdy = adx * cdy;
+            double blift = bdx * bdx + bdy * bdy;
+            double adxbdy = adx * bdy;
+            double bdxady = bdx * ady;
+            double clift = cdx * cdx + cdy * cdy;
+            double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy)
+                         + clift * (adxbdy - bdxady);
+            double permanent = alift * (Math.abs(bdxcdy) + Math.abs(cdxbdy))
+                               + blift * (Math.abs(cdxady) + Math.abs(adxcdy))
+                               + clift * (Math.abs(adxbdy) + Math.abs(bdxady));
+            double errbound = INCERRBOUND * permanent;
+            signs[i] = ((det > errbound ? 1 : 0)
+                        - (-det > errbound ? 1 : 0));
+        }
+        Context local = context;
+        for (int i = from; i < to; i++) {
+            if (signs[i] == 0) {
+                if (local == null) {
+                    local = local(context);
+                }
+                double det = inCircle(xa, ya, xb, yb, xc, yc, xs[i], ys[i],
+                                      local);
+                signs[i] = (det > 0.0 ? 1 : det < 0.0 ? -1 : 0);
+            }
+        }
     }
 
     /**
@@ -442,6 +812,59 @@ public final class Geometry {
                             pd[1]);
     }
 
+    /**
+     * Determines in parallel, for each of a range of points d, if d is inside
+     * the circle defined by the points a, b, and c. The points are given as a
+     * structure of arrays of their coordinates. The range is divided among the
+     * workers of the pool, each evaluating its part with the workspace of its
+     * own thread.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is inside the circle, outside it, or on it
+     * @param pool
+     *            - the pool to evaluate the predicate in
+     */
+    public static void inCircleParallel(double xa, double ya, double xb,
+                                        double yb, double xc, double yc,
+                                        double[] xs, double[] ys, int from,
+                                        int to, byte[] signs,
+                                        ForkJoinPool pool) {
+        double[] fixed = { xa, ya, xb, yb, xc, yc };
+        pool.invoke(new Batch(IN_CIRCLE, fixed, xs, ys, null, from, to, signs,
+                              null, grain(pool, from, to)));
+    }
+
+    /**
+     * Determines in parallel, for each of a range of points d, if d is inside
+     * the circle defined by the points a, b, and c. The points are given as a
+     * structure of arrays of their coordinates. The range is divided among the
+     * workers of the pool, each evaluating its part with the workspace of its
+     * own thread.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is inside the circle, outside it, or on it
+     * @param pool
+     *            - the pool to evaluate the predicate in
+     */
+    public static void inCircleParallel(double xa, double ya, double xb,
+                                        double yb, double xc, double yc,
+                                        double[] xs, double[] ys, int from,
+                                        int to, int[] signs, ForkJoinPool pool) {
+        double[] fixed = { xa, ya, xb, yb, xc, yc };
+        pool.invoke(new Batch(IN_CIRCLE, fixed, xs, ys, null, from, to, null,
+                              signs, grain(pool, from, to)));
+    }
+
     /**
      * Determines whether or not a weighted point e is inside the ortho-sphere
      * defined by the weighted points a, b, c, and d. The latter are assumed to
@@ -463,6 +886,112 @@ public final class Geometry {
                                        double xd, double yd, double zd,
                                        double wd, double xe, double ye,
                                        double ze, double we) {
+        return inOrthoSphere(xa, ya, za, wa, xb, yb, zb, wb, xc, yc, zc, wc, xd,
+                             yd, zd, wd, xe, ye, ze, we, null);
+    }
+
+    /**
+     * Determines whether or not a weighted point e is inside the ortho-sphere
+     * defined by the weighted points a, b, c, and d. The latter are assumed to
+     * be in CCW order, such that the method {@link #leftOfPlane} would return a
+     * positive number.
+     * <p>
+     * The weights wa, wb, wc, wd equal the squared radii of spheres associated
+     * with the corresponding points a, b, c, and d. The ortho-sphere is
+     * orthogonal to each of these four spheres.
+     * <p>
+     * If all four weights (and radii) equal zero, then the ortho-sphere is the
+     * circumsphere. In this case, the method {@link #inSphere} is more
+     * efficient.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     */
+    public static double inOrthoSphere(double xa, double ya, double za,
+                                       double wa, double xb, double yb,
+                                       double zb, double wb, double xc,
+                                       double yc, double zc, double wc,
+                                       double xd, double yd, double zd,
+                                       double wd, double xe, double ye,
+                                       double ze, double we, Context context) {
+        return inOrthoSphere(xa, ya, za, wa, xb, yb, zb, wb, xc, yc, zc, wc, xd,
+                             yd, zd, wd, xe, ye, ze, we, context, false);
+    }
+
+    /**
+     * Determines whether or not a weighted point e is inside the ortho-sphere
+     * defined by the weighted points a, b, c, and d. The latter are assumed to
+     * be in CCW order, such that the method {@link #leftOfPlane} would return a
+     * positive number.
+     */
+    public static double inOrthoSphere(double[] pa, double[] pb, double[] pc,
+                                       double[] pd, double[] pe) {
+        return inOrthoSphere(pa, pb, pc, pd, pe, null);
+    }
+
+    /**
+     * Determines whether or not a weighted point e is inside the ortho-sphere
+     * defined by the weighted points a, b, c, and d. The latter are assumed to
+     * be in CCW order, such that the method {@link #leftOfPlane} would return a
+     * positive number.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     */
+    public static double inOrthoSphere(double[] pa, double[] pb, double[] pc,
+                                       double[] pd, double[] pe,
+                                       Context context) {
+        return inOrthoSphere(pa[0], pa[1], pa[2], pa[3], pb[0], pb[1], pb[2],
+                             pb[3], pc[0], pc[1], pc[2], pc[3], pd[0], pd[1],
+                             pd[2], pd[3], pe[0], pe[1], pe[2], pe[3], context);
+    }
+
+    /**
+     * Determines whether or not a weighted point e is inside the ortho-sphere
+     * defined by the weighted points a, b, c, and d. The latter are assumed to
+     * be in CCW order, such that the method {@link #leftOfPlane} would return a
+     * positive number.
+     */
+    public static double inOrthoSphere(float[] pa, float[] pb, float[] pc,
+                                       float[] pd, float[] pe) {
+        return inOrthoSphere(pa, pb, pc, pd, pe, null);
+    }
+
+    /**
+     * Determines whether or not a weighted point e is inside the ortho-sphere
+     * defined by the weighted points a, b, c, and d. The latter are assumed to
+     * be in CCW order, such that the method {@link #leftOfPlane} would return a
+     * positive number.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     */
+    public static double inOrthoSphere(float[] pa, float[] pb, float[] pc,
+                                       float[] pd, float[] pe, Context context) {
+        return inOrthoSphere(pa[0], pa[1], pa[2], pa[3], pb[0], pb[1], pb[2],
+                             pb[3], pc[0], pc[1], pc[2], pc[3], pd[0], pd[1],
+                             pd[2], pd[3], pe[0], pe[1], pe[2], pe[3], context,
+                             true);
+    }
+
+    /**
+     * Determines whether or not a weighted point e is inside the ortho-sphere
+     * defined by the weighted points a, b, c, and d. The latter are assumed to
+     * be in CCW order, such that the method {@link #leftOfPlane} would return a
+     * positive number.
+     * <p>
+     * <em>Note: this fast method may return an incorrect result.</em>
+     */
+    public static double inOrthoSphereFast(double xa, double ya, double za,
+                                           double wa, double xb, double yb,
+                                           double zb, double wb, double xc,
+                                           double yc, double zc, double wc,
+                                           double xd, double yd, double zd,
+                                           double wd, double xe, double ye,
+                                           double ze, double we) {
         double aex = xa - xe;
         double bex = xb - xe;
         double cex = xc - xe;
@@ -480,185 +1009,13 @@ public final class Geometry {
         double cew = wc - we;
         double dew = wd - we;
 
-        double aexbey = aex * bey;
-        double bexaey = bex * aey;
-        double ab = aexbey - bexaey;
-        double bexcey = bex * cey;
-        double cexbey = cex * bey;
-        double bc = bexcey - cexbey;
-        double cexdey = cex * dey;
-        double dexcey = dex * cey;
-        double cd = cexdey - dexcey;
-        double dexaey = dex * aey;
-        double aexdey = aex * dey;
-        double da = dexaey - aexdey;
+        double ab = aex * bey - bex * aey;
+        double bc = bex * cey - cex * bey;
+        double cd = cex * dey - dex * cey;
+        double da = dex * aey - aex * dey;
 
-        double aexcey = aex * cey;
-        double cexaey = cex * aey;
-        double ac = aexcey - cexaey;
-        double bexdey = bex * dey;
-        double dexbey = dex * bey;
-        double bd = bexdey - dexbey;
-
-        double abc = aez * bc - bez * ac + cez * ab;
-        double bcd = bez * cd - cez * bd + dez * bc;
-        double cda = cez * da + dez * ac + aez * cd;
-        double dab = dez * ab + aez * bd + bez * da;
-
-        double alift = aex * aex + aey * aey + aez * aez;
-        double blift = bex * bex + bey * bey + bez * bez;
-        double clift = cex * cex + cey * cey + cez * cez;
-        double dlift = dex * dex + dey * dey + dez * dez;
-
-        double det = (dlift - dew) * abc - (clift - cew) * dab
-                     + ((blift - bew) * cda - (alift - aew) * bcd);
-
-        if (aez < 0.0) {
-            aez = -aez;
-        }
-        if (bez < 0.0) {
-            bez = -bez;
-        }
-        if (cez < 0.0) {
-            cez = -cez;
-        }
-        if (dez < 0.0) {
-            dez = -dez;
-        }
-        if (aew < 0.0) {
-            aew = -aew;
-        }
-        if (bew < 0.0) {
-            bew = -bew;
-        }
-        if (cew < 0.0) {
-            cew = -cew;
-        }
-        if (dew < 0.0) {
-            dew = -dew;
-        }
-        if (aexbey < 0.0) {
-            aexbey = -aexbey;
-        }
-        if (bexaey < 0.0) {
-            bexaey = -bexaey;
-        }
-        if (bexcey < 0.0) {
-            bexcey = -bexcey;
-        }
-        if (cexbey < 0.0) {
-            cexbey = -cexbey;
-        }
-        if (cexdey < 0.0) {
-            cexdey = -cexdey;
-        }
-        if (dexcey < 0.0) {
-            dexcey = -dexcey;
-        }
-        if (dexaey < 0.0) {
-            dexaey = -dexaey;
-        }
-        if (aexdey < 0.0) {
-            aexdey = -aexdey;
-        }
-        if (aexcey < 0.0) {
-            aexcey = -aexcey;
-        }
-        if (cexaey < 0.0) {
-            cexaey = -cexaey;
-        }
-        if (bexdey < 0.0) {
-            bexdey = -bexdey;
-        }
-        if (dexbey < 0.0) {
-            dexbey = -dexbey;
-        }
-        double permanent = ((cexdey + dexcey) * bez + (dexbey + bexdey) * cez + (bexcey + cexbey)
-                                                                                * dez)
-                           * (alift + aew)
-                           + ((dexaey + aexdey) * cez + (aexcey + cexaey) * dez + (cexdey + dexcey)
-                                                                                  * aez)
-                           * (blift + bew)
-                           + ((aexbey + bexaey) * dez + (bexdey + dexbey) * aez + (dexaey + aexdey)
-                                                                                  * bez)
-                           * (clift + cew)
-                           + ((bexcey + cexbey) * aez + (cexaey + aexcey) * bez + (aexbey + bexaey)
-                                                                                  * cez)
-                           * (dlift + dew);
-        double errbound = IOSERRBOUND * permanent;
-        if (det > errbound || -det > errbound) {
-            return det;
-        }
-
-        return inOrthoSphereExact(xa, ya, za, wa, xb, yb, zb, wb, xc, yc, zc,
-                                  wc, xd, yd, zd, wd, xe, ye, ze, we);
-    }
-
-    /**
-     * Determines whether or not a weighted point e is inside the ortho-sphere
-     * defined by the weighted points a, b, c, and d. The latter are assumed to
-     * be in CCW order, such that the method {@link #leftOfPlane} would return a
-     * positive number.
-     */
-    public static double inOrthoSphere(double[] pa, double[] pb, double[] pc,
-                                       double[] pd, double[] pe) {
-        return inOrthoSphere(pa[0], pa[1], pa[2], pa[3], pb[0], pb[1], pb[2],
-                             pb[3], pc[0], pc[1], pc[2], pc[3], pd[0], pd[1],
-                             pd[2], pd[3], pe[0], pe[1], pe[2], pe[3]);
-    }
-
-    /**
-     * Determines whether or not a weighted point e is inside the ortho-sphere
-     * defined by the weighted points a, b, c, and d. The latter are assumed to
-     * be in CCW order, such that the method {@link #leftOfPlane} would return a
-     * positive number.
-     */
-    public static double inOrthoSphere(float[] pa, float[] pb, float[] pc,
-                                       float[] pd, float[] pe) {
-        return inOrthoSphere(pa[0], pa[1], pa[2], pa[3], pb[0], pb[1], pb[2],
-                             pb[3], pc[0], pc[1], pc[2], pc[3], pd[0], pd[1],
-                             pd[2], pd[3], pe[0], pe[1], pe[2], pe[3]);
-    }
-
-    /**
-     * Determines whether or not a weighted point e is inside the ortho-sphere
-     * defined by the weighted points a, b, c, and d. The latter are assumed to
-     * be in CCW order, such that the method {@link #leftOfPlane} would return a
-     * positive number.
-     * <p>
-     * <em>Note: this fast method may return an incorrect result.</em>
-     */
-    public static double inOrthoSphereFast(double xa, double ya, double za,
-                                           double wa, double xb, double yb,
-                                           double zb, double wb, double xc,
-                                           double yc, double zc, double wc,
-                                           double xd, double yd, double zd,
-                                           double wd, double xe, double ye,
-                                           double ze, double we) {
-        double aex = xa - xe;
-        double bex = xb - xe;
-        double cex = xc - xe;
-        double dex = xd - xe;
-        double aey = ya - ye;
-        double bey = yb - ye;
-        double cey = yc - ye;
-        double dey = yd - ye;
-        double aez = za - ze;
-        double bez = zb - ze;
-        double cez = zc - ze;
-        double dez = zd - ze;
-        double aew = wa - we;
-        double bew = wb - we;
-        double cew = wc - we;
-        double dew = wd - we;
-
-        double ab = aex * bey - bex * aey;
-        double bc = bex * cey - cex * bey;
-        double cd = cex * dey - dex * cey;
-        double da = dex * aey - aex * dey;
-
-        double ac = aex * cey - cex * aey;
-        double bd = bex * dey - dex * bey;
+        double ac = aex * cey - cex * aey;
+        double bd = bex * dey - dex * bey;
 
         double abc = aez * bc - bez * ac + cez * ab;
         double bcd = bez * cd - cez * bd + dez * bc;
@@ -717,163 +1074,331 @@ public final class Geometry {
                                   double yb, double zb, double xc, double yc,
                                   double zc, double xd, double yd, double zd,
                                   double xe, double ye, double ze) {
-        double aex = xa - xe;
-        double bex = xb - xe;
-        double cex = xc - xe;
-        double dex = xd - xe;
-        double aey = ya - ye;
-        double bey = yb - ye;
-        double cey = yc - ye;
-        double dey = yd - ye;
-        double aez = za - ze;
-        double bez = zb - ze;
-        double cez = zc - ze;
-        double dez = zd - ze;
-
-        double aexbey = aex * bey;
-        double bexaey = bex * aey;
-        double ab = aexbey - bexaey;
-        double bexcey = bex * cey;
-        double cexbey = cex * bey;
-        double bc = bexcey - cexbey;
-        double cexdey = cex * dey;
-        double dexcey = dex * cey;
-        double cd = cexdey - dexcey;
-        double dexaey = dex * aey;
-        double aexdey = aex * dey;
-        double da = dexaey - aexdey;
-
-        double aexcey = aex * cey;
-        double cexaey = cex * aey;
-        double ac = aexcey - cexaey;
-        double bexdey = bex * dey;
-        double dexbey = dex * bey;
-        double bd = bexdey - dexbey;
-
-        double abc = aez * bc - bez * ac + cez * ab;
-        double bcd = bez * cd - cez * bd + dez * bc;
-        double cda = cez * da + dez * ac + aez * cd;
-        double dab = dez * ab + aez * bd + bez * da;
-
-        double alift = aex * aex + aey * aey + aez * aez;
-        double blift = bex * bex + bey * bey + bez * bez;
-        double clift = cex * cex + cey * cey + cez * cez;
-        double dlift = dex * dex + dey * dey + dez * dez;
-
-        double det = dlift * abc - clift * dab + (blift * cda - alift * bcd);
-
-        if (aez < 0.0) {
-            aez = -aez;
-        }
-        if (bez < 0.0) {
-            bez = -bez;
-        }
-        if (cez < 0.0) {
-            cez = -cez;
-        }
-        if (dez < 0.0) {
-            dez = -dez;
-        }
-        if (aexbey < 0.0) {
-            aexbey = -aexbey;
-        }
-        if (bexaey < 0.0) {
-            bexaey = -bexaey;
-        }
-        if (bexcey < 0.0) {
-            bexcey = -bexcey;
-        }
-        if (cexbey < 0.0) {
-            cexbey = -cexbey;
-        }
-        if (cexdey < 0.0) {
-            cexdey = -cexdey;
-        }
-        if (dexcey < 0.0) {
-            dexcey = -dexcey;
-        }
-        if (dexaey < 0.0) {
-            dexaey = -dexaey;
-        }
-        if (aexdey < 0.0) {
-            aexdey = -aexdey;
-        }
-        if (aexcey < 0.0) {
-            aexcey = -aexcey;
-        }
-        if (cexaey < 0.0) {
-            cexaey = -cexaey;
-        }
-        if (bexdey < 0.0) {
-            bexdey = -bexdey;
-        }
-        if (dexbey < 0.0) {
-            dexbey = -dexbey;
-        }
-        double permanent = ((cexdey + dexcey) * bez + (dexbey + bexdey) * cez + (bexcey + cexbey)
-                                                                                * dez)
-                           * alift
-                           + ((dexaey + aexdey) * cez + (aexcey + cexaey) * dez + (cexdey + dexcey)
-                                                                                  * aez)
-                           * blift
-                           + ((aexbey + bexaey) * dez + (bexdey + dexbey) * aez + (dexaey + aexdey)
-                                                                                  * bez)
-                           * clift
-                           + ((bexcey + cexbey) * aez + (cexaey + aexcey) * bez + (aexbey + bexaey)
-                                                                                  * cez)
-                           * dlift;
-        double errbound = INSERRBOUND * permanent;
-        if (det > errbound || -det > errbound) {
-            return det;
-        }
-
-        return inSphereExact(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd,
-                             xe, ye, ze);
-    }
-
-    /**
-     * Determines if a point e is inside the sphere defined by the points a, b,
-     * c, and d. The latter are assumed to be in CCW order, such that the method
-     * {@link #leftOfPlane} would return a positive number.
-     * 
-     * @return positive, if inside the sphere; negative, if outside the sphere;
-     *         zero, otherwise.
-     */
-    public static double inSphere(double[] pa, double[] pb, double[] pc,
-                                  double[] pd, double[] pe) {
-        return inSphere(pa[0], pa[1], pa[2], pb[0], pb[1], pb[2], pc[0], pc[1],
-                        pc[2], pd[0], pd[1], pd[2], pe[0], pe[1], pe[2]);
-    }
-
-    /**
-     * Determines if a point e is inside the sphere defined by the points a, b,
-     * c, and d. The latter are assumed to be in CCW order, such that the method
-     * {@link #leftOfPlane} would return a positive number.
-     * 
-     * @return positive, if inside the sphere; negative, if outside the sphere;
-     *         zero, otherwise.
-     */
-    public static double inSphere(float[] pa, float[] pb, float[] pc,
-                                  float[] pd, float[] pe) {
-        return inSphere(pa[0], pa[1], pa[2], pb[0], pb[1], pb[2], pc[0], pc[1],
-                        pc[2], pd[0], pd[1], pd[2], pe[0], pe[1], pe[2]);
-    }
-
-    /**
-     * Determines if a point e is inside the sphere defined by the points a, b,
-     * c, and d. The latter are assumed to be in CCW order, such that the method
-     * {@link #leftOfPlane} would return a positive number.
-     * <p>
-     * <em>Note: this fast method may return an incorrect result.</em>
-     * 
-     * @return positive, if inside the sphere; negative, if outside the sphere;
-     *         zero, otherwise.
-     */
-    public static double inSphereFast(double xa, double ya, double za,
-                                      double xb, double yb, double zb,
-                                      double xc, double yc, double zc,
-                                      double xd, double yd, double zd,
-                                      double xe, double ye, double ze) {
+        return inSphere(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd, xe, ye,
+                        ze, null);
+    }
+
+    /**
+     * Determines if a point e is inside the sphere defined by the points a, b,
+     * c, and d. The latter are assumed to be in CCW order, such that the method
+     * {@link #leftOfPlane} would return a positive number.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     * @return positive, if inside the sphere; negative, if outside the sphere;
+     *         zero, otherwise.
+     */
+    public static double inSphere(double xa, double ya, double za, double xb,
+                                  double yb, double zb, double xc, double yc,
+                                  double zc, double xd, double yd, double zd,
+                                  double xe, double ye, double ze,
+                                  Context context) {
+        return inSphere(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd, xe, ye,
+                        ze, context, false);
+    }
+
+    /**
+     * Determines if a point e is inside the sphere defined by the points a, b,
+     * c, and d. The latter are assumed to be in CCW order, such that the method
+     * {@link #leftOfPlane} would return a positive number.
+     * 
+     * @return positive, if inside the sphere; negative, if outside the sphere;
+     *         zero, otherwise.
+     */
+    public static double inSphere(double[] pa, double[] pb, double[] pc,
+                                  double[] pd, double[] pe) {
+        return inSphere(pa, pb, pc, pd, pe, null);
+    }
+
+    /**
+     * Determines if a point e is inside the sphere defined by the points a, b,
+     * c, and d. The latter are assumed to be in CCW order, such that the method
+     * {@link #leftOfPlane} would return a positive number.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     * @return positive, if inside the sphere; negative, if outside the sphere;
+     *         zero, otherwise.
+     */
+    public static double inSphere(double[] pa, double[] pb, double[] pc,
+                                  double[] pd, double[] pe, Context context) {
+        return inSphere(pa[0], pa[1], pa[2], pb[0], pb[1], pb[2], pc[0], pc[1],
+                        pc[2], pd[0], pd[1], pd[2], pe[0], pe[1], pe[2],
+                        context);
+    }
+
+    /**
+     * Determines if a point e is inside the sphere defined by the points a, b,
+     * c, and d. The latter are assumed to be in CCW order, such that the method
+     * {@link #leftOfPlane} would return a positive number.
+     * 
+     * @return positive, if inside the sphere; negative, if outside the sphere;
+     *         zero, otherwise.
+     */
+    public static double inSphere(float[] pa, float[] pb, float[] pc, float[] pd,
+                                  float[] pe) {
+        return inSphere(pa, pb, pc, pd, pe, null);
+    }
+
+    /**
+     * Determines if a point e is inside the sphere defined by the points a, b,
+     * c, and d. The latter are assumed to be in CCW order, such that the method
+     * {@link #leftOfPlane} would return a positive number.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     * @return positive, if inside the sphere; negative, if outside the sphere;
+     *         zero, otherwise.
+     */
+    public static double inSphere(float[] pa, float[] pb, float[] pc, float[] pd,
+                                  float[] pe, Context context) {
+        return inSphere(pa[0], pa[1], pa[2], pb[0], pb[1], pb[2], pc[0], pc[1],
+                        pc[2], pd[0], pd[1], pd[2], pe[0], pe[1], pe[2],
+                        context, true);
+    }
+
+    /**
+     * Determines, for each of a range of points e, if e is inside the sphere
+     * defined by the points a, b, c, and d. The latter are assumed to be in
+     * CCW order, such that the method {@link #leftOfPlane} would return a
+     * positive number. The points e are given as a structure of arrays of
+     * their coordinates.
+     * <p>
+     * The fast filter is evaluated for the whole range first, in a loop free
+     * of branches and calls; only the points it could not resolve are
+     * evaluated adaptively.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is inside the sphere, outside it, or on it
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     */
+    public static void inSphere(double xa, double ya, double za, double xb,
+                                double yb, double zb, double xc, double yc,
+                                double zc, double xd, double yd, double zd,
+                                double[] xs, double[] ys, double[] zs, int from,
+                                int to, byte[] signs, Context context) {
+        for (int i = from; i < to; i++) {
+            double aex = xa - xs[i];
+            double bex = xb - xs[i];
+            double cex = xc - xs[i];
+            double dex = xd - xs[i];
+            double aey = ya - ys[i];
+            double bey = yb - ys[i];
+            double cey = yc - ys[i];
+            double dey = yd - ys[i];
+            double aez = za - zs[i];
+            double bez = zb - zs[i];
+            double cez = zc - zs[i];
+            double dez = zd - zs[i];
+            double aexbey = aex * bey;
+            double bexaey = bex * aey;
+            double bexcey = bex * cey;
+            double cexbey = cex * bey;
+            double cexdey = cex * dey;
+            double dexcey = dex * cey;
+            double dexaey = dex * aey;
+            double aexdey = aex * dey;
+            double aexcey = aex * cey;
+            double cexaey = cex * aey;
+            double bexdey = bex * dey;
+            double dexbey = dex * bey;
+            double ab = aexbey - bexaey;
+            double bc = bexcey - cexbey;
+            double cd = cexdey - dexcey;
+            double da = dexaey - aexdey;
+            double ac = aexcey - cexaey;
+            double bd = bexdey - dexbey;
+            double abc = aez * bc - bez * ac + cez * ab;
+            double bcd = bez * cd - cez * bd + dez * bc;
+            double cda = cez * da + dez * ac + aez * cd;
+            double dab = dez * ab + aez * bd + bez * da;
+            double alift = aex * aex + aey * aey + aez * aez;
+            double blift = bex * bex + bey * bey + bez * bez;
+            double clift = cex * cex + cey * cey + cez * cez;
+            double dlift = dex * dex + dey * dey + dez * dez;
+            double det = dlift * abc - clift * dab + (blift * cda - alift * bcd);
+            aexbey = Math.abs(aexbey);
+            bexaey = Math.abs(bexaey);
+            bexcey = Math.abs(bexcey);
+            cexbey = Math.abs(cexbey);
+            cexdey = Math.abs(cexdey);
+            dexcey = Math.abs(dexcey);
+            dexaey = Math.abs(dexaey);
+            aexdey = Math.abs(aexdey);
+            aexcey = Math.abs(aexcey);
+            cexaey = Math.abs(cexaey);
+            bexdey = Math.abs(bexdey);
+            dexbey = Math.abs(dexbey);
+            aez = Math.abs(aez);
+            bez = Math.abs(bez);
+            cez = Math.abs(cez);
+            dez = Math.abs(dez);
+            double permanent = ((cexdey + dexcey) * bez + (dexbey + bexdey)
+                                * cez + (bexcey + cexbey) * dez)
+                               * alift
+                               + ((dexaey + aexdey) * cez + (aexcey + cexaey)
+                                  * dez + (cexdey + dexcey) * aez)
+                               * blift
+                               + ((aexbey + bexaey) * dez + (bexdey + dexbey)
+                                  * aez + (dexaey + aexdey) * bez)
+                               * clift
+                               + ((bexcey + cexbey) * aez + (cexaey + aexcey)
+                                  * bez + (aexbey + bexaey) * cez)
+                               * dlift;
+            double errbound = INSERRBOUND * permanent;
+            signs[i] = (byte) ((det > errbound ? 1 : 0)
+                               - (-det > errbound ? 1 : 0));
+        }
+        Context local = context;
+        for (int i = from; i < to; i++) {
+            if (signs[i] == 0) {
+                if (local == null) {
+                    local = local(context);
+                }
+                double det = inSphere(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd,
+                                      zd, xs[i], ys[i], zs[i], local);
+                signs[i] = (byte) (det > 0.0 ? 1 : det < 0.0 ? -1 : 0);
+            }
+        }
+    }
+
+    /**
+     * Determines, for each of a range of points e, if e is inside the sphere
+     * defined by the points a, b, c, and d. The latter are assumed to be in
+     * CCW order, such that the method {@link #leftOfPlane} would return a
+     * positive number. The points e are given as a structure of arrays of
+     * their coordinates.
+     * <p>
+     * The fast filter is evaluated for the whole range first, in a loop free
+     * of branches and calls; only the points it could not resolve are
+     * evaluated adaptively.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is inside the sphere, outside it, or on it
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     */
+    public static void inSphere(double xa, double ya, double za, double xb,
+                                double yb, double zb, double xc, double yc,
+                                double zc, double xd, double yd, double zd,
+                                double[] xs, double[] ys, double[] zs, int from,
+                                int to, int[] signs, Context context) {
+        for (int i = from; i < to; i++) {
+            double aex = xa - xs[i];
+            double bex = xb - xs[i];
+            double cex = xc - xs[i];
+            double dex = xd - xs[i];
+            double aey = ya - ys[i];
+            double bey = yb - ys[i];
+            double cey = yc - ys[i];
+            double dey = yd - ys[i];
+            double aez = za - zs[i];
+            double bez = zb - zs[i];
+            double cez = zc - zs[i];
+            double dez = zd - zs[i];
+            double aexbey = aex * bey;
+            double bexaey = bex * aey;
+            double bexcey = bex * cey;
+            double cexbey = cex * bey;
+            double cexdey = cex * dey;
+            double dexcey = dex * cey;
+            double dexaey = dex * aey;
+            double aexdey = aex * dey;
+            double aexcey = aex * cey;
+            double cexaey = cex * aey;
+            double bexdey = bex * dey;
+            double dexbey = dex * bey;
+            double ab = aexbey - bexaey;
+            double bc = bexcey - cexbey;
+            double cd = cexdey - dexcey;
+            double da = dexaey - aexdey;
+            double ac = aexcey - cexaey;
+            double bd = bexdey - dexbey;
+            double abc = aez * bc - bez * ac + cez * ab;
+            double bcd = bez * cd - cez * bd + dez * bc;
+            double cda = cez * da + dez * ac + aez * cd;
+            double dab = dez * ab + aez * bd + bez * da;
+            double alift = aex * aex + aey * aey + aez * aez;
+            double blift = bex * bex + bey * bey + bez * bez;
+            double clift = cex * cex + cey * cey + cez * cez;
+            double dlift = dex * dex + dey * dey + dez * dez;
+            double det = dlift * abc - clift * dab + (blift * cda - alift * bcd);
+            aexbey = Math.abs(aexbey);
+            bexaey = Math.abs(bexaey);
+            bexcey = Math.abs(bexcey);
+            cexbey = Math.abs(cexbey);
+            cexdey = Math.abs(cexdey);
+            dexcey = Math.abs(dexcey);
+            dexaey = Math.abs(dexaey);
+            aexdey = Math.abs(aexdey);
+            aexcey = Math.abs(aexcey);
+            cexaey = Math.abs(cexaey);
+            bexdey = Math.abs(bexdey);
+            dexbey = Math.abs(dexbey);
+            aez = Math.abs(aez);
+            bez = Math.abs(bez);
+            cez = Math.abs(cez);
+            dez = Math.abs(dez);
+            double permanent = ((cexdey + dexcey) * bez + (dexbey + bexdey)
+                                * cez + (bexcey + cexbey) * dez)
+                               * alift
+                               + ((dexaey + aexdey) * cez + (aexcey + cexaey)
+                                  * dez + (cexdey + dexcey) * aez)
+                               * blift
+                               + ((aexbey + bexaey) * dez + (bexdey + dexbey)
+                                  * aez + (dexaey + aexdey) * bez)
+                               * clift
+                               + ((bexcey + cexbey) * aez + (cexaey + aexcey)
+                                  * bez + (aexbey + bexaey) * cez)
+                               * dlift;
+            double errbound = INSERRBOUND * permanent;
+            signs[i] = ((det > errbound ? 1 : 0)
+                        - (-det > errbound ? 1 : 0));
+        }
+        Context local = context;
+        for (int i = from; i < to; i++) {
+            if (signs[i] == 0) {
+                if (local == null) {
+                    local = local(context);
+                }
+                double det = inSphere(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd,
+                                      zd, xs[i], ys[i], zs[i], local);
+                signs[i] = (det > 0.0 ? 1 : det < 0.0 ? -1 : 0);
+            }
+        }
+    }
+
+    /**
+     * Determines if a point e is inside the sphere defined by the points a, b,
+     * c, and d. The latter are assumed to be in CCW order, such that the method
+     * {@link #leftOfPlane} would return a positive number.
+     * <p>
+     * <em>Note: this fast method may return an incorrect result.</em>
+     * 
+     * @return positive, if inside the sphere; negative, if outside the sphere;
+     *         zero, otherwise.
+     */
+    public static double inSphereFast(double xa, double ya, double za,
+                                      double xb, double yb, double zb,
+                                      double xc, double yc, double zc,
+                                      double xd, double yd, double zd,
+                                      double xe, double ye, double ze) {
         double aex = xa - xe;
         double bex = xb - xe;
         double cex = xc - xe;
@@ -942,6 +1467,64 @@ public final class Geometry {
                             pe[2]);
     }
 
+    /**
+     * Determines in parallel, for each of a range of points e, if e is inside
+     * the sphere defined by the points a, b, c, and d. The points are given as
+     * a structure of arrays of their coordinates. The range is divided among
+     * the workers of the pool, each evaluating its part with the workspace of
+     * its own thread.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is inside the sphere, outside it, or on it
+     * @param pool
+     *            - the pool to evaluate the predicate in
+     */
+    public static void inSphereParallel(double xa, double ya, double za,
+                                        double xb, double yb, double zb,
+                                        double xc, double yc, double zc,
+                                        double xd, double yd, double zd,
+                                        double[] xs, double[] ys, double[] zs,
+                                        int from, int to, byte[] signs,
+                                        ForkJoinPool pool) {
+        double[] fixed = { xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd };
+        pool.invoke(new Batch(IN_SPHERE, fixed, xs, ys, zs, from, to, signs,
+                              null, grain(pool, from, to)));
+    }
+
+    /**
+     * Determines in parallel, for each of a range of points e, if e is inside
+     * the sphere defined by the points a, b, c, and d. The points are given as
+     * a structure of arrays of their coordinates. The range is divided among
+     * the workers of the pool, each evaluating its part with the workspace of
+     * its own thread.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is inside the sphere, outside it, or on it
+     * @param pool
+     *            - the pool to evaluate the predicate in
+     */
+    public static void inSphereParallel(double xa, double ya, double za,
+                                        double xb, double yb, double zb,
+                                        double xc, double yc, double zc,
+                                        double xd, double yd, double zd,
+                                        double[] xs, double[] ys, double[] zs,
+                                        int from, int to, int[] signs,
+                                        ForkJoinPool pool) {
+        double[] fixed = { xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd };
+        pool.invoke(new Batch(IN_SPHERE, fixed, xs, ys, zs, from, to, null,
+                              signs, grain(pool, from, to)));
+    }
+
     /**
      * Determines if a point c is left of the line defined by the points a and
      * b. This is equivalent to determining whether the points a, b, and c are
@@ -952,31 +1535,23 @@ public final class Geometry {
      */
     public static double leftOfLine(double xa, double ya, double xb, double yb,
                                     double xc, double yc) {
-        double detleft = (xa - xc) * (yb - yc);
-        double detright = (ya - yc) * (xb - xc);
-        double det = detleft - detright;
-        double detsum;
-        if (detleft > 0.0) {
-            if (detright <= 0.0) {
-                return det;
-            } else {
-                detsum = detleft + detright;
-            }
-        } else if (detleft < 0.0) {
-            if (detright >= 0.0) {
-                return det;
-            } else {
-                detsum = -detleft - detright;
-            }
-        } else {
-            return det;
-        }
-        double errbound = O2DERRBOUND * detsum;
-        if (det >= errbound || -det >= errbound) {
-            return det;
-        }
+        return leftOfLine(xa, ya, xb, yb, xc, yc, null);
+    }
 
-        return leftOfLineExact(xa, ya, xb, yb, xc, yc);
+    /**
+     * Determines if a point c is left of the line defined by the points a and
+     * b. This is equivalent to determining whether the points a, b, and c are
+     * in counter-clockwise (CCW) order.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     * @return positive, if left of line; negative, if right of line; zero,
+     *         otherwise.
+     */
+    public static double leftOfLine(double xa, double ya, double xb, double yb,
+                                    double xc, double yc, Context context) {
+        return leftOfLine(xa, ya, xb, yb, xc, yc, context, false);
     }
 
     /**
@@ -988,7 +1563,23 @@ public final class Geometry {
      *         otherwise.
      */
     public static double leftOfLine(double[] pa, double[] pb, double[] pc) {
-        return leftOfLine(pa[0], pa[1], pb[0], pb[1], pc[0], pc[1]);
+        return leftOfLine(pa, pb, pc, null);
+    }
+
+    /**
+     * Determines if a point c is left of the line defined by the points a and
+     * b. This is equivalent to determining whether the points a, b, and c are
+     * in counter-clockwise (CCW) order.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     * @return positive, if left of line; negative, if right of line; zero,
+     *         otherwise.
+     */
+    public static double leftOfLine(double[] pa, double[] pb, double[] pc,
+                                    Context context) {
+        return leftOfLine(pa[0], pa[1], pb[0], pb[1], pc[0], pc[1], context);
     }
 
     /**
@@ -1000,7 +1591,120 @@ public final class Geometry {
      *         otherwise.
      */
     public static double leftOfLine(float[] pa, float[] pb, float[] pc) {
-        return leftOfLine(pa[0], pa[1], pb[0], pb[1], pc[0], pc[1]);
+        return leftOfLine(pa, pb, pc, null);
+    }
+
+    /**
+     * Determines if a point c is left of the line defined by the points a and
+     * b. This is equivalent to determining whether the points a, b, and c are
+     * in counter-clockwise (CCW) order.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     * @return positive, if left of line; negative, if right of line; zero,
+     *         otherwise.
+     */
+    public static double leftOfLine(float[] pa, float[] pb, float[] pc,
+                                    Context context) {
+        return leftOfLine(pa[0], pa[1], pb[0], pb[1], pc[0], pc[1], context,
+                          true);
+    }
+
+    /**
+     * Determines, for each of a range of points c, if c is left of the line
+     * defined by the points a and b. The points c are given as a structure of
+     * arrays of their coordinates.
+     * <p>
+     * The fast filter is evaluated for the whole range first, in a loop free
+     * of branches and calls; only the points it could not resolve are
+     * evaluated adaptively.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is left of the line, right of it, or on it
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     */
+    public static void leftOfLine(double xa, double ya, double xb, double yb,
+                                  double[] xs, double[] ys, int from, int to,
+                                  byte[] signs, Context context) {
+        for (int i = from; i < to; i++) {
+            double acx = xa - xs[i];
+            double bcx = xb - xs[i];
+            double acy = ya - ys[i];
+            double bcy = yb - ys[i];
+            double detleft = acx * bcy;
+            double detright = acy * bcx;
+            double det = detleft - detright;
+            double errbound = O2DERRBOUND
+                              * (Math.abs(detleft) + Math.abs(detright));
+            signs[i] = (byte) ((det > errbound ? 1 : 0)
+                               - (-det > errbound ? 1 : 0));
+        }
+        Context local = context;
+        for (int i = from; i < to; i++) {
+            if (signs[i] == 0) {
+                if (local == null) {
+                    local = local(context);
+                }
+                double det = leftOfLine(xa, ya, xb, yb, xs[i], ys[i], local);
+                signs[i] = (byte) (det > 0.0 ? 1 : det < 0.0 ? -1 : 0);
+            }
+        }
+    }
+
+    /**
+     * Determines, for each of a range of points c, if c is left of the line
+     * defined by the points a and b. The points c are given as a structure of
+     * arrays of their coordinates.
+     * <p>
+     * The fast filter is evaluated for the whole range first, in a loop free
+     * of branches and calls; only the points it could not resolve are
+     * evaluated adaptively.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is left of the line, right of it, or on it
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     */
+    public static void leftOfLine(double xa, double ya, double xb, double yb,
+                                  double[] xs, double[] ys, int from, int to,
+                                  int[] signs, Context context) {
+        for (int i = from; i < to; i++) {
+            double acx = xa - xs[i];
+            double bcx = xb - xs[i];
+            double acy = ya - ys[i];
+            double bcy = yb - ys[i];
+            double detleft = acx * bcy;
+            double detright = acy * bcx;
+            double det = detleft - detright;
+            double errbound = O2DERRBOUND
+                              * (Math.abs(detleft) + Math.abs(detright));
+            signs[i] = ((det > errbound ? 1 : 0)
+                        - (-det > errbound ? 1 : 0));
+        }
+        Context local = context;
+        for (int i = from; i < to; i++) {
+            if (signs[i] == 0) {
+                if (local == null) {
+                    local = local(context);
+                }
+                double det = leftOfLine(xa, ya, xb, yb, xs[i], ys[i], local);
+                signs[i] = (det > 0.0 ? 1 : det < 0.0 ? -1 : 0);
+            }
+        }
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -1063,6 +1767,58 @@ public final class Geometry {
         return leftOfLineFast(pa[0], pa[1], pb[0], pb[1], pc[0], pc[1]);
     }
 
+    /**
+     * Determines in parallel, for each of a range of points c, if c is left of
+     * the line defined by the points a and b. The points are given as a
+     * structure of arrays of their coordinates. The range is divided among the
+     * workers of the pool, each evaluating its part with the workspace of its
+     * own thread.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is left of the line, right of it, or on it
+     * @param pool
+     *            - the pool to evaluate the predicate in
+     */
+    public static void leftOfLineParallel(double xa, double ya, double xb,
+                                          double yb, double[] xs, double[] ys,
+                                          int from, int to, byte[] signs,
+                                          ForkJoinPool pool) {
+        double[] fixed = { xa, ya, xb, yb };
+        pool.invoke(new Batch(LEFT_OF_LINE, fixed, xs, ys, null, from, to, signs,
+                              null, grain(pool, from, to)));
+    }
+
+    /**
+     * Determines in parallel, for each of a range of points c, if c is left of
+     * the line defined by the points a and b. The points are given as a
+     * structure of arrays of their coordinates. The range is divided among the
+     * workers of the pool, each evaluating its part with the workspace of its
+     * own thread.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is left of the line, right of it, or on it
+     * @param pool
+     *            - the pool to evaluate the predicate in
+     */
+    public static void leftOfLineParallel(double xa, double ya, double xb,
+                                          double yb, double[] xs, double[] ys,
+                                          int from, int to, int[] signs,
+                                          ForkJoinPool pool) {
+        double[] fixed = { xa, ya, xb, yb };
+        pool.invoke(new Batch(LEFT_OF_LINE, fixed, xs, ys, null, from, to, null,
+                              signs, grain(pool, from, to)));
+    }
+
     /**
      * Determines if a point d is left of the plane defined by the points a, b,
      * and c. The latter are assumed to be in CCW order, as viewed from the
@@ -1071,67 +1827,30 @@ public final class Geometry {
      * @return positive, if left of plane; negative, if right of plane; zero,
      *         otherwise.
      */
-    public static double leftOfPlane(double xa, double ya, double za,
-                                     double xb, double yb, double zb,
-                                     double xc, double yc, double zc,
-                                     double xd, double yd, double zd) {
-        double adx = xa - xd;
-        double bdx = xb - xd;
-        double cdx = xc - xd;
-        double ady = ya - yd;
-        double bdy = yb - yd;
-        double cdy = yc - yd;
-        double adz = za - zd;
-        double bdz = zb - zd;
-        double cdz = zc - zd;
+    public static double leftOfPlane(double xa, double ya, double za, double xb,
+                                     double yb, double zb, double xc, double yc,
+                                     double zc, double xd, double yd,
+                                     double zd) {
+        return leftOfPlane(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd, null);
+    }
 
-        double bdxcdy = bdx * cdy;
-        double cdxbdy = cdx * bdy;
-
-        double cdxady = cdx * ady;
-        double adxcdy = adx * cdy;
-
-        double adxbdy = adx * bdy;
-        double bdxady = bdx * ady;
-
-        double det = adz * (bdxcdy - cdxbdy) + bdz * (cdxady - adxcdy) + cdz
-                     * (adxbdy - bdxady);
-
-        if (adz < 0.0) {
-            adz = -adz;
-        }
-        if (bdz < 0.0) {
-            bdz = -bdz;
-        }
-        if (cdz < 0.0) {
-            cdz = -cdz;
-        }
-        if (bdxcdy < 0.0) {
-            bdxcdy = -bdxcdy;
-        }
-        if (cdxbdy < 0.0) {
-            cdxbdy = -cdxbdy;
-        }
-        if (cdxady < 0.0) {
-            cdxady = -cdxady;
-        }
-        if (adxcdy < 0.0) {
-            adxcdy = -adxcdy;
-        }
-        if (adxbdy < 0.0) {
-            adxbdy = -adxbdy;
-        }
-        if (bdxady < 0.0) {
-            bdxady = -bdxady;
-        }
-        double permanent = (bdxcdy + cdxbdy) * adz + (cdxady + adxcdy) * bdz
-                           + (adxbdy + bdxady) * cdz;
-        double errbound = O3DERRBOUND * permanent;
-        if (det > errbound || -det > errbound) {
-            return det;
-        }
-
-        return leftOfPlaneExact(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd);
+    /**
+     * Determines if a point d is left of the plane defined by the points a, b,
+     * and c. The latter are assumed to be in CCW order, as viewed from the
+     * right side of the plane.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     * @return positive, if left of plane; negative, if right of plane; zero,
+     *         otherwise.
+     */
+    public static double leftOfPlane(double xa, double ya, double za, double xb,
+                                     double yb, double zb, double xc, double yc,
+                                     double zc, double xd, double yd, double zd,
+                                     Context context) {
+        return leftOfPlane(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd,
+                           context, false);
     }
 
     /**
@@ -1144,8 +1863,24 @@ public final class Geometry {
      */
     public static double leftOfPlane(double[] pa, double[] pb, double[] pc,
                                      double[] pd) {
+        return leftOfPlane(pa, pb, pc, pd, null);
+    }
+
+    /**
+     * Determines if a point d is left of the plane defined by the points a, b,
+     * and c. The latter are assumed to be in CCW order, as viewed from the
+     * right side of the plane.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     * @return positive, if left of plane; negative, if right of plane; zero,
+     *         otherwise.
+     */
+    public static double leftOfPlane(double[] pa, double[] pb, double[] pc,
+                                     double[] pd, Context context) {
         return leftOfPlane(pa[0], pa[1], pa[2], pb[0], pb[1], pb[2], pc[0],
-                           pc[1], pc[2], pd[0], pd[1], pd[2]);
+                           pc[1], pc[2], pd[0], pd[1], pd[2], context);
     }
 
     /**
@@ -1158,8 +1893,156 @@ public final class Geometry {
      */
     public static double leftOfPlane(float[] pa, float[] pb, float[] pc,
                                      float[] pd) {
+        return leftOfPlane(pa, pb, pc, pd, null);
+    }
+
+    /**
+     * Determines if a point d is left of the plane defined by the points a, b,
+     * and c. The latter are assumed to be in CCW order, as viewed from the
+     * right side of the plane.
+     * 
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     * @return positive, if left of plane; negative, if right of plane; zero,
+     *         otherwise.
+     */
+    public static double leftOfPlane(float[] pa, float[] pb, float[] pc,
+                                     float[] pd, Context context) {
         return leftOfPlane(pa[0], pa[1], pa[2], pb[0], pb[1], pb[2], pc[0],
-                           pc[1], pc[2], pd[0], pd[1], pd[2]);
+                           pc[1], pc[2], pd[0], pd[1], pd[2], context, true);
+    }
+
+    /**
+     * Determines, for each of a range of points d, if d is left of the plane
+     * defined by the points a, b, and c. The points d are given as a structure
+     * of arrays of their coordinates.
+     * <p>
+     * The fast filter is evaluated for the whole range first, in a loop free
+     * of branches and calls; only the points it could not resolve are
+     * evaluated adaptively.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is left of the plane, right of it, or on it
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     */
+    public static void leftOfPlane(double xa, double ya, double za, double xb,
+                                   double yb, double zb, double xc, double yc,
+                                   double zc, double[] xs, double[] ys,
+                                   double[] zs, int from, int to, byte[] signs,
+                                   Context context) {
+        for (int i = from; i < to; i++) {
+            double adx = xa - xs[i];
+            double bdx = xb - xs[i];
+            double cdx = xc - xs[i];
+            double ady = ya - ys[i];
+            double bdy = yb - ys[i];
+            double cdy = yc - ys[i];
+            double adz = za - zs[i];
+            double bdz = zb - zs[i];
+            double cdz = zc - zs[i];
+            double bdxcdy = bdx * cdy;
+            double cdxbdy = cdx * bdy;
+            double cdxady = cdx * ady;
+            double adxcdy = adx * cdy;
+            double adxbdy = adx * bdy;
+            double bdxady = bdx * ady;
+            double det = adz * (bdxcdy - cdxbdy) + bdz * (cdxady - adxcdy)
+                         + cdz * (adxbdy - bdxady);
+            double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy))
+                               * Math.abs(adz)
+                               + (Math.abs(cdxady) + Math.abs(adxcdy))
+                               * Math.abs(bdz)
+                               + (Math.abs(adxbdy) + Math.abs(bdxady))
+                               * Math.abs(cdz);
+            double errbound = O3DERRBOUND * permanent;
+            signs[i] = (byte) ((det > errbound ? 1 : 0)
+                               - (-det > errbound ? 1 : 0));
+        }
+        Context local = context;
+        for (int i = from; i < to; i++) {
+            if (signs[i] == 0) {
+                if (local == null) {
+                    local = local(context);
+                }
+                double det = leftOfPlane(xa, ya, za, xb, yb, zb, xc, yc, zc,
+                                         xs[i], ys[i], zs[i], local);
+                signs[i] = (byte) (det > 0.0 ? 1 : det < 0.0 ? -1 : 0);
+            }
+        }
+    }
+
+    /**
+     * Determines, for each of a range of points d, if d is left of the plane
+     * defined by the points a, b, and c. The points d are given as a structure
+     * of arrays of their coordinates.
+     * <p>
+     * The fast filter is evaluated for the whole range first, in a loop free
+     * of branches and calls; only the points it could not resolve are
+     * evaluated adaptively.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is left of the plane, right of it, or on it
+     * @param context
+     *            - the workspace for the exact arithmetic, or null to use the
+     *            workspace of the current thread
+     */
+    public static void leftOfPlane(double xa, double ya, double za, double xb,
+                                   double yb, double zb, double xc, double yc,
+                                   double zc, double[] xs, double[] ys,
+                                   double[] zs, int from, int to, int[] signs,
+                                   Context context) {
+        for (int i = from; i < to; i++) {
+            double adx = xa - xs[i];
+            double bdx = xb - xs[i];
+            double cdx = xc - xs[i];
+            double ady = ya - ys[i];
+            double bdy = yb - ys[i];
+            double cdy = yc - ys[i];
+            double adz = za - zs[i];
+            double bdz = zb - zs[i];
+            double cdz = zc - zs[i];
+            double bdxcdy = bdx * cdy;
+            double cdxbdy = cdx * bdy;
+            double cdxady = cdx * ady;
+            double adxcdy = adx * cdy;
+            double adxbdy = adx * bdy;
+            double bdxady = bdx * ady;
+            double det = adz * (bdxcdy - cdxbdy) + bdz * (cdxady - adxcdy)
+                         + cdz * (adxbdy - bdxady);
+            double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy))
+                               * Math.abs(adz)
+                               + (Math.abs(cdxady) + Math.abs(adxcdy))
+                               * Math.abs(bdz)
+                               + (Math.abs(adxbdy) + Math.abs(bdxady))
+                               * Math.abs(cdz);
+            double errbound = O3DERRBOUND * permanent;
+            signs[i] = ((det > errbound ? 1 : 0)
+                        - (-det > errbound ? 1 : 0));
+        }
+        Context local = context;
+        for (int i = from; i < to; i++) {
+            if (signs[i] == 0) {
+                if (local == null) {
+                    local = local(context);
+                }
+                double det = leftOfPlane(xa, ya, za, xb, yb, zb, xc, yc, zc,
+                                         xs[i], ys[i], zs[i], local);
+                signs[i] = (det > 0.0 ? 1 : det < 0.0 ? -1 : 0);
+            }
+        }
     }
 
     /**
@@ -1222,6 +2105,109 @@ public final class Geometry {
                                pc[1], pc[2], pd[0], pd[1], pd[2]);
     }
 
+    /**
+     * Determines in parallel, for each of a range of points d, if d is left of
+     * the plane defined by the points a, b, and c. The points are given as a
+     * structure of arrays of their coordinates. The range is divided among the
+     * workers of the pool, each evaluating its part with the workspace of its
+     * own thread.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is left of the plane, right of it, or on it
+     * @param pool
+     *            - the pool to evaluate the predicate in
+     */
+    public static void leftOfPlaneParallel(double xa, double ya, double za,
+                                           double xb, double yb, double zb,
+                                           double xc, double yc, double zc,
+                                           double[] xs, double[] ys, double[] zs,
+                                           int from, int to, byte[] signs,
+                                           ForkJoinPool pool) {
+        double[] fixed = { xa, ya, za, xb, yb, zb, xc, yc, zc };
+        pool.invoke(new Batch(LEFT_OF_PLANE, fixed, xs, ys, zs, from, to, signs,
+                              null, grain(pool, from, to)));
+    }
+
+    /**
+     * Determines in parallel, for each of a range of points d, if d is left of
+     * the plane defined by the points a, b, and c. The points are given as a
+     * structure of arrays of their coordinates. The range is divided among the
+     * workers of the pool, each evaluating its part with the workspace of its
+     * own thread.
+     * 
+     * @param from
+     *            - the index of the first point, inclusive
+     * @param to
+     *            - the index of the last point, exclusive
+     * @param signs
+     *            - the array to hold, at the index of each point, 1, -1, or 0
+     *            as the point is left of the plane, right of it, or on it
+     * @param pool
+     *            - the pool to evaluate the predicate in
+     */
+    public static void leftOfPlaneParallel(double xa, double ya, double za,
+                                           double xb, double yb, double zb,
+                                           double xc, double yc, double zc,
+                                           double[] xs, double[] ys, double[] zs,
+                                           int from, int to, int[] signs,
+                                           ForkJoinPool pool) {
+        double[] fixed = { xa, ya, za, xb, yb, zb, xc, yc, zc };
+        pool.invoke(new Batch(LEFT_OF_PLANE, fixed, xs, ys, zs, from, to, null,
+                              signs, grain(pool, from, to)));
+    }
+
+    /**
+     * Computes the expansion h = e*ez + f*fz + g*gz of three expansions of up
+     * to four components in the buffer t24 of the context. Returns the length
+     * of h.
+     */
+    private static int cofactor(int elen, double[] e, double ez, int flen,
+                                double[] f, double fz, int glen, double[] g,
+                                double gz, Context context) {
+        Two t = context.two;
+        int t8alen = scaleExpansionZeroElim(elen, e, ez, context.t8a, t);
+        int t8blen = scaleExpansionZeroElim(flen, f, fz, context.t8b, t);
+        int t8clen = scaleExpansionZeroElim(glen, g, gz, context.t8c, t);
+        int t16len = expansionSumZeroElimFast(t8alen, context.t8a, t8blen,
+                                              context.t8b, context.t16, t);
+        return expansionSumZeroElimFast(t8clen, context.t8c, t16len,
+                                        context.t16, context.t24, t);
+    }
+
+    /**
+     * Returns the approximate value of an expansion, the sum of its
+     * components. The sign of the approximation is that of the expansion.
+     */
+    private static double estimate(int elen, double[] e) {
+        double q = e[0];
+        for (int i = 1; i < elen; ++i) {
+            q += e[i];
+        }
+        return q;
+    }
+
+    /**
+     * Returns true if the difference a-b is exactly representable.
+     */
+    private static boolean exact(double a, double b, Two t) {
+        twoDiff(a, b, t);
+        return t.y == 0.0;
+    }
+
+    /**
+     * Returns the number of points to evaluate in each task of a parallel
+     * batch: enough tasks to balance the load on the workers of the pool, but
+     * enough points to amortize the cost of each task.
+     */
+    private static int grain(ForkJoinPool pool, int from, int to) {
+        return Math.max(GRAIN, (to - from) / (pool.getParallelism() * 8));
+    }
+
     /**
      * Computes the sum of two expansions h = e+f, eliminating zero components
      * from output expansion. If round-to-even is used (as with IEEE 754),
@@ -1231,9 +2217,8 @@ public final class Geometry {
      * aliased with e or f.
      */
     private static int expansionSumZeroElimFast(int elen, double[] e, int flen,
-                                                double[] f, double[] h) {
+                                                double[] f, double[] h, Two t) {
         double q, qnew, hh;
-        Two t = new Two();
         double enow = e[0];
         double fnow = f[0];
         int eindex = 0;
@@ -1324,160 +2309,627 @@ public final class Geometry {
                 h[hindex++] = hh;
             }
         }
-        if (q != 0.0 || hindex == 0) {
-            h[hindex++] = q;
+        if (q != 0.0 || hindex == 0) {
+            h[hindex++] = q;
+        }
+        return hindex;
+    }
+
+    /**
+     * Evaluates the in-circle test. If the coordinates are floats, the points
+     * the fast filter could not resolve are evaluated by the float stage.
+     */
+    private static double inCircle(double xa, double ya, double xb, double yb,
+                                   double xc, double yc, double xd, double yd,
+                                   Context context, boolean floats) {
+        double adx = xa - xd;
+        double bdx = xb - xd;
+        double cdx = xc - xd;
+        double ady = ya - yd;
+        double bdy = yb - yd;
+        double cdy = yc - yd;
+
+        double bdxcdy = bdx * cdy;
+        double cdxbdy = cdx * bdy;
+        double alift = adx * adx + ady * ady;
+
+        double cdxady = cdx * ady;
+        double adxcdy = adx * cdy;
+        double blift = bdx * bdx + bdy * bdy;
+
+        double adxbdy = adx * bdy;
+        double bdxady = bdx * ady;
+        double clift = cdx * cdx + cdy * cdy;
+
+        double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy)
+                     + clift * (adxbdy - bdxady);
+
+        if (bdxcdy < 0.0) {
+            bdxcdy = -bdxcdy;
+        }
+        if (cdxbdy < 0.0) {
+            cdxbdy = -cdxbdy;
+        }
+        if (adxcdy < 0.0) {
+            adxcdy = -adxcdy;
+        }
+        if (cdxady < 0.0) {
+            cdxady = -cdxady;
+        }
+        if (adxbdy < 0.0) {
+            adxbdy = -adxbdy;
+        }
+        if (bdxady < 0.0) {
+            bdxady = -bdxady;
+        }
+
+        double permanent = alift * (bdxcdy + cdxbdy) + blift
+                           * (cdxady + adxcdy) + clift * (adxbdy + bdxady);
+        double errbound = INCERRBOUND * permanent;
+        if (det > errbound || -det > errbound) {
+            return det;
+        }
+
+        if (floats) {
+            return inCircleFloat(xa, ya, xb, yb, xc, yc, xd, yd, permanent,
+                                 local(context));
+        }
+        return inCircleAdapt(xa, ya, xb, yb, xc, yc, xd, yd, permanent,
+                             local(context));
+    }
+
+    /**
+     * Adaptive in-circle test, for points that the fast filter could not
+     * resolve. Stage B computes the determinant exactly from the rounded
+     * coordinate differences; stage C corrects it by the first order terms of
+     * the roundoff of the differences. Only if both are uncertain is the
+     * determinant computed exactly.
+     */
+    private static double inCircleAdapt(double xa, double ya, double xb,
+                                        double yb, double xc, double yc,
+                                        double xd, double yd,
+                                        double permanent, Context context) {
+        Two t = context.two;
+        double adx = xa - xd;
+        double bdx = xb - xd;
+        double cdx = xc - xd;
+        double ady = ya - yd;
+        double bdy = yb - yd;
+        double cdy = yc - yd;
+
+        double[] detx = context.detx;
+        double[] detxx = context.detxx;
+        double[] dety = context.dety;
+        double[] detyy = context.detyy;
+
+        double[] bc = context.bc;
+        twoTwoDiffOfProducts(bdx, cdy, cdx, bdy, bc, t);
+        int xlen = scaleExpansionZeroElim(4, bc, adx, detx, t);
+        int xxlen = scaleExpansionZeroElim(xlen, detx, adx, detxx, t);
+        int ylen = scaleExpansionZeroElim(4, bc, ady, dety, t);
+        int yylen = scaleExpansionZeroElim(ylen, dety, ady, detyy, t);
+        double[] adet = context.adet;
+        int alen = expansionSumZeroElimFast(xxlen, detxx, yylen, detyy, adet, t);
+
+        double[] ca = context.ca;
+        twoTwoDiffOfProducts(cdx, ady, adx, cdy, ca, t);
+        xlen = scaleExpansionZeroElim(4, ca, bdx, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, bdx, detxx, t);
+        ylen = scaleExpansionZeroElim(4, ca, bdy, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, bdy, detyy, t);
+        double[] bdet = context.bdet;
+        int blen = expansionSumZeroElimFast(xxlen, detxx, yylen, detyy, bdet, t);
+
+        double[] ab = context.ab;
+        twoTwoDiffOfProducts(adx, bdy, bdx, ady, ab, t);
+        xlen = scaleExpansionZeroElim(4, ab, cdx, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, cdx, detxx, t);
+        ylen = scaleExpansionZeroElim(4, ab, cdy, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, cdy, detyy, t);
+        double[] cdet = context.cdet;
+        int clen = expansionSumZeroElimFast(xxlen, detxx, yylen, detyy, cdet, t);
+
+        double[] abdet = context.abdet;
+        double[] fin = context.det;
+        int ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet, t);
+        int finlen = expansionSumZeroElimFast(ablen, abdet, clen, cdet, fin, t);
+
+        double det = estimate(finlen, fin);
+        double errbound = INCERRBOUNDB * permanent;
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
+
+        twoDiff(xa, xd, t);
+        double adxtail = t.y;
+        twoDiff(ya, yd, t);
+        double adytail = t.y;
+        twoDiff(xb, xd, t);
+        double bdxtail = t.y;
+        twoDiff(yb, yd, t);
+        double bdytail = t.y;
+        twoDiff(xc, xd, t);
+        double cdxtail = t.y;
+        twoDiff(yc, yd, t);
+        double cdytail = t.y;
+        if (adxtail == 0.0 && bdxtail == 0.0 && cdxtail == 0.0
+            && adytail == 0.0 && bdytail == 0.0 && cdytail == 0.0) {
+            // The differences, and so the stage B determinant, are exact
+            return det;
+        }
+
+        errbound = INCERRBOUNDC * permanent + RESULTERRBOUND * Math.abs(det);
+        double alift = adx * adx + ady * ady;
+        double blift = bdx * bdx + bdy * bdy;
+        double clift = cdx * cdx + cdy * cdy;
+        double bceps = bdx * cdytail + cdy * bdxtail
+                       - (bdy * cdxtail + cdx * bdytail);
+        double caeps = cdx * adytail + ady * cdxtail
+                       - (cdy * adxtail + adx * cdytail);
+        double abeps = adx * bdytail + bdy * adxtail
+                       - (ady * bdxtail + bdx * adytail);
+        det += alift * bceps + 2.0 * (adx * adxtail + ady * adytail)
+               * (bdx * cdy - bdy * cdx)
+               + (blift * caeps + 2.0 * (bdx * bdxtail + bdy * bdytail)
+                  * (cdx * ady - cdy * adx))
+               + (clift * abeps + 2.0 * (cdx * cdxtail + cdy * cdytail)
+                  * (adx * bdy - ady * bdx));
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
+
+        return inCircleExact(xa, ya, xb, yb, xc, yc, xd, yd, context);
+    }
+
+    /**
+     * Slow exact in-circle test. Returns a positive value if the point pd lies
+     * inside the circle passing through pa, pb, and pc; a negative value if it
+     * lies outside; and zero if the four points are cocircular. The points pa,
+     * pb, and pc must be in counterclockwise order, or the sign of the result
+     * will be reversed.
+     */
+    private static double inCircleExact(double xa, double ya, double xb,
+                                        double yb, double xc, double yc,
+                                        double xd, double yd,
+                                        Context context) {
+        Two t = context.two;
+        twoDiff(xa, xd, t);
+        double adx = t.x;
+        double adxtail = t.y;
+        twoDiff(ya, yd, t);
+        double ady = t.x;
+        double adytail = t.y;
+        twoDiff(xb, xd, t);
+        double bdx = t.x;
+        double bdxtail = t.y;
+        twoDiff(yb, yd, t);
+        double bdy = t.x;
+        double bdytail = t.y;
+        twoDiff(xc, xd, t);
+        double cdx = t.x;
+        double cdxtail = t.y;
+        twoDiff(yc, yd, t);
+        double cdy = t.x;
+        double cdytail = t.y;
+
+        double[] axby = context.axby;
+        double[] bxay = context.bxay;
+        twoTwoProduct(adx, adxtail, bdy, bdytail, axby, t);
+        double negate = -ady;
+        double negatetail = -adytail;
+        twoTwoProduct(bdx, bdxtail, negate, negatetail, bxay, t);
+
+        double[] bxcy = context.bxcy;
+        double[] cxby = context.cxby;
+        twoTwoProduct(bdx, bdxtail, cdy, cdytail, bxcy, t);
+        negate = -bdy;
+        negatetail = -bdytail;
+        twoTwoProduct(cdx, cdxtail, negate, negatetail, cxby, t);
+
+        double[] cxay = context.cxay;
+        double[] axcy = context.axcy;
+        twoTwoProduct(cdx, cdxtail, ady, adytail, cxay, t);
+        negate = -cdy;
+        negatetail = -cdytail;
+        twoTwoProduct(adx, adxtail, negate, negatetail, axcy, t);
+
+        double[] t16 = context.t16;
+        int t16len = expansionSumZeroElimFast(8, bxcy, 8, cxby, t16, t);
+
+        double[] detx = context.detx;
+        double[] detxx = context.detxx;
+        double[] detxt = context.detxt;
+        double[] detxxt = context.detxxt;
+        double[] detxtxt = context.detxtxt;
+        double[] x1 = context.x1;
+        double[] x2 = context.x2;
+        int xlen = scaleExpansionZeroElim(t16len, t16, adx, detx, t);
+        int xxlen = scaleExpansionZeroElim(xlen, detx, adx, detxx, t);
+        int xtlen = scaleExpansionZeroElim(t16len, t16, adxtail, detxt, t);
+        int xxtlen = scaleExpansionZeroElim(xtlen, detxt, adx, detxxt, t);
+        for (int i = 0; i < xxtlen; ++i) {
+            detxxt[i] *= 2.0;
+        }
+        int xtxtlen = scaleExpansionZeroElim(xtlen, detxt, adxtail, detxtxt, t);
+        int x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1, t);
+        int x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2, t);
+
+        double[] dety = context.dety;
+        double[] detyy = context.detyy;
+        double[] detyt = context.detyt;
+        double[] detyyt = context.detyyt;
+        double[] detytyt = context.detytyt;
+        double[] y1 = context.y1;
+        double[] y2 = context.y2;
+        int ylen = scaleExpansionZeroElim(t16len, t16, ady, dety, t);
+        int yylen = scaleExpansionZeroElim(ylen, dety, ady, detyy, t);
+        int ytlen = scaleExpansionZeroElim(t16len, t16, adytail, detyt, t);
+        int yytlen = scaleExpansionZeroElim(ytlen, detyt, ady, detyyt, t);
+        for (int i = 0; i < yytlen; ++i) {
+            detyyt[i] *= 2.0;
+        }
+        int ytytlen = scaleExpansionZeroElim(ytlen, detyt, adytail, detytyt, t);
+        int y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1, t);
+        int y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2, t);
+
+        double[] adet = context.adet;
+        double[] bdet = context.bdet;
+        double[] cdet = context.cdet;
+        int alen = expansionSumZeroElimFast(x2len, x2, y2len, y2, adet, t);
+
+        t16len = expansionSumZeroElimFast(8, cxay, 8, axcy, t16, t);
+        xlen = scaleExpansionZeroElim(t16len, t16, bdx, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, bdx, detxx, t);
+        xtlen = scaleExpansionZeroElim(t16len, t16, bdxtail, detxt, t);
+        xxtlen = scaleExpansionZeroElim(xtlen, detxt, bdx, detxxt, t);
+        for (int i = 0; i < xxtlen; ++i) {
+            detxxt[i] *= 2.0;
+        }
+        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, bdxtail, detxtxt, t);
+        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1, t);
+        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2, t);
+
+        ylen = scaleExpansionZeroElim(t16len, t16, bdy, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, bdy, detyy, t);
+        ytlen = scaleExpansionZeroElim(t16len, t16, bdytail, detyt, t);
+        yytlen = scaleExpansionZeroElim(ytlen, detyt, bdy, detyyt, t);
+        for (int i = 0; i < yytlen; ++i) {
+            detyyt[i] *= 2.0;
+        }
+        ytytlen = scaleExpansionZeroElim(ytlen, detyt, bdytail, detytyt, t);
+        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1, t);
+        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2, t);
+        int blen = expansionSumZeroElimFast(x2len, x2, y2len, y2, bdet, t);
+
+        t16len = expansionSumZeroElimFast(8, axby, 8, bxay, t16, t);
+        xlen = scaleExpansionZeroElim(t16len, t16, cdx, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, cdx, detxx, t);
+        xtlen = scaleExpansionZeroElim(t16len, t16, cdxtail, detxt, t);
+        xxtlen = scaleExpansionZeroElim(xtlen, detxt, cdx, detxxt, t);
+        for (int i = 0; i < xxtlen; ++i) {
+            detxxt[i] *= 2.0;
+        }
+        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, cdxtail, detxtxt, t);
+        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1, t);
+        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2, t);
+        ylen = scaleExpansionZeroElim(t16len, t16, cdy, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, cdy, detyy, t);
+        ytlen = scaleExpansionZeroElim(t16len, t16, cdytail, detyt, t);
+        yytlen = scaleExpansionZeroElim(ytlen, detyt, cdy, detyyt, t);
+        for (int i = 0; i < yytlen; ++i) {
+            detyyt[i] *= 2.0;
+        }
+        ytytlen = scaleExpansionZeroElim(ytlen, detyt, cdytail, detytyt, t);
+        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1, t);
+        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2, t);
+        int clen = expansionSumZeroElimFast(x2len, x2, y2len, y2, cdet, t);
+
+        double[] abdet = context.abdet;
+        double[] det = context.det;
+        int ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet, t);
+        int detlen = expansionSumZeroElimFast(ablen, abdet, clen, cdet, det, t);
+
+        return det[detlen - 1];
+    }
+
+    /**
+     * Float in-circle test, for points of float coordinates that the fast
+     * filter could not resolve. The differences of nearby float coordinates
+     * are floats themselves, whose products are exact in double, so the
+     * determinant is computed exactly from minors of two components rather
+     * than the four of stage B. Otherwise the points are evaluated adaptively.
+     */
+    private static double inCircleFloat(double xa, double ya, double xb,
+                                        double yb, double xc, double yc,
+                                        double xd, double yd,
+                                        double permanent, Context context) {
+        Two t = context.two;
+        if (!narrow(xa, xd, t) || !narrow(ya, yd, t) || !narrow(xb, xd, t)
+            || !narrow(yb, yd, t) || !narrow(xc, xd, t) || !narrow(yc, yd, t)) {
+            return inCircleAdapt(xa, ya, xb, yb, xc, yc, xd, yd, permanent,
+                                 context);
+        }
+        double adx = xa - xd;
+        double bdx = xb - xd;
+        double cdx = xc - xd;
+        double ady = ya - yd;
+        double bdy = yb - yd;
+        double cdy = yc - yd;
+
+        double[] detx = context.detx;
+        double[] detxx = context.detxx;
+        double[] dety = context.dety;
+        double[] detyy = context.detyy;
+
+        double[] bc = context.bc;
+        twoDiffOfProducts(bdx, cdy, cdx, bdy, bc, t);
+        int xlen = scaleExpansionZeroElim(2, bc, adx, detx, t);
+        int xxlen = scaleExpansionZeroElim(xlen, detx, adx, detxx, t);
+        int ylen = scaleExpansionZeroElim(2, bc, ady, dety, t);
+        int yylen = scaleExpansionZeroElim(ylen, dety, ady, detyy, t);
+        double[] adet = context.adet;
+        int alen = expansionSumZeroElimFast(xxlen, detxx, yylen, detyy, adet, t);
+
+        double[] ca = context.ca;
+        twoDiffOfProducts(cdx, ady, adx, cdy, ca, t);
+        xlen = scaleExpansionZeroElim(2, ca, bdx, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, bdx, detxx, t);
+        ylen = scaleExpansionZeroElim(2, ca, bdy, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, bdy, detyy, t);
+        double[] bdet = context.bdet;
+        int blen = expansionSumZeroElimFast(xxlen, detxx, yylen, detyy, bdet, t);
+
+        double[] ab = context.ab;
+        twoDiffOfProducts(adx, bdy, bdx, ady, ab, t);
+        xlen = scaleExpansionZeroElim(2, ab, cdx, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, cdx, detxx, t);
+        ylen = scaleExpansionZeroElim(2, ab, cdy, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, cdy, detyy, t);
+        double[] cdet = context.cdet;
+        int clen = expansionSumZeroElimFast(xxlen, detxx, yylen, detyy, cdet, t);
+
+        double[] abdet = context.abdet;
+        double[] fin = context.det;
+        int ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet, t);
+        int finlen = expansionSumZeroElimFast(ablen, abdet, clen, cdet, fin, t);
+        return estimate(finlen, fin);
+    }
+
+    /**
+     * Evaluates the in-ortho-sphere test. If the coordinates are floats, the
+     * points the fast filter could not resolve are evaluated by the float
+     * stage.
+     */
+    private static double inOrthoSphere(double xa, double ya, double za,
+                                        double wa, double xb, double yb,
+                                        double zb, double wb, double xc,
+                                        double yc, double zc, double wc,
+                                        double xd, double yd, double zd,
+                                        double wd, double xe, double ye,
+                                        double ze, double we, Context context,
+                                        boolean floats) {
+        double aex = xa - xe;
+        double bex = xb - xe;
+        double cex = xc - xe;
+        double dex = xd - xe;
+        double aey = ya - ye;
+        double bey = yb - ye;
+        double cey = yc - ye;
+        double dey = yd - ye;
+        double aez = za - ze;
+        double bez = zb - ze;
+        double cez = zc - ze;
+        double dez = zd - ze;
+        double aew = wa - we;
+        double bew = wb - we;
+        double cew = wc - we;
+        double dew = wd - we;
+
+        double aexbey = aex * bey;
+        double bexaey = bex * aey;
+        double ab = aexbey - bexaey;
+        double bexcey = bex * cey;
+        double cexbey = cex * bey;
+        double bc = bexcey - cexbey;
+        double cexdey = cex * dey;
+        double dexcey = dex * cey;
+        double cd = cexdey - dexcey;
+        double dexaey = dex * aey;
+        double aexdey = aex * dey;
+        double da = dexaey - aexdey;
+
+        double aexcey = aex * cey;
+        double cexaey = cex * aey;
+        double ac = aexcey - cexaey;
+        double bexdey = bex * dey;
+        double dexbey = dex * bey;
+        double bd = bexdey - dexbey;
+
+        double abc = aez * bc - bez * ac + cez * ab;
+        double bcd = bez * cd - cez * bd + dez * bc;
+        double cda = cez * da + dez * ac + aez * cd;
+        double dab = dez * ab + aez * bd + bez * da;
+
+        double alift = aex * aex + aey * aey + aez * aez;
+        double blift = bex * bex + bey * bey + bez * bez;
+        double clift = cex * cex + cey * cey + cez * cez;
+        double dlift = dex * dex + dey * dey + dez * dez;
+
+        double det = (dlift - dew) * abc - (clift - cew) * dab
+                     + ((blift - bew) * cda - (alift - aew) * bcd);
+
+        if (aez < 0.0) {
+            aez = -aez;
+        }
+        if (bez < 0.0) {
+            bez = -bez;
+        }
+        if (cez < 0.0) {
+            cez = -cez;
+        }
+        if (dez < 0.0) {
+            dez = -dez;
+        }
+        if (aew < 0.0) {
+            aew = -aew;
+        }
+        if (bew < 0.0) {
+            bew = -bew;
+        }
+        if (cew < 0.0) {
+            cew = -cew;
+        }
+        if (dew < 0.0) {
+            dew = -dew;
+        }
+        if (aexbey < 0.0) {
+            aexbey = -aexbey;
+        }
+        if (bexaey < 0.0) {
+            bexaey = -bexaey;
+        }
+        if (bexcey < 0.0) {
+            bexcey = -bexcey;
+        }
+        if (cexbey < 0.0) {
+            cexbey = -cexbey;
+        }
+        if (cexdey < 0.0) {
+            cexdey = -cexdey;
+        }
+        if (dexcey < 0.0) {
+            dexcey = -dexcey;
+        }
+        if (dexaey < 0.0) {
+            dexaey = -dexaey;
+        }
+        if (aexdey < 0.0) {
+            aexdey = -aexdey;
+        }
+        if (aexcey < 0.0) {
+            aexcey = -aexcey;
+        }
+        if (cexaey < 0.0) {
+            cexaey = -cexaey;
+        }
+        if (bexdey < 0.0) {
+            bexdey = -bexdey;
+        }
+        if (dexbey < 0.0) {
+            dexbey = -dexbey;
+        }
+        double permanent = ((cexdey + dexcey) * bez + (dexbey + bexdey) * cez + (bexcey + cexbey)
+                                                                                * dez)
+                           * (alift + aew)
+                           + ((dexaey + aexdey) * cez + (aexcey + cexaey) * dez + (cexdey + dexcey)
+                                                                                  * aez)
+                           * (blift + bew)
+                           + ((aexbey + bexaey) * dez + (bexdey + dexbey) * aez + (dexaey + aexdey)
+                                                                                  * bez)
+                           * (clift + cew)
+                           + ((bexcey + cexbey) * aez + (cexaey + aexcey) * bez + (aexbey + bexaey)
+                                                                                  * cez)
+                           * (dlift + dew);
+        double errbound = IOSERRBOUND * permanent;
+        if (det > errbound || -det > errbound) {
+            return det;
+        }
+
+        if (floats) {
+            return inOrthoSphereFloat(xa, ya, za, wa, xb, yb, zb, wb, xc, yc,
+                                      zc, wc, xd, yd, zd, wd, xe, ye, ze, we,
+                                      permanent, local(context));
         }
-        return hindex;
+        return inOrthoSphereAdapt(xa, ya, za, wa, xb, yb, zb, wb, xc, yc, zc, wc,
+                                  xd, yd, zd, wd, xe, ye, ze, we, permanent,
+                                  local(context));
     }
 
     /**
-     * Slow exact in-circle test. Returns a positive value if the point pd lies
-     * inside the circle passing through pa, pb, and pc; a negative value if it
-     * lies outside; and zero if the four points are cocircular. The points pa,
-     * pb, and pc must be in counterclockwise order, or the sign of the result
-     * will be reversed.
+     * Adaptive 3D in-ortho-sphere test, for points that the fast filter could
+     * not resolve. Stage B computes the determinant exactly from the rounded
+     * differences of the coordinates and weights. Only if it is uncertain, and
+     * the differences were rounded, is the determinant computed exactly.
      */
-    private static double inCircleExact(double xa, double ya, double xb,
-                                        double yb, double xc, double yc,
-                                        double xd, double yd) {
-        Two t = new Two();
-        twoDiff(xa, xd, t);
-        double adx = t.x;
-        double adxtail = t.y;
-        twoDiff(ya, yd, t);
-        double ady = t.x;
-        double adytail = t.y;
-        twoDiff(xb, xd, t);
-        double bdx = t.x;
-        double bdxtail = t.y;
-        twoDiff(yb, yd, t);
-        double bdy = t.x;
-        double bdytail = t.y;
-        twoDiff(xc, xd, t);
-        double cdx = t.x;
-        double cdxtail = t.y;
-        twoDiff(yc, yd, t);
-        double cdy = t.x;
-        double cdytail = t.y;
-
-        double[] axby = new double[8];
-        double[] bxay = new double[8];
-        twoTwoProduct(adx, adxtail, bdy, bdytail, axby);
-        double negate = -ady;
-        double negatetail = -adytail;
-        twoTwoProduct(bdx, bdxtail, negate, negatetail, bxay);
-
-        double[] bxcy = new double[8];
-        double[] cxby = new double[8];
-        twoTwoProduct(bdx, bdxtail, cdy, cdytail, bxcy);
-        negate = -bdy;
-        negatetail = -bdytail;
-        twoTwoProduct(cdx, cdxtail, negate, negatetail, cxby);
-
-        double[] cxay = new double[8];
-        double[] axcy = new double[8];
-        twoTwoProduct(cdx, cdxtail, ady, adytail, cxay);
-        negate = -cdy;
-        negatetail = -cdytail;
-        twoTwoProduct(adx, adxtail, negate, negatetail, axcy);
-
-        double[] t16 = new double[16];
-        int t16len = expansionSumZeroElimFast(8, bxcy, 8, cxby, t16);
-
-        double[] detx = new double[32];
-        double[] detxx = new double[64];
-        double[] detxt = new double[32];
-        double[] detxxt = new double[64];
-        double[] detxtxt = new double[64];
-        double[] x1 = new double[128];
-        double[] x2 = new double[192];
-        int xlen = scaleExpansionZeroElim(t16len, t16, adx, detx);
-        int xxlen = scaleExpansionZeroElim(xlen, detx, adx, detxx);
-        int xtlen = scaleExpansionZeroElim(t16len, t16, adxtail, detxt);
-        int xxtlen = scaleExpansionZeroElim(xtlen, detxt, adx, detxxt);
-        for (int i = 0; i < xxtlen; ++i) {
-            detxxt[i] *= 2.0;
-        }
-        int xtxtlen = scaleExpansionZeroElim(xtlen, detxt, adxtail, detxtxt);
-        int x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1);
-        int x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2);
-
-        double[] dety = new double[32];
-        double[] detyy = new double[64];
-        double[] detyt = new double[32];
-        double[] detyyt = new double[64];
-        double[] detytyt = new double[64];
-        double[] y1 = new double[128];
-        double[] y2 = new double[192];
-        int ylen = scaleExpansionZeroElim(t16len, t16, ady, dety);
-        int yylen = scaleExpansionZeroElim(ylen, dety, ady, detyy);
-        int ytlen = scaleExpansionZeroElim(t16len, t16, adytail, detyt);
-        int yytlen = scaleExpansionZeroElim(ytlen, detyt, ady, detyyt);
-        for (int i = 0; i < yytlen; ++i) {
-            detyyt[i] *= 2.0;
-        }
-        int ytytlen = scaleExpansionZeroElim(ytlen, detyt, adytail, detytyt);
-        int y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1);
-        int y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2);
-
-        double[] adet = new double[384];
-        double[] bdet = new double[384];
-        double[] cdet = new double[384];
-        int alen = expansionSumZeroElimFast(x2len, x2, y2len, y2, adet);
-
-        t16len = expansionSumZeroElimFast(8, cxay, 8, axcy, t16);
-        xlen = scaleExpansionZeroElim(t16len, t16, bdx, detx);
-        xxlen = scaleExpansionZeroElim(xlen, detx, bdx, detxx);
-        xtlen = scaleExpansionZeroElim(t16len, t16, bdxtail, detxt);
-        xxtlen = scaleExpansionZeroElim(xtlen, detxt, bdx, detxxt);
-        for (int i = 0; i < xxtlen; ++i) {
-            detxxt[i] *= 2.0;
-        }
-        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, bdxtail, detxtxt);
-        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1);
-        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2);
-
-        ylen = scaleExpansionZeroElim(t16len, t16, bdy, dety);
-        yylen = scaleExpansionZeroElim(ylen, dety, bdy, detyy);
-        ytlen = scaleExpansionZeroElim(t16len, t16, bdytail, detyt);
-        yytlen = scaleExpansionZeroElim(ytlen, detyt, bdy, detyyt);
-        for (int i = 0; i < yytlen; ++i) {
-            detyyt[i] *= 2.0;
-        }
-        ytytlen = scaleExpansionZeroElim(ytlen, detyt, bdytail, detytyt);
-        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1);
-        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2);
-        int blen = expansionSumZeroElimFast(x2len, x2, y2len, y2, bdet);
+    private static double inOrthoSphereAdapt(double xa, double ya, double za,
+                                             double wa, double xb, double yb,
+                                             double zb, double wb, double xc,
+                                             double yc, double zc, double wc,
+                                             double xd, double yd, double zd,
+                                             double wd, double xe, double ye,
+                                             double ze, double we,
+                                             double permanent,
+                                             Context context) {
+        Two t = context.two;
+        double aex = xa - xe;
+        double bex = xb - xe;
+        double cex = xc - xe;
+        double dex = xd - xe;
+        double aey = ya - ye;
+        double bey = yb - ye;
+        double cey = yc - ye;
+        double dey = yd - ye;
+        double aez = za - ze;
+        double bez = zb - ze;
+        double cez = zc - ze;
+        double dez = zd - ze;
+        double aew = wa - we;
+        double bew = wb - we;
+        double cew = wc - we;
+        double dew = wd - we;
 
-        t16len = expansionSumZeroElimFast(8, axby, 8, bxay, t16);
-        xlen = scaleExpansionZeroElim(t16len, t16, cdx, detx);
-        xxlen = scaleExpansionZeroElim(xlen, detx, cdx, detxx);
-        xtlen = scaleExpansionZeroElim(t16len, t16, cdxtail, detxt);
-        xxtlen = scaleExpansionZeroElim(xtlen, detxt, cdx, detxxt);
-        for (int i = 0; i < xxtlen; ++i) {
-            detxxt[i] *= 2.0;
+        double[] ab = context.ab;
+        double[] bc = context.bc;
+        double[] cd = context.cd;
+        double[] da = context.da;
+        double[] ac = context.ac;
+        double[] bd = context.bd;
+        twoTwoDiffOfProducts(aex, bey, bex, aey, ab, t);
+        twoTwoDiffOfProducts(bex, cey, cex, bey, bc, t);
+        twoTwoDiffOfProducts(cex, dey, dex, cey, cd, t);
+        twoTwoDiffOfProducts(dex, aey, aex, dey, da, t);
+        twoTwoDiffOfProducts(aex, cey, cex, aey, ac, t);
+        twoTwoDiffOfProducts(bex, dey, dex, bey, bd, t);
+
+        double[] adet = context.adet;
+        int t24len = cofactor(4, cd, bez, 4, bd, -cez, 4, bc, dez, context);
+        int alen = lift(t24len, aex, aey, aez, -1.0, aew, adet, context);
+        double[] bdet = context.bdet;
+        t24len = cofactor(4, da, cez, 4, ac, dez, 4, cd, aez, context);
+        int blen = lift(t24len, bex, bey, bez, 1.0, bew, bdet, context);
+        double[] cdet = context.cdet;
+        t24len = cofactor(4, ab, dez, 4, bd, aez, 4, da, bez, context);
+        int clen = lift(t24len, cex, cey, cez, -1.0, cew, cdet, context);
+        double[] ddet = context.ddet;
+        t24len = cofactor(4, bc, aez, 4, ac, -bez, 4, ab, cez, context);
+        int dlen = lift(t24len, dex, dey, dez, 1.0, dew, ddet, context);
+
+        double[] abdet = context.abdet;
+        double[] cddet = context.cddet;
+        double[] fin = context.det;
+        int ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet, t);
+        int cdlen = expansionSumZeroElimFast(clen, cdet, dlen, ddet, cddet, t);
+        int finlen = expansionSumZeroElimFast(ablen, abdet, cdlen, cddet, fin, t);
+
+        // The weight only lowers the degree of the lifted coordinate, so the
+        // stage B bound of the in-sphere test holds for the permanent
+        double det = estimate(finlen, fin);
+        double errbound = INSERRBOUNDB * permanent;
+        if (det >= errbound || -det >= errbound) {
+            return det;
         }
-        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, cdxtail, detxtxt);
-        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1);
-        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2);
-        ylen = scaleExpansionZeroElim(t16len, t16, cdy, dety);
-        yylen = scaleExpansionZeroElim(ylen, dety, cdy, detyy);
-        ytlen = scaleExpansionZeroElim(t16len, t16, cdytail, detyt);
-        yytlen = scaleExpansionZeroElim(ytlen, detyt, cdy, detyyt);
-        for (int i = 0; i < yytlen; ++i) {
-            detyyt[i] *= 2.0;
+        if (exact(xa, xe, t) && exact(ya, ye, t) && exact(za, ze, t)
+            && exact(wa, we, t) && exact(xb, xe, t) && exact(yb, ye, t)
+            && exact(zb, ze, t) && exact(wb, we, t) && exact(xc, xe, t)
+            && exact(yc, ye, t) && exact(zc, ze, t) && exact(wc, we, t)
+            && exact(xd, xe, t) && exact(yd, ye, t) && exact(zd, ze, t)
+            && exact(wd, we, t)) {
+            // The differences, and so the stage B determinant, are exact
+            return det;
         }
-        ytytlen = scaleExpansionZeroElim(ytlen, detyt, cdytail, detytyt);
-        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1);
-        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2);
-        int clen = expansionSumZeroElimFast(x2len, x2, y2len, y2, cdet);
 
-        double[] abdet = new double[768];
-        double[] det = new double[1152];
-        int ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet);
-        int detlen = expansionSumZeroElimFast(ablen, abdet, clen, cdet, det);
-
-        return det[detlen - 1];
+        return inOrthoSphereExact(xa, ya, za, wa, xb, yb, zb, wb, xc, yc, zc,
+                                  wc, xd, yd, zd, wd, xe, ye, ze, we, context);
     }
 
     /**
@@ -1494,8 +2946,9 @@ public final class Geometry {
                                              double yc, double zc, double wc,
                                              double xd, double yd, double zd,
                                              double wd, double xe, double ye,
-                                             double ze, double we) {
-        Two t = new Two();
+                                             double ze, double we,
+                                             Context context) {
+        Two t = context.two;
         twoDiff(xa, xe, t);
         double aex = t.x;
         double aextail = t.y;
@@ -1506,8 +2959,8 @@ public final class Geometry {
         double aez = t.x;
         double aeztail = t.y;
         twoDiff(wa, we, t);
-        //double aew = t.x;
-        //double aewtail = t.y;
+        double aew = t.x;
+        double aewtail = t.y;
         twoDiff(xb, xe, t);
         double bex = t.x;
         double bextail = t.y;
@@ -1545,317 +2998,677 @@ public final class Geometry {
         double dew = t.x;
         double dewtail = t.y;
 
-        double[] axby = new double[8];
-        double[] bxay = new double[8];
-        double[] ab = new double[16];
-        twoTwoProduct(aex, aextail, bey, beytail, axby);
+        double[] axby = context.axby;
+        double[] bxay = context.bxay;
+        double[] ab = context.ab;
+        twoTwoProduct(aex, aextail, bey, beytail, axby, t);
         double negate = -aey;
         double negatetail = -aeytail;
-        twoTwoProduct(bex, bextail, negate, negatetail, bxay);
-        int ablen = expansionSumZeroElimFast(8, axby, 8, bxay, ab);
+        twoTwoProduct(bex, bextail, negate, negatetail, bxay, t);
+        int ablen = expansionSumZeroElimFast(8, axby, 8, bxay, ab, t);
 
-        double[] bxcy = new double[8];
-        double[] cxby = new double[8];
-        double[] bc = new double[16];
-        twoTwoProduct(bex, bextail, cey, ceytail, bxcy);
+        double[] bxcy = context.bxcy;
+        double[] cxby = context.cxby;
+        double[] bc = context.bc;
+        twoTwoProduct(bex, bextail, cey, ceytail, bxcy, t);
         negate = -bey;
         negatetail = -beytail;
-        twoTwoProduct(cex, cextail, negate, negatetail, cxby);
-        int bclen = expansionSumZeroElimFast(8, bxcy, 8, cxby, bc);
+        twoTwoProduct(cex, cextail, negate, negatetail, cxby, t);
+        int bclen = expansionSumZeroElimFast(8, bxcy, 8, cxby, bc, t);
 
-        double[] cxdy = new double[8];
-        double[] dxcy = new double[8];
-        double[] cd = new double[16];
-        twoTwoProduct(cex, cextail, dey, deytail, cxdy);
+        double[] cxdy = context.cxdy;
+        double[] dxcy = context.dxcy;
+        double[] cd = context.cd;
+        twoTwoProduct(cex, cextail, dey, deytail, cxdy, t);
         negate = -cey;
         negatetail = -ceytail;
-        twoTwoProduct(dex, dextail, negate, negatetail, dxcy);
-        int cdlen = expansionSumZeroElimFast(8, cxdy, 8, dxcy, cd);
+        twoTwoProduct(dex, dextail, negate, negatetail, dxcy, t);
+        int cdlen = expansionSumZeroElimFast(8, cxdy, 8, dxcy, cd, t);
 
-        double[] dxay = new double[8];
-        double[] axdy = new double[8];
-        double[] da = new double[16];
-        twoTwoProduct(dex, dextail, aey, aeytail, dxay);
+        double[] dxay = context.dxay;
+        double[] axdy = context.axdy;
+        double[] da = context.da;
+        twoTwoProduct(dex, dextail, aey, aeytail, dxay, t);
         negate = -dey;
         negatetail = -deytail;
-        twoTwoProduct(aex, aextail, negate, negatetail, axdy);
-        int dalen = expansionSumZeroElimFast(8, dxay, 8, axdy, da);
+        twoTwoProduct(aex, aextail, negate, negatetail, axdy, t);
+        int dalen = expansionSumZeroElimFast(8, dxay, 8, axdy, da, t);
 
-        double[] axcy = new double[8];
-        double[] cxay = new double[8];
-        double[] ac = new double[16];
-        twoTwoProduct(aex, aextail, cey, ceytail, axcy);
+        double[] axcy = context.axcy;
+        double[] cxay = context.cxay;
+        double[] ac = context.ac;
+        twoTwoProduct(aex, aextail, cey, ceytail, axcy, t);
         negate = -aey;
         negatetail = -aeytail;
-        twoTwoProduct(cex, cextail, negate, negatetail, cxay);
-        int aclen = expansionSumZeroElimFast(8, axcy, 8, cxay, ac);
+        twoTwoProduct(cex, cextail, negate, negatetail, cxay, t);
+        int aclen = expansionSumZeroElimFast(8, axcy, 8, cxay, ac, t);
 
-        double[] bxdy = new double[8];
-        double[] dxby = new double[8];
-        double[] bd = new double[16];
-        twoTwoProduct(bex, bextail, dey, deytail, bxdy);
+        double[] bxdy = context.bxdy;
+        double[] dxby = context.dxby;
+        double[] bd = context.bd;
+        twoTwoProduct(bex, bextail, dey, deytail, bxdy, t);
         negate = -bey;
         negatetail = -beytail;
-        twoTwoProduct(dex, dextail, negate, negatetail, dxby);
-        int bdlen = expansionSumZeroElimFast(8, bxdy, 8, dxby, bd);
-
-        double[] t32a = new double[32];
-        double[] t32b = new double[32];
-        double[] t64a = new double[64];
-        double[] t64b = new double[64];
-        double[] t64c = new double[64];
-        double[] t128 = new double[128];
-        double[] t192 = new double[192];
+        twoTwoProduct(dex, dextail, negate, negatetail, dxby, t);
+        int bdlen = expansionSumZeroElimFast(8, bxdy, 8, dxby, bd, t);
+
+        double[] t32a = context.t32a;
+        double[] t32b = context.t32b;
+        double[] t64a = context.t64a;
+        double[] t64b = context.t64b;
+        double[] t64c = context.t64c;
+        double[] t128 = context.t128;
+        double[] t192 = context.t192;
         int t32alen, t32blen, t64alen, t64blen, t64clen, t128len, t192len;
-        t32alen = scaleExpansionZeroElim(cdlen, cd, -bez, t32a);
-        t32blen = scaleExpansionZeroElim(cdlen, cd, -beztail, t32b);
-        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a);
-        t32alen = scaleExpansionZeroElim(bdlen, bd, cez, t32a);
-        t32blen = scaleExpansionZeroElim(bdlen, bd, ceztail, t32b);
-        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b);
-        t32alen = scaleExpansionZeroElim(bclen, bc, -dez, t32a);
-        t32blen = scaleExpansionZeroElim(bclen, bc, -deztail, t32b);
-        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c);
-        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128);
-        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192);
-
-        double[] detx = new double[384];
-        double[] detxx = new double[768];
-        double[] detxt = new double[384];
-        double[] detxxt = new double[768];
-        double[] detxtxt = new double[768];
-        double[] x1 = new double[1536];
-        double[] x2 = new double[2304];
-        int xlen = scaleExpansionZeroElim(t192len, t192, aex, detx);
-        int xxlen = scaleExpansionZeroElim(xlen, detx, aex, detxx);
-        int xtlen = scaleExpansionZeroElim(t192len, t192, aextail, detxt);
-        int xxtlen = scaleExpansionZeroElim(xtlen, detxt, aex, detxxt);
+        t32alen = scaleExpansionZeroElim(cdlen, cd, -bez, t32a, t);
+        t32blen = scaleExpansionZeroElim(cdlen, cd, -beztail, t32b, t);
+        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a, t);
+        t32alen = scaleExpansionZeroElim(bdlen, bd, cez, t32a, t);
+        t32blen = scaleExpansionZeroElim(bdlen, bd, ceztail, t32b, t);
+        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b, t);
+        t32alen = scaleExpansionZeroElim(bclen, bc, -dez, t32a, t);
+        t32blen = scaleExpansionZeroElim(bclen, bc, -deztail, t32b, t);
+        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c, t);
+        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128, t);
+        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192, t);
+
+        double[] detx = context.detx;
+        double[] detxx = context.detxx;
+        double[] detxt = context.detxt;
+        double[] detxxt = context.detxxt;
+        double[] detxtxt = context.detxtxt;
+        double[] x1 = context.x1;
+        double[] x2 = context.x2;
+        int xlen = scaleExpansionZeroElim(t192len, t192, aex, detx, t);
+        int xxlen = scaleExpansionZeroElim(xlen, detx, aex, detxx, t);
+        int xtlen = scaleExpansionZeroElim(t192len, t192, aextail, detxt, t);
+        int xxtlen = scaleExpansionZeroElim(xtlen, detxt, aex, detxxt, t);
         for (int i = 0; i < xxtlen; ++i) {
             detxxt[i] *= 2.0;
         }
-        int xtxtlen = scaleExpansionZeroElim(xtlen, detxt, aextail, detxtxt);
-        int x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1);
-        int x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2);
-
-        double[] dety = new double[384];
-        double[] detyy = new double[768];
-        double[] detyt = new double[384];
-        double[] detyyt = new double[768];
-        double[] detytyt = new double[768];
-        double[] y1 = new double[1536];
-        double[] y2 = new double[2304];
-        int ylen = scaleExpansionZeroElim(t192len, t192, aey, dety);
-        int yylen = scaleExpansionZeroElim(ylen, dety, aey, detyy);
-        int ytlen = scaleExpansionZeroElim(t192len, t192, aeytail, detyt);
-        int yytlen = scaleExpansionZeroElim(ytlen, detyt, aey, detyyt);
+        int xtxtlen = scaleExpansionZeroElim(xtlen, detxt, aextail, detxtxt, t);
+        int x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1, t);
+        int x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2, t);
+
+        double[] dety = context.dety;
+        double[] detyy = context.detyy;
+        double[] detyt = context.detyt;
+        double[] detyyt = context.detyyt;
+        double[] detytyt = context.detytyt;
+        double[] y1 = context.y1;
+        double[] y2 = context.y2;
+        int ylen = scaleExpansionZeroElim(t192len, t192, aey, dety, t);
+        int yylen = scaleExpansionZeroElim(ylen, dety, aey, detyy, t);
+        int ytlen = scaleExpansionZeroElim(t192len, t192, aeytail, detyt, t);
+        int yytlen = scaleExpansionZeroElim(ytlen, detyt, aey, detyyt, t);
         for (int i = 0; i < yytlen; ++i) {
             detyyt[i] *= 2.0;
         }
-        int ytytlen = scaleExpansionZeroElim(ytlen, detyt, aeytail, detytyt);
-        int y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1);
-        int y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2);
-
-        double[] detz = new double[384];
-        double[] detzz = new double[768];
-        double[] detzt = new double[384];
-        double[] detzzt = new double[768];
-        double[] detztzt = new double[768];
-        double[] z1 = new double[1536];
-        double[] z2 = new double[2304];
-        int zlen = scaleExpansionZeroElim(t192len, t192, aez, detz);
-        int zzlen = scaleExpansionZeroElim(zlen, detz, aez, detzz);
-        int ztlen = scaleExpansionZeroElim(t192len, t192, aeztail, detzt);
-        int zztlen = scaleExpansionZeroElim(ztlen, detzt, aez, detzzt);
+        int ytytlen = scaleExpansionZeroElim(ytlen, detyt, aeytail, detytyt, t);
+        int y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1, t);
+        int y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2, t);
+
+        double[] detz = context.detz;
+        double[] detzz = context.detzz;
+        double[] detzt = context.detzt;
+        double[] detzzt = context.detzzt;
+        double[] detztzt = context.detztzt;
+        double[] z1 = context.z1;
+        double[] z2 = context.z2;
+        int zlen = scaleExpansionZeroElim(t192len, t192, aez, detz, t);
+        int zzlen = scaleExpansionZeroElim(zlen, detz, aez, detzz, t);
+        int ztlen = scaleExpansionZeroElim(t192len, t192, aeztail, detzt, t);
+        int zztlen = scaleExpansionZeroElim(ztlen, detzt, aez, detzzt, t);
         for (int i = 0; i < zztlen; ++i) {
             detzzt[i] *= 2.0;
         }
-        int ztztlen = scaleExpansionZeroElim(ztlen, detzt, aeztail, detztzt);
-        int z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1);
-        int z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2);
-
-        double[] detw = new double[384];
-        double[] detwt = new double[384];
-        double[] w2 = new double[768];
-        int wlen = scaleExpansionZeroElim(t192len, t192, -bew, detw);
-        int wtlen = scaleExpansionZeroElim(t192len, t192, -bewtail, detwt);
-        int w2len = expansionSumZeroElimFast(wlen, detw, wtlen, detwt, w2);
-
-        double[] detxy = new double[4608];
-        double[] detxyz = new double[6912];
-        double[] adet = new double[7680];
-        int xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy);
-        int xyzlen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, detxyz);
-        int alen = expansionSumZeroElimFast(w2len, w2, xyzlen, detxyz, adet);
-
-        t32alen = scaleExpansionZeroElim(dalen, da, cez, t32a);
-        t32blen = scaleExpansionZeroElim(dalen, da, ceztail, t32b);
-        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a);
-        t32alen = scaleExpansionZeroElim(aclen, ac, dez, t32a);
-        t32blen = scaleExpansionZeroElim(aclen, ac, deztail, t32b);
-        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b);
-        t32alen = scaleExpansionZeroElim(cdlen, cd, aez, t32a);
-        t32blen = scaleExpansionZeroElim(cdlen, cd, aeztail, t32b);
-        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c);
-        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128);
-        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192);
-        xlen = scaleExpansionZeroElim(t192len, t192, bex, detx);
-        xxlen = scaleExpansionZeroElim(xlen, detx, bex, detxx);
-        xtlen = scaleExpansionZeroElim(t192len, t192, bextail, detxt);
-        xxtlen = scaleExpansionZeroElim(xtlen, detxt, bex, detxxt);
+        int ztztlen = scaleExpansionZeroElim(ztlen, detzt, aeztail, detztzt, t);
+        int z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1, t);
+        int z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2, t);
+
+        double[] detw = context.detw;
+        double[] detwt = context.detwt;
+        double[] w2 = context.w2;
+        int wlen = scaleExpansionZeroElim(t192len, t192, -aew, detw, t);
+        int wtlen = scaleExpansionZeroElim(t192len, t192, -aewtail, detwt, t);
+        int w2len = expansionSumZeroElimFast(wlen, detw, wtlen, detwt, w2, t);
+
+        double[] detxy = context.detxy;
+        double[] detxyz = context.detxyz;
+        double[] adet = context.adet;
+        int xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy, t);
+        int xyzlen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, detxyz, t);
+        int alen = expansionSumZeroElimFast(w2len, w2, xyzlen, detxyz, adet, t);
+
+        t32alen = scaleExpansionZeroElim(dalen, da, cez, t32a, t);
+        t32blen = scaleExpansionZeroElim(dalen, da, ceztail, t32b, t);
+        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a, t);
+        t32alen = scaleExpansionZeroElim(aclen, ac, dez, t32a, t);
+        t32blen = scaleExpansionZeroElim(aclen, ac, deztail, t32b, t);
+        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b, t);
+        t32alen = scaleExpansionZeroElim(cdlen, cd, aez, t32a, t);
+        t32blen = scaleExpansionZeroElim(cdlen, cd, aeztail, t32b, t);
+        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c, t);
+        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128, t);
+        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192, t);
+        xlen = scaleExpansionZeroElim(t192len, t192, bex, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, bex, detxx, t);
+        xtlen = scaleExpansionZeroElim(t192len, t192, bextail, detxt, t);
+        xxtlen = scaleExpansionZeroElim(xtlen, detxt, bex, detxxt, t);
         for (int i = 0; i < xxtlen; ++i) {
             detxxt[i] *= 2.0;
         }
-        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, bextail, detxtxt);
-        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1);
-        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2);
-        ylen = scaleExpansionZeroElim(t192len, t192, bey, dety);
-        yylen = scaleExpansionZeroElim(ylen, dety, bey, detyy);
-        ytlen = scaleExpansionZeroElim(t192len, t192, beytail, detyt);
-        yytlen = scaleExpansionZeroElim(ytlen, detyt, bey, detyyt);
+        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, bextail, detxtxt, t);
+        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1, t);
+        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2, t);
+        ylen = scaleExpansionZeroElim(t192len, t192, bey, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, bey, detyy, t);
+        ytlen = scaleExpansionZeroElim(t192len, t192, beytail, detyt, t);
+        yytlen = scaleExpansionZeroElim(ytlen, detyt, bey, detyyt, t);
         for (int i = 0; i < yytlen; ++i) {
             detyyt[i] *= 2.0;
         }
-        ytytlen = scaleExpansionZeroElim(ytlen, detyt, beytail, detytyt);
-        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1);
-        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2);
-        zlen = scaleExpansionZeroElim(t192len, t192, bez, detz);
-        zzlen = scaleExpansionZeroElim(zlen, detz, bez, detzz);
-        ztlen = scaleExpansionZeroElim(t192len, t192, beztail, detzt);
-        zztlen = scaleExpansionZeroElim(ztlen, detzt, bez, detzzt);
+        ytytlen = scaleExpansionZeroElim(ytlen, detyt, beytail, detytyt, t);
+        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1, t);
+        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2, t);
+        zlen = scaleExpansionZeroElim(t192len, t192, bez, detz, t);
+        zzlen = scaleExpansionZeroElim(zlen, detz, bez, detzz, t);
+        ztlen = scaleExpansionZeroElim(t192len, t192, beztail, detzt, t);
+        zztlen = scaleExpansionZeroElim(ztlen, detzt, bez, detzzt, t);
         for (int i = 0; i < zztlen; ++i) {
             detzzt[i] *= 2.0;
         }
-        ztztlen = scaleExpansionZeroElim(ztlen, detzt, beztail, detztzt);
-        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1);
-        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2);
-        wlen = scaleExpansionZeroElim(t192len, t192, -bew, detw);
-        wtlen = scaleExpansionZeroElim(t192len, t192, -bewtail, detwt);
-        w2len = expansionSumZeroElimFast(wlen, detw, wtlen, detwt, w2);
-        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy);
-        xyzlen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, detxyz);
-        double[] bdet = new double[7680];
-        int blen = expansionSumZeroElimFast(w2len, w2, xyzlen, detxyz, bdet);
-
-        t32alen = scaleExpansionZeroElim(ablen, ab, -dez, t32a);
-        t32blen = scaleExpansionZeroElim(ablen, ab, -deztail, t32b);
-        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a);
-        t32alen = scaleExpansionZeroElim(bdlen, bd, -aez, t32a);
-        t32blen = scaleExpansionZeroElim(bdlen, bd, -aeztail, t32b);
-        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b);
-        t32alen = scaleExpansionZeroElim(dalen, da, -bez, t32a);
-        t32blen = scaleExpansionZeroElim(dalen, da, -beztail, t32b);
-        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c);
-        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128);
-        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192);
-        xlen = scaleExpansionZeroElim(t192len, t192, cex, detx);
-        xxlen = scaleExpansionZeroElim(xlen, detx, cex, detxx);
-        xtlen = scaleExpansionZeroElim(t192len, t192, cextail, detxt);
-        xxtlen = scaleExpansionZeroElim(xtlen, detxt, cex, detxxt);
+        ztztlen = scaleExpansionZeroElim(ztlen, detzt, beztail, detztzt, t);
+        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1, t);
+        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2, t);
+        wlen = scaleExpansionZeroElim(t192len, t192, -bew, detw, t);
+        wtlen = scaleExpansionZeroElim(t192len, t192, -bewtail, detwt, t);
+        w2len = expansionSumZeroElimFast(wlen, detw, wtlen, detwt, w2, t);
+        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy, t);
+        xyzlen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, detxyz, t);
+        double[] bdet = context.bdet;
+        int blen = expansionSumZeroElimFast(w2len, w2, xyzlen, detxyz, bdet, t);
+
+        t32alen = scaleExpansionZeroElim(ablen, ab, -dez, t32a, t);
+        t32blen = scaleExpansionZeroElim(ablen, ab, -deztail, t32b, t);
+        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a, t);
+        t32alen = scaleExpansionZeroElim(bdlen, bd, -aez, t32a, t);
+        t32blen = scaleExpansionZeroElim(bdlen, bd, -aeztail, t32b, t);
+        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b, t);
+        t32alen = scaleExpansionZeroElim(dalen, da, -bez, t32a, t);
+        t32blen = scaleExpansionZeroElim(dalen, da, -beztail, t32b, t);
+        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c, t);
+        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128, t);
+        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192, t);
+        xlen = scaleExpansionZeroElim(t192len, t192, cex, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, cex, detxx, t);
+        xtlen = scaleExpansionZeroElim(t192len, t192, cextail, detxt, t);
+        xxtlen = scaleExpansionZeroElim(xtlen, detxt, cex, detxxt, t);
         for (int i = 0; i < xxtlen; ++i) {
             detxxt[i] *= 2.0;
         }
-        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, cextail, detxtxt);
-        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1);
-        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2);
-        ylen = scaleExpansionZeroElim(t192len, t192, cey, dety);
-        yylen = scaleExpansionZeroElim(ylen, dety, cey, detyy);
-        ytlen = scaleExpansionZeroElim(t192len, t192, ceytail, detyt);
-        yytlen = scaleExpansionZeroElim(ytlen, detyt, cey, detyyt);
+        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, cextail, detxtxt, t);
+        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1, t);
+        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2, t);
+        ylen = scaleExpansionZeroElim(t192len, t192, cey, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, cey, detyy, t);
+        ytlen = scaleExpansionZeroElim(t192len, t192, ceytail, detyt, t);
+        yytlen = scaleExpansionZeroElim(ytlen, detyt, cey, detyyt, t);
         for (int i = 0; i < yytlen; ++i) {
             detyyt[i] *= 2.0;
         }
-        ytytlen = scaleExpansionZeroElim(ytlen, detyt, ceytail, detytyt);
-        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1);
-        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2);
-        zlen = scaleExpansionZeroElim(t192len, t192, cez, detz);
-        zzlen = scaleExpansionZeroElim(zlen, detz, cez, detzz);
-        ztlen = scaleExpansionZeroElim(t192len, t192, ceztail, detzt);
-        zztlen = scaleExpansionZeroElim(ztlen, detzt, cez, detzzt);
+        ytytlen = scaleExpansionZeroElim(ytlen, detyt, ceytail, detytyt, t);
+        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1, t);
+        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2, t);
+        zlen = scaleExpansionZeroElim(t192len, t192, cez, detz, t);
+        zzlen = scaleExpansionZeroElim(zlen, detz, cez, detzz, t);
+        ztlen = scaleExpansionZeroElim(t192len, t192, ceztail, detzt, t);
+        zztlen = scaleExpansionZeroElim(ztlen, detzt, cez, detzzt, t);
         for (int i = 0; i < zztlen; ++i) {
             detzzt[i] *= 2.0;
         }
-        ztztlen = scaleExpansionZeroElim(ztlen, detzt, ceztail, detztzt);
-        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1);
-        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2);
-        wlen = scaleExpansionZeroElim(t192len, t192, -cew, detw);
-        wtlen = scaleExpansionZeroElim(t192len, t192, -cewtail, detwt);
-        w2len = expansionSumZeroElimFast(wlen, detw, wtlen, detwt, w2);
-        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy);
-        xyzlen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, detxyz);
-        double[] cdet = new double[7680];
-        int clen = expansionSumZeroElimFast(w2len, w2, xyzlen, detxyz, cdet);
-
-        t32alen = scaleExpansionZeroElim(bclen, bc, aez, t32a);
-        t32blen = scaleExpansionZeroElim(bclen, bc, aeztail, t32b);
-        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a);
-        t32alen = scaleExpansionZeroElim(aclen, ac, -bez, t32a);
-        t32blen = scaleExpansionZeroElim(aclen, ac, -beztail, t32b);
-        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b);
-        t32alen = scaleExpansionZeroElim(ablen, ab, cez, t32a);
-        t32blen = scaleExpansionZeroElim(ablen, ab, ceztail, t32b);
-        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c);
-        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128);
-        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192);
-        xlen = scaleExpansionZeroElim(t192len, t192, dex, detx);
-        xxlen = scaleExpansionZeroElim(xlen, detx, dex, detxx);
-        xtlen = scaleExpansionZeroElim(t192len, t192, dextail, detxt);
-        xxtlen = scaleExpansionZeroElim(xtlen, detxt, dex, detxxt);
+        ztztlen = scaleExpansionZeroElim(ztlen, detzt, ceztail, detztzt, t);
+        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1, t);
+        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2, t);
+        wlen = scaleExpansionZeroElim(t192len, t192, -cew, detw, t);
+        wtlen = scaleExpansionZeroElim(t192len, t192, -cewtail, detwt, t);
+        w2len = expansionSumZeroElimFast(wlen, detw, wtlen, detwt, w2, t);
+        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy, t);
+        xyzlen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, detxyz, t);
+        double[] cdet = context.cdet;
+        int clen = expansionSumZeroElimFast(w2len, w2, xyzlen, detxyz, cdet, t);
+
+        t32alen = scaleExpansionZeroElim(bclen, bc, aez, t32a, t);
+        t32blen = scaleExpansionZeroElim(bclen, bc, aeztail, t32b, t);
+        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a, t);
+        t32alen = scaleExpansionZeroElim(aclen, ac, -bez, t32a, t);
+        t32blen = scaleExpansionZeroElim(aclen, ac, -beztail, t32b, t);
+        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b, t);
+        t32alen = scaleExpansionZeroElim(ablen, ab, cez, t32a, t);
+        t32blen = scaleExpansionZeroElim(ablen, ab, ceztail, t32b, t);
+        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c, t);
+        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128, t);
+        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192, t);
+        xlen = scaleExpansionZeroElim(t192len, t192, dex, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, dex, detxx, t);
+        xtlen = scaleExpansionZeroElim(t192len, t192, dextail, detxt, t);
+        xxtlen = scaleExpansionZeroElim(xtlen, detxt, dex, detxxt, t);
         for (int i = 0; i < xxtlen; ++i) {
             detxxt[i] *= 2.0;
         }
-        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, dextail, detxtxt);
-        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1);
-        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2);
-        ylen = scaleExpansionZeroElim(t192len, t192, dey, dety);
-        yylen = scaleExpansionZeroElim(ylen, dety, dey, detyy);
-        ytlen = scaleExpansionZeroElim(t192len, t192, deytail, detyt);
-        yytlen = scaleExpansionZeroElim(ytlen, detyt, dey, detyyt);
+        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, dextail, detxtxt, t);
+        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1, t);
+        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2, t);
+        ylen = scaleExpansionZeroElim(t192len, t192, dey, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, dey, detyy, t);
+        ytlen = scaleExpansionZeroElim(t192len, t192, deytail, detyt, t);
+        yytlen = scaleExpansionZeroElim(ytlen, detyt, dey, detyyt, t);
         for (int i = 0; i < yytlen; ++i) {
             detyyt[i] *= 2.0;
         }
-        ytytlen = scaleExpansionZeroElim(ytlen, detyt, deytail, detytyt);
-        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1);
-        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2);
-        zlen = scaleExpansionZeroElim(t192len, t192, dez, detz);
-        zzlen = scaleExpansionZeroElim(zlen, detz, dez, detzz);
-        ztlen = scaleExpansionZeroElim(t192len, t192, deztail, detzt);
-        zztlen = scaleExpansionZeroElim(ztlen, detzt, dez, detzzt);
+        ytytlen = scaleExpansionZeroElim(ytlen, detyt, deytail, detytyt, t);
+        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1, t);
+        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2, t);
+        zlen = scaleExpansionZeroElim(t192len, t192, dez, detz, t);
+        zzlen = scaleExpansionZeroElim(zlen, detz, dez, detzz, t);
+        ztlen = scaleExpansionZeroElim(t192len, t192, deztail, detzt, t);
+        zztlen = scaleExpansionZeroElim(ztlen, detzt, dez, detzzt, t);
         for (int i = 0; i < zztlen; ++i) {
             detzzt[i] *= 2.0;
         }
-        ztztlen = scaleExpansionZeroElim(ztlen, detzt, deztail, detztzt);
-        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1);
-        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2);
-        wlen = scaleExpansionZeroElim(t192len, t192, -dew, detw);
-        wtlen = scaleExpansionZeroElim(t192len, t192, -dewtail, detwt);
-        w2len = expansionSumZeroElimFast(wlen, detw, wtlen, detwt, w2);
-        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy);
-        xyzlen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, detxyz);
-        double[] ddet = new double[7680];
-        int dlen = expansionSumZeroElimFast(w2len, w2, xyzlen, detxyz, ddet);
-
-        double[] abdet = new double[15360];
-        double[] cddet = new double[15360];
-        double[] det = new double[30720];
-        ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet);
-        cdlen = expansionSumZeroElimFast(clen, cdet, dlen, ddet, cddet);
-        int detlen = expansionSumZeroElimFast(ablen, abdet, cdlen, cddet, det);
+        ztztlen = scaleExpansionZeroElim(ztlen, detzt, deztail, detztzt, t);
+        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1, t);
+        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2, t);
+        wlen = scaleExpansionZeroElim(t192len, t192, -dew, detw, t);
+        wtlen = scaleExpansionZeroElim(t192len, t192, -dewtail, detwt, t);
+        w2len = expansionSumZeroElimFast(wlen, detw, wtlen, detwt, w2, t);
+        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy, t);
+        xyzlen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, detxyz, t);
+        double[] ddet = context.ddet;
+        int dlen = expansionSumZeroElimFast(w2len, w2, xyzlen, detxyz, ddet, t);
+
+        double[] abdet = context.abdet;
+        double[] cddet = context.cddet;
+        double[] det = context.det;
+        ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet, t);
+        cdlen = expansionSumZeroElimFast(clen, cdet, dlen, ddet, cddet, t);
+        int detlen = expansionSumZeroElimFast(ablen, abdet, cdlen, cddet, det, t);
+
+        return det[detlen - 1];
+    }
+
+    /**
+     * Float in-ortho-sphere test, for weighted points of float coordinates
+     * that the fast filter could not resolve. If the differences of the x and
+     * y coordinates are floats, and those of the z coordinates and weights are
+     * exact, the determinant is computed exactly from minors of two
+     * components. Otherwise the points are evaluated adaptively.
+     */
+    private static double inOrthoSphereFloat(double xa, double ya, double za,
+                                             double wa, double xb, double yb,
+                                             double zb, double wb, double xc,
+                                             double yc, double zc, double wc,
+                                             double xd, double yd, double zd,
+                                             double wd, double xe, double ye,
+                                             double ze, double we,
+                                             double permanent,
+                                             Context context) {
+        Two t = context.two;
+        if (narrow(xa, xe, t) && narrow(ya, ye, t) && exact(za, ze, t)
+            && exact(wa, we, t) && narrow(xb, xe, t) && narrow(yb, ye, t)
+            && exact(zb, ze, t) && exact(wb, we, t) && narrow(xc, xe, t)
+            && narrow(yc, ye, t) && exact(zc, ze, t) && exact(wc, we, t)
+            && narrow(xd, xe, t) && narrow(yd, ye, t) && exact(zd, ze, t)
+            && exact(wd, we, t)) {
+            return inOrthoSphereNarrow(xa - xe, ya - ye, za - ze, wa - we,
+                                       xb - xe, yb - ye, zb - ze, wb - we,
+                                       xc - xe, yc - ye, zc - ze, wc - we,
+                                       xd - xe, yd - ye, zd - ze, wd - we,
+                                       context);
+        }
+        return inOrthoSphereAdapt(xa, ya, za, wa, xb, yb, zb, wb, xc, yc, zc, wc,
+                                  xd, yd, zd, wd, xe, ye, ze, we, permanent,
+                                  context);
+    }
+
+    /**
+     * Computes the in-ortho-sphere determinant exactly from the differences of
+     * the coordinates and weights, those of the x and y coordinates being
+     * floats so that their products are exact. The in-sphere determinant is
+     * that of zero weights.
+     */
+    private static double inOrthoSphereNarrow(double aex, double aey,
+                                              double aez, double aew,
+                                              double bex, double bey,
+                                              double bez, double bew,
+                                              double cex, double cey,
+                                              double cez, double cew,
+                                              double dex, double dey,
+                                              double dez, double dew,
+                                              Context context) {
+        Two t = context.two;
+        double[] ab = context.ab;
+        double[] bc = context.bc;
+        double[] cd = context.cd;
+        double[] da = context.da;
+        double[] ac = context.ac;
+        double[] bd = context.bd;
+        twoDiffOfProducts(aex, bey, bex, aey, ab, t);
+        twoDiffOfProducts(bex, cey, cex, bey, bc, t);
+        twoDiffOfProducts(cex, dey, dex, cey, cd, t);
+        twoDiffOfProducts(dex, aey, aex, dey, da, t);
+        twoDiffOfProducts(aex, cey, cex, aey, ac, t);
+        twoDiffOfProducts(bex, dey, dex, bey, bd, t);
+
+        double[] adet = context.adet;
+        int t24len = cofactor(2, cd, bez, 2, bd, -cez, 2, bc, dez, context);
+        int alen = lift(t24len, aex, aey, aez, -1.0, aew, adet, context);
+        double[] bdet = context.bdet;
+        t24len = cofactor(2, da, cez, 2, ac, dez, 2, cd, aez, context);
+        int blen = lift(t24len, bex, bey, bez, 1.0, bew, bdet, context);
+        double[] cdet = context.cdet;
+        t24len = cofactor(2, ab, dez, 2, bd, aez, 2, da, bez, context);
+        int clen = lift(t24len, cex, cey, cez, -1.0, cew, cdet, context);
+        double[] ddet = context.ddet;
+        t24len = cofactor(2, bc, aez, 2, ac, -bez, 2, ab, cez, context);
+        int dlen = lift(t24len, dex, dey, dez, 1.0, dew, ddet, context);
+
+        double[] abdet = context.abdet;
+        double[] cddet = context.cddet;
+        double[] fin = context.det;
+        int ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet, t);
+        int cdlen = expansionSumZeroElimFast(clen, cdet, dlen, ddet, cddet, t);
+        int finlen = expansionSumZeroElimFast(ablen, abdet, cdlen, cddet, fin, t);
+        return estimate(finlen, fin);
+    }
+
+    /**
+     * Computes difference a-b, assuming that |a|&gt;=|b|. Puts result in x and
+     * error in y.
+     */
+    /*
+    private strictfp static void twoDiffFast(double a, double b, Two t) {
+      double x = a-b;
+      double bvirt = a-x;
+      t.x = x;
+      t.y = bvirt-b;
+    }
+    */
+
+    /**
+     * Evaluates the in-sphere test. If the coordinates are floats, the points
+     * the fast filter could not resolve are evaluated by the float stage.
+     */
+    private static double inSphere(double xa, double ya, double za, double xb,
+                                   double yb, double zb, double xc, double yc,
+                                   double zc, double xd, double yd, double zd,
+                                   double xe, double ye, double ze,
+                                   Context context, boolean floats) {
+        double aex = xa - xe;
+        double bex = xb - xe;
+        double cex = xc - xe;
+        double dex = xd - xe;
+        double aey = ya - ye;
+        double bey = yb - ye;
+        double cey = yc - ye;
+        double dey = yd - ye;
+        double aez = za - ze;
+        double bez = zb - ze;
+        double cez = zc - ze;
+        double dez = zd - ze;
+
+        double aexbey = aex * bey;
+        double bexaey = bex * aey;
+        double ab = aexbey - bexaey;
+        double bexcey = bex * cey;
+        double cexbey = cex * bey;
+        double bc = bexcey - cexbey;
+        double cexdey = cex * dey;
+        double dexcey = dex * cey;
+        double cd = cexdey - dexcey;
+        double dexaey = dex * aey;
+        double aexdey = aex * dey;
+        double da = dexaey - aexdey;
+
+        double aexcey = aex * cey;
+        double cexaey = cex * aey;
+        double ac = aexcey - cexaey;
+        double bexdey = bex * dey;
+        double dexbey = dex * bey;
+        double bd = bexdey - dexbey;
+
+        double abc = aez * bc - bez * ac + cez * ab;
+        double bcd = bez * cd - cez * bd + dez * bc;
+        double cda = cez * da + dez * ac + aez * cd;
+        double dab = dez * ab + aez * bd + bez * da;
+
+        double alift = aex * aex + aey * aey + aez * aez;
+        double blift = bex * bex + bey * bey + bez * bez;
+        double clift = cex * cex + cey * cey + cez * cez;
+        double dlift = dex * dex + dey * dey + dez * dez;
+
+        double det = dlift * abc - clift * dab + (blift * cda - alift * bcd);
+
+        if (aez < 0.0) {
+            aez = -aez;
+        }
+        if (bez < 0.0) {
+            bez = -bez;
+        }
+        if (cez < 0.0) {
+            cez = -cez;
+        }
+        if (dez < 0.0) {
+            dez = -dez;
+        }
+        if (aexbey < 0.0) {
+            aexbey = -aexbey;
+        }
+        if (bexaey < 0.0) {
+            bexaey = -bexaey;
+        }
+        if (bexcey < 0.0) {
+            bexcey = -bexcey;
+        }
+        if (cexbey < 0.0) {
+            cexbey = -cexbey;
+        }
+        if (cexdey < 0.0) {
+            cexdey = -cexdey;
+        }
+        if (dexcey < 0.0) {
+            dexcey = -dexcey;
+        }
+        if (dexaey < 0.0) {
+            dexaey = -dexaey;
+        }
+        if (aexdey < 0.0) {
+            aexdey = -aexdey;
+        }
+        if (aexcey < 0.0) {
+            aexcey = -aexcey;
+        }
+        if (cexaey < 0.0) {
+            cexaey = -cexaey;
+        }
+        if (bexdey < 0.0) {
+            bexdey = -bexdey;
+        }
+        if (dexbey < 0.0) {
+            dexbey = -dexbey;
+        }
+        double permanent = ((cexdey + dexcey) * bez + (dexbey + bexdey) * cez + (bexcey + cexbey)
+                                                                                * dez)
+                           * alift
+                           + ((dexaey + aexdey) * cez + (aexcey + cexaey) * dez + (cexdey + dexcey)
+                                                                                  * aez)
+                           * blift
+                           + ((aexbey + bexaey) * dez + (bexdey + dexbey) * aez + (dexaey + aexdey)
+                                                                                  * bez)
+                           * clift
+                           + ((bexcey + cexbey) * aez + (cexaey + aexcey) * bez + (aexbey + bexaey)
+                                                                                  * cez)
+                           * dlift;
+        double errbound = INSERRBOUND * permanent;
+        if (det > errbound || -det > errbound) {
+            return det;
+        }
+
+        if (floats) {
+            return inSphereFloat(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd,
+                                 xe, ye, ze, permanent, local(context));
+        }
+        return inSphereAdapt(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd, xe,
+                             ye, ze, permanent, local(context));
+    }
+
+    /**
+     * Adaptive 3D in-sphere test, for points that the fast filter could not
+     * resolve. Stage B computes the determinant exactly from the rounded
+     * coordinate differences; stage C corrects it by the first order terms of
+     * the roundoff of the differences. Only if both are uncertain is the
+     * determinant computed exactly.
+     */
+    private static double inSphereAdapt(double xa, double ya, double za,
+                                        double xb, double yb, double zb,
+                                        double xc, double yc, double zc,
+                                        double xd, double yd, double zd,
+                                        double xe, double ye, double ze,
+                                        double permanent, Context context) {
+        Two t = context.two;
+        double aex = xa - xe;
+        double bex = xb - xe;
+        double cex = xc - xe;
+        double dex = xd - xe;
+        double aey = ya - ye;
+        double bey = yb - ye;
+        double cey = yc - ye;
+        double dey = yd - ye;
+        double aez = za - ze;
+        double bez = zb - ze;
+        double cez = zc - ze;
+        double dez = zd - ze;
+
+        double[] ab = context.ab;
+        double[] bc = context.bc;
+        double[] cd = context.cd;
+        double[] da = context.da;
+        double[] ac = context.ac;
+        double[] bd = context.bd;
+        twoTwoDiffOfProducts(aex, bey, bex, aey, ab, t);
+        twoTwoDiffOfProducts(bex, cey, cex, bey, bc, t);
+        twoTwoDiffOfProducts(cex, dey, dex, cey, cd, t);
+        twoTwoDiffOfProducts(dex, aey, aex, dey, da, t);
+        twoTwoDiffOfProducts(aex, cey, cex, aey, ac, t);
+        twoTwoDiffOfProducts(bex, dey, dex, bey, bd, t);
+
+        double[] adet = context.adet;
+        int t24len = cofactor(4, cd, bez, 4, bd, -cez, 4, bc, dez, context);
+        int alen = lift(t24len, aex, aey, aez, -1.0, 0.0, adet, context);
+        double[] bdet = context.bdet;
+        t24len = cofactor(4, da, cez, 4, ac, dez, 4, cd, aez, context);
+        int blen = lift(t24len, bex, bey, bez, 1.0, 0.0, bdet, context);
+        double[] cdet = context.cdet;
+        t24len = cofactor(4, ab, dez, 4, bd, aez, 4, da, bez, context);
+        int clen = lift(t24len, cex, cey, cez, -1.0, 0.0, cdet, context);
+        double[] ddet = context.ddet;
+        t24len = cofactor(4, bc, aez, 4, ac, -bez, 4, ab, cez, context);
+        int dlen = lift(t24len, dex, dey, dez, 1.0, 0.0, ddet, context);
+
+        double[] abdet = context.abdet;
+        double[] cddet = context.cddet;
+        double[] fin = context.det;
+        int ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet, t);
+        int cdlen = expansionSumZeroElimFast(clen, cdet, dlen, ddet, cddet, t);
+        int finlen = expansionSumZeroElimFast(ablen, abdet, cdlen, cddet, fin, t);
+
+        double det = estimate(finlen, fin);
+        double errbound = INSERRBOUNDB * permanent;
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
 
-        return det[detlen - 1];
-    }
+        twoDiff(xa, xe, t);
+        double aextail = t.y;
+        twoDiff(ya, ye, t);
+        double aeytail = t.y;
+        twoDiff(za, ze, t);
+        double aeztail = t.y;
+        twoDiff(xb, xe, t);
+        double bextail = t.y;
+        twoDiff(yb, ye, t);
+        double beytail = t.y;
+        twoDiff(zb, ze, t);
+        double beztail = t.y;
+        twoDiff(xc, xe, t);
+        double cextail = t.y;
+        twoDiff(yc, ye, t);
+        double ceytail = t.y;
+        twoDiff(zc, ze, t);
+        double ceztail = t.y;
+        twoDiff(xd, xe, t);
+        double dextail = t.y;
+        twoDiff(yd, ye, t);
+        double deytail = t.y;
+        twoDiff(zd, ze, t);
+        double deztail = t.y;
+        if (aextail == 0.0 && aeytail == 0.0 && aeztail == 0.0
+            && bextail == 0.0 && beytail == 0.0 && beztail == 0.0
+            && cextail == 0.0 && ceytail == 0.0 && ceztail == 0.0
+            && dextail == 0.0 && deytail == 0.0 && deztail == 0.0) {
+            // The differences, and so the stage B determinant, are exact
+            return det;
+        }
 
-    /**
-     * Computes difference a-b, assuming that |a|&gt;=|b|. Puts result in x and
-     * error in y.
-     */
-    /*
-    private strictfp static void twoDiffFast(double a, double b, Two t) {
-      double x = a-b;
-      double bvirt = a-x;
-      t.x = x;
-      t.y = bvirt-b;
+        errbound = INSERRBOUNDC * permanent + RESULTERRBOUND * Math.abs(det);
+        double ab3 = ab[3];
+        double bc3 = bc[3];
+        double cd3 = cd[3];
+        double da3 = da[3];
+        double ac3 = ac[3];
+        double bd3 = bd[3];
+        double abeps = aex * beytail + bey * aextail
+                       - (aey * bextail + bex * aeytail);
+        double bceps = bex * ceytail + cey * bextail
+                       - (bey * cextail + cex * beytail);
+        double cdeps = cex * deytail + dey * cextail
+                       - (cey * dextail + dex * ceytail);
+        double daeps = dex * aeytail + aey * dextail
+                       - (dey * aextail + aex * deytail);
+        double aceps = aex * ceytail + cey * aextail
+                       - (aey * cextail + cex * aeytail);
+        double bdeps = bex * deytail + dey * bextail
+                       - (bey * dextail + dex * beytail);
+        double bcd = bez * cd3 - cez * bd3 + dez * bc3;
+        double cda = cez * da3 + dez * ac3 + aez * cd3;
+        double dab = dez * ab3 + aez * bd3 + bez * da3;
+        double abc = aez * bc3 - bez * ac3 + cez * ab3;
+        double bcdeps = bez * cdeps - cez * bdeps + dez * bceps
+                        + (beztail * cd3 - ceztail * bd3 + deztail * bc3);
+        double cdaeps = cez * daeps + dez * aceps + aez * cdeps
+                        + (ceztail * da3 + deztail * ac3 + aeztail * cd3);
+        double dabeps = dez * abeps + aez * bdeps + bez * daeps
+                        + (deztail * ab3 + aeztail * bd3 + beztail * da3);
+        double abceps = aez * bceps - bez * aceps + cez * abeps
+                        + (aeztail * bc3 - beztail * ac3 + ceztail * ab3);
+        double alift = aex * aex + aey * aey + aez * aez;
+        double blift = bex * bex + bey * bey + bez * bez;
+        double clift = cex * cex + cey * cey + cez * cez;
+        double dlift = dex * dex + dey * dey + dez * dez;
+        double aliftt = 2.0 * (aex * aextail + aey * aeytail + aez * aeztail);
+        double bliftt = 2.0 * (bex * bextail + bey * beytail + bez * beztail);
+        double cliftt = 2.0 * (cex * cextail + cey * ceytail + cez * ceztail);
+        double dliftt = 2.0 * (dex * dextail + dey * deytail + dez * deztail);
+        det += blift * cdaeps + dlift * abceps
+               - (alift * bcdeps + clift * dabeps)
+               + (bliftt * cda + dliftt * abc - (aliftt * bcd + cliftt * dab));
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
+
+        return inSphereExact(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd, xe,
+                             ye, ze, context);
     }
-    */
 
     /**
      * Slow exact 3D in-sphere test. Returns a positive value if the point pe
@@ -1869,8 +3682,9 @@ public final class Geometry {
                                         double xb, double yb, double zb,
                                         double xc, double yc, double zc,
                                         double xd, double yd, double zd,
-                                        double xe, double ye, double ze) {
-        Two t = new Two();
+                                        double xe, double ye, double ze,
+                                        Context context) {
+        Two t = context.two;
         twoDiff(xa, xe, t);
         double aex = t.x;
         double aextail = t.y;
@@ -1908,303 +3722,357 @@ public final class Geometry {
         double dez = t.x;
         double deztail = t.y;
 
-        double[] axby = new double[8];
-        double[] bxay = new double[8];
-        double[] ab = new double[16];
-        twoTwoProduct(aex, aextail, bey, beytail, axby);
+        double[] axby = context.axby;
+        double[] bxay = context.bxay;
+        double[] ab = context.ab;
+        twoTwoProduct(aex, aextail, bey, beytail, axby, t);
         double negate = -aey;
         double negatetail = -aeytail;
-        twoTwoProduct(bex, bextail, negate, negatetail, bxay);
-        int ablen = expansionSumZeroElimFast(8, axby, 8, bxay, ab);
+        twoTwoProduct(bex, bextail, negate, negatetail, bxay, t);
+        int ablen = expansionSumZeroElimFast(8, axby, 8, bxay, ab, t);
 
-        double[] bxcy = new double[8];
-        double[] cxby = new double[8];
-        double[] bc = new double[16];
-        twoTwoProduct(bex, bextail, cey, ceytail, bxcy);
+        double[] bxcy = context.bxcy;
+        double[] cxby = context.cxby;
+        double[] bc = context.bc;
+        twoTwoProduct(bex, bextail, cey, ceytail, bxcy, t);
         negate = -bey;
         negatetail = -beytail;
-        twoTwoProduct(cex, cextail, negate, negatetail, cxby);
-        int bclen = expansionSumZeroElimFast(8, bxcy, 8, cxby, bc);
+        twoTwoProduct(cex, cextail, negate, negatetail, cxby, t);
+        int bclen = expansionSumZeroElimFast(8, bxcy, 8, cxby, bc, t);
 
-        double[] cxdy = new double[8];
-        double[] dxcy = new double[8];
-        double[] cd = new double[16];
-        twoTwoProduct(cex, cextail, dey, deytail, cxdy);
+        double[] cxdy = context.cxdy;
+        double[] dxcy = context.dxcy;
+        double[] cd = context.cd;
+        twoTwoProduct(cex, cextail, dey, deytail, cxdy, t);
         negate = -cey;
         negatetail = -ceytail;
-        twoTwoProduct(dex, dextail, negate, negatetail, dxcy);
-        int cdlen = expansionSumZeroElimFast(8, cxdy, 8, dxcy, cd);
+        twoTwoProduct(dex, dextail, negate, negatetail, dxcy, t);
+        int cdlen = expansionSumZeroElimFast(8, cxdy, 8, dxcy, cd, t);
 
-        double[] dxay = new double[8];
-        double[] axdy = new double[8];
-        double[] da = new double[16];
-        twoTwoProduct(dex, dextail, aey, aeytail, dxay);
+        double[] dxay = context.dxay;
+        double[] axdy = context.axdy;
+        double[] da = context.da;
+        twoTwoProduct(dex, dextail, aey, aeytail, dxay, t);
         negate = -dey;
         negatetail = -deytail;
-        twoTwoProduct(aex, aextail, negate, negatetail, axdy);
-        int dalen = expansionSumZeroElimFast(8, dxay, 8, axdy, da);
+        twoTwoProduct(aex, aextail, negate, negatetail, axdy, t);
+        int dalen = expansionSumZeroElimFast(8, dxay, 8, axdy, da, t);
 
-        double[] axcy = new double[8];
-        double[] cxay = new double[8];
-        double[] ac = new double[16];
-        twoTwoProduct(aex, aextail, cey, ceytail, axcy);
+        double[] axcy = context.axcy;
+        double[] cxay = context.cxay;
+        double[] ac = context.ac;
+        twoTwoProduct(aex, aextail, cey, ceytail, axcy, t);
         negate = -aey;
         negatetail = -aeytail;
-        twoTwoProduct(cex, cextail, negate, negatetail, cxay);
-        int aclen = expansionSumZeroElimFast(8, axcy, 8, cxay, ac);
+        twoTwoProduct(cex, cextail, negate, negatetail, cxay, t);
+        int aclen = expansionSumZeroElimFast(8, axcy, 8, cxay, ac, t);
 
-        double[] bxdy = new double[8];
-        double[] dxby = new double[8];
-        double[] bd = new double[16];
-        twoTwoProduct(bex, bextail, dey, deytail, bxdy);
+        double[] bxdy = context.bxdy;
+        double[] dxby = context.dxby;
+        double[] bd = context.bd;
+        twoTwoProduct(bex, bextail, dey, deytail, bxdy, t);
         negate = -bey;
         negatetail = -beytail;
-        twoTwoProduct(dex, dextail, negate, negatetail, dxby);
-        int bdlen = expansionSumZeroElimFast(8, bxdy, 8, dxby, bd);
-
-        double[] t32a = new double[32];
-        double[] t32b = new double[32];
-        double[] t64a = new double[64];
-        double[] t64b = new double[64];
-        double[] t64c = new double[64];
-        double[] t128 = new double[128];
-        double[] t192 = new double[192];
+        twoTwoProduct(dex, dextail, negate, negatetail, dxby, t);
+        int bdlen = expansionSumZeroElimFast(8, bxdy, 8, dxby, bd, t);
+
+        double[] t32a = context.t32a;
+        double[] t32b = context.t32b;
+        double[] t64a = context.t64a;
+        double[] t64b = context.t64b;
+        double[] t64c = context.t64c;
+        double[] t128 = context.t128;
+        double[] t192 = context.t192;
         int t32alen, t32blen, t64alen, t64blen, t64clen, t128len, t192len;
-        t32alen = scaleExpansionZeroElim(cdlen, cd, -bez, t32a);
-        t32blen = scaleExpansionZeroElim(cdlen, cd, -beztail, t32b);
-        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a);
-        t32alen = scaleExpansionZeroElim(bdlen, bd, cez, t32a);
-        t32blen = scaleExpansionZeroElim(bdlen, bd, ceztail, t32b);
-        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b);
-        t32alen = scaleExpansionZeroElim(bclen, bc, -dez, t32a);
-        t32blen = scaleExpansionZeroElim(bclen, bc, -deztail, t32b);
-        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c);
-        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128);
-        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192);
-
-        double[] detx = new double[384];
-        double[] detxx = new double[768];
-        double[] detxt = new double[384];
-        double[] detxxt = new double[768];
-        double[] detxtxt = new double[768];
-        double[] x1 = new double[1536];
-        double[] x2 = new double[2304];
-        int xlen = scaleExpansionZeroElim(t192len, t192, aex, detx);
-        int xxlen = scaleExpansionZeroElim(xlen, detx, aex, detxx);
-        int xtlen = scaleExpansionZeroElim(t192len, t192, aextail, detxt);
-        int xxtlen = scaleExpansionZeroElim(xtlen, detxt, aex, detxxt);
+        t32alen = scaleExpansionZeroElim(cdlen, cd, -bez, t32a, t);
+        t32blen = scaleExpansionZeroElim(cdlen, cd, -beztail, t32b, t);
+        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a, t);
+        t32alen = scaleExpansionZeroElim(bdlen, bd, cez, t32a, t);
+        t32blen = scaleExpansionZeroElim(bdlen, bd, ceztail, t32b, t);
+        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b, t);
+        t32alen = scaleExpansionZeroElim(bclen, bc, -dez, t32a, t);
+        t32blen = scaleExpansionZeroElim(bclen, bc, -deztail, t32b, t);
+        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c, t);
+        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128, t);
+        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192, t);
+
+        double[] detx = context.detx;
+        double[] detxx = context.detxx;
+        double[] detxt = context.detxt;
+        double[] detxxt = context.detxxt;
+        double[] detxtxt = context.detxtxt;
+        double[] x1 = context.x1;
+        double[] x2 = context.x2;
+        int xlen = scaleExpansionZeroElim(t192len, t192, aex, detx, t);
+        int xxlen = scaleExpansionZeroElim(xlen, detx, aex, detxx, t);
+        int xtlen = scaleExpansionZeroElim(t192len, t192, aextail, detxt, t);
+        int xxtlen = scaleExpansionZeroElim(xtlen, detxt, aex, detxxt, t);
         for (int i = 0; i < xxtlen; ++i) {
             detxxt[i] *= 2.0;
         }
-        int xtxtlen = scaleExpansionZeroElim(xtlen, detxt, aextail, detxtxt);
-        int x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1);
-        int x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2);
-
-        double[] dety = new double[384];
-        double[] detyy = new double[768];
-        double[] detyt = new double[384];
-        double[] detyyt = new double[768];
-        double[] detytyt = new double[768];
-        double[] y1 = new double[1536];
-        double[] y2 = new double[2304];
-        int ylen = scaleExpansionZeroElim(t192len, t192, aey, dety);
-        int yylen = scaleExpansionZeroElim(ylen, dety, aey, detyy);
-        int ytlen = scaleExpansionZeroElim(t192len, t192, aeytail, detyt);
-        int yytlen = scaleExpansionZeroElim(ytlen, detyt, aey, detyyt);
+        int xtxtlen = scaleExpansionZeroElim(xtlen, detxt, aextail, detxtxt, t);
+        int x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1, t);
+        int x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2, t);
+
+        double[] dety = context.dety;
+        double[] detyy = context.detyy;
+        double[] detyt = context.detyt;
+        double[] detyyt = context.detyyt;
+        double[] detytyt = context.detytyt;
+        double[] y1 = context.y1;
+        double[] y2 = context.y2;
+        int ylen = scaleExpansionZeroElim(t192len, t192, aey, dety, t);
+        int yylen = scaleExpansionZeroElim(ylen, dety, aey, detyy, t);
+        int ytlen = scaleExpansionZeroElim(t192len, t192, aeytail, detyt, t);
+        int yytlen = scaleExpansionZeroElim(ytlen, detyt, aey, detyyt, t);
         for (int i = 0; i < yytlen; ++i) {
             detyyt[i] *= 2.0;
         }
-        int ytytlen = scaleExpansionZeroElim(ytlen, detyt, aeytail, detytyt);
-        int y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1);
-        int y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2);
-
-        double[] detz = new double[384];
-        double[] detzz = new double[768];
-        double[] detzt = new double[384];
-        double[] detzzt = new double[768];
-        double[] detztzt = new double[768];
-        double[] z1 = new double[1536];
-        double[] z2 = new double[2304];
-        int zlen = scaleExpansionZeroElim(t192len, t192, aez, detz);
-        int zzlen = scaleExpansionZeroElim(zlen, detz, aez, detzz);
-        int ztlen = scaleExpansionZeroElim(t192len, t192, aeztail, detzt);
-        int zztlen = scaleExpansionZeroElim(ztlen, detzt, aez, detzzt);
+        int ytytlen = scaleExpansionZeroElim(ytlen, detyt, aeytail, detytyt, t);
+        int y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1, t);
+        int y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2, t);
+
+        double[] detz = context.detz;
+        double[] detzz = context.detzz;
+        double[] detzt = context.detzt;
+        double[] detzzt = context.detzzt;
+        double[] detztzt = context.detztzt;
+        double[] z1 = context.z1;
+        double[] z2 = context.z2;
+        int zlen = scaleExpansionZeroElim(t192len, t192, aez, detz, t);
+        int zzlen = scaleExpansionZeroElim(zlen, detz, aez, detzz, t);
+        int ztlen = scaleExpansionZeroElim(t192len, t192, aeztail, detzt, t);
+        int zztlen = scaleExpansionZeroElim(ztlen, detzt, aez, detzzt, t);
         for (int i = 0; i < zztlen; ++i) {
             detzzt[i] *= 2.0;
         }
-        int ztztlen = scaleExpansionZeroElim(ztlen, detzt, aeztail, detztzt);
-        int z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1);
-        int z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2);
-
-        double[] detxy = new double[4608];
-        double[] adet = new double[6912];
-        double[] bdet = new double[6912];
-        double[] cdet = new double[6912];
-        double[] ddet = new double[6912];
-        int xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy);
-        int alen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, adet);
-
-        t32alen = scaleExpansionZeroElim(dalen, da, cez, t32a);
-        t32blen = scaleExpansionZeroElim(dalen, da, ceztail, t32b);
-        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a);
-        t32alen = scaleExpansionZeroElim(aclen, ac, dez, t32a);
-        t32blen = scaleExpansionZeroElim(aclen, ac, deztail, t32b);
-        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b);
-        t32alen = scaleExpansionZeroElim(cdlen, cd, aez, t32a);
-        t32blen = scaleExpansionZeroElim(cdlen, cd, aeztail, t32b);
-        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c);
-        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128);
-        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192);
-        xlen = scaleExpansionZeroElim(t192len, t192, bex, detx);
-        xxlen = scaleExpansionZeroElim(xlen, detx, bex, detxx);
-        xtlen = scaleExpansionZeroElim(t192len, t192, bextail, detxt);
-        xxtlen = scaleExpansionZeroElim(xtlen, detxt, bex, detxxt);
+        int ztztlen = scaleExpansionZeroElim(ztlen, detzt, aeztail, detztzt, t);
+        int z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1, t);
+        int z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2, t);
+
+        double[] detxy = context.detxy;
+        double[] adet = context.adet;
+        double[] bdet = context.bdet;
+        double[] cdet = context.cdet;
+        double[] ddet = context.ddet;
+        int xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy, t);
+        int alen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, adet, t);
+
+        t32alen = scaleExpansionZeroElim(dalen, da, cez, t32a, t);
+        t32blen = scaleExpansionZeroElim(dalen, da, ceztail, t32b, t);
+        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a, t);
+        t32alen = scaleExpansionZeroElim(aclen, ac, dez, t32a, t);
+        t32blen = scaleExpansionZeroElim(aclen, ac, deztail, t32b, t);
+        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b, t);
+        t32alen = scaleExpansionZeroElim(cdlen, cd, aez, t32a, t);
+        t32blen = scaleExpansionZeroElim(cdlen, cd, aeztail, t32b, t);
+        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c, t);
+        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128, t);
+        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192, t);
+        xlen = scaleExpansionZeroElim(t192len, t192, bex, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, bex, detxx, t);
+        xtlen = scaleExpansionZeroElim(t192len, t192, bextail, detxt, t);
+        xxtlen = scaleExpansionZeroElim(xtlen, detxt, bex, detxxt, t);
         for (int i = 0; i < xxtlen; ++i) {
             detxxt[i] *= 2.0;
         }
-        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, bextail, detxtxt);
-        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1);
-        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2);
-        ylen = scaleExpansionZeroElim(t192len, t192, bey, dety);
-        yylen = scaleExpansionZeroElim(ylen, dety, bey, detyy);
-        ytlen = scaleExpansionZeroElim(t192len, t192, beytail, detyt);
-        yytlen = scaleExpansionZeroElim(ytlen, detyt, bey, detyyt);
+        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, bextail, detxtxt, t);
+        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1, t);
+        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2, t);
+        ylen = scaleExpansionZeroElim(t192len, t192, bey, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, bey, detyy, t);
+        ytlen = scaleExpansionZeroElim(t192len, t192, beytail, detyt, t);
+        yytlen = scaleExpansionZeroElim(ytlen, detyt, bey, detyyt, t);
         for (int i = 0; i < yytlen; ++i) {
             detyyt[i] *= 2.0;
         }
-        ytytlen = scaleExpansionZeroElim(ytlen, detyt, beytail, detytyt);
-        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1);
-        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2);
-        zlen = scaleExpansionZeroElim(t192len, t192, bez, detz);
-        zzlen = scaleExpansionZeroElim(zlen, detz, bez, detzz);
-        ztlen = scaleExpansionZeroElim(t192len, t192, beztail, detzt);
-        zztlen = scaleExpansionZeroElim(ztlen, detzt, bez, detzzt);
+        ytytlen = scaleExpansionZeroElim(ytlen, detyt, beytail, detytyt, t);
+        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1, t);
+        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2, t);
+        zlen = scaleExpansionZeroElim(t192len, t192, bez, detz, t);
+        zzlen = scaleExpansionZeroElim(zlen, detz, bez, detzz, t);
+        ztlen = scaleExpansionZeroElim(t192len, t192, beztail, detzt, t);
+        zztlen = scaleExpansionZeroElim(ztlen, detzt, bez, detzzt, t);
         for (int i = 0; i < zztlen; ++i) {
             detzzt[i] *= 2.0;
         }
-        ztztlen = scaleExpansionZeroElim(ztlen, detzt, beztail, detztzt);
-        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1);
-        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2);
-        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy);
-        int blen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, bdet);
-
-        t32alen = scaleExpansionZeroElim(ablen, ab, -dez, t32a);
-        t32blen = scaleExpansionZeroElim(ablen, ab, -deztail, t32b);
-        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a);
-        t32alen = scaleExpansionZeroElim(bdlen, bd, -aez, t32a);
-        t32blen = scaleExpansionZeroElim(bdlen, bd, -aeztail, t32b);
-        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b);
-        t32alen = scaleExpansionZeroElim(dalen, da, -bez, t32a);
-        t32blen = scaleExpansionZeroElim(dalen, da, -beztail, t32b);
-        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c);
-        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128);
-        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192);
-        xlen = scaleExpansionZeroElim(t192len, t192, cex, detx);
-        xxlen = scaleExpansionZeroElim(xlen, detx, cex, detxx);
-        xtlen = scaleExpansionZeroElim(t192len, t192, cextail, detxt);
-        xxtlen = scaleExpansionZeroElim(xtlen, detxt, cex, detxxt);
+        ztztlen = scaleExpansionZeroElim(ztlen, detzt, beztail, detztzt, t);
+        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1, t);
+        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2, t);
+        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy, t);
+        int blen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, bdet, t);
+
+        t32alen = scaleExpansionZeroElim(ablen, ab, -dez, t32a, t);
+        t32blen = scaleExpansionZeroElim(ablen, ab, -deztail, t32b, t);
+        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a, t);
+        t32alen = scaleExpansionZeroElim(bdlen, bd, -aez, t32a, t);
+        t32blen = scaleExpansionZeroElim(bdlen, bd, -aeztail, t32b, t);
+        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b, t);
+        t32alen = scaleExpansionZeroElim(dalen, da, -bez, t32a, t);
+        t32blen = scaleExpansionZeroElim(dalen, da, -beztail, t32b, t);
+        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c, t);
+        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128, t);
+        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192, t);
+        xlen = scaleExpansionZeroElim(t192len, t192, cex, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, cex, detxx, t);
+        xtlen = scaleExpansionZeroElim(t192len, t192, cextail, detxt, t);
+        xxtlen = scaleExpansionZeroElim(xtlen, detxt, cex, detxxt, t);
         for (int i = 0; i < xxtlen; ++i) {
             detxxt[i] *= 2.0;
         }
-        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, cextail, detxtxt);
-        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1);
-        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2);
-        ylen = scaleExpansionZeroElim(t192len, t192, cey, dety);
-        yylen = scaleExpansionZeroElim(ylen, dety, cey, detyy);
-        ytlen = scaleExpansionZeroElim(t192len, t192, ceytail, detyt);
-        yytlen = scaleExpansionZeroElim(ytlen, detyt, cey, detyyt);
+        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, cextail, detxtxt, t);
+        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1, t);
+        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2, t);
+        ylen = scaleExpansionZeroElim(t192len, t192, cey, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, cey, detyy, t);
+        ytlen = scaleExpansionZeroElim(t192len, t192, ceytail, detyt, t);
+        yytlen = scaleExpansionZeroElim(ytlen, detyt, cey, detyyt, t);
         for (int i = 0; i < yytlen; ++i) {
             detyyt[i] *= 2.0;
         }
-        ytytlen = scaleExpansionZeroElim(ytlen, detyt, ceytail, detytyt);
-        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1);
-        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2);
-        zlen = scaleExpansionZeroElim(t192len, t192, cez, detz);
-        zzlen = scaleExpansionZeroElim(zlen, detz, cez, detzz);
-        ztlen = scaleExpansionZeroElim(t192len, t192, ceztail, detzt);
-        zztlen = scaleExpansionZeroElim(ztlen, detzt, cez, detzzt);
+        ytytlen = scaleExpansionZeroElim(ytlen, detyt, ceytail, detytyt, t);
+        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1, t);
+        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2, t);
+        zlen = scaleExpansionZeroElim(t192len, t192, cez, detz, t);
+        zzlen = scaleExpansionZeroElim(zlen, detz, cez, detzz, t);
+        ztlen = scaleExpansionZeroElim(t192len, t192, ceztail, detzt, t);
+        zztlen = scaleExpansionZeroElim(ztlen, detzt, cez, detzzt, t);
         for (int i = 0; i < zztlen; ++i) {
             detzzt[i] *= 2.0;
         }
-        ztztlen = scaleExpansionZeroElim(ztlen, detzt, ceztail, detztzt);
-        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1);
-        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2);
-        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy);
-        int clen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, cdet);
-
-        t32alen = scaleExpansionZeroElim(bclen, bc, aez, t32a);
-        t32blen = scaleExpansionZeroElim(bclen, bc, aeztail, t32b);
-        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a);
-        t32alen = scaleExpansionZeroElim(aclen, ac, -bez, t32a);
-        t32blen = scaleExpansionZeroElim(aclen, ac, -beztail, t32b);
-        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b);
-        t32alen = scaleExpansionZeroElim(ablen, ab, cez, t32a);
-        t32blen = scaleExpansionZeroElim(ablen, ab, ceztail, t32b);
-        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c);
-        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128);
-        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192);
-        xlen = scaleExpansionZeroElim(t192len, t192, dex, detx);
-        xxlen = scaleExpansionZeroElim(xlen, detx, dex, detxx);
-        xtlen = scaleExpansionZeroElim(t192len, t192, dextail, detxt);
-        xxtlen = scaleExpansionZeroElim(xtlen, detxt, dex, detxxt);
+        ztztlen = scaleExpansionZeroElim(ztlen, detzt, ceztail, detztzt, t);
+        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1, t);
+        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2, t);
+        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy, t);
+        int clen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, cdet, t);
+
+        t32alen = scaleExpansionZeroElim(bclen, bc, aez, t32a, t);
+        t32blen = scaleExpansionZeroElim(bclen, bc, aeztail, t32b, t);
+        t64alen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64a, t);
+        t32alen = scaleExpansionZeroElim(aclen, ac, -bez, t32a, t);
+        t32blen = scaleExpansionZeroElim(aclen, ac, -beztail, t32b, t);
+        t64blen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64b, t);
+        t32alen = scaleExpansionZeroElim(ablen, ab, cez, t32a, t);
+        t32blen = scaleExpansionZeroElim(ablen, ab, ceztail, t32b, t);
+        t64clen = expansionSumZeroElimFast(t32alen, t32a, t32blen, t32b, t64c, t);
+        t128len = expansionSumZeroElimFast(t64alen, t64a, t64blen, t64b, t128, t);
+        t192len = expansionSumZeroElimFast(t64clen, t64c, t128len, t128, t192, t);
+        xlen = scaleExpansionZeroElim(t192len, t192, dex, detx, t);
+        xxlen = scaleExpansionZeroElim(xlen, detx, dex, detxx, t);
+        xtlen = scaleExpansionZeroElim(t192len, t192, dextail, detxt, t);
+        xxtlen = scaleExpansionZeroElim(xtlen, detxt, dex, detxxt, t);
         for (int i = 0; i < xxtlen; ++i) {
             detxxt[i] *= 2.0;
         }
-        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, dextail, detxtxt);
-        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1);
-        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2);
-        ylen = scaleExpansionZeroElim(t192len, t192, dey, dety);
-        yylen = scaleExpansionZeroElim(ylen, dety, dey, detyy);
-        ytlen = scaleExpansionZeroElim(t192len, t192, deytail, detyt);
-        yytlen = scaleExpansionZeroElim(ytlen, detyt, dey, detyyt);
+        xtxtlen = scaleExpansionZeroElim(xtlen, detxt, dextail, detxtxt, t);
+        x1len = expansionSumZeroElimFast(xxlen, detxx, xxtlen, detxxt, x1, t);
+        x2len = expansionSumZeroElimFast(x1len, x1, xtxtlen, detxtxt, x2, t);
+        ylen = scaleExpansionZeroElim(t192len, t192, dey, dety, t);
+        yylen = scaleExpansionZeroElim(ylen, dety, dey, detyy, t);
+        ytlen = scaleExpansionZeroElim(t192len, t192, deytail, detyt, t);
+        yytlen = scaleExpansionZeroElim(ytlen, detyt, dey, detyyt, t);
         for (int i = 0; i < yytlen; ++i) {
             detyyt[i] *= 2.0;
         }
-        ytytlen = scaleExpansionZeroElim(ytlen, detyt, deytail, detytyt);
-        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1);
-        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2);
-        zlen = scaleExpansionZeroElim(t192len, t192, dez, detz);
-        zzlen = scaleExpansionZeroElim(zlen, detz, dez, detzz);
-        ztlen = scaleExpansionZeroElim(t192len, t192, deztail, detzt);
-        zztlen = scaleExpansionZeroElim(ztlen, detzt, dez, detzzt);
+        ytytlen = scaleExpansionZeroElim(ytlen, detyt, deytail, detytyt, t);
+        y1len = expansionSumZeroElimFast(yylen, detyy, yytlen, detyyt, y1, t);
+        y2len = expansionSumZeroElimFast(y1len, y1, ytytlen, detytyt, y2, t);
+        zlen = scaleExpansionZeroElim(t192len, t192, dez, detz, t);
+        zzlen = scaleExpansionZeroElim(zlen, detz, dez, detzz, t);
+        ztlen = scaleExpansionZeroElim(t192len, t192, deztail, detzt, t);
+        zztlen = scaleExpansionZeroElim(ztlen, detzt, dez, detzzt, t);
         for (int i = 0; i < zztlen; ++i) {
             detzzt[i] *= 2.0;
         }
-        ztztlen = scaleExpansionZeroElim(ztlen, detzt, deztail, detztzt);
-        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1);
-        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2);
-        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy);
-        int dlen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, ddet);
-
-        double[] abdet = new double[13824];
-        double[] cddet = new double[13824];
-        double[] det = new double[27648];
-        ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet);
-        cdlen = expansionSumZeroElimFast(clen, cdet, dlen, ddet, cddet);
-        int detlen = expansionSumZeroElimFast(ablen, abdet, cdlen, cddet, det);
+        ztztlen = scaleExpansionZeroElim(ztlen, detzt, deztail, detztzt, t);
+        z1len = expansionSumZeroElimFast(zzlen, detzz, zztlen, detzzt, z1, t);
+        z2len = expansionSumZeroElimFast(z1len, z1, ztztlen, detztzt, z2, t);
+        xylen = expansionSumZeroElimFast(x2len, x2, y2len, y2, detxy, t);
+        int dlen = expansionSumZeroElimFast(z2len, z2, xylen, detxy, ddet, t);
+
+        double[] abdet = context.abdet;
+        double[] cddet = context.cddet;
+        double[] det = context.det;
+        ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet, t);
+        cdlen = expansionSumZeroElimFast(clen, cdet, dlen, ddet, cddet, t);
+        int detlen = expansionSumZeroElimFast(ablen, abdet, cdlen, cddet, det, t);
 
         return det[detlen - 1];
     }
 
+    /**
+     * Float in-sphere test, for points of float coordinates that the fast
+     * filter could not resolve. If the differences of the x and y coordinates
+     * are floats, and those of the z coordinates are exact, the determinant is
+     * computed exactly from minors of two components. Otherwise the points are
+     * evaluated adaptively.
+     */
+    private static double inSphereFloat(double xa, double ya, double za,
+                                        double xb, double yb, double zb,
+                                        double xc, double yc, double zc,
+                                        double xd, double yd, double zd,
+                                        double xe, double ye, double ze,
+                                        double permanent, Context context) {
+        Two t = context.two;
+        if (narrow(xa, xe, t) && narrow(ya, ye, t) && exact(za, ze, t)
+            && narrow(xb, xe, t) && narrow(yb, ye, t) && exact(zb, ze, t)
+            && narrow(xc, xe, t) && narrow(yc, ye, t) && exact(zc, ze, t)
+            && narrow(xd, xe, t) && narrow(yd, ye, t) && exact(zd, ze, t)) {
+            return inOrthoSphereNarrow(xa - xe, ya - ye, za - ze, 0.0, xb - xe,
+                                       yb - ye, zb - ze, 0.0, xc - xe, yc - ye,
+                                       zc - ze, 0.0, xd - xe, yd - ye, zd - ze,
+                                       0.0, context);
+        }
+        return inSphereAdapt(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd, xe,
+                             ye, ze, permanent, context);
+    }
+
     /**
      * Computes the product a*b. Puts the product in x and the error in y.
      */
-    /*
     private strictfp static void twoProduct(double a, double b, Two t) {
-      double x = a*b;
-      split(a,t);
-      double ahi = t.x;
-      double alo = t.y;
-      split(b,t);
-      double bhi = t.x;
-      double blo = t.y;
-      double err1 = x-(ahi*bhi);
-      double err2 = err1-(alo*bhi);
-      double err3 = err2-(ahi*blo);
-      t.x = x;
-      t.y = (alo*blo)-err3;
+        double x = a * b;
+        t.x = x;
+        t.y = TwoProduct.error(a, b, x);
+    }
+
+    /**
+     * Evaluates the 2D orientation test. If the coordinates are floats, the
+     * points the fast filter could not resolve are evaluated by the float
+     * stage.
+     */
+    private static double leftOfLine(double xa, double ya, double xb, double yb,
+                                     double xc, double yc, Context context,
+                                     boolean floats) {
+        double detleft = (xa - xc) * (yb - yc);
+        double detright = (ya - yc) * (xb - xc);
+        double det = detleft - detright;
+        double detsum;
+        if (detleft > 0.0) {
+            if (detright <= 0.0) {
+                return det;
+            } else {
+                detsum = detleft + detright;
+            }
+        } else if (detleft < 0.0) {
+            if (detright >= 0.0) {
+                return det;
+            } else {
+                detsum = -detleft - detright;
+            }
+        } else {
+            return det;
+        }
+        double errbound = O2DERRBOUND * detsum;
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
+
+        if (floats) {
+            return leftOfLineFloat(xa, ya, xb, yb, xc, yc, local(context));
+        }
+        return leftOfLineExact(xa, ya, xb, yb, xc, yc, local(context));
     }
-    */
 
     /**
      * Slow exact 2D orientation test. Returns a positive value if the points
@@ -2214,8 +4082,9 @@ public final class Geometry {
      * defined by the three points.
      */
     private static double leftOfLineExact(double xa, double ya, double xb,
-                                          double yb, double xc, double yc) {
-        Two t = new Two();
+                                          double yb, double xc, double yc,
+                                          Context context) {
+        Two t = context.two;
         twoDiff(xa, xc, t);
         double acx = t.x;
         double acxtail = t.y;
@@ -2229,19 +4098,203 @@ public final class Geometry {
         double bcy = t.x;
         double bcytail = t.y;
 
-        double[] axby = new double[8];
-        double[] bxay = new double[8];
-        twoTwoProduct(acx, acxtail, bcy, bcytail, axby);
+        double[] axby = context.axby;
+        double[] bxay = context.bxay;
+        twoTwoProduct(acx, acxtail, bcy, bcytail, axby, t);
         double negate = -acy;
         double negatetail = -acytail;
-        twoTwoProduct(bcx, bcxtail, negate, negatetail, bxay);
+        twoTwoProduct(bcx, bcxtail, negate, negatetail, bxay, t);
 
-        double[] det = new double[16];
-        int detlen = expansionSumZeroElimFast(8, axby, 8, bxay, det);
+        double[] det = context.det;
+        int detlen = expansionSumZeroElimFast(8, axby, 8, bxay, det, t);
 
         return det[detlen - 1];
     }
 
+    /**
+     * Float 2D orientation test, for points of float coordinates that the fast
+     * filter could not resolve. If the differences of the coordinates are
+     * floats, their products are exact in double, and so is the sign of the
+     * difference of the products. Otherwise the orientation is computed
+     * exactly.
+     */
+    private static double leftOfLineFloat(double xa, double ya, double xb,
+                                          double yb, double xc, double yc,
+                                          Context context) {
+        Two t = context.two;
+        if (narrow(xa, xc, t) && narrow(ya, yc, t) && narrow(xb, xc, t)
+            && narrow(yb, yc, t)) {
+            return (xa - xc) * (yb - yc) - (ya - yc) * (xb - xc);
+        }
+        return leftOfLineExact(xa, ya, xb, yb, xc, yc, context);
+    }
+
+    /**
+     * Evaluates the 3D orientation test. If the coordinates are floats, the
+     * points the fast filter could not resolve are evaluated by the float
+     * stage.
+     */
+    private static double leftOfPlane(double xa, double ya, double za,
+                                      double xb, double yb, double zb,
+                                      double xc, double yc, double zc,
+                                      double xd, double yd, double zd,
+                                      Context context, boolean floats) {
+        double adx = xa - xd;
+        double bdx = xb - xd;
+        double cdx = xc - xd;
+        double ady = ya - yd;
+        double bdy = yb - yd;
+        double cdy = yc - yd;
+        double adz = za - zd;
+        double bdz = zb - zd;
+        double cdz = zc - zd;
+
+        double bdxcdy = bdx * cdy;
+        double cdxbdy = cdx * bdy;
+
+        double cdxady = cdx * ady;
+        double adxcdy = adx * cdy;
+
+        double adxbdy = adx * bdy;
+        double bdxady = bdx * ady;
+
+        double det = adz * (bdxcdy - cdxbdy) + bdz * (cdxady - adxcdy) + cdz
+                     * (adxbdy - bdxady);
+
+        if (adz < 0.0) {
+            adz = -adz;
+        }
+        if (bdz < 0.0) {
+            bdz = -bdz;
+        }
+        if (cdz < 0.0) {
+            cdz = -cdz;
+        }
+        if (bdxcdy < 0.0) {
+            bdxcdy = -bdxcdy;
+        }
+        if (cdxbdy < 0.0) {
+            cdxbdy = -cdxbdy;
+        }
+        if (cdxady < 0.0) {
+            cdxady = -cdxady;
+        }
+        if (adxcdy < 0.0) {
+            adxcdy = -adxcdy;
+        }
+        if (adxbdy < 0.0) {
+            adxbdy = -adxbdy;
+        }
+        if (bdxady < 0.0) {
+            bdxady = -bdxady;
+        }
+        double permanent = (bdxcdy + cdxbdy) * adz + (cdxady + adxcdy) * bdz
+                           + (adxbdy + bdxady) * cdz;
+        double errbound = O3DERRBOUND * permanent;
+        if (det > errbound || -det > errbound) {
+            return det;
+        }
+
+        if (floats) {
+            return leftOfPlaneFloat(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd,
+                                    zd, permanent, local(context));
+        }
+        return leftOfPlaneAdapt(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd,
+                                permanent, local(context));
+    }
+
+    /**
+     * Adaptive 3D orientation test, for points that the fast filter could not
+     * resolve. Stage B computes the determinant exactly from the rounded
+     * coordinate differences; stage C corrects it by the first order terms of
+     * the roundoff of the differences. Only if both are uncertain is the
+     * determinant computed exactly.
+     */
+    private static double leftOfPlaneAdapt(double xa, double ya, double za,
+                                           double xb, double yb, double zb,
+                                           double xc, double yc, double zc,
+                                           double xd, double yd, double zd,
+                                           double permanent, Context context) {
+        Two t = context.two;
+        double adx = xa - xd;
+        double bdx = xb - xd;
+        double cdx = xc - xd;
+        double ady = ya - yd;
+        double bdy = yb - yd;
+        double cdy = yc - yd;
+        double adz = za - zd;
+        double bdz = zb - zd;
+        double cdz = zc - zd;
+
+        double[] bc = context.bc;
+        twoTwoDiffOfProducts(bdx, cdy, cdx, bdy, bc, t);
+        double[] adet = context.adet;
+        int alen = scaleExpansionZeroElim(4, bc, adz, adet, t);
+
+        double[] ca = context.ca;
+        twoTwoDiffOfProducts(cdx, ady, adx, cdy, ca, t);
+        double[] bdet = context.bdet;
+        int blen = scaleExpansionZeroElim(4, ca, bdz, bdet, t);
+
+        double[] ab = context.ab;
+        twoTwoDiffOfProducts(adx, bdy, bdx, ady, ab, t);
+        double[] cdet = context.cdet;
+        int clen = scaleExpansionZeroElim(4, ab, cdz, cdet, t);
+
+        double[] abdet = context.abdet;
+        double[] fin = context.det;
+        int ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet, t);
+        int finlen = expansionSumZeroElimFast(ablen, abdet, clen, cdet, fin, t);
+
+        double det = estimate(finlen, fin);
+        double errbound = O3DERRBOUNDB * permanent;
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
+
+        twoDiff(xa, xd, t);
+        double adxtail = t.y;
+        twoDiff(ya, yd, t);
+        double adytail = t.y;
+        twoDiff(za, zd, t);
+        double adztail = t.y;
+        twoDiff(xb, xd, t);
+        double bdxtail = t.y;
+        twoDiff(yb, yd, t);
+        double bdytail = t.y;
+        twoDiff(zb, zd, t);
+        double bdztail = t.y;
+        twoDiff(xc, xd, t);
+        double cdxtail = t.y;
+        twoDiff(yc, yd, t);
+        double cdytail = t.y;
+        twoDiff(zc, zd, t);
+        double cdztail = t.y;
+        if (adxtail == 0.0 && bdxtail == 0.0 && cdxtail == 0.0
+            && adytail == 0.0 && bdytail == 0.0 && cdytail == 0.0
+            && adztail == 0.0 && bdztail == 0.0 && cdztail == 0.0) {
+            // The differences, and so the stage B determinant, are exact
+            return det;
+        }
+
+        errbound = O3DERRBOUNDC * permanent + RESULTERRBOUND * Math.abs(det);
+        double bceps = bdx * cdytail + cdy * bdxtail
+                       - (bdy * cdxtail + cdx * bdytail);
+        double caeps = cdx * adytail + ady * cdxtail
+                       - (cdy * adxtail + adx * cdytail);
+        double abeps = adx * bdytail + bdy * adxtail
+                       - (ady * bdxtail + bdx * adytail);
+        det += adz * bceps + adztail * (bdx * cdy - bdy * cdx)
+               + (bdz * caeps + bdztail * (cdx * ady - cdy * adx))
+               + (cdz * abeps + cdztail * (adx * bdy - ady * bdx));
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
+
+        return leftOfPlaneExact(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd, zd,
+                                context);
+    }
+
     /**
      * Slow exact 3D orientation test. Returns a positive value if the point d
      * lies left of the plane passing through pa, pb, and pc; here, "left" is
@@ -2253,8 +4306,9 @@ public final class Geometry {
     private static double leftOfPlaneExact(double xa, double ya, double za,
                                            double xb, double yb, double zb,
                                            double xc, double yc, double zc,
-                                           double xd, double yd, double zd) {
-        Two t = new Two();
+                                           double xd, double yd, double zd,
+                                           Context context) {
+        Two t = context.two;
         twoDiff(xa, xd, t);
         double adx = t.x;
         double adxtail = t.y;
@@ -2283,58 +4337,144 @@ public final class Geometry {
         double cdz = t.x;
         double cdztail = t.y;
 
-        double[] axby = new double[8];
-        twoTwoProduct(adx, adxtail, bdy, bdytail, axby);
+        double[] axby = context.axby;
+        twoTwoProduct(adx, adxtail, bdy, bdytail, axby, t);
         double negate = -ady;
         double negatetail = -adytail;
-        double[] bxay = new double[8];
-        twoTwoProduct(bdx, bdxtail, negate, negatetail, bxay);
+        double[] bxay = context.bxay;
+        twoTwoProduct(bdx, bdxtail, negate, negatetail, bxay, t);
 
-        double[] bxcy = new double[8];
-        twoTwoProduct(bdx, bdxtail, cdy, cdytail, bxcy);
+        double[] bxcy = context.bxcy;
+        twoTwoProduct(bdx, bdxtail, cdy, cdytail, bxcy, t);
         negate = -bdy;
         negatetail = -bdytail;
-        double[] cxby = new double[8];
-        twoTwoProduct(cdx, cdxtail, negate, negatetail, cxby);
+        double[] cxby = context.cxby;
+        twoTwoProduct(cdx, cdxtail, negate, negatetail, cxby, t);
 
-        double[] cxay = new double[8];
-        twoTwoProduct(cdx, cdxtail, ady, adytail, cxay);
+        double[] cxay = context.cxay;
+        twoTwoProduct(cdx, cdxtail, ady, adytail, cxay, t);
         negate = -cdy;
         negatetail = -cdytail;
-        double[] axcy = new double[8];
-        twoTwoProduct(adx, adxtail, negate, negatetail, axcy);
+        double[] axcy = context.axcy;
+        twoTwoProduct(adx, adxtail, negate, negatetail, axcy, t);
 
-        double[] t16 = new double[16];
-        double[] t32 = new double[32];
-        double[] t32t = new double[32];
+        double[] t16 = context.t16;
+        double[] t32 = context.t32;
+        double[] t32t = context.t32t;
         int t16len, t32len, t32tlen;
 
-        t16len = expansionSumZeroElimFast(8, bxcy, 8, cxby, t16);
-        t32len = scaleExpansionZeroElim(t16len, t16, adz, t32);
-        t32tlen = scaleExpansionZeroElim(t16len, t16, adztail, t32t);
-        double[] adet = new double[64];
-        int alen = expansionSumZeroElimFast(t32len, t32, t32tlen, t32t, adet);
-
-        t16len = expansionSumZeroElimFast(8, cxay, 8, axcy, t16);
-        t32len = scaleExpansionZeroElim(t16len, t16, bdz, t32);
-        t32tlen = scaleExpansionZeroElim(t16len, t16, bdztail, t32t);
-        double[] bdet = new double[64];
-        int blen = expansionSumZeroElimFast(t32len, t32, t32tlen, t32t, bdet);
-
-        t16len = expansionSumZeroElimFast(8, axby, 8, bxay, t16);
-        t32len = scaleExpansionZeroElim(t16len, t16, cdz, t32);
-        t32tlen = scaleExpansionZeroElim(t16len, t16, cdztail, t32t);
-        double[] cdet = new double[64];
-        int clen = expansionSumZeroElimFast(t32len, t32, t32tlen, t32t, cdet);
-
-        double[] abdet = new double[128];
-        int ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet);
-        double[] det = new double[192];
-        int detlen = expansionSumZeroElimFast(ablen, abdet, clen, cdet, det);
+        t16len = expansionSumZeroElimFast(8, bxcy, 8, cxby, t16, t);
+        t32len = scaleExpansionZeroElim(t16len, t16, adz, t32, t);
+        t32tlen = scaleExpansionZeroElim(t16len, t16, adztail, t32t, t);
+        double[] adet = context.adet;
+        int alen = expansionSumZeroElimFast(t32len, t32, t32tlen, t32t, adet, t);
+
+        t16len = expansionSumZeroElimFast(8, cxay, 8, axcy, t16, t);
+        t32len = scaleExpansionZeroElim(t16len, t16, bdz, t32, t);
+        t32tlen = scaleExpansionZeroElim(t16len, t16, bdztail, t32t, t);
+        double[] bdet = context.bdet;
+        int blen = expansionSumZeroElimFast(t32len, t32, t32tlen, t32t, bdet, t);
+
+        t16len = expansionSumZeroElimFast(8, axby, 8, bxay, t16, t);
+        t32len = scaleExpansionZeroElim(t16len, t16, cdz, t32, t);
+        t32tlen = scaleExpansionZeroElim(t16len, t16, cdztail, t32t, t);
+        double[] cdet = context.cdet;
+        int clen = expansionSumZeroElimFast(t32len, t32, t32tlen, t32t, cdet, t);
+
+        double[] abdet = context.abdet;
+        int ablen = expansionSumZeroElimFast(alen, adet, blen, bdet, abdet, t);
+        double[] det = context.det;
+        int detlen = expansionSumZeroElimFast(ablen, abdet, clen, cdet, det, t);
 
         return det[detlen - 1];
     }
 
+    /**
+     * Float 3D orientation test, for points of float coordinates that the fast
+     * filter could not resolve. If the differences of the x and y coordinates
+     * are floats, and those of the z coordinates are exact, the determinant is
+     * computed exactly from minors of two components. Otherwise the points are
+     * evaluated adaptively.
+     */
+    private static double leftOfPlaneFloat(double xa, double ya, double za,
+                                           double xb, double yb, double zb,
+                                           double xc, double yc, double zc,
+                                           double xd, double yd, double zd,
+                                           double permanent, Context context) {
+        Two t = context.two;
+        if (!narrow(xa, xd, t) || !narrow(ya, yd, t) || !exact(za, zd, t)
+            || !narrow(xb, xd, t) || !narrow(yb, yd, t) || !exact(zb, zd, t)
+            || !narrow(xc, xd, t) || !narrow(yc, yd, t) || !exact(zc, zd, t)) {
+            return leftOfPlaneAdapt(xa, ya, za, xb, yb, zb, xc, yc, zc, xd, yd,
+                                    zd, permanent, context);
+        }
+        double adx = xa - xd;
+        double bdx = xb - xd;
+        double cdx = xc - xd;
+        double ady = ya - yd;
+        double bdy = yb - yd;
+        double cdy = yc - yd;
+
+        double[] bc = context.bc;
+        twoDiffOfProducts(bdx, cdy, cdx, bdy, bc, t);
+        double[] ca = context.ca;
+        twoDiffOfProducts(cdx, ady, adx, cdy, ca, t);
+        double[] ab = context.ab;
+        twoDiffOfProducts(adx, bdy, bdx, ady, ab, t);
+        int len = cofactor(2, bc, za - zd, 2, ca, zb - zd, 2, ab, zc - zd,
+                           context);
+        return estimate(len, context.t24);
+    }
+
+    /**
+     * Computes the expansion h = s*(x*x+y*y+z*z-w)*c, where c is the expansion
+     * in the buffer t24 of the context and s is 1 or -1. Returns the length
+     * of h.
+     */
+    private static int lift(int clen, double x, double y, double z, double s,
+                            double w, double[] h, Context context) {
+        Two t = context.two;
+        double[] c = context.t24;
+        double[] t48 = context.t48;
+        double[] detx = context.detx;
+        double[] dety = context.dety;
+        double[] detz = context.detz;
+        double[] detxy = context.detxy;
+        int t48len = scaleExpansionZeroElim(clen, c, x, t48, t);
+        int xlen = scaleExpansionZeroElim(t48len, t48, s * x, detx, t);
+        t48len = scaleExpansionZeroElim(clen, c, y, t48, t);
+        int ylen = scaleExpansionZeroElim(t48len, t48, s * y, dety, t);
+        t48len = scaleExpansionZeroElim(clen, c, z, t48, t);
+        int zlen = scaleExpansionZeroElim(t48len, t48, s * z, detz, t);
+        int xylen = expansionSumZeroElimFast(xlen, detx, ylen, dety, detxy, t);
+        if (w == 0.0) {
+            return expansionSumZeroElimFast(xylen, detxy, zlen, detz, h, t);
+        }
+        double[] detxyz = context.detxyz;
+        double[] detw = context.detw;
+        int xyzlen = expansionSumZeroElimFast(xylen, detxy, zlen, detz,
+                                              detxyz, t);
+        int wlen = scaleExpansionZeroElim(clen, c, -s * w, detw, t);
+        return expansionSumZeroElimFast(xyzlen, detxyz, wlen, detw, h, t);
+    }
+
+    /**
+     * Returns the workspace to use for the exact arithmetic: the context, if
+     * any, or else the context of the current thread.
+     */
+    private static Context local(Context context) {
+        return context == null ? CONTEXTS.get() : context;
+    }
+
+    /**
+     * Returns true if the difference a-b of float coordinates is exact and is
+     * itself a float, so that the product of two such differences is exact.
+     */
+    private static boolean narrow(double a, double b, Two t) {
+        twoDiff(a, b, t);
+        return t.y == 0.0 && (float) t.x == t.x;
+    }
+
     /**
      * Computes the scaled expansion h = e*b, eliminating zero components from
      * the output expansion. Maintains the nonoverlapping property. If
@@ -2344,8 +4484,7 @@ public final class Geometry {
      * e.
      */
     private static int scaleExpansionZeroElim(int elen, double[] e, double b,
-                                              double[] h) {
-        Two t = new Two();
+                                              double[] h, Two t) {
         split(b, t);
         double bhi = t.x;
         double blo = t.y;
@@ -2405,12 +4544,29 @@ public final class Geometry {
     }
 
     /**
-     * Computes the product a*b, where b has already been split. Puts the
-     * product in x and the error in y.
+     * Computes the difference of products a*b-c*d exactly, where the products
+     * are exact. Puts the difference in the array x[2].
+     */
+    private strictfp static void twoDiffOfProducts(double a, double b,
+                                                   double c, double d,
+                                                   double[] x, Two t) {
+        twoDiff(a * b, c * d, t);
+        x[1] = t.x;
+        x[0] = t.y;
+    }
+
+    /**
+     * Computes the product a*b, where b has already been split, unless the
+     * error is computed by a fused multiply-add. Puts the product in x and the
+     * error in y.
      */
     private strictfp static void twoProduct1Presplit(double a, double b,
                                                      double bhi, double blo,
                                                      Two t) {
+        if (TwoProduct.FMA) {
+            twoProduct(a, b, t);
+            return;
+        }
         split(a, t);
         double ahi = t.x;
         double alo = t.y;
@@ -2422,13 +4578,18 @@ public final class Geometry {
     }
 
     /**
-     * Computes the product a*b, where a and b have already been split. Puts the
-     * product in x and the error in y.
+     * Computes the product a*b, where a and b have already been split, unless
+     * the error is computed by a fused multiply-add. Puts the product in x and
+     * the error in y.
      */
     private strictfp static void twoProduct2Presplit(double a, double ahi,
                                                      double alo, double b,
                                                      double bhi, double blo,
                                                      Two t) {
+        if (TwoProduct.FMA) {
+            twoProduct(a, b, t);
+            return;
+        }
         t.x = a * b;
         double err1 = t.x - ahi * bhi;
         double err2 = err1 - alo * bhi;
@@ -2460,14 +4621,47 @@ public final class Geometry {
         t.y = b - bvirt;
     }
 
+    /**
+     * Computes the difference a-b, where a and b are two-component
+     * expansions. Puts the difference in the array x[4].
+     */
+    private strictfp static void twoTwoDiff(double a1, double a0, double b1,
+                                            double b0, double[] x, Two t) {
+        twoDiff(a0, b0, t);
+        double i = t.x;
+        x[0] = t.y;
+        twoSum(a1, i, t);
+        double j = t.x;
+        double k = t.y;
+        twoDiff(k, b1, t);
+        i = t.x;
+        x[1] = t.y;
+        twoSum(j, i, t);
+        x[3] = t.x;
+        x[2] = t.y;
+    }
+
+    /**
+     * Computes the difference of products a*b-c*d exactly. Puts the difference
+     * in the array x[4].
+     */
+    private strictfp static void twoTwoDiffOfProducts(double a, double b,
+                                                      double c, double d,
+                                                      double[] x, Two t) {
+        twoProduct(a, b, t);
+        double ab1 = t.x;
+        double ab0 = t.y;
+        twoProduct(c, d, t);
+        twoTwoDiff(ab1, ab0, t.x, t.y, x, t);
+    }
+
     /**
      * Computes the product a*b, where a and b are two-component expansions.
      * Puts the product in the array x[8].
      */
     private strictfp static void twoTwoProduct(double a1, double a0, double b1,
-                                               double b0, double[] x) {
+                                               double b0, double[] x, Two t) {
         double u0, u1, u2, ui, uj, uk, ul, um, un;
-        Two t = new Two();
         split(a0, t);
         double a0hi = t.x;
         double a0lo = t.y;
@@ -0,0 +1,309 @@
+package com.hellblazer.utils.math;
+
+/**
+ * A uniform grid of buckets of points in 2D or 3D.
+ * <p>
+ * The bounds of the points are divided into cubical cells, by default of a
+ * size for about two points per cell. The points are sorted by cell, and the
+ * coordinates are packed in that order, so that the points of a cell are a
+ * range of positions. A grid suits points that are spread evenly; for points
+ * that are clustered, prefer a {@link KdTree}.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class Grid extends SpatialIndex {
+    private static final long MAX_CELLS = 1 << 28;
+
+    /**
+     * @return the default size of the cells, for about two points per cell
+     */
+    private static double cellSize(double[][] axes) {
+        int n = axes[0].length;
+        double volume = 1.0;
+        int dimensions = 0;
+        for (double[] axis : axes) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (double x : axis) {
+                min = Math.min(min, x);
+                max = Math.max(max, x);
+            }
+            if (max > min) {
+                volume *= max - min;
+                dimensions++;
+            }
+        }
+        if (dimensions == 0) {
+            return 1.0;
+        }
+        return Math.pow(volume / Math.max(1, n / 2), 1.0 / dimensions);
+    }
+
+    private final double   cellSize;
+    private final double[] coordinates;
+    private final int[]    indices;
+    // The number of cells along each axis, 1 along z in 2D
+    private final int[]    resolution = { 1, 1, 1 };
+    // The first position of each cell, and of the end
+    private final int[]    starts;
+
+    /**
+     * Construct the grid of the points in 2D, with cells of the default size
+     */
+    public Grid(double[] xs, double[] ys) {
+        this(new double[][] { xs, ys }, cellSize(new double[][] { xs, ys }));
+    }
+
+    /**
+     * Construct the grid of the points in 2D
+     *
+     * @param cellSize
+     *            - the size of the cells
+     */
+    public Grid(double[] xs, double[] ys, double cellSize) {
+        this(new double[][] { xs, ys }, cellSize);
+    }
+
+    /**
+     * Construct the grid of the points in 3D, with cells of the default size
+     */
+    public Grid(double[] xs, double[] ys, double[] zs) {
+        this(new double[][] { xs, ys, zs },
+             cellSize(new double[][] { xs, ys, zs }));
+    }
+
+    /**
+     * Construct the grid of the points in 3D
+     *
+     * @param cellSize
+     *            - the size of the cells
+     */
+    public Grid(double[] xs, double[] ys, double[] zs, double cellSize) {
+        this(new double[][] { xs, ys, zs }, cellSize);
+    }
+
+    private Grid(double[][] axes, double cellSize) {
+        super(axes);
+        if (!(cellSize > 0.0)) {
+            throw new IllegalArgumentException(
+                                               "The size of the cells is not positive: "
+                                                       + cellSize);
+        }
+        this.cellSize = cellSize;
+        long cells = 1;
+        for (int d = 0; d < dimension; d++) {
+            double extent = Math.floor((upper[d] - lower[d]) / cellSize) + 1.0;
+            if (extent > MAX_CELLS) {
+                throw new IllegalArgumentException("Too many cells of size "
+                                                   + cellSize);
+            }
+            resolution[d] = (int) extent;
+            cells *= resolution[d];
+            if (cells > MAX_CELLS) {
+                throw new IllegalArgumentException("Too many cells of size "
+                                                   + cellSize);
+            }
+        }
+
+        // Sort the points by cell
+        int[] cellOf = new int[size];
+        starts = new int[(int) cells + 1];
+        for (int i = 0; i < size; i++) {
+            int cell = 0;
+            for (int d = dimension - 1; d >= 0; d--) {
+                cell = cell * resolution[d] + cell(axes[d][i], d);
+            }
+            cellOf[i] = cell;
+            starts[cell + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            starts[c + 1] += starts[c];
+        }
+        int[] next = starts.clone();
+        indices = new int[size];
+        coordinates = new double[dimension * size];
+        for (int i = 0; i < size; i++) {
+            int j = next[cellOf[i]]++;
+            indices[j] = i;
+            for (int d = 0; d < dimension; d++) {
+                coordinates[j * dimension + d] = axes[d][i];
+            }
+        }
+    }
+
+    /**
+     * @return the size of the cells
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Offer the points within the distance radius of the ray. The cells are
+     * visited in layers across the axis along which the ray runs fastest: in
+     * each layer, only the cells near the part of the ray that crosses the
+     * layer.
+     */
+    @Override
+    void alongRay(Ray ray, Candidates candidates) {
+        double[] interval = ray.clip(lower, upper);
+        int axis = 0;
+        for (int d = 1; d < dimension; d++) {
+            if (Math.abs(ray.direction[d]) > Math.abs(ray.direction[axis])) {
+                axis = d;
+            }
+        }
+        double o = ray.origin[axis];
+        double v = ray.direction[axis];
+        double r = ray.radius;
+        int first = cell(Math.min(o + interval[0] * v, o + interval[1] * v)
+                         - r, axis);
+        int last = cell(Math.max(o + interval[0] * v, o + interval[1] * v)
+                        + r, axis);
+        int[] from = new int[3];
+        int[] to = new int[3];
+        for (int layer = first; layer <= last; layer++) {
+            // The interval of the ray within the radius of the layer, widened
+            // by half a cell against rounding
+            double a = (lower[axis] + (layer - 0.5) * cellSize - r - o) / v;
+            double b = (lower[axis] + (layer + 1.5) * cellSize + r - o) / v;
+            double t0 = Math.max(interval[0], Math.min(a, b));
+            double t1 = Math.min(interval[1], Math.max(a, b));
+            if (t0 > t1) {
+                continue;
+            }
+            for (int d = 0; d < dimension; d++) {
+                if (d == axis) {
+                    from[d] = to[d] = layer;
+                    continue;
+                }
+                double p0 = ray.origin[d] + t0 * ray.direction[d];
+                double p1 = ray.origin[d] + t1 * ray.direction[d];
+                from[d] = cell(Math.min(p0, p1) - r, d);
+                to[d] = cell(Math.max(p0, p1) + r, d);
+            }
+            for (int z = from[2]; z <= to[2]; z++) {
+                for (int y = from[1]; y <= to[1]; y++) {
+                    int cell = (z * resolution[1] + y) * resolution[0];
+                    int end = starts[cell + to[0] + 1];
+                    for (int i = starts[cell + from[0]]; i < end; i++) {
+                        ray.offer(coordinates, i, indices[i], candidates);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    void inBox(double[] lower, double[] upper, Candidates candidates) {
+        int[] from = new int[3];
+        int[] to = new int[3];
+        for (int d = 0; d < dimension; d++) {
+            if (lower[d] > this.upper[d] || upper[d] < this.lower[d]) {
+                return;
+            }
+            from[d] = cell(lower[d], d);
+            to[d] = cell(upper[d], d);
+        }
+        for (int z = from[2]; z <= to[2]; z++) {
+            for (int y = from[1]; y <= to[1]; y++) {
+                int cell = (z * resolution[1] + y) * resolution[0];
+                int end = starts[cell + to[0] + 1];
+                for (int i = starts[cell + from[0]]; i < end; i++) {
+                    if (inside(coordinates, i, lower, upper)) {
+                        candidates.offer(0.0, indices[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Offer the points nearest to the point. The cells are visited in rings
+     * around the cell of the point, until the distance to the cells beyond
+     * the rings exceeds the distance of the candidates.
+     */
+    @Override
+    void nearest(double[] point, Candidates candidates) {
+        int[] center = new int[3];
+        for (int d = 0; d < dimension; d++) {
+            center[d] = cell(point[d], d);
+        }
+        int[] from = new int[3];
+        int[] to = new int[3];
+        for (int ring = 0;; ring++) {
+            boolean whole = true;
+            double gap = Double.POSITIVE_INFINITY;
+            for (int d = 0; d < dimension; d++) {
+                from[d] = Math.max(0, center[d] - ring);
+                to[d] = Math.min(resolution[d] - 1, center[d] + ring);
+                if (from[d] > 0) {
+                    whole = false;
+                    gap = Math.min(gap, point[d]
+                                        - (lower[d] + from[d] * cellSize));
+                }
+                if (to[d] < resolution[d] - 1) {
+                    whole = false;
+                    gap = Math.min(gap, lower[d] + (to[d] + 1) * cellSize
+                                        - point[d]);
+                }
+            }
+            for (int z = from[2]; z <= to[2]; z++) {
+                boolean zRing = Math.abs(z - center[2]) == ring;
+                for (int y = from[1]; y <= to[1]; y++) {
+                    boolean yRing = zRing || Math.abs(y - center[1]) == ring;
+                    int cell = (z * resolution[1] + y) * resolution[0];
+                    for (int x = from[0]; x <= to[0]; x++) {
+                        if (!yRing && Math.abs(x - center[0]) != ring) {
+                            // Visited by an inner ring
+                            continue;
+                        }
+                        int end = starts[cell + x + 1];
+                        for (int i = starts[cell + x]; i < end; i++) {
+                            candidates.offer(distance(coordinates, i, point),
+                                             indices[i]);
+                        }
+                    }
+                }
+            }
+            if (whole || gap > 0.0 && gap * gap > candidates.bound()) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    void within(double[] point, double radius, Candidates candidates) {
+        int[] from = new int[3];
+        int[] to = new int[3];
+        for (int d = 0; d < dimension; d++) {
+            from[d] = cell(point[d] - radius, d);
+            to[d] = cell(point[d] + radius, d);
+        }
+        double radius2 = radius * radius;
+        for (int z = from[2]; z <= to[2]; z++) {
+            for (int y = from[1]; y <= to[1]; y++) {
+                int cell = (z * resolution[1] + y) * resolution[0];
+                int end = starts[cell + to[0] + 1];
+                for (int i = starts[cell + from[0]]; i < end; i++) {
+                    double distance = distance(coordinates, i, point);
+                    if (distance <= radius2) {
+                        candidates.offer(distance, indices[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the cell of the coordinate along the axis, clamped to the grid
+     */
+    private int cell(double x, int axis) {
+        double c = Math.floor((x - lower[axis]) / cellSize);
+        if (!(c > 0.0)) {
+            return 0;
+        }
+        return (int) Math.min(c, resolution[axis] - 1);
+    }
+}
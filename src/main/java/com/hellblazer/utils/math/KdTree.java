@@ -0,0 +1,230 @@
+package com.hellblazer.utils.math;
+
+/**
+ * A kd-tree of points in 2D or 3D.
+ * <p>
+ * The tree is balanced and implicit: it is built in bulk by splitting the
+ * points of each subtree at the median of the axis along which they are most
+ * widely spread, so that the points of a subtree occupy a range of positions
+ * with the median at its middle. The coordinates are packed in that order, and
+ * each position holds only the axis of its split.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class KdTree extends SpatialIndex {
+
+    /**
+     * Rearrange the range of the order so that the kth element is in its
+     * sorted position, preceded by the elements with lesser or equal keys and
+     * followed by those with greater or equal keys (Wirth)
+     */
+    private static void select(double[] keys, int[] order, int lo, int hi,
+                               int k) {
+        hi--;
+        while (lo < hi) {
+            double pivot = keys[order[k]];
+            int i = lo;
+            int j = hi;
+            do {
+                while (keys[order[i]] < pivot) {
+                    i++;
+                }
+                while (pivot < keys[order[j]]) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            } while (i <= j);
+            if (j < k) {
+                lo = i;
+            }
+            if (k < i) {
+                hi = j;
+            }
+        }
+    }
+
+    private final double[] coordinates;
+    private final int[]    indices;
+    private final byte[]   splits;
+
+    /**
+     * Construct the kd-tree of the points in 2D
+     */
+    public KdTree(double[] xs, double[] ys) {
+        this(new double[][] { xs, ys });
+    }
+
+    /**
+     * Construct the kd-tree of the points in 3D
+     */
+    public KdTree(double[] xs, double[] ys, double[] zs) {
+        this(new double[][] { xs, ys, zs });
+    }
+
+    private KdTree(double[][] axes) {
+        super(axes);
+        indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = i;
+        }
+        splits = new byte[size];
+        build(axes, 0, size);
+        coordinates = new double[dimension * size];
+        for (int i = 0; i < size; i++) {
+            for (int d = 0; d < dimension; d++) {
+                coordinates[i * dimension + d] = axes[d][indices[i]];
+            }
+        }
+    }
+
+    @Override
+    void alongRay(Ray ray, Candidates candidates) {
+        alongRay(ray, candidates, lower.clone(), upper.clone(), 0, size);
+    }
+
+    @Override
+    void inBox(double[] lower, double[] upper, Candidates candidates) {
+        inBox(lower, upper, candidates, 0, size);
+    }
+
+    @Override
+    void nearest(double[] point, Candidates candidates) {
+        nearest(point, candidates, 0, size);
+    }
+
+    @Override
+    void within(double[] point, double radius, Candidates candidates) {
+        within(point, radius * radius, candidates, 0, size);
+    }
+
+    /**
+     * Offer the points of the subtree within the distance radius of the ray,
+     * the points of the subtree being within the cell
+     */
+    private void alongRay(Ray ray, Candidates candidates, double[] cellLower,
+                          double[] cellUpper, int lo, int hi) {
+        if (lo >= hi || ray.clip(cellLower, cellUpper) == null) {
+            return;
+        }
+        int mid = lo + hi >>> 1;
+        int axis = splits[mid];
+        double split = coordinates[mid * dimension + axis];
+        ray.offer(coordinates, mid, indices[mid], candidates);
+        double bound = cellUpper[axis];
+        cellUpper[axis] = split;
+        alongRay(ray, candidates, cellLower, cellUpper, lo, mid);
+        cellUpper[axis] = bound;
+        bound = cellLower[axis];
+        cellLower[axis] = split;
+        alongRay(ray, candidates, cellLower, cellUpper, mid + 1, hi);
+        cellLower[axis] = bound;
+    }
+
+    /**
+     * Build the subtree of the range of positions, splitting it at its middle
+     */
+    private void build(double[][] axes, int lo, int hi) {
+        while (hi - lo > 1) {
+            // The axis along which the points are most widely spread
+            int axis = 0;
+            double widest = -1.0;
+            for (int d = 0; d < dimension; d++) {
+                double[] keys = axes[d];
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = lo; i < hi; i++) {
+                    double x = keys[indices[i]];
+                    if (x < min) {
+                        min = x;
+                    }
+                    if (x > max) {
+                        max = x;
+                    }
+                }
+                if (max - min > widest) {
+                    widest = max - min;
+                    axis = d;
+                }
+            }
+            int mid = lo + hi >>> 1;
+            select(axes[axis], indices, lo, hi, mid);
+            splits[mid] = (byte) axis;
+            build(axes, lo, mid);
+            lo = mid + 1;
+        }
+    }
+
+    private void inBox(double[] lower, double[] upper, Candidates candidates,
+                       int lo, int hi) {
+        while (lo < hi) {
+            int mid = lo + hi >>> 1;
+            int axis = splits[mid];
+            double split = coordinates[mid * dimension + axis];
+            if (inside(coordinates, mid, lower, upper)) {
+                candidates.offer(0.0, indices[mid]);
+            }
+            boolean left = lower[axis] <= split;
+            boolean right = split <= upper[axis];
+            if (left && right) {
+                inBox(lower, upper, candidates, lo, mid);
+                lo = mid + 1;
+            } else if (left) {
+                hi = mid;
+            } else if (right) {
+                lo = mid + 1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void nearest(double[] point, Candidates candidates, int lo,
+                         int hi) {
+        while (lo < hi) {
+            int mid = lo + hi >>> 1;
+            int axis = splits[mid];
+            double delta = point[axis] - coordinates[mid * dimension + axis];
+            candidates.offer(distance(coordinates, mid, point), indices[mid]);
+            // The side of the point first, then the other side if it is
+            // within the distance of the candidates
+            if (delta < 0.0) {
+                nearest(point, candidates, lo, mid);
+                lo = mid + 1;
+            } else {
+                nearest(point, candidates, mid + 1, hi);
+                hi = mid;
+            }
+            if (delta * delta > candidates.bound()) {
+                return;
+            }
+        }
+    }
+
+    private void within(double[] point, double radius2, Candidates candidates,
+                        int lo, int hi) {
+        while (lo < hi) {
+            int mid = lo + hi >>> 1;
+            int axis = splits[mid];
+            double delta = point[axis] - coordinates[mid * dimension + axis];
+            double distance = distance(coordinates, mid, point);
+            if (distance <= radius2) {
+                candidates.offer(distance, indices[mid]);
+            }
+            if (delta < 0.0) {
+                within(point, radius2, candidates, lo, mid);
+                lo = mid + 1;
+            } else {
+                within(point, radius2, candidates, mid + 1, hi);
+                hi = mid;
+            }
+            if (delta * delta > radius2) {
+                return;
+            }
+        }
+    }
+}
@@ -109,11 +109,6 @@ public strictfp class MutableDoubleDouble implements Serializable,
      */
     public static final double               EPS                   = 1.23259516440783e-32;                             /* = 2^-106 */
 
-    /**
-     * The value to split a double-precision value on during multiplication
-     */
-    private static final double              SPLIT                 = 134217729.0D;                                     // 2^27+1, for IEEE double
-
     private static final int                 MAX_PRINT_DIGITS      = 32;
 
     private static final MutableDoubleDouble TEN                   = new MutableDoubleDouble(
@@ -499,18 +494,10 @@ public strictfp class MutableDoubleDouble implements Serializable,
      * @return <tt>(this / y)</tt>
      */
     public MutableDoubleDouble divide(MutableDoubleDouble y) {
-        double hc, tc, hy, ty, C, c, U, u;
+        double C, c, U, u;
         C = hi / y.hi;
-        c = SPLIT * C;
-        hc = c - C;
-        u = SPLIT * y.hi;
-        hc = c - hc;
-        tc = C - hc;
-        hy = u - y.hi;
         U = C * y.hi;
-        hy = u - hy;
-        ty = y.hi - hy;
-        u = hc * hy - U + hc * ty + tc * hy + tc * ty;
+        u = TwoProduct.error(C, y.hi, U);
         c = (hi - U - u + lo - C * y.lo) / y.hi;
         u = C + c;
 
@@ -752,18 +739,10 @@ public strictfp class MutableDoubleDouble implements Serializable,
      * @return the reciprocal of this value
      */
     public MutableDoubleDouble reciprocal() {
-        double hc, tc, hy, ty, C, c, U, u;
+        double C, c, U, u;
         C = 1.0 / hi;
-        c = SPLIT * C;
-        hc = c - C;
-        u = SPLIT * hi;
-        hc = c - hc;
-        tc = C - hc;
-        hy = u - hi;
         U = C * hi;
-        hy = u - hy;
-        ty = hi - hy;
-        u = hc * hy - U + hc * ty + tc * hy + tc * ty;
+        u = TwoProduct.error(C, hi, U);
         c = (1.0 - U - u - C * lo) / hi;
 
         double zhi = C + c;
@@ -1170,17 +1149,9 @@ public strictfp class MutableDoubleDouble implements Serializable,
      * @return this
      */
     private MutableDoubleDouble selfMultiply(MutableDoubleDouble y) {
-        double hx, tx, hy, ty, C, c;
-        C = SPLIT * hi;
-        hx = C - hi;
-        c = SPLIT * y.hi;
-        hx = C - hx;
-        tx = hi - hx;
-        hy = c - y.hi;
+        double hx, C, c;
         C = hi * y.hi;
-        hy = c - hy;
-        ty = y.hi - hy;
-        c = hx * hy - C + hx * ty + tx * hy + tx * ty + (hi * y.lo + lo * y.hi);
+        c = TwoProduct.error(hi, y.hi, C) + (hi * y.lo + lo * y.hi);
         double zhi = C + c;
         hx = C - zhi;
         double zlo = c + hx;
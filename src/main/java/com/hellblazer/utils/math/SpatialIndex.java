@@ -0,0 +1,385 @@
+package com.hellblazer.utils.math;
+
+import java.util.Arrays;
+
+/**
+ * An index of points in 2D or 3D, for nearest neighbor, radius, box and ray
+ * queries. The points are identified by their indices in the arrays of
+ * coordinates the index is built from.
+ * <p>
+ * An index copies the coordinates of its points when it is built, and is
+ * immutable thereafter, so that any number of threads may query it
+ * concurrently. Each query allocates its own state.
+ * <p>
+ * The answers are deterministic: points at the same distance, or at the same
+ * position along a ray, are ordered by index.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public abstract class SpatialIndex {
+
+    /**
+     * A max heap of candidate points, ordered by key, then index. A bounded
+     * heap keeps the candidates with the least keys.
+     */
+    static final class Candidates {
+        private final int capacity;
+        private int       count;
+        private int[]     indices;
+        private double[]  keys;
+
+        Candidates(int capacity) {
+            this.capacity = capacity;
+            indices = new int[Math.min(capacity, 16)];
+            keys = new double[indices.length];
+        }
+
+        /**
+         * @return the key that a candidate must not exceed to be kept
+         */
+        double bound() {
+            return count < capacity ? Double.POSITIVE_INFINITY : keys[0];
+        }
+
+        void offer(double key, int index) {
+            if (count < capacity) {
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, 2 * count);
+                    indices = Arrays.copyOf(indices, 2 * count);
+                }
+                // Sift up
+                int i = count++;
+                while (i > 0) {
+                    int parent = i - 1 >>> 1;
+                    if (!less(keys[parent], indices[parent], key, index)) {
+                        break;
+                    }
+                    keys[i] = keys[parent];
+                    indices[i] = indices[parent];
+                    i = parent;
+                }
+                keys[i] = key;
+                indices[i] = index;
+            } else if (less(key, index, keys[0], indices[0])) {
+                siftDown(key, index, count);
+            }
+        }
+
+        /**
+         * @return the indices of the candidates, in order. The heap is
+         *         emptied.
+         */
+        int[] sorted() {
+            int n = count;
+            for (int last = n - 1; last > 0; last--) {
+                double key = keys[last];
+                int index = indices[last];
+                keys[last] = keys[0];
+                indices[last] = indices[0];
+                siftDown(key, index, last);
+            }
+            count = 0;
+            return Arrays.copyOf(indices, n);
+        }
+
+        private void siftDown(double key, int index, int n) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= n) {
+                    break;
+                }
+                if (child + 1 < n
+                    && less(keys[child], indices[child], keys[child + 1],
+                            indices[child + 1])) {
+                    child++;
+                }
+                if (!less(key, index, keys[child], indices[child])) {
+                    break;
+                }
+                keys[i] = keys[child];
+                indices[i] = indices[child];
+                i = child;
+            }
+            keys[i] = key;
+            indices[i] = index;
+        }
+    }
+
+    /**
+     * A ray from an origin in a direction, and the points within a radius of
+     * it
+     */
+    static final class Ray {
+        final double[] direction;
+        final double[] origin;
+        final double   radius;
+        private final int    dimension;
+        private final double length2;
+        private final double radius2;
+
+        Ray(double[] origin, double[] direction, double radius) {
+            this.origin = origin;
+            this.direction = direction;
+            this.radius = radius;
+            dimension = origin.length;
+            double l = 0.0;
+            for (int d = 0; d < dimension; d++) {
+                l += direction[d] * direction[d];
+            }
+            if (l == 0.0) {
+                throw new IllegalArgumentException(
+                                                   "The direction of the ray is zero");
+            }
+            length2 = l;
+            radius2 = radius * radius;
+        }
+
+        /**
+         * Answer the interval of the ray within the distance radius of the box,
+         * or rather a conservative superset of it
+         *
+         * @return the interval {t0, t1} of the ray parameter, or null if the
+         *         ray misses the box
+         */
+        double[] clip(double[] lower, double[] upper) {
+            double t0 = 0.0;
+            double t1 = Double.POSITIVE_INFINITY;
+            for (int d = 0; d < dimension; d++) {
+                double lo = lower[d] - radius - origin[d];
+                double hi = upper[d] + radius - origin[d];
+                if (direction[d] == 0.0) {
+                    if (lo > 0.0 || hi < 0.0) {
+                        return null;
+                    }
+                    continue;
+                }
+                double a = lo / direction[d];
+                double b = hi / direction[d];
+                t0 = Math.max(t0, Math.min(a, b));
+                t1 = Math.min(t1, Math.max(a, b));
+                if (t0 > t1) {
+                    return null;
+                }
+            }
+            return new double[] { t0, t1 };
+        }
+
+        /**
+         * Offer the point at i of the packed coordinates, keyed by its position
+         * along the ray, if it is within the radius of the ray
+         */
+        void offer(double[] coordinates, int i, int index,
+                   Candidates candidates) {
+            int j = i * dimension;
+            double t = 0.0;
+            for (int d = 0; d < dimension; d++) {
+                t += (coordinates[j + d] - origin[d]) * direction[d];
+            }
+            t = Math.max(0.0, t / length2);
+            double distance = 0.0;
+            for (int d = 0; d < dimension; d++) {
+                double delta = coordinates[j + d] - origin[d] - t
+                               * direction[d];
+                distance += delta * delta;
+            }
+            if (distance <= radius2) {
+                candidates.offer(t, index);
+            }
+        }
+    }
+
+    /**
+     * @return the square of the distance between the point at i of the packed
+     *         coordinates and the point
+     */
+    static double distance(double[] coordinates, int i, double[] point) {
+        int dimension = point.length;
+        int j = i * dimension;
+        double distance = 0.0;
+        for (int d = 0; d < dimension; d++) {
+            double delta = coordinates[j + d] - point[d];
+            distance += delta * delta;
+        }
+        return distance;
+    }
+
+    /**
+     * @return true if the point at i of the packed coordinates is within the
+     *         box
+     */
+    static boolean inside(double[] coordinates, int i, double[] lower,
+                          double[] upper) {
+        int dimension = lower.length;
+        int j = i * dimension;
+        for (int d = 0; d < dimension; d++) {
+            double x = coordinates[j + d];
+            if (x < lower[d] || x > upper[d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean less(double key, int index, double otherKey,
+                                int otherIndex) {
+        return key < otherKey || key == otherKey && index < otherIndex;
+    }
+
+    protected final int      dimension;
+    protected final double[] lower;
+    protected final int      size;
+    protected final double[] upper;
+
+    /**
+     * Construct the index of the points whose coordinates are the arrays of
+     * the axes, computing their bounds
+     */
+    protected SpatialIndex(double[][] axes) {
+        dimension = axes.length;
+        size = axes[0].length;
+        lower = new double[dimension];
+        upper = new double[dimension];
+        for (int d = 0; d < dimension; d++) {
+            if (axes[d].length != size) {
+                throw new IllegalArgumentException(
+                                                   "The coordinate arrays differ in length");
+            }
+            if (size == 0) {
+                continue;
+            }
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (double x : axes[d]) {
+                if (x < min) {
+                    min = x;
+                }
+                if (x > max) {
+                    max = x;
+                }
+            }
+            lower[d] = min;
+            upper[d] = max;
+        }
+    }
+
+    /**
+     * Answer the points within the distance radius of a ray
+     *
+     * @param origin
+     *            - the origin of the ray
+     * @param direction
+     *            - the direction of the ray, which need not be normalized
+     * @param radius
+     *            - the distance from the ray
+     * @return the indices of the points in order along the ray, the points
+     *         behind the origin first
+     */
+    public int[] alongRay(double[] origin, double[] direction, double radius) {
+        check(origin);
+        check(direction);
+        Candidates candidates = new Candidates(Integer.MAX_VALUE);
+        Ray ray = new Ray(origin, direction, radius);
+        if (size > 0 && ray.clip(lower, upper) != null) {
+            alongRay(ray, candidates);
+        }
+        return candidates.sorted();
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Answer the points within a box
+     *
+     * @return the indices of the points in ascending order
+     */
+    public int[] inBox(double[] lower, double[] upper) {
+        check(lower);
+        check(upper);
+        Candidates candidates = new Candidates(Integer.MAX_VALUE);
+        if (size > 0) {
+            inBox(lower, upper, candidates);
+        }
+        return candidates.sorted();
+    }
+
+    /**
+     * @return the index of the point nearest to the point, or -1 if the index
+     *         is empty
+     */
+    public int nearest(double[] point) {
+        int[] nearest = nearest(point, 1);
+        return nearest.length == 0 ? -1 : nearest[0];
+    }
+
+    /**
+     * Answer the k nearest points to a point
+     *
+     * @return the indices of the nearest points in order of distance, fewer
+     *         than k if the index has fewer points
+     */
+    public int[] nearest(double[] point, int k) {
+        check(point);
+        if (k <= 0 || size == 0) {
+            return new int[0];
+        }
+        Candidates candidates = new Candidates(Math.min(k, size));
+        nearest(point, candidates);
+        return candidates.sorted();
+    }
+
+    /**
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Answer the points within the distance radius of a point
+     *
+     * @return the indices of the points in order of distance
+     */
+    public int[] within(double[] point, double radius) {
+        check(point);
+        Candidates candidates = new Candidates(Integer.MAX_VALUE);
+        if (size > 0 && radius >= 0.0) {
+            within(point, radius, candidates);
+        }
+        return candidates.sorted();
+    }
+
+    private void check(double[] point) {
+        if (point.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension
+                                               + " coordinates, not "
+                                               + point.length);
+        }
+    }
+
+    /**
+     * Offer the points within the distance radius of the ray, keyed by their
+     * positions along it
+     */
+    abstract void alongRay(Ray ray, Candidates candidates);
+
+    /**
+     * Offer the points within the box, with zero keys
+     */
+    abstract void inBox(double[] lower, double[] upper, Candidates candidates);
+
+    /**
+     * Offer the points nearest to the point, keyed by the squares of their
+     * distances
+     */
+    abstract void nearest(double[] point, Candidates candidates);
+
+    /**
+     * Offer the points within the distance radius of the point, keyed by the
+     * squares of their distances
+     */
+    abstract void within(double[] point, double radius, Candidates candidates);
+}
@@ -0,0 +1,665 @@
+package com.hellblazer.utils.math;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * An incremental Delaunay tetrahedralization of points in 3D or, if weighted,
+ * the regular tetrahedralization of weighted points, built on the robust
+ * predicates of {@link Geometry}.
+ * <p>
+ * The tetrahedra are stored in primitive arrays rather than as objects. The
+ * vertices of tetrahedron t are the elements 4t to 4t+3 of the vertex array,
+ * ordered such that {@link Geometry#leftOfPlane} is positive. The element 4t+i
+ * of the neighbor array is the neighbor across the face opposite vertex i,
+ * encoded as 4n+j for the neighbor n, whose vertex j is opposite the same
+ * face, or -1 if there is none. The indices of deleted tetrahedra are reused.
+ * <p>
+ * The points must lie within the bounds given to the constructor, which are
+ * enclosed in a large tetrahedron. The vertices of the enclosing tetrahedron
+ * have the indices -4 to -1, and the tetrahedra that have one of them as a
+ * vertex are not reported by {@link #getTetrahedra()}. As the enclosing
+ * tetrahedron is finite, tetrahedra of the points that are very flat and lie
+ * on their convex hull may be missing.
+ * <p>
+ * A point is located by walking from the last tetrahedron created towards the
+ * point. The tetrahedra whose circumspheres (ortho-spheres, if weighted)
+ * contain the point form a cavity, which is replaced by the tetrahedra joining
+ * the point to the faces of its boundary (Bowyer-Watson). Arrays of points are
+ * inserted in a biased randomized insertion order (BRIO), each round sorted
+ * along a Hilbert curve, so that successive points are close and the walks
+ * are short.
+ * <p>
+ * A point that is a duplicate of a vertex, or a weighted point that is
+ * redundant, is not inserted. If weighted, inserting a point may make existing
+ * vertices redundant, which then no longer belong to any tetrahedron.
+ * <p>
+ * A tetrahedralization is not thread safe.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class Tetrahedralization {
+    private static final int       BITS    = 10;
+    private static final int       ROUND   = 64;
+    private static final double    SCALE   = 1.0e4;
+
+    private int[]                  cavity  = new int[64];
+    private final Geometry.Context context = new Geometry.Context();
+    private int                    count;
+    private int[]                  edgeFaces;
+    private long[]                 edgeKeys;
+    private int[]                  edgeMarks;
+    private int                    free    = -1;
+    private int                    last;
+    private int                    limit;
+    private int[]                  marks;
+    private int[]                  neighbors;
+    private int                    seed    = 0x2545F491;
+    private int                    size;
+    private int                    stamp;
+    private int[]                  vertices;
+    private final boolean          weighted;
+    private double[]               ws;
+    private double[]               xs;
+    private double[]               ys;
+    private double[]               zs;
+
+    /**
+     * Construct a Delaunay tetrahedralization of points within the bounds
+     */
+    public Tetrahedralization(double xmin, double ymin, double zmin,
+                              double xmax, double ymax, double zmax) {
+        this(xmin, ymin, zmin, xmax, ymax, zmax, false);
+    }
+
+    /**
+     * Construct a tetrahedralization of points within the bounds
+     *
+     * @param weighted
+     *            - true if the tetrahedralization is the regular
+     *            tetrahedralization of weighted points, false if it is the
+     *            Delaunay tetrahedralization of points
+     */
+    public Tetrahedralization(double xmin, double ymin, double zmin,
+                              double xmax, double ymax, double zmax,
+                              boolean weighted) {
+        this.weighted = weighted;
+        xs = new double[64];
+        ys = new double[64];
+        zs = new double[64];
+        ws = new double[64];
+        vertices = new int[4 * 256];
+        neighbors = new int[4 * 256];
+        marks = new int[256];
+        edgeFaces = new int[256];
+        edgeKeys = new long[256];
+        edgeMarks = new int[256];
+
+        double dx = xmax - xmin;
+        double dy = ymax - ymin;
+        double dz = zmax - zmin;
+        double r = 0.5 * Math.sqrt(dx * dx + dy * dy + dz * dz);
+        double s = SCALE * (r > 0.0 ? r : 1.0);
+        double x = 0.5 * (xmin + xmax);
+        double y = 0.5 * (ymin + ymax);
+        double z = 0.5 * (zmin + zmax);
+        add(x + s, y + s, z + s, 0.0);
+        add(x + s, y - s, z - s, 0.0);
+        add(x - s, y + s, z - s, 0.0);
+        add(x - s, y - s, z + s, 0.0);
+        int t = allocate();
+        int i = 4 * t;
+        vertices[i] = 0;
+        vertices[i + 1] = 1;
+        if (orient(0, 1, 2, 3) > 0.0) {
+            vertices[i + 2] = 2;
+            vertices[i + 3] = 3;
+        } else {
+            vertices[i + 2] = 3;
+            vertices[i + 3] = 2;
+        }
+        Arrays.fill(neighbors, i, i + 4, -1);
+        count = 1;
+        last = t;
+    }
+
+    /**
+     * @return the limit of the indices of the tetrahedra. Every tetrahedron
+     *         has an index below the limit, though some indices below it may
+     *         be deleted.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Answer the neighbor of the tetrahedron across the face opposite one of
+     * its vertices
+     *
+     * @param tetrahedron
+     *            - the index of the tetrahedron
+     * @param i
+     *            - the index, 0 to 3, of the vertex opposite the face
+     * @return the index of the neighbor, or -1 if the face is on the boundary
+     *         of the enclosing tetrahedron
+     */
+    public int getNeighbor(int tetrahedron, int i) {
+        int neighbor = neighbors[4 * tetrahedron + i];
+        return neighbor < 0 ? -1 : neighbor >> 2;
+    }
+
+    /**
+     * Answer the tetrahedra whose vertices are all points
+     *
+     * @return the indices of the four vertices of each tetrahedron, ordered
+     *         such that {@link Geometry#leftOfPlane} is positive
+     */
+    public int[] getTetrahedra() {
+        int[] tetrahedra = new int[4 * count];
+        int n = 0;
+        for (int t = 0; t < limit; t++) {
+            int i = 4 * t;
+            if (vertices[i] >= 4 && vertices[i + 1] >= 4
+                && vertices[i + 2] >= 4 && vertices[i + 3] >= 4) {
+                tetrahedra[n++] = vertices[i] - 4;
+                tetrahedra[n++] = vertices[i + 1] - 4;
+                tetrahedra[n++] = vertices[i + 2] - 4;
+                tetrahedra[n++] = vertices[i + 3] - 4;
+            }
+        }
+        return Arrays.copyOf(tetrahedra, n);
+    }
+
+    /**
+     * @return the number of tetrahedra, including those that have a vertex of
+     *         the enclosing tetrahedron
+     */
+    public int getTetrahedronCount() {
+        return count;
+    }
+
+    /**
+     * Answer a vertex of the tetrahedron
+     *
+     * @param tetrahedron
+     *            - the index of the tetrahedron
+     * @param i
+     *            - the index, 0 to 3, of the vertex in the tetrahedron
+     * @return the index of the vertex, negative for a vertex of the enclosing
+     *         tetrahedron
+     */
+    public int getVertex(int tetrahedron, int i) {
+        return vertices[4 * tetrahedron + i] - 4;
+    }
+
+    public double getW(int vertex) {
+        return ws[vertex + 4];
+    }
+
+    public double getX(int vertex) {
+        return xs[vertex + 4];
+    }
+
+    public double getY(int vertex) {
+        return ys[vertex + 4];
+    }
+
+    public double getZ(int vertex) {
+        return zs[vertex + 4];
+    }
+
+    /**
+     * Insert an array of points in a biased randomized order, each round of
+     * which is sorted along a Hilbert curve
+     *
+     * @return the index of the vertex of each point, or -1 if the point was
+     *         not inserted
+     */
+    public int[] insert(double[] xs, double[] ys, double[] zs) {
+        return insert(xs, ys, zs, null);
+    }
+
+    /**
+     * Insert an array of weighted points in a biased randomized order, each
+     * round of which is sorted along a Hilbert curve
+     *
+     * @param ws
+     *            - the weights of the points, or null if all are zero
+     * @return the index of the vertex of each point, or -1 if the point was
+     *         not inserted
+     */
+    public int[] insert(double[] xs, double[] ys, double[] zs, double[] ws) {
+        int n = xs.length;
+        ensureVertices(size + n);
+        // Roughly 6.5 tetrahedra per vertex in random point sets
+        ensureTetrahedra(7 * (size + n));
+        int[] result = new int[n];
+        for (int i : order(xs, ys, zs)) {
+            result[i] = insert(xs[i], ys[i], zs[i], ws == null ? 0.0 : ws[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Insert a point
+     *
+     * @return the index of the vertex of the point, or -1 if the point was not
+     *         inserted
+     */
+    public int insert(double x, double y, double z) {
+        return insert(x, y, z, 0.0);
+    }
+
+    /**
+     * Insert a weighted point
+     *
+     * @param w
+     *            - the weight, the squared radius of the sphere of the point
+     * @return the index of the vertex of the point, or -1 if the point was not
+     *         inserted
+     */
+    public int insert(double x, double y, double z, double w) {
+        int t = walk(x, y, z);
+        if (!conflict(t, x, y, z, w)) {
+            return -1;
+        }
+        int n = cavity(t, x, y, z, w);
+        int v = add(x, y, z, w);
+        ensureEdges(6 * n);
+
+        // Join the point to the faces of the boundary of the cavity
+        int created = 0;
+        for (int c = 0; c < n; c++) {
+            int dead = cavity[c];
+            for (int f = 0; f < 4; f++) {
+                int adjacent = neighbors[4 * dead + f];
+                if (adjacent >= 0 && marks[adjacent >> 2] == stamp) {
+                    continue;
+                }
+                int nt = allocate();
+                int i = 4 * nt;
+                System.arraycopy(vertices, 4 * dead, vertices, i, 4);
+                vertices[i + f] = v;
+                neighbors[i + f] = adjacent;
+                if (adjacent >= 0) {
+                    neighbors[adjacent] = i + f;
+                }
+                for (int j = 0; j < 4; j++) {
+                    if (j != f) {
+                        link(i, f, j);
+                    }
+                }
+                last = nt;
+                created++;
+            }
+        }
+
+        for (int c = 0; c < n; c++) {
+            int dead = cavity[c];
+            vertices[4 * dead] = -1;
+            neighbors[4 * dead] = free;
+            free = dead;
+        }
+        count += created - n;
+        return v - 4;
+    }
+
+    /**
+     * @param tetrahedron
+     *            - the index of a tetrahedron below the limit
+     * @return true if the index is not of a tetrahedron
+     */
+    public boolean isDeleted(int tetrahedron) {
+        return vertices[4 * tetrahedron] < 0;
+    }
+
+    /**
+     * @return true if the tetrahedralization is of weighted points
+     */
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    /**
+     * Locate the tetrahedron containing the point
+     *
+     * @return the index of a tetrahedron containing the point, possibly on
+     *         its boundary
+     * @throws IllegalArgumentException
+     *             if the point is outside the enclosing tetrahedron
+     */
+    public int locate(double x, double y, double z) {
+        return walk(x, y, z);
+    }
+
+    /**
+     * @return the number of vertices, including those that are redundant
+     */
+    public int size() {
+        return size - 4;
+    }
+
+    private int add(double x, double y, double z, double w) {
+        ensureVertices(size - 4 + 1);
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        ws[size] = w;
+        return size++;
+    }
+
+    private int allocate() {
+        if (free >= 0) {
+            int t = free;
+            free = neighbors[4 * t];
+            return t;
+        }
+        if (limit == marks.length) {
+            ensureTetrahedra(2 * limit);
+        }
+        return limit++;
+    }
+
+    /**
+     * Collect the cavity of the tetrahedra in conflict with the point, by
+     * searching from a tetrahedron in conflict. The tetrahedra of the cavity
+     * are marked with the current stamp, and those tested but not in conflict
+     * with its negation.
+     *
+     * @return the number of tetrahedra in the cavity
+     */
+    private int cavity(int t, double x, double y, double z, double w) {
+        int s = ++stamp;
+        cavity[0] = t;
+        marks[t] = s;
+        int n = 1;
+        for (int c = 0; c < n; c++) {
+            int i = 4 * cavity[c];
+            for (int f = 0; f < 4; f++) {
+                int adjacent = neighbors[i + f];
+                if (adjacent < 0) {
+                    continue;
+                }
+                int a = adjacent >> 2;
+                if (marks[a] == s || marks[a] == -s) {
+                    continue;
+                }
+                if (conflict(a, x, y, z, w)) {
+                    marks[a] = s;
+                    if (n == cavity.length) {
+                        cavity = Arrays.copyOf(cavity, 2 * n);
+                    }
+                    cavity[n++] = a;
+                } else {
+                    marks[a] = -s;
+                }
+            }
+        }
+        return n;
+    }
+
+    private boolean conflict(int t, double x, double y, double z, double w) {
+        int i = 4 * t;
+        int a = vertices[i];
+        int b = vertices[i + 1];
+        int c = vertices[i + 2];
+        int d = vertices[i + 3];
+        if (weighted) {
+            return Geometry.inOrthoSphere(xs[a], ys[a], zs[a], ws[a], xs[b],
+                                          ys[b], zs[b], ws[b], xs[c], ys[c],
+                                          zs[c], ws[c], xs[d], ys[d], zs[d],
+                                          ws[d], x, y, z, w, context) > 0.0;
+        }
+        return Geometry.inSphere(xs[a], ys[a], zs[a], xs[b], ys[b], zs[b],
+                                 xs[c], ys[c], zs[c], xs[d], ys[d], zs[d], x,
+                                 y, z, context) > 0.0;
+    }
+
+    private void ensureEdges(int edges) {
+        int capacity = edgeKeys.length;
+        if (capacity >= 2 * edges) {
+            return;
+        }
+        while (capacity < 2 * edges) {
+            capacity <<= 1;
+        }
+        edgeFaces = new int[capacity];
+        edgeKeys = new long[capacity];
+        edgeMarks = new int[capacity];
+    }
+
+    private void ensureTetrahedra(int capacity) {
+        if (capacity <= marks.length) {
+            return;
+        }
+        vertices = Arrays.copyOf(vertices, 4 * capacity);
+        neighbors = Arrays.copyOf(neighbors, 4 * capacity);
+        marks = Arrays.copyOf(marks, capacity);
+    }
+
+    private void ensureVertices(int points) {
+        int capacity = points + 4;
+        if (capacity <= xs.length) {
+            return;
+        }
+        capacity = Math.max(capacity, 2 * xs.length);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        zs = Arrays.copyOf(zs, capacity);
+        ws = Arrays.copyOf(ws, capacity);
+    }
+
+    /**
+     * Link the face of a new tetrahedron, opposite its vertex j, to the face
+     * of the other new tetrahedron sharing its edge on the boundary of the
+     * cavity. The faces are matched by the edge in a hash table cleared by the
+     * stamp of the insertion.
+     *
+     * @param i
+     *            - the offset of the new tetrahedron
+     * @param f
+     *            - the index of the new vertex in the tetrahedron
+     * @param j
+     *            - the index of the vertex opposite the face
+     */
+    private void link(int i, int f, int j) {
+        int u = -1;
+        int v = -1;
+        for (int k = 0; k < 4; k++) {
+            if (k != f && k != j) {
+                if (u < 0) {
+                    u = vertices[i + k];
+                } else {
+                    v = vertices[i + k];
+                }
+            }
+        }
+        long key = u < v ? (long) u << 32 | v : (long) v << 32 | u;
+        int mask = edgeKeys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h >>> 32) & mask;
+        while (edgeMarks[slot] == stamp) {
+            if (edgeKeys[slot] == key) {
+                int face = edgeFaces[slot];
+                neighbors[i + j] = face;
+                neighbors[face] = i + j;
+                return;
+            }
+            slot = slot + 1 & mask;
+        }
+        edgeMarks[slot] = stamp;
+        edgeKeys[slot] = key;
+        edgeFaces[slot] = i + j;
+    }
+
+    /**
+     * Answer the biased randomized insertion order of the points. The points
+     * are shuffled and divided into rounds, the last of which is half the
+     * points, the one before half the rest, and so on. Each round is sorted by
+     * the index of the points on a Hilbert curve through the bounding box of
+     * the points.
+     */
+    private int[] order(double[] xs, double[] ys, double[] zs) {
+        int n = xs.length;
+        int[] order = new int[n];
+        Random random = new Random(n);
+        for (int i = 0; i < n; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+
+        double xmin = Double.POSITIVE_INFINITY;
+        double ymin = Double.POSITIVE_INFINITY;
+        double zmin = Double.POSITIVE_INFINITY;
+        double xmax = Double.NEGATIVE_INFINITY;
+        double ymax = Double.NEGATIVE_INFINITY;
+        double zmax = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            xmin = Math.min(xmin, xs[i]);
+            ymin = Math.min(ymin, ys[i]);
+            zmin = Math.min(zmin, zs[i]);
+            xmax = Math.max(xmax, xs[i]);
+            ymax = Math.max(ymax, ys[i]);
+            zmax = Math.max(zmax, zs[i]);
+        }
+        double extent = Math.max(xmax - xmin,
+                                 Math.max(ymax - ymin, zmax - zmin));
+        double scale = extent > 0.0 ? ((1 << BITS) - 1) / extent : 0.0;
+
+        long[] keys = new long[n];
+        int to = n;
+        while (to > 0) {
+            int from = to > ROUND ? to / 2 : 0;
+            for (int k = from; k < to; k++) {
+                int i = order[k];
+                long key = hilbert((int) ((xs[i] - xmin) * scale),
+                                   (int) ((ys[i] - ymin) * scale),
+                                   (int) ((zs[i] - zmin) * scale));
+                keys[k] = key << 32 | i;
+            }
+            Arrays.sort(keys, from, to);
+            for (int k = from; k < to; k++) {
+                order[k] = (int) keys[k];
+            }
+            to = from;
+        }
+        return order;
+    }
+
+    private double orient(int a, int b, int c, int d) {
+        return Geometry.leftOfPlane(xs[a], ys[a], zs[a], xs[b], ys[b], zs[b],
+                                    xs[c], ys[c], zs[c], xs[d], ys[d], zs[d],
+                                    context);
+    }
+
+    /**
+     * Answer the orientation of the tetrahedron with its vertex f replaced by
+     * the point, which is negative if the point is across the face opposite
+     * the vertex
+     */
+    private double orient(int t, int f, double x, double y, double z) {
+        int i = 4 * t;
+        int a = vertices[i];
+        int b = vertices[i + 1];
+        int c = vertices[i + 2];
+        int d = vertices[i + 3];
+        switch (f) {
+            case 0:
+                return Geometry.leftOfPlane(x, y, z, xs[b], ys[b], zs[b],
+                                            xs[c], ys[c], zs[c], xs[d], ys[d],
+                                            zs[d], context);
+            case 1:
+                return Geometry.leftOfPlane(xs[a], ys[a], zs[a], x, y, z,
+                                            xs[c], ys[c], zs[c], xs[d], ys[d],
+                                            zs[d], context);
+            case 2:
+                return Geometry.leftOfPlane(xs[a], ys[a], zs[a], xs[b], ys[b],
+                                            zs[b], x, y, z, xs[d], ys[d],
+                                            zs[d], context);
+            default:
+                return Geometry.leftOfPlane(xs[a], ys[a], zs[a], xs[b], ys[b],
+                                            zs[b], xs[c], ys[c], zs[c], x, y,
+                                            z, context);
+        }
+    }
+
+    /**
+     * Walk from the last tetrahedron created to the tetrahedron containing the
+     * point, crossing a face the point is beyond. The faces are tested from a
+     * random one, which guarantees the walk terminates.
+     */
+    private int walk(double x, double y, double z) {
+        int t = last;
+        int back = -1;
+        for (;;) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            int offset = seed >>> 30;
+            int next = -1;
+            for (int k = 0; k < 4; k++) {
+                int f = offset + k & 3;
+                if (f != back && orient(t, f, x, y, z) < 0.0) {
+                    next = neighbors[4 * t + f];
+                    if (next < 0) {
+                        throw new IllegalArgumentException(
+                                                           String.format("Point (%s, %s, %s) is outside the enclosing tetrahedron",
+                                                                         x, y, z));
+                    }
+                    break;
+                }
+            }
+            if (next < 0) {
+                return t;
+            }
+            t = next >> 2;
+            back = next & 3;
+        }
+    }
+
+    /**
+     * Answer the index of the cell on a Hilbert curve through a cube of 2^BITS
+     * cells on a side, using Skilling's transposition of the axes
+     */
+    private static long hilbert(int x, int y, int z) {
+        for (int q = 1 << BITS - 1; q > 1; q >>= 1) {
+            int p = q - 1;
+            if ((x & q) != 0) {
+                x ^= p;
+            }
+            if ((y & q) != 0) {
+                x ^= p;
+            } else {
+                int t = (x ^ y) & p;
+                x ^= t;
+                y ^= t;
+            }
+            if ((z & q) != 0) {
+                x ^= p;
+            } else {
+                int t = (x ^ z) & p;
+                x ^= t;
+                z ^= t;
+            }
+        }
+        y ^= x;
+        z ^= y;
+        int t = 0;
+        for (int q = 1 << BITS - 1; q > 1; q >>= 1) {
+            if ((z & q) != 0) {
+                t ^= q - 1;
+            }
+        }
+        x ^= t;
+        y ^= t;
+        z ^= t;
+        long key = 0;
+        for (int b = BITS - 1; b >= 0; b--) {
+            key = key << 3 | (x >> b & 1) << 2 | (y >> b & 1) << 1
+                  | (z >> b & 1);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,591 @@
+package com.hellblazer.utils.math;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The Delaunay triangulation of points in 2D, built on the robust predicates
+ * of {@link Geometry}.
+ * <p>
+ * The triangulation is computed by divide and conquer (Guibas and Stolfi): the
+ * points are sorted, each half is triangulated and the halves are merged by
+ * zipping up the edges between them. Given a pool, halves larger than a grain
+ * are triangulated in parallel, and so are their merges with each other.
+ * While building, each pair of directed edges holds its origins and the rings
+ * of edges around them in int arrays. The pairs for the points of a half are
+ * taken from a range of slots proportional to its points, so that the halves
+ * need no coordination.
+ * <p>
+ * The result is stored as compact half-edges. Triangle t has the vertices at
+ * 3t to 3t+2 of the triangle array, in counter-clockwise order. Half-edge 3t+k
+ * runs from vertex 3t+k to the next vertex of the triangle, and the element
+ * 3t+k of the half-edge array is the opposite half-edge of the adjacent
+ * triangle, or -1 on the convex hull.
+ * <p>
+ * Duplicate points are triangulated once, at the first of their indices. If
+ * all the points are collinear there are no triangles.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class Triangulation {
+    private final class Merge extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int         grain;
+        private final int         hi;
+        private final int         lo;
+        private final int[]       result           = new int[4];
+
+        private Merge(int lo, int hi, int grain) {
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= grain) {
+                triangulate(lo, hi, result);
+                return;
+            }
+            int mid = lo + hi >>> 1;
+            Merge left = new Merge(lo, mid, grain);
+            Merge right = new Merge(mid, hi, grain);
+            invokeAll(left, right);
+            merge(left.result, right.result, result);
+        }
+    }
+
+    private static final class Sort extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int         grain;
+        private final int         hi;
+        private final int         lo;
+        private final int[]       order;
+        private final double[]    xs;
+        private final double[]    ys;
+
+        private Sort(double[] xs, double[] ys, int[] order, int lo, int hi,
+                     int grain) {
+            this.xs = xs;
+            this.ys = ys;
+            this.order = order;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= grain) {
+                sort(xs, ys, order, lo, hi);
+                return;
+            }
+            int p = partition(xs, ys, order, lo, hi);
+            invokeAll(new Sort(xs, ys, order, lo, p, grain),
+                      new Sort(xs, ys, order, p, hi, grain));
+        }
+    }
+
+    private static final int GRAIN = 1 << 14;
+
+    /**
+     * Answer the convex hull of the points, by Andrew's monotone chain
+     *
+     * @return the indices of the vertices of the hull in counter-clockwise
+     *         order, starting from the point with the least x, and least y
+     *         among those. Points on the edges of the hull and duplicates are
+     *         excluded.
+     */
+    public static int[] convexHull(double[] xs, double[] ys) {
+        int n = xs.length;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        sort(xs, ys, order, 0, n);
+        n = unique(xs, ys, order, n);
+        if (n < 3) {
+            return Arrays.copyOf(order, n);
+        }
+        int[] hull = new int[2 * n];
+        int k = 0;
+        // Lower hull, left to right
+        for (int i = 0; i < n; i++) {
+            int c = order[i];
+            while (k >= 2 && !left(xs, ys, hull[k - 2], hull[k - 1], c)) {
+                k--;
+            }
+            hull[k++] = c;
+        }
+        // Upper hull, right to left
+        int lower = k + 1;
+        for (int i = n - 2; i >= 0; i--) {
+            int c = order[i];
+            while (k >= lower && !left(xs, ys, hull[k - 2], hull[k - 1], c)) {
+                k--;
+            }
+            hull[k++] = c;
+        }
+        // The last point is the first
+        return Arrays.copyOf(hull, k - 1);
+    }
+
+    /**
+     * Order the points by x, then y, then index
+     */
+    private static int compare(double[] xs, double[] ys, int i, int j) {
+        if (xs[i] < xs[j]) {
+            return -1;
+        }
+        if (xs[i] > xs[j]) {
+            return 1;
+        }
+        if (ys[i] < ys[j]) {
+            return -1;
+        }
+        if (ys[i] > ys[j]) {
+            return 1;
+        }
+        return i < j ? -1 : i == j ? 0 : 1;
+    }
+
+    private static boolean left(double[] xs, double[] ys, int a, int b, int c) {
+        return Geometry.leftOfLine(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]) > 0.0;
+    }
+
+    /**
+     * Partition the points of the range about the median of three, such that
+     * the points below the index returned are no greater than those at and
+     * above it
+     */
+    private static int partition(double[] xs, double[] ys, int[] order,
+                                 int lo, int hi) {
+        int mid = lo + hi >>> 1;
+        if (compare(xs, ys, order[mid], order[lo]) < 0) {
+            swap(order, mid, lo);
+        }
+        if (compare(xs, ys, order[hi - 1], order[lo]) < 0) {
+            swap(order, hi - 1, lo);
+        }
+        if (compare(xs, ys, order[hi - 1], order[mid]) < 0) {
+            swap(order, hi - 1, mid);
+        }
+        int pivot = order[mid];
+        int i = lo - 1;
+        int j = hi;
+        for (;;) {
+            do {
+                i++;
+            } while (compare(xs, ys, order[i], pivot) < 0);
+            do {
+                j--;
+            } while (compare(xs, ys, pivot, order[j]) < 0);
+            if (i >= j) {
+                return j + 1;
+            }
+            swap(order, i, j);
+        }
+    }
+
+    private static void sort(double[] xs, double[] ys, int[] order, int lo,
+                             int hi) {
+        while (hi - lo > 16) {
+            int p = partition(xs, ys, order, lo, hi);
+            if (p - lo < hi - p) {
+                sort(xs, ys, order, lo, p);
+                lo = p;
+            } else {
+                sort(xs, ys, order, p, hi);
+                hi = p;
+            }
+        }
+        for (int i = lo + 1; i < hi; i++) {
+            int v = order[i];
+            int j = i - 1;
+            while (j >= lo && compare(xs, ys, v, order[j]) < 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = v;
+        }
+    }
+
+    private static void swap(int[] order, int i, int j) {
+        int t = order[i];
+        order[i] = order[j];
+        order[j] = t;
+    }
+
+    /**
+     * Remove the duplicates of the sorted points, keeping the first of each
+     *
+     * @return the number of unique points
+     */
+    private static int unique(double[] xs, double[] ys, int[] order, int n) {
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            int last = unique == 0 ? -1 : order[unique - 1];
+            if (last < 0 || xs[last] != xs[order[i]]
+                || ys[last] != ys[order[i]]) {
+                order[unique++] = order[i];
+            }
+        }
+        return unique;
+    }
+
+    private final int[]    halfedges;
+    private int[]          onext;
+    private int[]          oprev;
+    private int[]          order;
+    private int[]          org;
+    private double[]       px;
+    private double[]       py;
+    private final int[]    triangles;
+    private final double[] xs;
+    private final double[] ys;
+
+    /**
+     * Construct the Delaunay triangulation of the points
+     */
+    public Triangulation(double[] xs, double[] ys) {
+        this(xs, ys, null);
+    }
+
+    /**
+     * Construct the Delaunay triangulation of the points, in parallel if a
+     * pool is given
+     *
+     * @param pool
+     *            - the pool to triangulate in, or null to triangulate in the
+     *            current thread
+     */
+    public Triangulation(double[] xs, double[] ys, ForkJoinPool pool) {
+        this.xs = xs;
+        this.ys = ys;
+        int n = xs.length;
+        order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        int grain = grain(pool, n);
+        if (pool == null || n <= grain) {
+            sort(xs, ys, order, 0, n);
+        } else {
+            pool.invoke(new Sort(xs, ys, order, 0, n, grain));
+        }
+        int unique = unique(xs, ys, order, n);
+
+        if (unique < 2) {
+            triangles = new int[0];
+            halfedges = new int[0];
+            return;
+        }
+        // Triangulate the points in sorted order, so that the halves are
+        // compact in memory
+        px = new double[unique];
+        py = new double[unique];
+        for (int i = 0; i < unique; i++) {
+            px[i] = xs[order[i]];
+            py[i] = ys[order[i]];
+        }
+        // 3 pairs of directed edges per point bound the edges of a planar
+        // graph of the points
+        org = new int[6 * unique];
+        onext = new int[6 * unique];
+        oprev = new int[6 * unique];
+        if (pool == null || unique <= grain) {
+            triangulate(0, unique, new int[4]);
+        } else {
+            pool.invoke(new Merge(0, unique, grain));
+        }
+
+        // Number the triangles, recording the directed edge of each half-edge
+        int[] t = new int[6 * unique];
+        int[] h = new int[6 * unique];
+        int count = 0;
+        Arrays.fill(onext, -1);
+        for (int e = 0; e < org.length; e++) {
+            if (org[e] < 0 || onext[e] >= 0) {
+                continue;
+            }
+            int e1 = lnext(e);
+            int e2 = lnext(e1);
+            if (lnext(e2) != e || !left(px, py, org[e], org[e1], org[e2])) {
+                continue;
+            }
+            int i = 3 * count++;
+            t[i] = order[org[e]];
+            t[i + 1] = order[org[e1]];
+            t[i + 2] = order[org[e2]];
+            h[i] = e;
+            h[i + 1] = e1;
+            h[i + 2] = e2;
+            onext[e] = i;
+            onext[e1] = i + 1;
+            onext[e2] = i + 2;
+        }
+        for (int i = 0; i < 3 * count; i++) {
+            h[i] = onext[h[i] ^ 1];
+        }
+        triangles = Arrays.copyOf(t, 3 * count);
+        halfedges = Arrays.copyOf(h, 3 * count);
+        org = onext = oprev = order = null;
+        px = py = null;
+    }
+
+    /**
+     * @return the half-edges of the triangulation, the opposite half-edge of
+     *         each half-edge or -1 if it is on the convex hull. The array is
+     *         not copied.
+     */
+    public int[] getHalfedges() {
+        return halfedges;
+    }
+
+    /**
+     * @return the vertices of the triangles, in counter-clockwise order. The
+     *         array is not copied.
+     */
+    public int[] getTriangles() {
+        return triangles;
+    }
+
+    public double getX(int vertex) {
+        return xs[vertex];
+    }
+
+    public double getY(int vertex) {
+        return ys[vertex];
+    }
+
+    /**
+     * @return the number of triangles
+     */
+    public int size() {
+        return triangles.length / 3;
+    }
+
+    /**
+     * Add an edge from the destination of a to the origin of b, such that a,
+     * the new edge and b share their left face
+     */
+    private int connect(int[] free, int a, int b) {
+        int e = edge(free, org[a ^ 1], org[b]);
+        splice(e, lnext(a));
+        splice(e ^ 1, b);
+        return e;
+    }
+
+    private void delete(int[] free, int e) {
+        splice(e, oprev[e]);
+        splice(e ^ 1, oprev[e ^ 1]);
+        org[e] = org[e ^ 1] = -1;
+        onext[e] = free[2];
+        free[2] = e;
+        if (free[3] < 0) {
+            free[3] = e;
+        }
+    }
+
+    /**
+     * Make an isolated edge from the pairs of the free list
+     */
+    private int edge(int[] free, int origin, int destination) {
+        int e = free[2];
+        free[2] = onext[e];
+        if (free[2] < 0) {
+            free[3] = -1;
+        }
+        org[e] = origin;
+        org[e ^ 1] = destination;
+        onext[e] = oprev[e] = e;
+        onext[e ^ 1] = oprev[e ^ 1] = e ^ 1;
+        return e;
+    }
+
+    private int grain(ForkJoinPool pool, int n) {
+        if (pool == null) {
+            return n;
+        }
+        return Math.max(GRAIN, n / (pool.getParallelism() * 8));
+    }
+
+    private boolean inCircle(int a, int b, int c, int d) {
+        return Geometry.inCircle(px[a], py[a], px[b], py[b], px[c], py[c],
+                                 px[d], py[d]) > 0.0;
+    }
+
+    /**
+     * The next edge counter-clockwise around the left face
+     */
+    private int lnext(int e) {
+        return oprev[e ^ 1];
+    }
+
+    /**
+     * Merge the triangulations of two adjacent ranges of the sorted points
+     *
+     * @param left
+     *            - the counter-clockwise outer edge from the leftmost point,
+     *            the clockwise outer edge from the rightmost point, and the
+     *            free list of the left triangulation
+     * @param right
+     *            - the same for the right triangulation
+     * @param result
+     *            - the same for the merged triangulation
+     */
+    private void merge(int[] left, int[] right, int[] result) {
+        int ldo = left[0];
+        int ldi = left[1];
+        int rdi = right[0];
+        int rdo = right[1];
+        if (left[2] < 0) {
+            result[2] = right[2];
+            result[3] = right[3];
+        } else {
+            result[2] = left[2];
+            if (right[2] < 0) {
+                result[3] = left[3];
+            } else {
+                onext[left[3]] = right[2];
+                result[3] = right[3];
+            }
+        }
+
+        // Find the lower common tangent of the halves
+        for (;;) {
+            if (left(px, py, org[rdi], org[ldi], org[ldi ^ 1])) {
+                ldi = lnext(ldi);
+            } else if (left(px, py, org[ldi], org[rdi ^ 1], org[rdi])) {
+                rdi = onext[rdi ^ 1];
+            } else {
+                break;
+            }
+        }
+        int basel = connect(result, rdi ^ 1, ldi);
+        if (org[ldi] == org[ldo]) {
+            ldo = basel ^ 1;
+        }
+        if (org[rdi] == org[rdo]) {
+            rdo = basel;
+        }
+
+        // Zip up the edges between the halves, from the bottom
+        for (;;) {
+            int lcand = onext[basel ^ 1];
+            if (valid(lcand, basel)) {
+                while (inCircle(org[basel ^ 1], org[basel], org[lcand ^ 1],
+                                org[onext[lcand] ^ 1])) {
+                    int t = onext[lcand];
+                    delete(result, lcand);
+                    lcand = t;
+                }
+            }
+            int rcand = oprev[basel];
+            if (valid(rcand, basel)) {
+                while (inCircle(org[basel ^ 1], org[basel], org[rcand ^ 1],
+                                org[oprev[rcand] ^ 1])) {
+                    int t = oprev[rcand];
+                    delete(result, rcand);
+                    rcand = t;
+                }
+            }
+            boolean lvalid = valid(lcand, basel);
+            boolean rvalid = valid(rcand, basel);
+            if (!lvalid && !rvalid) {
+                break;
+            }
+            if (!lvalid
+                || rvalid
+                && inCircle(org[lcand ^ 1], org[lcand], org[rcand],
+                            org[rcand ^ 1])) {
+                basel = connect(result, rcand, basel ^ 1);
+            } else {
+                basel = connect(result, basel ^ 1, lcand ^ 1);
+            }
+        }
+        result[0] = ldo;
+        result[1] = rdo;
+    }
+
+    /**
+     * Exchange the rings of edges after a and b, joining them if they are
+     * distinct or splitting them if they are the same
+     */
+    private void splice(int a, int b) {
+        int an = onext[a];
+        int bn = onext[b];
+        onext[a] = bn;
+        onext[b] = an;
+        oprev[bn] = a;
+        oprev[an] = b;
+    }
+
+    /**
+     * Triangulate a range of the sorted points, with the pairs of directed
+     * edges in the slots of the range. The vertices of the edges are the
+     * indices of the sorted points.
+     *
+     * @param result
+     *            - the counter-clockwise outer edge from the leftmost point,
+     *            the clockwise outer edge from the rightmost point, and the
+     *            head and tail of the free list of the triangulation
+     */
+    private void triangulate(int lo, int hi, int[] result) {
+        int n = hi - lo;
+        if (n > 3) {
+            int mid = lo + hi >>> 1;
+            int[] left = new int[4];
+            int[] right = new int[4];
+            triangulate(lo, mid, left);
+            triangulate(mid, hi, right);
+            merge(left, right, result);
+            return;
+        }
+
+        // Link the free pairs of the range
+        int first = 6 * lo;
+        int end = 6 * hi;
+        for (int e = first; e < end; e += 2) {
+            onext[e] = e + 2 < end ? e + 2 : -1;
+        }
+        result[2] = first;
+        result[3] = end - 2;
+
+        int a = edge(result, lo, lo + 1);
+        if (n == 2) {
+            result[0] = a;
+            result[1] = a ^ 1;
+            return;
+        }
+        int b = edge(result, lo + 1, lo + 2);
+        splice(a ^ 1, b);
+        double orientation = Geometry.leftOfLine(px[lo], py[lo], px[lo + 1],
+                                                 py[lo + 1], px[lo + 2],
+                                                 py[lo + 2]);
+        if (orientation > 0.0) {
+            connect(result, b, a);
+            result[0] = a;
+            result[1] = b ^ 1;
+        } else if (orientation < 0.0) {
+            int c = connect(result, b, a);
+            result[0] = c ^ 1;
+            result[1] = c;
+        } else {
+            result[0] = a;
+            result[1] = b ^ 1;
+        }
+    }
+
+    /**
+     * @return true if the destination of the candidate is right of the base
+     *         edge
+     */
+    private boolean valid(int candidate, int basel) {
+        return left(px, py, org[candidate ^ 1], org[basel ^ 1], org[basel]);
+    }
+}
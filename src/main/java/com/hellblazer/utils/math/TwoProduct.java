@@ -0,0 +1,99 @@
+package com.hellblazer.utils.math;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * The error-free transformation of a product: the roundoff error of the
+ * product of two doubles, which is itself a double.
+ * <p>
+ * Where the platform has Math.fma (Java 9 and later), the error is computed
+ * by a single fused multiply-add, found when the class is initialized and
+ * invoked through a constant method handle, which the compiler inlines.
+ * Otherwise, the error is computed by Dekker's algorithm, which splits each
+ * factor into halves whose products are exact. Platforms without a hardware
+ * fused multiply-add emulate Math.fma slowly, and should set the system
+ * property com.hellblazer.utils.math.fma to false to use Dekker's algorithm.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public final class TwoProduct {
+    /**
+     * True if the errors are computed by a fused multiply-add
+     */
+    static final boolean             FMA;
+
+    private static final MethodHandle FUSED;
+
+    /**
+     * The value to split a double on, 2^27+1
+     */
+    private static final double       SPLIT = 134217729.0D;
+
+    static {
+        MethodHandle fused = null;
+        String fma = System.getProperty("com.hellblazer.utils.math.fma");
+        if (!"false".equals(fma)) {
+            MethodType type = MethodType.methodType(double.class, double.class,
+                                                    double.class,
+                                                    double.class);
+            try {
+                fused = MethodHandles.lookup().findStatic(Math.class, "fma",
+                                                          type);
+                // The error of 0.1 * 10.0, which rounds to 1.0
+                double error = (double) fused.invokeExact(0.1, 10.0, -1.0);
+                if (error != dekker(0.1, 10.0, 1.0)) {
+                    fused = null;
+                }
+            } catch (Throwable e) {
+                // Before Java 9
+                fused = null;
+            }
+        }
+        FUSED = fused;
+        FMA = fused != null;
+    }
+
+    /**
+     * Answer the roundoff error of a product by Dekker's algorithm
+     *
+     * @param product
+     *            - the product a*b
+     * @return a*b - product, exactly
+     */
+    static double dekker(double a, double b, double product) {
+        double c = SPLIT * a;
+        double ahi = c - (c - a);
+        double alo = a - ahi;
+        c = SPLIT * b;
+        double bhi = c - (c - b);
+        double blo = b - bhi;
+        double err1 = product - ahi * bhi;
+        double err2 = err1 - alo * bhi;
+        double err3 = err2 - ahi * blo;
+        return alo * blo - err3;
+    }
+
+    /**
+     * Answer the roundoff error of a product
+     *
+     * @param product
+     *            - the product a*b
+     * @return a*b - product, exactly
+     */
+    public static double error(double a, double b, double product) {
+        if (FMA) {
+            try {
+                return (double) FUSED.invokeExact(a, b, -product);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return dekker(a, b, product);
+    }
+
+    private TwoProduct() {
+    }
+}
@@ -0,0 +1,80 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * A predicate that can wait for the rate of acceptance to allow a request,
+ * rather than rejecting it. Waiting requests are served in the order they
+ * arrive. The time of a request is taken from the predicate's own clock.
+ *
+ * @author hhildebrand
+ *
+ */
+public interface BlockingPredicate extends Predicate {
+
+    /**
+     * Wait until the request can be accepted
+     *
+     * @param cost
+     *            - the cost of accepting
+     * @throws InterruptedException
+     *             if interrupted while waiting. The cost has still been
+     *             charged against the rate.
+     */
+    void acquire(int cost) throws InterruptedException;
+
+    /**
+     * Run the task once the request can be accepted
+     *
+     * @param cost
+     *            - the cost of accepting
+     * @param task
+     *            - the task to run
+     * @param scheduler
+     *            - the scheduler to run the task on
+     * @return the future result of the task
+     */
+    <V> ScheduledFuture<V> acquireAsync(int cost, Callable<V> task,
+                                        ScheduledExecutorService scheduler);
+
+    /**
+     * @return the current time of the predicate's clock
+     */
+    long currentTime();
+
+    /**
+     * Wait until the request can be accepted, if that is within the timeout
+     *
+     * @param cost
+     *            - the cost of accepting
+     * @param timeout
+     *            - the maximum time to wait
+     * @param unit
+     *            - the unit of the timeout
+     * @return true if the request was accepted, false - without waiting - if
+     *         it could not be accepted within the timeout
+     * @throws InterruptedException
+     *             if interrupted while waiting. The cost has still been
+     *             charged against the rate.
+     */
+    boolean tryAcquire(int cost, long timeout, TimeUnit unit)
+                                                             throws InterruptedException;
+}
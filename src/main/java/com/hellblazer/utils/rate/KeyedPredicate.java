@@ -0,0 +1,68 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate;
+
+/**
+ *
+ * The predicate for evaluating the rate of acceptance of a number of
+ * independent keys, such as tenants or clients, each limited to the same
+ * target rate
+ *
+ * @author hhildebrand
+ *
+ */
+public interface KeyedPredicate<K> {
+
+    /**
+     * Evaluate the predicate for the key, using the supplied cost
+     *
+     * @param key
+     *            - the key to evaluate the rate of
+     * @param cost
+     *            - the cost of accepting
+     * @param currentTime
+     *            - the current time to use for the request
+     * @return true if the predicated rate of the key is valid given the cost,
+     *         false otherwise
+     */
+    boolean accept(K key, int cost, long currentTime);
+
+    /**
+     * Evaluate the predicate for the key, using the default cost
+     *
+     * @param key
+     *            - the key to evaluate the rate of
+     * @param currentTime
+     *            - the current time to use for the request
+     * @return true if the predicated rate of the key is valid, false otherwise
+     */
+    boolean accept(K key, long currentTime);
+
+    /**
+     * Answer a view of the predicate for a single key. Setting the target rate
+     * of the view sets the target rate of every key.
+     *
+     * @param key
+     * @return the predicate for the key
+     */
+    Predicate predicate(K key);
+
+    /**
+     * Set the target rate of each key
+     *
+     * @param targetRate
+     */
+    void setTargetRate(double targetRate);
+}
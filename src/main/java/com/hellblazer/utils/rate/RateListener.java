@@ -0,0 +1,38 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate;
+
+/**
+ *
+ * A listener for the changes a controller makes to its target rate, e.g. to
+ * publish them as metrics
+ *
+ * @author hhildebrand
+ *
+ */
+public interface RateListener {
+
+    /**
+     * The target rate has been changed by the controller
+     *
+     * @param previousRate
+     *            - the previous target rate
+     * @param rate
+     *            - the new target rate
+     * @param currentTime
+     *            - the time of the sample that caused the change
+     */
+    void rateChanged(double previousRate, double rate, long currentTime);
+}
@@ -0,0 +1,226 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate.controllers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.hellblazer.utils.rate.Controller;
+
+/**
+ *
+ * A Controller that limits the number of requests in flight, rather than their
+ * rate. Subclasses adapt the concurrency limit to the sampled response times.
+ * As for any {@link Controller}, the target of the controller is the target
+ * response time; controllers that do not regulate toward a target response
+ * time ignore it.
+ * <p>
+ * Each accepted request must be completed by sampling its response time,
+ * which releases its share of the limit.
+ *
+ * @author hhildebrand
+ *
+ */
+public abstract class ConcurrencyController implements Controller {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double     limit;
+    private final ReentrantLock lock     = new ReentrantLock();
+    private volatile double     maximum;
+    private volatile double     minimum;
+    private volatile double     target;
+    private final SampleWindow  window;
+
+    /**
+     * @param initialLimit
+     *            - the initial concurrency limit
+     * @param minimumLimit
+     *            - the minimum concurrency limit
+     * @param maximumLimit
+     *            - the maximum concurrency limit
+     * @param windowSize
+     *            - the size of the window of response times
+     */
+    public ConcurrencyController(double initialLimit, double minimumLimit,
+                                 double maximumLimit, int windowSize) {
+        assert minimumLimit >= 1;
+        assert minimumLimit <= maximumLimit;
+        minimum = minimumLimit;
+        maximum = maximumLimit;
+        limit = initialLimit;
+        window = new SampleWindow(windowSize);
+    }
+
+    /**
+     * Accept the request if the cost can be added to the requests in flight
+     * within the concurrency limit. A request is always accepted if there is
+     * nothing in flight.
+     */
+    @Override
+    public boolean accept(int cost, long currentTime) {
+        for (;;) {
+            int current = inFlight.get();
+            if (current != 0 && current + cost > (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + cost)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean accept(long currentTime) {
+        return accept(1, currentTime);
+    }
+
+    /**
+     * @return the cost of the requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the concurrency limit
+     */
+    public double getLimit() {
+        return limit;
+    }
+
+    public double getMaximum() {
+        return maximum;
+    }
+
+    @Override
+    public double getMedianResponseTime() {
+        return window.getMedian();
+    }
+
+    public double getMinimum() {
+        return minimum;
+    }
+
+    @Override
+    public double getResponseTime() {
+        return window.getPercentile(0.9);
+    }
+
+    /**
+     * Answer the target response time
+     */
+    @Override
+    public double getTarget() {
+        return target;
+    }
+
+    @Override
+    public int getWindow() {
+        return window.getWindow();
+    }
+
+    /**
+     * Release the cost of a request without sampling its response time, e.g.
+     * if the request failed
+     */
+    public void release(int cost) {
+        inFlight.addAndGet(-cost);
+    }
+
+    @Override
+    public void reset() {
+        ReentrantLock myLock = lock;
+        myLock.lock();
+        try {
+            window.reset();
+            resetState();
+        } finally {
+            myLock.unlock();
+        }
+    }
+
+    /**
+     * Complete a request of the default cost
+     */
+    @Override
+    public void sample(double responseTime, long currentTime) {
+        sample(1, responseTime, currentTime);
+    }
+
+    /**
+     * Complete a request, releasing its cost and adapting the concurrency
+     * limit to its response time
+     */
+    public void sample(int cost, double responseTime, long currentTime) {
+        int current = inFlight.addAndGet(-cost);
+        ReentrantLock myLock = lock;
+        if (!myLock.tryLock()) {
+            // Skip sample if locked
+            return;
+        }
+        try {
+            window.sample(responseTime);
+            double next = update(responseTime, currentTime, limit,
+                                 current + cost);
+            limit = Math.max(minimum, Math.min(maximum, next));
+        } finally {
+            myLock.unlock();
+        }
+    }
+
+    /**
+     * Set the concurrency limit, within the minimum and maximum limits
+     */
+    public void setLimit(double limit) {
+        this.limit = Math.max(minimum, Math.min(maximum, limit));
+    }
+
+    public void setMaximum(double maximum) {
+        this.maximum = maximum;
+    }
+
+    public void setMinimum(double minimum) {
+        this.minimum = minimum;
+    }
+
+    /**
+     * Set the target response time
+     */
+    @Override
+    public void setTarget(double target) {
+        this.target = target;
+    }
+
+    /**
+     * Reset the state of the limit algorithm. Called with the lock held.
+     */
+    protected abstract void resetState();
+
+    /**
+     * Compute the new concurrency limit. Called with the lock held.
+     *
+     * @param responseTime
+     *            - the sampled response time
+     * @param currentTime
+     * @param limit
+     *            - the current concurrency limit
+     * @param inFlight
+     *            - the cost of the requests in flight, including the sampled
+     *            request
+     * @return the new concurrency limit, before clamping to the minimum and
+     *         maximum
+     */
+    protected abstract double update(double responseTime, long currentTime,
+                                     double limit, int inFlight);
+}
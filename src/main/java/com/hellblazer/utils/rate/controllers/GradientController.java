@@ -0,0 +1,122 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate.controllers;
+
+/**
+ *
+ * A concurrency controller that adapts the limit to the gradient between a
+ * long term, exponentially smoothed baseline of the response time and the
+ * short term response time. While the short term response time tracks the
+ * baseline the limit grows by a queue allowance of the square root of the
+ * limit; as the short term response time rises above the baseline - the
+ * signature of requests queueing in the backend - the limit shrinks in
+ * proportion.
+ *
+ * @author hhildebrand
+ *
+ */
+public class GradientController extends ConcurrencyController {
+    private double          longResponseTime  = Double.NaN;
+    private volatile double longSmoothing     = 1.0 / 600;
+    private double          shortResponseTime = Double.NaN;
+    private volatile double shortSmoothing    = 0.5;
+    private volatile double smoothConstant    = 0.2;
+    private volatile double tolerance         = 1.5;
+
+    public GradientController(double initialLimit, double minimumLimit,
+                              double maximumLimit, int windowSize) {
+        super(initialLimit, minimumLimit, maximumLimit, windowSize);
+    }
+
+    public double getLongSmoothing() {
+        return longSmoothing;
+    }
+
+    public double getShortSmoothing() {
+        return shortSmoothing;
+    }
+
+    public double getSmoothConstant() {
+        return smoothConstant;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @param longSmoothing
+     *            - the weight of each sample in the long term baseline
+     */
+    public void setLongSmoothing(double longSmoothing) {
+        this.longSmoothing = longSmoothing;
+    }
+
+    /**
+     * @param shortSmoothing
+     *            - the weight of each sample in the short term response time
+     */
+    public void setShortSmoothing(double shortSmoothing) {
+        this.shortSmoothing = shortSmoothing;
+    }
+
+    /**
+     * @param smoothConstant
+     *            - the weight of each new limit against the current limit
+     */
+    public void setSmoothConstant(double smoothConstant) {
+        this.smoothConstant = smoothConstant;
+    }
+
+    /**
+     * @param tolerance
+     *            - the ratio of the short term response time to the baseline
+     *            that is tolerated before the limit shrinks
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    protected void resetState() {
+        longResponseTime = Double.NaN;
+        shortResponseTime = Double.NaN;
+    }
+
+    @Override
+    protected double update(double responseTime, long currentTime,
+                            double limit, int inFlight) {
+        if (Double.isNaN(longResponseTime)) {
+            longResponseTime = shortResponseTime = responseTime;
+            return limit;
+        }
+        shortResponseTime += shortSmoothing
+                             * (responseTime - shortResponseTime);
+        longResponseTime += longSmoothing * (responseTime - longResponseTime);
+        // Let the baseline recover quickly after a sustained drop
+        if (longResponseTime > 2 * shortResponseTime) {
+            longResponseTime *= 0.95;
+        }
+        if (inFlight < limit / 2) {
+            // Application limited; the response times say nothing of the limit
+            return limit;
+        }
+        double gradient = Math.max(0.5,
+                                   Math.min(1.0, tolerance * longResponseTime
+                                                 / shortResponseTime));
+        double next = limit * gradient + Math.sqrt(limit);
+        return limit * (1 - smoothConstant) + next * smoothConstant;
+    }
+}
@@ -0,0 +1,362 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate.controllers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.hellblazer.utils.rate.KeyedPredicate;
+import com.hellblazer.utils.rate.Predicate;
+
+/**
+ *
+ * Input rate policing of a bounded number of keys, each with its own token
+ * bucket.
+ * <p>
+ * The buckets are held in open addressed tables of primitive arrays, striped
+ * across a number of locked segments. Keys are evicted lazily, when a key is
+ * added to a full segment, by a clock hand that samples the next few keys of
+ * the segment: every sampled key idle for longer than the idle time, or
+ * failing that the least recently used sampled key, is evicted. Eviction is
+ * thus bounded, rather than a scan of the segment. An evicted key starts again
+ * with a full bucket, so with the default idle time - the time to regenerate a
+ * full bucket - eviction of idle keys is not observable.
+ *
+ * @author hhildebrand
+ *
+ */
+public class KeyedRateLimiter<K> implements KeyedPredicate<K> {
+
+    private static class Segment extends ReentrantLock {
+        /**
+         * The number of keys sampled by each eviction
+         */
+        private static final int  SAMPLE           = 8;
+        private static final long serialVersionUID = 1L;
+
+        private final int         capacity;
+        private final int[]       hashes;
+        // The position of the clock hand of eviction
+        private int               hand;
+        private final Object[]    keys;
+        private final long[]      last;
+        private int               size;
+        private final double[]    tokens;
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+            int length = Integer.highestOneBit(capacity + (capacity >>> 1)) << 1;
+            hashes = new int[length];
+            keys = new Object[length];
+            last = new long[length];
+            tokens = new double[length];
+        }
+
+        /**
+         * Delete the entry at the index, shifting back the entries that
+         * follow it in its probe sequence
+         */
+        private void delete(int index) {
+            int mask = keys.length - 1;
+            int i = index;
+            int j = index;
+            for (;;) {
+                j = j + 1 & mask;
+                if (keys[j] == null) {
+                    break;
+                }
+                int home = hashes[j] & mask;
+                if (i <= j ? i < home && home <= j : i < home || home <= j) {
+                    continue;
+                }
+                hashes[i] = hashes[j];
+                keys[i] = keys[j];
+                last[i] = last[j];
+                tokens[i] = tokens[j];
+                i = j;
+            }
+            keys[i] = null;
+            size--;
+        }
+
+        /**
+         * Evict the sampled keys idle since the oldest allowed time or, if
+         * there are none, the least recently used sampled key
+         */
+        private void evict(long oldest) {
+            int mask = keys.length - 1;
+            int evicted = 0;
+            int lru = -1;
+            int i = hand;
+            for (int sampled = 0; sampled < SAMPLE && size > 0;) {
+                if (keys[i] == null) {
+                    i = i + 1 & mask;
+                    continue;
+                }
+                sampled++;
+                if (last[i] - oldest <= 0) {
+                    delete(i);
+                    evicted++;
+                    // Re-examine the entry shifted into this slot
+                    continue;
+                }
+                if (lru < 0 || last[i] - last[lru] < 0) {
+                    lru = i;
+                }
+                i = i + 1 & mask;
+            }
+            hand = i;
+            if (evicted == 0) {
+                delete(lru);
+            }
+        }
+
+        /**
+         * @return the index of the key, or -(insertion point + 1) if the key is
+         *         not present
+         */
+        private int find(Object key, int hash) {
+            int mask = keys.length - 1;
+            int i = hash & mask;
+            for (;;) {
+                Object k = keys[i];
+                if (k == null) {
+                    return -(i + 1);
+                }
+                if (hashes[i] == hash && k.equals(key)) {
+                    return i;
+                }
+                i = i + 1 & mask;
+            }
+        }
+    }
+
+    private volatile long       idleTime;
+    private volatile double     interval;
+    private volatile int        maxTokens;
+    private final Segment[]     segments;
+    private final int           segmentShift;
+    private final TimeUnit      unit;
+
+    /**
+     * @param targetRate
+     *            - the target rate limit, per second, for accepting new input
+     *            of each key
+     * @param tokenLimit
+     *            - the limit to the number of tokens in the bucket of each key
+     * @param maxKeys
+     *            - the maximum number of keys to track
+     * @param unit
+     *            - the unit of the current time supplied to the limiter
+     */
+    public KeyedRateLimiter(double targetRate, int tokenLimit, int maxKeys,
+                            TimeUnit unit) {
+        this(targetRate, tokenLimit, maxKeys, -1L, unit);
+    }
+
+    /**
+     * @param targetRate
+     *            - the target rate limit, per second, for accepting new input
+     *            of each key
+     * @param tokenLimit
+     *            - the limit to the number of tokens in the bucket of each key
+     * @param maxKeys
+     *            - the maximum number of keys to track
+     * @param idleTime
+     *            - the time after which an unused key may be evicted, or
+     *            negative to use the time to regenerate a full bucket
+     * @param unit
+     *            - the unit of the idle time and of the current time supplied
+     *            to the limiter
+     */
+    public KeyedRateLimiter(double targetRate, int tokenLimit, int maxKeys,
+                            long idleTime, TimeUnit unit) {
+        assert targetRate > 0;
+        assert tokenLimit > 0;
+        assert maxKeys > 0;
+        this.unit = unit;
+        maxTokens = tokenLimit;
+        interval = unit.convert(1, TimeUnit.SECONDS) / targetRate;
+        this.idleTime = idleTime < 0 ? (long) Math.ceil(tokenLimit * interval)
+                                    : idleTime;
+        int count = 1;
+        int concurrency = Runtime.getRuntime().availableProcessors() * 2;
+        while (count < concurrency && count * 16 <= maxKeys) {
+            count <<= 1;
+        }
+        segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+        segments = new Segment[count];
+        int capacity = (maxKeys + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.KeyedPredicate#accept(java.lang.Object, int, long)
+     */
+    @Override
+    public boolean accept(K key, int cost, long currentTime) {
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        segment.lock();
+        try {
+            int index = segment.find(key, hash);
+            if (index < 0) {
+                if (segment.size == segment.capacity) {
+                    segment.evict(currentTime - idleTime);
+                    index = segment.find(key, hash);
+                }
+                index = -index - 1;
+                segment.hashes[index] = hash;
+                segment.keys[index] = key;
+                segment.tokens[index] = maxTokens;
+                segment.last[index] = currentTime;
+                segment.size++;
+            } else {
+                long delay = currentTime - segment.last[index];
+                if (delay > 0) {
+                    // Regenerate tokens
+                    double tokens = delay >= idleTime ? maxTokens
+                                                     : segment.tokens[index]
+                                                       + delay / interval;
+                    segment.tokens[index] = Math.min(tokens, maxTokens);
+                    segment.last[index] = currentTime;
+                }
+            }
+            if (segment.tokens[index] >= cost) {
+                segment.tokens[index] -= cost;
+                return true;
+            }
+            return false;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.KeyedPredicate#accept(java.lang.Object, long)
+     */
+    @Override
+    public boolean accept(K key, long currentTime) {
+        return accept(key, 1, currentTime);
+    }
+
+    /**
+     * @return the number of tokens in the bucket of the key, as of its last
+     *         use
+     */
+    public int getCurrentTokens(K key) {
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        segment.lock();
+        try {
+            int index = segment.find(key, hash);
+            return index < 0 ? maxTokens : (int) segment.tokens[index];
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    public long getIdleTime() {
+        return idleTime;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * @return the time to regenerate a token, in the unit of the limiter
+     */
+    public double getRegenerationTime() {
+        return interval;
+    }
+
+    public TimeUnit getUnit() {
+        return unit;
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.KeyedPredicate#predicate(java.lang.Object)
+     */
+    @Override
+    public Predicate predicate(final K key) {
+        return new Predicate() {
+            @Override
+            public boolean accept(int cost, long currentTime) {
+                return KeyedRateLimiter.this.accept(key, cost, currentTime);
+            }
+
+            @Override
+            public boolean accept(long currentTime) {
+                return KeyedRateLimiter.this.accept(key, currentTime);
+            }
+
+            @Override
+            public void setTargetRate(double targetRate) {
+                KeyedRateLimiter.this.setTargetRate(targetRate);
+            }
+        };
+    }
+
+    public void setIdleTime(long idleTime) {
+        this.idleTime = idleTime;
+    }
+
+    /**
+     * Set the depth of the token bucket of each key. Buckets holding more
+     * tokens than the new depth are reduced on their next use.
+     *
+     * @param depth
+     */
+    public void setMaxTokens(int depth) {
+        maxTokens = depth;
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.KeyedPredicate#setTargetRate(double)
+     */
+    @Override
+    public void setTargetRate(double targetRate) {
+        interval = unit.convert(1, TimeUnit.SECONDS) / targetRate;
+    }
+
+    /**
+     * @return the number of keys currently tracked
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock();
+            try {
+                size += segment.size;
+            } finally {
+                segment.unlock();
+            }
+        }
+        return size;
+    }
+
+    private int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segmentShift == 32 ? segments[0]
+                                 : segments[hash >>> segmentShift];
+    }
+}
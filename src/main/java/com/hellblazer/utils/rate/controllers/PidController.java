@@ -0,0 +1,149 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate.controllers;
+
+/**
+ *
+ * A concurrency controller driven by a PID loop on the error between a target
+ * response time and the 90th percentile of the sampled response times. The
+ * error is relative to the target, and the output of the loop scales the
+ * limit, so the gains are independent of the magnitude of either. The loop
+ * runs at most once per sample rate, and the integral and derivative terms use
+ * the elapsed time between runs, in the units of the time supplied to the
+ * controller.
+ *
+ * @author hhildebrand
+ *
+ */
+public class PidController extends ConcurrencyController {
+    private static final long UNSET            = Long.MIN_VALUE;
+
+    private volatile double   derivativeGain   = 0.0;
+    private double            integral;
+    private volatile double   integralGain     = 0.0001;
+    private volatile double   integralLimit    = 1000.0;
+    private long              lastSample       = UNSET;
+    private double            previousError;
+    private volatile double   proportionalGain = 0.1;
+    private volatile long     sampleRate       = 100L;
+
+    /**
+     * @param targetResponseTime
+     *            - the response time to regulate the limit towards
+     * @param initialLimit
+     *            - the initial concurrency limit
+     * @param minimumLimit
+     *            - the minimum concurrency limit
+     * @param maximumLimit
+     *            - the maximum concurrency limit
+     * @param windowSize
+     *            - the size of the window of response times
+     */
+    public PidController(double targetResponseTime, double initialLimit,
+                         double minimumLimit, double maximumLimit,
+                         int windowSize) {
+        super(initialLimit, minimumLimit, maximumLimit, windowSize);
+        assert targetResponseTime > 0;
+        setTarget(targetResponseTime);
+    }
+
+    public double getDerivativeGain() {
+        return derivativeGain;
+    }
+
+    public double getIntegralGain() {
+        return integralGain;
+    }
+
+    public double getIntegralLimit() {
+        return integralLimit;
+    }
+
+    public double getProportionalGain() {
+        return proportionalGain;
+    }
+
+    public long getSampleRate() {
+        return sampleRate;
+    }
+
+    public double getTargetResponseTime() {
+        return getTarget();
+    }
+
+    public void setDerivativeGain(double derivativeGain) {
+        this.derivativeGain = derivativeGain;
+    }
+
+    public void setIntegralGain(double integralGain) {
+        this.integralGain = integralGain;
+    }
+
+    /**
+     * @param integralLimit
+     *            - the bound on the magnitude of the integral term, preventing
+     *            wind up while the limit is pinned at its minimum or maximum
+     */
+    public void setIntegralLimit(double integralLimit) {
+        this.integralLimit = integralLimit;
+    }
+
+    public void setProportionalGain(double proportionalGain) {
+        this.proportionalGain = proportionalGain;
+    }
+
+    /**
+     * @param sampleRate
+     *            - the minimum time between runs of the loop
+     */
+    public void setSampleRate(long sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public void setTargetResponseTime(double targetResponseTime) {
+        setTarget(targetResponseTime);
+    }
+
+    @Override
+    protected void resetState() {
+        integral = 0;
+        lastSample = UNSET;
+        previousError = 0;
+    }
+
+    @Override
+    protected double update(double responseTime, long currentTime,
+                            double limit, int inFlight) {
+        if (lastSample != UNSET && currentTime - lastSample < sampleRate) {
+            return limit;
+        }
+        double targetResponseTime = getTarget();
+        double error = (targetResponseTime - getResponseTime())
+                       / targetResponseTime;
+        double derivative = 0;
+        long elapsed = currentTime - lastSample;
+        if (lastSample != UNSET && elapsed > 0) {
+            integral = Math.max(-integralLimit,
+                                Math.min(integralLimit, integral + error
+                                                        * elapsed));
+            derivative = (error - previousError) / elapsed;
+        }
+        lastSample = currentTime;
+        previousError = error;
+        double output = proportionalGain * error + integralGain * integral
+                        + derivativeGain * derivative;
+        return limit * (1 + Math.max(-0.5, Math.min(1.0, output)));
+    }
+}
@@ -14,6 +14,8 @@
  */
 package com.hellblazer.utils.rate.controllers;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -22,34 +24,49 @@ import org.slf4j.LoggerFactory;
 
 import com.hellblazer.utils.rate.Controller;
 import com.hellblazer.utils.rate.Predicate;
+import com.hellblazer.utils.rate.RateListener;
+import com.hellblazer.utils.windows.PercentileWindow;
 
 /**
  * 
  * An implementation of Controller that uses a direct adjustment of queue
  * thresholds based on the error in the target percentile (e.g. 90%, etc).
+ * <p>
+ * By default every sample may change the rate. The controller can be made to
+ * behave as a smoother control loop: when smoothing is enabled, the sampled
+ * percentile is exponentially smoothed with the smooth constant as the weight
+ * of the history, and a cooldown period suppresses further changes after a
+ * multiplicative decrease, giving the decrease time to take effect. Changes
+ * to the rate are published to the registered {@link RateListener}s.
  * 
  * @author hhildebrand
  * 
  */
 public class RateController implements Controller {
-    private static Logger       log                    = LoggerFactory.getLogger(RateController.class);
-
-    private volatile double     additiveIncrease       = 0.5;
-    private volatile double     highWaterMark          = 1.2D;
-    private volatile long       lastSampled            = 0;
-    private final ReentrantLock lock                   = new ReentrantLock();
-    private volatile double     lowWaterMark           = 0.9D;
-    private volatile double     maximum                = 5000.0;
-    private volatile double     minimum                = 0.05;
-    private volatile double     multiplicativeDecrease = 2;
-    private final Predicate     predicate;
-    private final AtomicInteger sampleCount            = new AtomicInteger();
-    private final int           sampleFrequency;
-    private volatile long       sampleRate             = 1000L;
-    private volatile double     smoothConstant         = 0.7;
-    private volatile double     target;
-    private final SampleWindow  window;
-    private final double        targetPercentile;
+    private static Logger            log                    = LoggerFactory.getLogger(RateController.class);
+
+    private volatile double          additiveIncrease       = 0.5;
+    private volatile long            cooldown               = 0L;
+    private volatile boolean         decreased              = false;
+    private volatile double          highWaterMark          = 1.2D;
+    private volatile long            lastDecrease           = 0;
+    private volatile long            lastSampled            = 0;
+    private final List<RateListener> listeners              = new CopyOnWriteArrayList<RateListener>();
+    private final ReentrantLock      lock                   = new ReentrantLock();
+    private volatile double          lowWaterMark           = 0.9D;
+    private volatile double          maximum                = 5000.0;
+    private volatile double          minimum                = 0.05;
+    private volatile double          multiplicativeDecrease = 2;
+    private final Predicate          predicate;
+    private final AtomicInteger      sampleCount            = new AtomicInteger();
+    private final int                sampleFrequency;
+    private volatile long            sampleRate             = 1000L;
+    private volatile double          smoothConstant         = 0.7;
+    private volatile boolean         smoothing              = false;
+    private volatile double          smoothedResponseTime   = Double.NaN;
+    private volatile double          target;
+    private final PercentileWindow   window;
+    private final double             targetPercentile;
 
     public RateController(Predicate predicate) {
         this(predicate, 1000, 1, 0.9);
@@ -65,7 +82,26 @@ public class RateController implements Controller {
 
     public RateController(Predicate predicate, int windowSize,
                           int sampleFrequency, double targetPercentile) {
-        window = new SampleWindow(windowSize);
+        this(predicate, new SampleWindow(windowSize), sampleFrequency,
+             targetPercentile);
+    }
+
+    /**
+     * @param predicate
+     *            - the predicate controlling the input rate
+     * @param window
+     *            - the window of sampled response times, e.g. a
+     *            {@link com.hellblazer.utils.windows.TimeWindow} to control
+     *            on the response times of a period of time rather than of a
+     *            number of samples
+     * @param sampleFrequency
+     *            - sample every N response times
+     * @param targetPercentile
+     *            - the percentile of the window to control on
+     */
+    public RateController(Predicate predicate, PercentileWindow window,
+                          int sampleFrequency, double targetPercentile) {
+        this.window = window;
         this.predicate = predicate;
         this.sampleFrequency = sampleFrequency;
         this.targetPercentile = targetPercentile;
@@ -81,10 +117,22 @@ public class RateController implements Controller {
         return predicate.accept(currentTime);
     }
 
+    public void addListener(RateListener listener) {
+        listeners.add(listener);
+    }
+
     public double getAdditiveIncrease() {
         return additiveIncrease;
     }
 
+    /**
+     * @return the time after a multiplicative decrease during which the rate
+     *         is not changed
+     */
+    public long getCooldown() {
+        return cooldown;
+    }
+
     public double getHighWaterMark() {
         return highWaterMark;
     }
@@ -123,6 +171,14 @@ public class RateController implements Controller {
         return smoothConstant;
     }
 
+    /**
+     * @return the smoothed percentile of the sampled response time, or NaN if
+     *         smoothing is disabled or nothing has been sampled
+     */
+    public double getSmoothedResponseTime() {
+        return smoothedResponseTime;
+    }
+
     @Override
     public double getTarget() {
         return target;
@@ -133,12 +189,28 @@ public class RateController implements Controller {
         return window.getWindow();
     }
 
+    public boolean isSmoothing() {
+        return smoothing;
+    }
+
+    public void removeListener(RateListener listener) {
+        listeners.remove(listener);
+    }
+
     /* (non-Javadoc)
      * @see com.salesforce.ouroboros.util.rate.Controller#reset()
      */
     @Override
     public void reset() {
-        window.reset();
+        ReentrantLock myLock = lock;
+        myLock.lock();
+        try {
+            window.reset();
+            smoothedResponseTime = Double.NaN;
+            decreased = false;
+        } finally {
+            myLock.unlock();
+        }
     }
 
     @Override
@@ -157,9 +229,19 @@ public class RateController implements Controller {
             if (currentTime - lastSampled < sampleRate) {
                 return;
             }
-            window.sample(sample);
+            window.sample(sample, currentTime);
             lastSampled = currentTime;
             double data = window.getPercentile(targetPercentile);
+            if (smoothing) {
+                if (!Double.isNaN(smoothedResponseTime)) {
+                    data = smoothConstant * smoothedResponseTime
+                           + (1 - smoothConstant) * data;
+                }
+                smoothedResponseTime = data;
+            }
+            if (decreased && currentTime - lastDecrease < cooldown) {
+                return;
+            }
 
             if (data < lowWaterMark * target) {
                 increaseRate();
@@ -175,6 +257,15 @@ public class RateController implements Controller {
         this.additiveIncrease = additiveIncrease;
     }
 
+    /**
+     * @param cooldown
+     *            - the time after a multiplicative decrease during which the
+     *            rate is not changed
+     */
+    public void setCooldown(long cooldown) {
+        this.cooldown = cooldown;
+    }
+
     public void setHighWaterMark(double highWaterMark) {
         this.highWaterMark = highWaterMark;
     }
@@ -203,6 +294,15 @@ public class RateController implements Controller {
         this.smoothConstant = smoothConstant;
     }
 
+    /**
+     * @param smoothing
+     *            - if true, exponentially smooth the sampled percentile using
+     *            the smooth constant
+     */
+    public void setSmoothing(boolean smoothing) {
+        this.smoothing = smoothing;
+    }
+
     @Override
     public void setTarget(double targetRate) {
         target = targetRate;
@@ -211,35 +311,45 @@ public class RateController implements Controller {
 
     protected void decreaseRate() {
         if (target > minimum) {
+            double previous = target;
             target /= multiplicativeDecrease;
             if (target < minimum) {
                 target = minimum;
             }
             predicate.setTargetRate(target);
-            if (log.isInfoEnabled()) {
-                log.info(String.format("Target rate decreased to %s", target));
-            }
+            decreased = true;
+            lastDecrease = lastSampled;
+            rateChanged(previous);
         } else {
-            if (log.isInfoEnabled()) {
-                log.info(String.format("Target rate already at minimum"));
+            if (log.isDebugEnabled()) {
+                log.debug("Target rate already at minimum");
             }
         }
     }
 
     protected void increaseRate() {
         if (target < maximum) {
+            double previous = target;
             target += additiveIncrease;
             if (target > maximum) {
                 target = maximum;
             }
             predicate.setTargetRate(target);
-            if (log.isInfoEnabled()) {
-                log.info(String.format("Target rate increased to %s", target));
-            }
+            rateChanged(previous);
         } else {
-            if (log.isInfoEnabled()) {
-                log.info(String.format("Target rate already at maximum"));
+            if (log.isDebugEnabled()) {
+                log.debug("Target rate already at maximum");
             }
         }
     }
+
+    private void rateChanged(double previous) {
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Target rate changed from %s to %s",
+                                    previous, target));
+        }
+        for (RateListener listener : listeners) {
+            listener.rateChanged(previous, target, lastSampled);
+        }
+    }
 }
\ No newline at end of file
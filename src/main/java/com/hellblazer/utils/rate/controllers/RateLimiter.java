@@ -14,26 +14,66 @@
  */
 package com.hellblazer.utils.rate.controllers;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.hellblazer.utils.rate.Predicate;
+import com.hellblazer.utils.rate.BlockingPredicate;
 
 /**
  * 
  * Input rate policing based on a token bucket.
+ * <p>
+ * The bucket is lock free. Rather than tracking the token count and the time
+ * of the last regeneration separately, the limiter keeps a single fixed point
+ * timestamp: the time at which the bucket will be full again. The number of
+ * tokens at time <code>t</code> is then
+ * <code>maxTokens - (full - t) / regenerationTime</code>, so both the
+ * regeneration and the debit of an admission are a single compare and set.
+ * <p>
+ * By default time is measured in milliseconds, and the regeneration time of a
+ * token is limited to at least 1 Ms. A limiter constructed with a finer
+ * {@link TimeUnit}, e.g. using {@link System#nanoTime()} as the current time,
+ * has no such limit, and can police rates from fractions of a token per second
+ * up to tens of millions per second.
+ * <p>
+ * Tokens may also be reserved ahead of time, which is the basis of the
+ * blocking and asynchronous acquisition. Each reservation extends the time at
+ * which the bucket will be full, so reservations are served in the order they
+ * were made, and each waiter sleeps for exactly the time until its own tokens
+ * are regenerated.
  * 
  * @author hhildebrand
  * 
  */
-public class RateLimiter implements Predicate {
-    private static final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+public class RateLimiter implements BlockingPredicate {
+    private static final Logger log           = LoggerFactory.getLogger(RateLimiter.class);
+    /**
+     * The largest fixed point deficit of the bucket
+     */
+    private static final long   MAX_DEFICIT   = Long.MAX_VALUE >> 2;
+    private static final long   UNSET         = Long.MIN_VALUE;
 
-    private double              currentTokens;
-    private long                last;
-    private int                 maxTokens;
+    /**
+     * The time, in fixed point, at which the bucket will be full
+     */
+    private final AtomicLong    full          = new AtomicLong(UNSET);
+    private final int           fractionBits;
+    private volatile long       interval;
+    /**
+     * The time of the last regeneration, which only moves forward
+     */
+    private final AtomicLong    last          = new AtomicLong(UNSET);
+    private volatile int        maxTokens;
     private final long          minimumRegenerationTime;
-    private double              regenerationTime;
+    private volatile double     regenerationTime;
+    private final TimeUnit      unit;
 
     /**
      * @param targetRate
@@ -45,42 +85,40 @@ public class RateLimiter implements Predicate {
      */
     public RateLimiter(double targetRate, int tokenLimit,
                        int minRegenerationTime) {
+        this(targetRate, tokenLimit, minRegenerationTime, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param targetRate
+     *            - the target rate limit, per second, for accepting new input
+     * @param tokenLimit
+     *            - the limit to the number of tokens in the bucket
+     * @param minRegenerationTime
+     *            - the minimum delay time to regenerate tokens
+     * @param unit
+     *            - the unit of the minimum regeneration time and of the
+     *            current time supplied to the limiter
+     */
+    public RateLimiter(double targetRate, int tokenLimit,
+                       long minRegenerationTime, TimeUnit unit) {
         assert targetRate > 0;
         assert minRegenerationTime >= 0;
         assert tokenLimit > 0;
+        this.unit = unit;
+        // Fixed point time must leave headroom for long idle periods
+        fractionBits = unit == TimeUnit.NANOSECONDS ? 8 : 16;
         minimumRegenerationTime = minRegenerationTime;
-        regenerationTime = 1.0 / targetRate * 1.0e3;
-        if (regenerationTime < 1) {
-            regenerationTime = 1;
-        }
+        regenerationTime = regenerationTime(targetRate);
+        interval = toFixed(regenerationTime);
         maxTokens = tokenLimit;
-        currentTokens = tokenLimit * 1.0;
-        last = -1;
     }
 
     /* (non-Javadoc)
      * @see com.salesforce.ouroboros.util.rate.Predicate#accept(int)
      */
     @Override
-    public synchronized boolean accept(int cost, long currentTime) {
-        long delay = last == -1L ? 0 : currentTime - last;
-
-        if (delay >= minimumRegenerationTime) {
-            // Regenerate tokens
-            double numTokens = delay / regenerationTime;
-            currentTokens += numTokens;
-            if (currentTokens > maxTokens) {
-                currentTokens = maxTokens;
-            }
-            last = currentTime;
-        }
-
-        if (currentTokens >= cost) {
-            currentTokens -= cost;
-            return true;
-        } else {
-            return false;
-        }
+    public boolean accept(int cost, long currentTime) {
+        return reserveFixed(cost, currentTime, 0) >= 0;
     }
 
     /* (non-Javadoc)
@@ -91,42 +129,260 @@ public class RateLimiter implements Predicate {
         return accept(1, currentTime);
     }
 
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.BlockingPredicate#acquire(int)
+     */
+    @Override
+    public void acquire(int cost) throws InterruptedException {
+        await(reserve(cost, currentTime(), Long.MAX_VALUE));
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.BlockingPredicate#acquireAsync(int, java.util.concurrent.Callable, java.util.concurrent.ScheduledExecutorService)
+     */
+    @Override
+    public <V> ScheduledFuture<V> acquireAsync(int cost, Callable<V> task,
+                                               ScheduledExecutorService scheduler) {
+        return scheduler.schedule(task,
+                                  reserve(cost, currentTime(), Long.MAX_VALUE),
+                                  unit);
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.BlockingPredicate#currentTime()
+     */
+    @Override
+    public long currentTime() {
+        return unit == TimeUnit.MILLISECONDS ? System.currentTimeMillis()
+                                            : unit.convert(System.nanoTime(),
+                                                           TimeUnit.NANOSECONDS);
+    }
+
     /**
-     * @return the size of the token bucket
+     * @return the number of tokens in the bucket as of the last regeneration.
+     *         This is negative if tokens have been reserved ahead.
      */
     public int getCurrentTokens() {
-        return (int) currentTokens;
+        return maxTokens - (int) Math.ceil(deficit() / (double) interval);
     }
 
     /**
-     * @return the current depth of the bucket
+     * @return the depth of the token bucket
      */
     public int getMaxTokens() {
         return maxTokens;
     }
 
+    /**
+     * @return the time to regenerate a token, in the unit of the limiter
+     */
     public double getRegenerationTime() {
         return regenerationTime;
     }
 
+    public TimeUnit getUnit() {
+        return unit;
+    }
+
     /**
-     * Set the depth of the token bucket
+     * Reserve tokens, debiting the bucket ahead of their regeneration if
+     * necessary
+     * 
+     * @param cost
+     *            - the number of tokens to reserve
+     * @param currentTime
+     *            - the current time to use for the request
+     * @param maxWait
+     *            - the maximum time to wait for the tokens
+     * @return the time until the reserved tokens are available, or -1 if this
+     *         exceeds the maximum wait, in which case nothing is reserved
+     */
+    public long reserve(int cost, long currentTime, long maxWait) {
+        long wait = reserveFixed(cost, currentTime,
+                                 maxWait >= MAX_DEFICIT >> fractionBits ? MAX_DEFICIT
+                                                                       : maxWait << fractionBits);
+        if (wait <= 0) {
+            return wait;
+        }
+        // Round up to the next whole unit
+        return (wait + (1L << fractionBits) - 1) >> fractionBits;
+    }
+
+    /**
+     * Set the depth of the token bucket. The tokens currently in the bucket are
+     * retained, up to the new depth.
      * 
      * @param depth
      */
     public synchronized void setMaxTokens(int depth) {
+        long delta = (depth - maxTokens) * interval;
         maxTokens = depth;
+        rebase(delta, 1.0);
     }
 
+    /**
+     * Set the target rate. The tokens currently in the bucket are retained;
+     * regeneration from the last regeneration time onwards proceeds at the new
+     * rate. Concurrent admissions may briefly observe the previous rate.
+     */
     @Override
     public synchronized void setTargetRate(double targetRate) {
-        regenerationTime = 1.0 / targetRate * 1.0e3;
-        if (regenerationTime < 1) {
-            regenerationTime = 1;
+        double previous = regenerationTime;
+        regenerationTime = regenerationTime(targetRate);
+        interval = toFixed(regenerationTime);
+        rebase(0, regenerationTime / previous);
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("New regeneration time set to %s %s",
+                                    regenerationTime, unit));
         }
-        if (log.isInfoEnabled()) {
-            log.info(String.format("New regeneration time set to %s ms",
-                                   regenerationTime));
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.BlockingPredicate#tryAcquire(int, long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public boolean tryAcquire(int cost, long timeout, TimeUnit timeUnit)
+                                                                         throws InterruptedException {
+        long wait = reserve(cost, currentTime(), unit.convert(timeout, timeUnit));
+        if (wait < 0) {
+            return false;
+        }
+        await(wait);
+        return true;
+    }
+
+    /**
+     * Answer whether the tokens are available at the current time, without
+     * regenerating or debiting the bucket
+     */
+    boolean available(int cost, long currentTime) {
+        long current = full.get();
+        if (current == UNSET) {
+            return cost <= maxTokens;
+        }
+        long previous = last.get();
+        if (previous != UNSET
+            && currentTime - previous < minimumRegenerationTime) {
+            currentTime = previous;
+        }
+        long now = currentTime << fractionBits;
+        long tokenInterval = interval;
+        long limit = Math.min(maxTokens * tokenInterval, MAX_DEFICIT);
+        long next = (now - current > 0 ? now : current) + cost * tokenInterval;
+        return next - now - limit <= 0;
+    }
+
+    /**
+     * Park the current thread for the time, in the unit of the limiter
+     */
+    private void await(long time) throws InterruptedException {
+        if (time <= 0) {
+            return;
         }
+        long remaining = unit.toNanos(time);
+        long deadline = System.nanoTime() + remaining;
+        while (remaining > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * @return the fixed point time, as of the last regeneration, until the
+     *         bucket is full
+     */
+    private long deficit() {
+        long current = full.get();
+        long previous = last.get();
+        if (current == UNSET || previous == UNSET) {
+            return 0;
+        }
+        return Math.max(0, current - (previous << fractionBits));
+    }
+
+    /**
+     * Rescale the deficit of the bucket, as of the last regeneration
+     * 
+     * @param delta
+     *            - the fixed point time to add to the deficit
+     * @param scale
+     *            - the factor to scale the deficit by
+     */
+    private void rebase(long delta, double scale) {
+        long previous = last.get();
+        if (previous == UNSET) {
+            return;
+        }
+        long base = previous << fractionBits;
+        for (;;) {
+            long current = full.get();
+            if (current == UNSET) {
+                return;
+            }
+            long deficit = Math.max(0, current - base);
+            long next = base
+                        + Math.max(0,
+                                   Math.min((long) (deficit * scale) + delta,
+                                            MAX_DEFICIT));
+            if (full.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reserve tokens
+     * 
+     * @return the fixed point time until the tokens are available, or -1 if
+     *         this exceeds the maximum fixed point wait
+     */
+    private long reserveFixed(int cost, long currentTime, long maxWait) {
+        long previous = last.get();
+        long now;
+        if (previous == UNSET
+            || currentTime - previous >= minimumRegenerationTime) {
+            // Regenerate tokens, advancing the time of the last regeneration
+            // only if no other thread has advanced it further
+            now = currentTime << fractionBits;
+            while ((previous == UNSET || currentTime - previous > 0)
+                   && !last.compareAndSet(previous, currentTime)) {
+                previous = last.get();
+            }
+        } else {
+            now = previous << fractionBits;
+        }
+        long tokenInterval = interval;
+        long limit = Math.min(maxTokens * tokenInterval, MAX_DEFICIT);
+        long debit = cost * tokenInterval;
+        for (;;) {
+            long current = full.get();
+            long next = (current == UNSET || now - current > 0 ? now : current)
+                        + debit;
+            long wait = next - now - limit;
+            if (wait > maxWait) {
+                return -1;
+            }
+            if (full.compareAndSet(current, next)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+
+    private double regenerationTime(double targetRate) {
+        double regenerationTime = unit.convert(1, TimeUnit.SECONDS)
+                                  / targetRate;
+        if (unit == TimeUnit.MILLISECONDS && regenerationTime < 1) {
+            regenerationTime = 1;
+        }
+        return regenerationTime;
+    }
+
+    private long toFixed(double time) {
+        return Math.max(1L,
+                        (long) Math.min(time * (1L << fractionBits),
+                                        MAX_DEFICIT));
     }
-}
\ No newline at end of file
+}
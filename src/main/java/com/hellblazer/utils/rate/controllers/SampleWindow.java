@@ -21,6 +21,7 @@
 package com.hellblazer.utils.rate.controllers;
 
 import com.hellblazer.utils.collections.SkipList;
+import com.hellblazer.utils.windows.PercentileWindow;
 import com.hellblazer.utils.windows.Window;
 
 /**
@@ -28,7 +29,7 @@ import com.hellblazer.utils.windows.Window;
  * @author hhildebrand
  * 
  */
-public class SampleWindow extends Window {
+public class SampleWindow extends Window implements PercentileWindow {
     private final SkipList sorted = new SkipList();
     private final int      window;
 
@@ -37,6 +38,7 @@ public class SampleWindow extends Window {
         window = windowSize;
     }
 
+    @Override
     public double getMedian() {
         if (count == 0) {
             throw new IllegalStateException(
@@ -45,6 +47,7 @@ public class SampleWindow extends Window {
         return sorted.get(sorted.size() / 2);
     }
 
+    @Override
     public double getPercentile(double percentile) {
         if (count == 0) {
             throw new IllegalStateException(
@@ -53,6 +56,7 @@ public class SampleWindow extends Window {
         return sorted.get((int) ((sorted.size() - 1) * percentile));
     }
 
+    @Override
     public int getWindow() {
         return window;
     }
@@ -66,6 +70,7 @@ public class SampleWindow extends Window {
         sorted.reset();
     }
 
+    @Override
     public void sample(double sample) {
         sorted.add(sample);
         if (count == samples.length) {
@@ -73,4 +78,20 @@ public class SampleWindow extends Window {
         }
         addLast(sample);
     }
-}
\ No newline at end of file
+
+    /**
+     * Add the sample. The window is not based on time, so the time is ignored
+     */
+    @Override
+    public void sample(double sample, long currentTime) {
+        sample(sample);
+    }
+
+    /**
+     * Answer the median of the window
+     */
+    @Override
+    public double value() {
+        return getMedian();
+    }
+}
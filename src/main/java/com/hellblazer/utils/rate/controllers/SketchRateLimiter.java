@@ -0,0 +1,213 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate.controllers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.hellblazer.utils.rate.KeyedPredicate;
+import com.hellblazer.utils.rate.Predicate;
+
+/**
+ *
+ * Approximate input rate policing of an unbounded number of keys in fixed
+ * memory, using a count-min sketch of token buckets.
+ * <p>
+ * Each cell of the sketch is a lock free token bucket, represented as in
+ * {@link RateLimiter} by the fixed point time at which the bucket will be
+ * full. A key maps to one cell in each row; as every key mapping to a cell
+ * debits it, a cell overestimates the deficit of each of its keys, and the
+ * estimate for the key is the minimum deficit over its cells. An admission
+ * debits each of the key's cells by compare and set against the cell's
+ * current value, as in {@link RateLimiter}, and is admitted only if the
+ * estimate read after all of its debits is within the limit; otherwise the
+ * debit is returned. Of concurrent admissions of a key, the last to debit
+ * sees the debits of all the others, so they cannot together exceed the
+ * limit. A key whose estimate is already over the limit is rejected without
+ * writing to the sketch.
+ * <p>
+ * Being approximate, a key may be rejected before its rate is reached, but
+ * never admitted beyond it. The error shrinks with the width of the sketch
+ * relative to the number of concurrently active keys.
+ *
+ * @author hhildebrand
+ *
+ */
+public class SketchRateLimiter<K> implements KeyedPredicate<K> {
+    private static final long     MAX_DEFICIT = Long.MAX_VALUE >> 2;
+    private static final long     UNSET       = Long.MIN_VALUE;
+
+    private final AtomicLongArray cells;
+    private final int             depth;
+    private final int             fractionBits;
+    private volatile long         interval;
+    private final int             mask;
+    private volatile int          maxTokens;
+    private final TimeUnit        unit;
+
+    /**
+     * @param targetRate
+     *            - the target rate limit, per second, for accepting new input
+     *            of each key
+     * @param tokenLimit
+     *            - the limit to the number of tokens in the bucket of each key
+     * @param width
+     *            - the number of cells in each row of the sketch, rounded up
+     *            to a power of two
+     * @param depth
+     *            - the number of rows in the sketch
+     * @param unit
+     *            - the unit of the current time supplied to the limiter
+     */
+    public SketchRateLimiter(double targetRate, int tokenLimit, int width,
+                             int depth, TimeUnit unit) {
+        assert targetRate > 0;
+        assert tokenLimit > 0;
+        assert width > 0;
+        assert depth > 0;
+        int size = Integer.highestOneBit(width);
+        if (size < width) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        this.depth = depth;
+        this.unit = unit;
+        fractionBits = unit == TimeUnit.NANOSECONDS ? 8 : 16;
+        maxTokens = tokenLimit;
+        interval = toFixed(targetRate);
+        cells = new AtomicLongArray(size * depth);
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, UNSET);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.KeyedPredicate#accept(java.lang.Object, int, long)
+     */
+    @Override
+    public boolean accept(K key, int cost, long currentTime) {
+        long now = currentTime << fractionBits;
+        long tokenInterval = interval;
+        long limit = Math.min(maxTokens * tokenInterval, MAX_DEFICIT);
+        int h = key.hashCode() * 0x9E3779B9;
+        int h1 = h ^ h >>> 16;
+        int h2 = (h1 * 0x85EBCA6B ^ h >>> 13) | 1;
+        long debit = cost * tokenInterval;
+        long deficit = limit;
+        for (int row = 0; row < depth; row++) {
+            long cell = cells.get(index(row, h1, h2));
+            long d = cell == UNSET ? 0 : Math.max(0, cell - now);
+            if (d < deficit) {
+                deficit = d;
+            }
+        }
+        if (deficit + debit > limit) {
+            return false;
+        }
+        // Debit the cells, relative to their current values
+        for (int row = 0; row < depth; row++) {
+            int index = index(row, h1, h2);
+            for (;;) {
+                long cell = cells.get(index);
+                long next = (cell == UNSET || now - cell > 0 ? now : cell)
+                            + debit;
+                if (cells.compareAndSet(index, cell, next)) {
+                    break;
+                }
+            }
+        }
+        // Every admission of the key debited before this point is included
+        deficit = MAX_DEFICIT;
+        for (int row = 0; row < depth; row++) {
+            deficit = Math.min(deficit, cells.get(index(row, h1, h2)) - now);
+        }
+        if (deficit <= limit) {
+            return true;
+        }
+        // Concurrent admissions of the key took the tokens; return the debit
+        for (int row = 0; row < depth; row++) {
+            cells.addAndGet(index(row, h1, h2), -debit);
+        }
+        return false;
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.KeyedPredicate#accept(java.lang.Object, long)
+     */
+    @Override
+    public boolean accept(K key, long currentTime) {
+        return accept(key, 1, currentTime);
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public TimeUnit getUnit() {
+        return unit;
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.KeyedPredicate#predicate(java.lang.Object)
+     */
+    @Override
+    public Predicate predicate(final K key) {
+        return new Predicate() {
+            @Override
+            public boolean accept(int cost, long currentTime) {
+                return SketchRateLimiter.this.accept(key, cost, currentTime);
+            }
+
+            @Override
+            public boolean accept(long currentTime) {
+                return SketchRateLimiter.this.accept(key, currentTime);
+            }
+
+            @Override
+            public void setTargetRate(double targetRate) {
+                SketchRateLimiter.this.setTargetRate(targetRate);
+            }
+        };
+    }
+
+    /**
+     * Set the depth of the token bucket of each key
+     *
+     * @param depth
+     */
+    public void setMaxTokens(int depth) {
+        maxTokens = depth;
+    }
+
+    /**
+     * Set the target rate of each key. Outstanding deficits are retained as
+     * time, and so regenerate on the schedule of the previous rate.
+     */
+    @Override
+    public void setTargetRate(double targetRate) {
+        interval = toFixed(targetRate);
+    }
+
+    private int index(int row, int h1, int h2) {
+        return row * (mask + 1) + (h1 + row * h2 & mask);
+    }
+
+    private long toFixed(double targetRate) {
+        double time = unit.convert(1, TimeUnit.SECONDS) / targetRate;
+        return Math.max(1L,
+                        (long) Math.min(time * (1L << fractionBits),
+                                        MAX_DEFICIT));
+    }
+}
@@ -0,0 +1,313 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate.controllers;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.hellblazer.utils.rate.Predicate;
+
+/**
+ *
+ * Input rate policing that splits the target rate across a number of
+ * independent token buckets. Each thread admits from its own bucket, so
+ * admissions from different threads do not contend on a single compare and
+ * set. A thread whose bucket is empty borrows from the next two buckets, if
+ * they have the tokens, before rejecting.
+ * <p>
+ * The share of the target rate given to each bucket is periodically
+ * rebalanced in proportion to the demand seen by that bucket since the last
+ * rebalance, and the token limit is apportioned by share, so that the buckets
+ * hold exactly the token limit.
+ * <p>
+ * Each bucket is a {@link RateLimiter}, so when time is measured in
+ * milliseconds each bucket's regeneration time is limited to at least 1 Ms,
+ * i.e. each bucket admits at most 1000 tokens per second, and the aggregate
+ * rate is capped at 1000 per second per bucket. Higher rates require a finer
+ * {@link TimeUnit}, e.g. using {@link System#nanoTime()} as the current time.
+ *
+ * @author hhildebrand
+ *
+ */
+public class StripedRateLimiter implements Predicate {
+    private static class Shard {
+        private final RateLimiter limiter;
+        private volatile double   share;
+
+        private Shard(RateLimiter limiter, double share) {
+            this.limiter = limiter;
+            this.share = share;
+        }
+    }
+
+    /**
+     * The number of buckets a thread may borrow from
+     */
+    private static final int      BORROWED      = 2;
+    /**
+     * The minimum share of the target rate, relative to an even split, that a
+     * bucket retains after rebalancing
+     */
+    private static final double   MINIMUM_SHARE = 0.1;
+    // Spread the demand of the buckets across cache lines
+    private static final int      SPACING       = 16;
+    private static final long     UNSET         = Long.MIN_VALUE;
+
+    // The demand of each bucket since the last rebalance
+    private final AtomicLongArray demand;
+    private final AtomicLong      lastRebalance = new AtomicLong(UNSET);
+    private final int             mask;
+    private final long            rebalancePeriod;
+    private final Shard[]         shards;
+    private volatile double       targetRate;
+    private final int             tokenLimit;
+
+    /**
+     * Construct a limiter with a bucket per available processor, rebalancing
+     * every second
+     *
+     * @param targetRate
+     *            - the target rate limit for accepting new input
+     * @param tokenLimit
+     *            - the limit to the total number of tokens in the buckets
+     * @param minRegenerationTime
+     *            - the minimum delay time, in Ms, to regenerate tokens. Each
+     *            bucket admits at most 1000 tokens per second
+     */
+    public StripedRateLimiter(double targetRate, int tokenLimit,
+                              int minRegenerationTime) {
+        this(targetRate, tokenLimit, minRegenerationTime,
+             Runtime.getRuntime().availableProcessors(), 1000L);
+    }
+
+    /**
+     * @param targetRate
+     *            - the target rate limit for accepting new input
+     * @param tokenLimit
+     *            - the limit to the total number of tokens in the buckets
+     * @param minRegenerationTime
+     *            - the minimum delay time, in Ms, to regenerate tokens. Each
+     *            bucket admits at most 1000 tokens per second
+     * @param stripes
+     *            - the number of buckets, rounded up to a power of two no
+     *            greater than the token limit
+     * @param rebalancePeriod
+     *            - the period, in Ms, between rebalancing the buckets' shares
+     *            of the target rate
+     */
+    public StripedRateLimiter(double targetRate, int tokenLimit,
+                              int minRegenerationTime, int stripes,
+                              long rebalancePeriod) {
+        this(targetRate, tokenLimit, minRegenerationTime, stripes,
+             rebalancePeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param targetRate
+     *            - the target rate limit, per second, for accepting new input
+     * @param tokenLimit
+     *            - the limit to the total number of tokens in the buckets
+     * @param minRegenerationTime
+     *            - the minimum delay time to regenerate tokens
+     * @param stripes
+     *            - the number of buckets, rounded up to a power of two no
+     *            greater than the token limit
+     * @param rebalancePeriod
+     *            - the period between rebalancing the buckets' shares of the
+     *            target rate
+     * @param unit
+     *            - the unit of the times supplied to the limiter
+     * @see RateLimiter#RateLimiter(double, int, long, TimeUnit)
+     */
+    public StripedRateLimiter(double targetRate, int tokenLimit,
+                              long minRegenerationTime, int stripes,
+                              long rebalancePeriod, TimeUnit unit) {
+        assert targetRate > 0;
+        assert tokenLimit > 0;
+        assert stripes > 0;
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        // Every bucket holds at least one token
+        size = Math.min(size, Integer.highestOneBit(tokenLimit));
+        mask = size - 1;
+        shards = new Shard[size];
+        demand = new AtomicLongArray(size * SPACING);
+        this.targetRate = targetRate;
+        this.tokenLimit = tokenLimit;
+        this.rebalancePeriod = rebalancePeriod;
+        double[] shares = new double[size];
+        Arrays.fill(shares, 1.0 / size);
+        int[] tokens = tokens(shares);
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard(new RateLimiter(targetRate * shares[i],
+                                                  tokens[i],
+                                                  minRegenerationTime, unit),
+                                  shares[i]);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.Predicate#accept(int, long)
+     */
+    @Override
+    public boolean accept(int cost, long currentTime) {
+        long rebalanced = lastRebalance.get();
+        if (rebalanced == UNSET) {
+            lastRebalance.compareAndSet(UNSET, currentTime);
+        } else if (currentTime - rebalanced >= rebalancePeriod) {
+            rebalance(rebalanced, currentTime);
+        }
+        int index = index();
+        demand.addAndGet(index * SPACING, cost);
+        if (shards[index].limiter.accept(cost, currentTime)) {
+            return true;
+        }
+        // Borrow from the neighbors, writing to their buckets only if they
+        // have the tokens
+        int borrowed = Math.min(BORROWED, mask);
+        for (int i = 1; i <= borrowed; i++) {
+            RateLimiter neighbor = shards[index + i & mask].limiter;
+            if (neighbor.available(cost, currentTime)
+                && neighbor.accept(cost, currentTime)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.Predicate#accept(long)
+     */
+    @Override
+    public boolean accept(long currentTime) {
+        return accept(1, currentTime);
+    }
+
+    /**
+     * @return the total number of tokens in the buckets
+     */
+    public int getCurrentTokens() {
+        int tokens = 0;
+        for (Shard shard : shards) {
+            tokens += shard.limiter.getCurrentTokens();
+        }
+        return tokens;
+    }
+
+    /**
+     * @return the number of buckets
+     */
+    public int getStripes() {
+        return shards.length;
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.rate.Predicate#setTargetRate(double)
+     */
+    @Override
+    public synchronized void setTargetRate(double targetRate) {
+        this.targetRate = targetRate;
+        for (Shard shard : shards) {
+            shard.limiter.setTargetRate(targetRate * shard.share);
+        }
+    }
+
+    /**
+     * @return the current share of the target rate of the bucket
+     */
+    double getShare(int stripe) {
+        return shards[stripe].share;
+    }
+
+    /**
+     * @return the index of the bucket for the current thread
+     */
+    int index() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ id >>> 32) * 0x9E3779B9;
+        return (h ^ h >>> 16) & mask;
+    }
+
+    /**
+     * Redistribute the target rate across the buckets in proportion to the
+     * demand each has seen since the last rebalance
+     */
+    private void rebalance(long previous, long currentTime) {
+        if (!lastRebalance.compareAndSet(previous, currentTime)) {
+            return;
+        }
+        synchronized (this) {
+            long[] demanded = new long[shards.length];
+            long total = 0;
+            for (int i = 0; i < shards.length; i++) {
+                demanded[i] = demand.getAndSet(i * SPACING, 0);
+                total += demanded[i];
+            }
+            if (total == 0) {
+                return;
+            }
+            double floor = MINIMUM_SHARE / shards.length;
+            double scale = 1.0 - floor * shards.length;
+            double[] shares = new double[shards.length];
+            for (int i = 0; i < shards.length; i++) {
+                shares[i] = floor + scale * demanded[i] / total;
+            }
+            int[] tokens = tokens(shares);
+            for (int i = 0; i < shards.length; i++) {
+                Shard shard = shards[i];
+                shard.share = shares[i];
+                shard.limiter.setMaxTokens(tokens[i]);
+                shard.limiter.setTargetRate(targetRate * shard.share);
+            }
+        }
+    }
+
+    /**
+     * Apportion the token limit across the buckets by their shares, each
+     * bucket holding at least one token, the largest remainders taking the
+     * tokens left over by rounding down
+     */
+    private int[] tokens(double[] shares) {
+        int[] tokens = new int[shares.length];
+        double[] remainders = new double[shares.length];
+        int spare = tokenLimit - shares.length;
+        int apportioned = 0;
+        for (int i = 0; i < shares.length; i++) {
+            double exact = spare * shares[i];
+            tokens[i] = 1 + (int) exact;
+            remainders[i] = exact - (int) exact;
+            apportioned += (int) exact;
+        }
+        for (; apportioned < spare; apportioned++) {
+            int largest = 0;
+            for (int i = 1; i < shares.length; i++) {
+                if (remainders[i] > remainders[largest]) {
+                    largest = i;
+                }
+            }
+            tokens[largest]++;
+            remainders[largest] = -1.0;
+        }
+        return tokens;
+    }
+}
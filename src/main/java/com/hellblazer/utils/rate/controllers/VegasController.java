@@ -0,0 +1,99 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate.controllers;
+
+/**
+ *
+ * A concurrency controller in the style of TCP Vegas. The minimum response
+ * time observed is taken as the response time without load, and from it the
+ * number of requests queued in the backend is estimated as
+ * <code>limit * (1 - noLoad / responseTime)</code>. The limit grows while the
+ * estimated queue is below alpha, and shrinks while it is above beta; both
+ * thresholds scale with the logarithm of the limit.
+ *
+ * @author hhildebrand
+ *
+ */
+public class VegasController extends ConcurrencyController {
+    private volatile double alpha              = 3;
+    private volatile double beta               = 6;
+    private double          noLoadResponseTime = Double.NaN;
+
+    public VegasController(double initialLimit, double minimumLimit,
+                           double maximumLimit, int windowSize) {
+        super(initialLimit, minimumLimit, maximumLimit, windowSize);
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+
+    public double getBeta() {
+        return beta;
+    }
+
+    /**
+     * @return the minimum response time observed
+     */
+    public double getNoLoadResponseTime() {
+        return noLoadResponseTime;
+    }
+
+    /**
+     * @param alpha
+     *            - the queue size, per decade of the limit, below which the
+     *            limit grows
+     */
+    public void setAlpha(double alpha) {
+        this.alpha = alpha;
+    }
+
+    /**
+     * @param beta
+     *            - the queue size, per decade of the limit, above which the
+     *            limit shrinks
+     */
+    public void setBeta(double beta) {
+        this.beta = beta;
+    }
+
+    @Override
+    protected void resetState() {
+        noLoadResponseTime = Double.NaN;
+    }
+
+    @Override
+    protected double update(double responseTime, long currentTime,
+                            double limit, int inFlight) {
+        if (Double.isNaN(noLoadResponseTime)
+            || responseTime < noLoadResponseTime) {
+            noLoadResponseTime = responseTime;
+            return limit;
+        }
+        double log = Math.max(1, Math.log10(limit));
+        double queue = Math.ceil(limit * (1 - noLoadResponseTime / responseTime));
+        if (queue <= alpha * log) {
+            if (inFlight * 2 < limit) {
+                // Application limited
+                return limit;
+            }
+            return limit + log;
+        }
+        if (queue >= beta * log) {
+            return limit - log;
+        }
+        return limit;
+    }
+}
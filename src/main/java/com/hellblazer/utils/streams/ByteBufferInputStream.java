@@ -0,0 +1,199 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.streams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.hellblazer.utils.ByteBufferPool;
+
+/**
+ * An input stream that reads directly from a sequence of byte buffers, heap or
+ * direct, without copying them into an intermediate array. Each buffer is read
+ * from its position to its limit, and reading advances the buffer's position.
+ * <p>
+ * If constructed with a {@link ByteBufferPool}, the buffers are returned to
+ * the pool when the stream is closed.
+ *
+ * @author hhildebrand
+ *
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    private final ByteBufferPool bufferPool;
+    private final ByteBuffer[]   buffers;
+    private boolean              closed;
+    private int                  current;
+    private int                  markBuffer;
+    private int                  markPosition;
+    private final int[]          starts;
+
+    /**
+     * @param buffers
+     *            - the buffers to read from, in order
+     */
+    public ByteBufferInputStream(ByteBuffer... buffers) {
+        this(null, buffers);
+    }
+
+    /**
+     * @param bp
+     *            - the pool to return the buffers to when closed, or null
+     * @param buffers
+     *            - the buffers to read from, in order
+     */
+    public ByteBufferInputStream(ByteBufferPool bp, ByteBuffer... buffers) {
+        bufferPool = bp;
+        this.buffers = buffers;
+        starts = new int[buffers.length];
+        for (int i = 0; i < buffers.length; i++) {
+            starts[i] = buffers[i].position();
+        }
+        markBuffer = 0;
+        markPosition = buffers.length == 0 ? 0 : starts[0];
+    }
+
+    /**
+     * Returns the number of remaining bytes that can be read from this input
+     * stream.
+     */
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        long available = 0;
+        for (int i = current; i < buffers.length; i++) {
+            available += buffers[i].remaining();
+        }
+        return (int) Math.min(available, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Closing a <tt>ByteBufferInputStream</tt> returns the buffers to the pool,
+     * if one was supplied. The stream cannot be read after it has been closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (bufferPool != null) {
+            for (ByteBuffer buffer : buffers) {
+                bufferPool.free(buffer);
+            }
+        }
+    }
+
+    /**
+     * Set the current marked position in the stream. The readAheadLimit has no
+     * meaning, as the buffers are retained until the stream is closed.
+     */
+    @Override
+    public synchronized void mark(int readAheadLimit) {
+        markBuffer = current;
+        markPosition = current < buffers.length ? buffers[current].position()
+                                               : 0;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        ByteBuffer buffer = nextBuffer();
+        if (buffer == null) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            ensureOpen();
+            return 0;
+        }
+        int read = 0;
+        while (read < len) {
+            ByteBuffer buffer = nextBuffer();
+            if (buffer == null) {
+                break;
+            }
+            int n = Math.min(len - read, buffer.remaining());
+            buffer.get(b, off + read, n);
+            read += n;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    /**
+     * Reset the stream to the most recent mark, or to the beginning of the
+     * buffers if the stream has not been marked.
+     */
+    @Override
+    public synchronized void reset() throws IOException {
+        ensureOpen();
+        for (int i = markBuffer + 1; i <= current && i < buffers.length; i++) {
+            buffers[i].position(starts[i]);
+        }
+        if (markBuffer < buffers.length) {
+            buffers[markBuffer].position(markPosition);
+        }
+        current = markBuffer;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            ByteBuffer buffer = nextBuffer();
+            if (buffer == null) {
+                break;
+            }
+            int s = (int) Math.min(n - skipped, buffer.remaining());
+            buffer.position(buffer.position() + s);
+            skipped += s;
+        }
+        return skipped;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * @return the first buffer with remaining bytes, or null if the stream is
+     *         exhausted
+     */
+    private ByteBuffer nextBuffer() throws IOException {
+        ensureOpen();
+        while (current < buffers.length) {
+            ByteBuffer buffer = buffers[current];
+            if (buffer.hasRemaining()) {
+                return buffer;
+            }
+            current++;
+        }
+        return null;
+    }
+}
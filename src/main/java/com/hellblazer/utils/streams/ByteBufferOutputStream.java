@@ -17,17 +17,35 @@ package com.hellblazer.utils.streams;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.hellblazer.utils.ByteBufferPool;
 
 /**
+ * An output stream that writes into byte buffers obtained from a
+ * {@link ByteBufferPool}.
+ * <p>
+ * By default the stream writes into a single buffer, growing it by doubling
+ * when full. When constructed in <i>chained</i> mode, the stream instead
+ * appends fixed size chunks from the pool as each fills, so previously written
+ * bytes are never copied. The chunks can be handed directly to a
+ * {@link java.nio.channels.GatheringByteChannel} via {@link #toByteBuffers()}.
+ * <p>
+ * Primitives are encoded directly into the buffers, high byte first, in the
+ * same format as {@link java.io.DataOutputStream}, so there is no need to wrap
+ * the stream for binary encoding.
+ * 
  * @author hhildebrand
  * 
  */
 public class ByteBufferOutputStream extends OutputStream {
 
-    private final ByteBufferPool bufferPool;
-    private ByteBuffer           buffer;
+    private final ByteBufferPool   bufferPool;
+    private ByteBuffer             buffer;
+    private final int              chunkSize;
+    private final List<ByteBuffer> chunks;
+    private int                    flushed;
 
     /**
      * @param bp
@@ -40,8 +58,30 @@ public class ByteBufferOutputStream extends OutputStream {
      * @param bp
      */
     public ByteBufferOutputStream(ByteBufferPool bp, int initialSize) {
+        this(bp, initialSize, false);
+    }
+
+    /**
+     * @param bp
+     *            - the pool to allocate buffers from
+     * @param size
+     *            - the initial size of the buffer, or the size of each chunk if
+     *            chained
+     * @param chained
+     *            - if true, append fixed size chunks rather than growing a
+     *            single buffer
+     */
+    public ByteBufferOutputStream(ByteBufferPool bp, int size, boolean chained) {
         bufferPool = bp;
-        buffer = bufferPool.allocate(initialSize);
+        buffer = bufferPool.allocate(size);
+        if (chained) {
+            chunkSize = size;
+            chunks = new ArrayList<ByteBuffer>();
+            chunks.add(buffer);
+        } else {
+            chunkSize = 0;
+            chunks = null;
+        }
     }
 
     /**
@@ -64,9 +104,26 @@ public class ByteBufferOutputStream extends OutputStream {
      * @see java.io.ByteArrayInputStream#count
      */
     public void reset() {
+        if (chunks != null) {
+            for (int i = 1; i < chunks.size(); i++) {
+                bufferPool.free(chunks.get(i));
+            }
+            buffer = chunks.get(0);
+            chunks.clear();
+            chunks.add(buffer);
+            flushed = 0;
+        }
         buffer.rewind();
     }
 
+    /**
+     * @return true if this stream appends fixed size chunks rather than
+     *         growing a single buffer
+     */
+    public boolean isChained() {
+        return chunks != null;
+    }
+
     /**
      * Returns the current size of the buffer.
      * 
@@ -75,14 +132,40 @@ public class ByteBufferOutputStream extends OutputStream {
      * @see java.io.ByteArrayOutputStream#count
      */
     public int size() {
-        return buffer.position();
+        return flushed + buffer.position();
     }
 
+    /**
+     * Answer the buffer containing the accumulated output, with the limit set
+     * to the number of valid bytes. If the stream is chained and has more than
+     * one chunk, the chunks are first coalesced into a single buffer from the
+     * pool.
+     */
     public ByteBuffer toByteBuffer() {
+        if (chunks != null && chunks.size() > 1) {
+            coalesce();
+        }
         buffer.limit(buffer.position());
         return buffer;
     }
 
+    /**
+     * Answer the accumulated output as a sequence of buffers, suitable for a
+     * gathering write. Each buffer is a view over the underlying storage,
+     * positioned at zero with its limit set to the number of valid bytes; no
+     * bytes are copied. The views remain valid until the stream is next reset.
+     */
+    public ByteBuffer[] toByteBuffers() {
+        if (chunks == null) {
+            return new ByteBuffer[] { view(buffer) };
+        }
+        ByteBuffer[] buffers = new ByteBuffer[chunks.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = view(chunks.get(i));
+        }
+        return buffers;
+    }
+
     /**
      * Writes <code>len</code> bytes from the specified byte buffer starting at
      * offset <code>off</code> to this byte buffer output stream.
@@ -99,6 +182,18 @@ public class ByteBufferOutputStream extends OutputStream {
         if (off < 0 || off > b.length || len < 0 || off + len - b.length > 0) {
             throw new IndexOutOfBoundsException();
         }
+        if (chunks != null) {
+            while (len > 0) {
+                if (!buffer.hasRemaining()) {
+                    nextChunk();
+                }
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+            return;
+        }
         ensureCapacity(buffer.position() + len);
         buffer.put(b, off, len);
     }
@@ -111,10 +206,214 @@ public class ByteBufferOutputStream extends OutputStream {
      */
     @Override
     public void write(int b) {
-        ensureCapacity(buffer.position() + 1);
+        if (chunks != null) {
+            if (!buffer.hasRemaining()) {
+                nextChunk();
+            }
+        } else {
+            ensureCapacity(buffer.position() + 1);
+        }
         buffer.put((byte) b);
     }
 
+    /**
+     * Writes a <code>double</code> as the 8 bytes of its
+     * {@link Double#doubleToLongBits(double)} representation, high byte first.
+     */
+    public void writeDouble(double v) {
+        writeLong(Double.doubleToLongBits(v));
+    }
+
+    /**
+     * Writes an <code>int</code> as four bytes, high byte first.
+     */
+    public void writeInt(int v) {
+        if (reserve(4)) {
+            buffer.putInt(v);
+            return;
+        }
+        write(v >>> 24);
+        write(v >>> 16);
+        write(v >>> 8);
+        write(v);
+    }
+
+    /**
+     * Writes a <code>long</code> as eight bytes, high byte first.
+     */
+    public void writeLong(long v) {
+        if (reserve(8)) {
+            buffer.putLong(v);
+            return;
+        }
+        writeInt((int) (v >>> 32));
+        writeInt((int) v);
+    }
+
+    /**
+     * Writes the characters as UTF-8. Unpaired surrogates are written as
+     * <code>'?'</code>. No length is written; callers that need one should
+     * precede this with {@link #utf8Length(CharSequence)}.
+     * 
+     * @return the number of bytes written
+     */
+    public int writeUtf8(CharSequence chars) {
+        int length = utf8Length(chars);
+        if (reserve(length)) {
+            int n = chars.length();
+            for (int i = 0; i < n; i++) {
+                char c = chars.charAt(i);
+                if (c < 0x80) {
+                    buffer.put((byte) c);
+                } else if (c < 0x800) {
+                    buffer.put((byte) (0xC0 | c >> 6));
+                    buffer.put((byte) (0x80 | c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    int cp = codePoint(chars, i);
+                    if (cp < 0) {
+                        buffer.put((byte) '?');
+                    } else {
+                        buffer.put((byte) (0xF0 | cp >> 18));
+                        buffer.put((byte) (0x80 | cp >> 12 & 0x3F));
+                        buffer.put((byte) (0x80 | cp >> 6 & 0x3F));
+                        buffer.put((byte) (0x80 | cp & 0x3F));
+                        i++;
+                    }
+                } else {
+                    buffer.put((byte) (0xE0 | c >> 12));
+                    buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                    buffer.put((byte) (0x80 | c & 0x3F));
+                }
+            }
+            return length;
+        }
+        int n = chars.length();
+        for (int i = 0; i < n; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                write(0xC0 | c >> 6);
+                write(0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                int cp = codePoint(chars, i);
+                if (cp < 0) {
+                    write('?');
+                } else {
+                    write(0xF0 | cp >> 18);
+                    write(0x80 | cp >> 12 & 0x3F);
+                    write(0x80 | cp >> 6 & 0x3F);
+                    write(0x80 | cp & 0x3F);
+                    i++;
+                }
+            } else {
+                write(0xE0 | c >> 12);
+                write(0x80 | c >> 6 & 0x3F);
+                write(0x80 | c & 0x3F);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes an <code>int</code> as an unsigned variable length integer, seven
+     * bits per byte, low order group first, with the high bit of each byte set
+     * if more bytes follow. Negative values always take five bytes.
+     */
+    public void writeVarInt(int v) {
+        if (reserve(varIntLength(v))) {
+            while ((v & ~0x7F) != 0) {
+                buffer.put((byte) (v & 0x7F | 0x80));
+                v >>>= 7;
+            }
+            buffer.put((byte) v);
+            return;
+        }
+        while ((v & ~0x7F) != 0) {
+            write(v & 0x7F | 0x80);
+            v >>>= 7;
+        }
+        write(v);
+    }
+
+    /**
+     * @return the number of bytes required to encode the characters as UTF-8
+     */
+    public static int utf8Length(CharSequence chars) {
+        int n = chars.length();
+        int length = n;
+        for (int i = 0; i < n; i++) {
+            char c = chars.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length++;
+                } else if (Character.isSurrogate(c)) {
+                    if (codePoint(chars, i) >= 0) {
+                        length += 2;
+                        i++;
+                    }
+                } else {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return the number of bytes required to encode the value by
+     *         {@link #writeVarInt(int)}
+     */
+    public static int varIntLength(int v) {
+        if ((v & ~0x7F) == 0) {
+            return 1;
+        }
+        if ((v & ~0x3FFF) == 0) {
+            return 2;
+        }
+        if ((v & ~0x1FFFFF) == 0) {
+            return 3;
+        }
+        if ((v & ~0xFFFFFFF) == 0) {
+            return 4;
+        }
+        return 5;
+    }
+
+    /**
+     * @return the code point of the surrogate pair starting at index, or -1 if
+     *         the surrogate is unpaired
+     */
+    private static int codePoint(CharSequence chars, int index) {
+        char high = chars.charAt(index);
+        if (!Character.isHighSurrogate(high) || index + 1 >= chars.length()) {
+            return -1;
+        }
+        char low = chars.charAt(index + 1);
+        if (!Character.isLowSurrogate(low)) {
+            return -1;
+        }
+        return Character.toCodePoint(high, low);
+    }
+
+    /**
+     * Copy the chunks into a single buffer from the pool, returning the chunks
+     * to the pool
+     */
+    private void coalesce() {
+        int total = size();
+        ByteBuffer coalesced = bufferPool.allocate(Math.max(total, chunkSize));
+        for (ByteBuffer chunk : chunks) {
+            chunk.flip();
+            coalesced.put(chunk);
+            bufferPool.free(chunk);
+        }
+        chunks.clear();
+        chunks.add(coalesced);
+        buffer = coalesced;
+        flushed = 0;
+    }
+
     /**
      * Increases the capacity if necessary to ensure that it can hold at least
      * the number of elements specified by the minimum capacity argument.
@@ -169,11 +468,48 @@ public class ByteBufferOutputStream extends OutputStream {
             newCapacity = Integer.MAX_VALUE;
         }
         assert newCapacity >= minCapacity : "Math is hard";
-        int position = buffer.position();
         ByteBuffer oldBuffer = buffer;
         buffer = bufferPool.allocate(newCapacity);
-        buffer.put(oldBuffer.array(), 0, position);
+        oldBuffer.flip();
+        buffer.put(oldBuffer);
         bufferPool.free(oldBuffer);
         assert buffer.capacity() >= minCapacity : "Math is hard";
     }
+
+    /**
+     * Append a new chunk from the pool
+     */
+    private void nextChunk() {
+        flushed += buffer.position();
+        buffer = bufferPool.allocate(chunkSize);
+        chunks.add(buffer);
+    }
+
+    /**
+     * Ensure that the next <code>n</code> bytes can be put directly into the
+     * current buffer.
+     * 
+     * @return false if the stream is chained and the bytes must be split
+     *         across chunks
+     */
+    private boolean reserve(int n) {
+        if (chunks == null) {
+            ensureCapacity(buffer.position() + n);
+            return true;
+        }
+        if (buffer.remaining() >= n) {
+            return true;
+        }
+        if (!buffer.hasRemaining() && n <= chunkSize) {
+            nextChunk();
+            return true;
+        }
+        return false;
+    }
+
+    private ByteBuffer view(ByteBuffer chunk) {
+        ByteBuffer view = chunk.duplicate();
+        view.flip();
+        return view;
+    }
 }
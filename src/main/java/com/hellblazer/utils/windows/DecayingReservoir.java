@@ -0,0 +1,327 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed size sample of a stream of samples, biased toward recent samples by
+ * forward decay.
+ * <p>
+ * Each sample is weighted by exp(alpha * (t - L)), where t is the time of the
+ * sample in seconds and L a landmark time, and kept if it is among the samples
+ * of the highest priority weight / u, u being uniformly distributed. The
+ * reservoir is a weighted sample of the stream in which the weight of a sample
+ * decays exponentially with its age, so the statistics of the reservoir are
+ * those of the recent history of the stream, in constant memory however long
+ * the stream. The landmark is moved forward as the weights grow, to keep them
+ * in range.
+ * <p>
+ * The reservoir is safe for concurrent use. It may either be driven by its own
+ * clock, in the unit of the reservoir, or by the times supplied with the
+ * samples. The value of the reservoir is the weighted mean of its samples.
+ * 
+ * @see "Cormode et al, Forward Decay: A Practical Time Decay Model for
+ *      Streaming Systems, ICDE '09"
+ * 
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ * 
+ */
+public class DecayingReservoir implements PercentileWindow {
+    public static final double  DEFAULT_ALPHA     = 0.015;
+    public static final int     DEFAULT_SIZE      = 1028;
+    /**
+     * The exponent alpha * (t - L) past which the landmark is moved. The
+     * weights stay below e^100, and the priorities, which may be up to 2^53
+     * times the weights, well within the range of doubles.
+     */
+    private static final double RESCALE_THRESHOLD = 100.0;
+
+    private final double        alpha;
+    private int                 count             = 0;
+    private double              landmark;
+    private final ReentrantLock lock              = new ReentrantLock();
+    private final double[]      priorities;
+    private final double[]      sortedValues;
+    private final double[]      sortedWeights;
+    private final double        ticksPerSecond;
+    private final TimeUnit      unit;
+    private final double[]      values;
+    private final double[]      weights;
+
+    /**
+     * A reservoir of the default size and alpha, with a millisecond clock
+     */
+    public DecayingReservoir() {
+        this(DEFAULT_SIZE, DEFAULT_ALPHA, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param size
+     *            - the number of samples in the reservoir
+     * @param alpha
+     *            - the exponential decay of the weight of a sample, per second
+     * @param unit
+     *            - the unit of time of the reservoir
+     */
+    public DecayingReservoir(int size, double alpha, TimeUnit unit) {
+        assert size > 0;
+        assert alpha >= 0;
+        this.alpha = alpha;
+        this.unit = unit;
+        ticksPerSecond = unit.convert(1, TimeUnit.SECONDS);
+        priorities = new double[size];
+        sortedValues = new double[size];
+        sortedWeights = new double[size];
+        values = new double[size];
+        weights = new double[size];
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * @return the weighted mean of the samples in the reservoir
+     */
+    public double getMean() {
+        final ReentrantLock myLock = lock;
+        myLock.lock();
+        try {
+            checkEmpty();
+            double sum = 0.0D;
+            double total = 0.0D;
+            for (int i = 0; i < count; i++) {
+                sum += weights[i] * values[i];
+                total += weights[i];
+            }
+            return sum / total;
+        } finally {
+            myLock.unlock();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.windows.PercentileWindow#getMedian()
+     */
+    @Override
+    public double getMedian() {
+        return getPercentile(0.5);
+    }
+
+    /**
+     * Answer the weighted percentile of the samples in the reservoir
+     */
+    @Override
+    public double getPercentile(double percentile) {
+        final ReentrantLock myLock = lock;
+        myLock.lock();
+        try {
+            checkEmpty();
+            System.arraycopy(values, 0, sortedValues, 0, count);
+            System.arraycopy(weights, 0, sortedWeights, 0, count);
+            sort(count);
+            double total = 0.0D;
+            for (int i = 0; i < count; i++) {
+                total += sortedWeights[i];
+            }
+            double rank = percentile * total;
+            double seen = 0.0D;
+            for (int i = 0; i < count - 1; i++) {
+                seen += sortedWeights[i];
+                if (seen >= rank) {
+                    return sortedValues[i];
+                }
+            }
+            return sortedValues[count - 1];
+        } finally {
+            myLock.unlock();
+        }
+    }
+
+    public TimeUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Answer the size of the reservoir
+     */
+    @Override
+    public int getWindow() {
+        return values.length;
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.windows.PercentileWindow#reset()
+     */
+    @Override
+    public void reset() {
+        final ReentrantLock myLock = lock;
+        myLock.lock();
+        try {
+            count = 0;
+        } finally {
+            myLock.unlock();
+        }
+    }
+
+    /**
+     * Add a sample taken at the current time of the reservoir's clock
+     */
+    @Override
+    public void sample(double sample) {
+        sample(sample, currentTime());
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.windows.PercentileWindow#sample(double, long)
+     */
+    @Override
+    public void sample(double sample, long currentTime) {
+        double time = currentTime / ticksPerSecond;
+        double u = 1.0D - ThreadLocalRandom.current().nextDouble();
+        final ReentrantLock myLock = lock;
+        myLock.lock();
+        try {
+            if (count == 0) {
+                landmark = time;
+            } else if (alpha * (time - landmark) > RESCALE_THRESHOLD) {
+                rescale(time);
+            }
+            double weight = Math.exp(alpha * (time - landmark));
+            double priority = weight / u;
+            if (count < values.length) {
+                // Sift up the new entry of the min heap of priorities
+                int i = count++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (priorities[parent] <= priority) {
+                        break;
+                    }
+                    move(parent, i);
+                    i = parent;
+                }
+                set(i, priority, sample, weight);
+            } else if (priority > priorities[0]) {
+                // Replace the lowest priority, sifting it down
+                int i = 0;
+                for (;;) {
+                    int child = 2 * i + 1;
+                    if (child >= count) {
+                        break;
+                    }
+                    if (child + 1 < count
+                        && priorities[child + 1] < priorities[child]) {
+                        child++;
+                    }
+                    if (priority <= priorities[child]) {
+                        break;
+                    }
+                    move(child, i);
+                    i = child;
+                }
+                set(i, priority, sample, weight);
+            }
+        } finally {
+            myLock.unlock();
+        }
+    }
+
+    /**
+     * Answer the number of samples in the reservoir
+     */
+    @Override
+    public int size() {
+        final ReentrantLock myLock = lock;
+        myLock.lock();
+        try {
+            return count;
+        } finally {
+            myLock.unlock();
+        }
+    }
+
+    /**
+     * Answer the weighted mean of the reservoir
+     */
+    @Override
+    public double value() {
+        return getMean();
+    }
+
+    private void checkEmpty() {
+        if (count == 0) {
+            throw new IllegalStateException(
+                                            "Must have at least one sample to calculate the value");
+        }
+    }
+
+    private long currentTime() {
+        if (unit == TimeUnit.MILLISECONDS) {
+            return System.currentTimeMillis();
+        }
+        return unit.convert(System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private void move(int from, int to) {
+        priorities[to] = priorities[from];
+        values[to] = values[from];
+        weights[to] = weights[from];
+    }
+
+    /**
+     * Move the landmark to the time, scaling the weights and priorities of the
+     * samples to the new landmark
+     */
+    private void rescale(double time) {
+        double scale = Math.exp(-alpha * (time - landmark));
+        for (int i = 0; i < count; i++) {
+            priorities[i] *= scale;
+            weights[i] *= scale;
+        }
+        landmark = time;
+    }
+
+    private void set(int i, double priority, double value, double weight) {
+        priorities[i] = priority;
+        values[i] = value;
+        weights[i] = weight;
+    }
+
+    /**
+     * Shell sort the copied samples by value, with their weights
+     */
+    private void sort(int n) {
+        int gap = 1;
+        while (gap < n / 3) {
+            gap = 3 * gap + 1;
+        }
+        for (; gap > 0; gap /= 3) {
+            for (int i = gap; i < n; i++) {
+                double value = sortedValues[i];
+                double weight = sortedWeights[i];
+                int j = i;
+                for (; j >= gap && sortedValues[j - gap] > value; j -= gap) {
+                    sortedValues[j] = sortedValues[j - gap];
+                    sortedWeights[j] = sortedWeights[j - gap];
+                }
+                sortedValues[j] = value;
+                sortedWeights[j] = weight;
+            }
+        }
+    }
+}
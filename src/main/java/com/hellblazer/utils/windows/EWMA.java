@@ -0,0 +1,88 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+/**
+ * An exponentially weighted moving average of a rate, updated at a fixed
+ * interval: each tick folds the rate of the events counted since the last tick
+ * into the average, with the weight 1 - exp(-interval / period), so that the
+ * average decays with the time constant of the period, as the load averages
+ * of Unix.
+ * 
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ * 
+ */
+public class EWMA {
+    private final double    alpha;
+    private boolean         initialized = false;
+    private final double    interval;
+    private volatile double rate        = 0.0D;
+
+    /**
+     * @param interval
+     *            - the interval between ticks
+     * @param period
+     *            - the period of the average, in the unit of the interval
+     */
+    public EWMA(double interval, double period) {
+        assert interval > 0;
+        assert period > 0;
+        this.interval = interval;
+        alpha = 1.0D - Math.exp(-interval / period);
+    }
+
+    /**
+     * Fold a number of intervals without events into the average
+     * 
+     * @param ticks
+     *            - the number of intervals
+     */
+    public synchronized void decay(long ticks) {
+        if (initialized) {
+            rate *= Math.pow(1.0D - alpha, ticks);
+        }
+    }
+
+    /**
+     * @return the average rate, per unit of the interval
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Reset the average
+     */
+    public synchronized void reset() {
+        initialized = false;
+        rate = 0.0D;
+    }
+
+    /**
+     * Fold the events counted in the last interval into the average
+     * 
+     * @param count
+     *            - the number of events in the interval
+     */
+    public synchronized void tick(long count) {
+        double instantRate = count / interval;
+        if (initialized) {
+            rate += alpha * (instantRate - rate);
+        } else {
+            rate = instantRate;
+            initialized = true;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A meter of the rate of events, as exponentially weighted moving averages
+ * over one, five and fifteen minutes, in constant memory.
+ * <p>
+ * Marking events is a pair of atomic increments; the averages are updated
+ * every five seconds, by the thread that first sees that an update is due.
+ * The meter may either be driven by its own clock, in the unit of the meter,
+ * or by the times supplied to it. As the averages only move forward when the
+ * meter sees a time, {@link #advance(long)} decays the rates of a meter that
+ * is not being marked. Times are kept in nanoseconds, so the meter may be
+ * driven in any unit.
+ * <p>
+ * Each sample of the meter marks that number of events, and the value of the
+ * meter is the one minute rate, per second.
+ * 
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ * 
+ */
+public class Meter implements SampledWindow {
+    private static final long UNSET     = Long.MIN_VALUE;
+
+    private final AtomicLong  count     = new AtomicLong();
+    private final EWMA        fifteenMinute;
+    private final EWMA        fiveMinute;
+    // The interval between updates of the averages, in nanoseconds
+    private final long        interval;
+    // The time of the last update, in nanoseconds
+    private final AtomicLong  lastTick  = new AtomicLong(UNSET);
+    private final EWMA        oneMinute;
+    // The first time the meter saw, in nanoseconds
+    private volatile long     start     = UNSET;
+    private final AtomicLong  uncounted = new AtomicLong();
+    private final TimeUnit    unit;
+
+    /**
+     * A meter with a millisecond clock
+     */
+    public Meter() {
+        this(TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param unit
+     *            - the unit of time of the meter
+     */
+    public Meter(TimeUnit unit) {
+        this.unit = unit;
+        interval = TimeUnit.SECONDS.toNanos(5);
+        oneMinute = new EWMA(5, TimeUnit.MINUTES.toSeconds(1));
+        fiveMinute = new EWMA(5, TimeUnit.MINUTES.toSeconds(5));
+        fifteenMinute = new EWMA(5, TimeUnit.MINUTES.toSeconds(15));
+    }
+
+    /**
+     * Advance the meter to the current time, updating the averages of the
+     * intervals that have passed
+     * 
+     * @param currentTime
+     */
+    public void advance(long currentTime) {
+        long now = unit.toNanos(currentTime);
+        long last = lastTick.get();
+        if (last == UNSET) {
+            if (lastTick.compareAndSet(UNSET, now)) {
+                start = now;
+            }
+            return;
+        }
+        long age = now - last;
+        if (age < interval) {
+            return;
+        }
+        long ticks = age / interval;
+        if (!lastTick.compareAndSet(last, last + ticks * interval)) {
+            return;
+        }
+        long events = uncounted.getAndSet(0);
+        oneMinute.tick(events);
+        fiveMinute.tick(events);
+        fifteenMinute.tick(events);
+        if (ticks > 1) {
+            oneMinute.decay(ticks - 1);
+            fiveMinute.decay(ticks - 1);
+            fifteenMinute.decay(ticks - 1);
+        }
+    }
+
+    /**
+     * @return the number of events marked
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the fifteen minute rate, per second
+     */
+    public double getFifteenMinuteRate() {
+        return fifteenMinute.getRate();
+    }
+
+    /**
+     * @return the five minute rate, per second
+     */
+    public double getFiveMinuteRate() {
+        return fiveMinute.getRate();
+    }
+
+    /**
+     * @return the mean rate, per second, from the first time the meter saw to
+     *         the current time
+     */
+    public double getMeanRate(long currentTime) {
+        long begin = start;
+        long now = unit.toNanos(currentTime);
+        if (begin == UNSET || now == begin) {
+            return 0.0D;
+        }
+        return count.get() * (double) TimeUnit.SECONDS.toNanos(1)
+               / (now - begin);
+    }
+
+    /**
+     * @return the one minute rate, per second
+     */
+    public double getOneMinuteRate() {
+        return oneMinute.getRate();
+    }
+
+    public TimeUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Mark the occurrence of an event at the current time of the meter's clock
+     */
+    public void mark() {
+        mark(1, currentTime());
+    }
+
+    /**
+     * Mark the occurrence of the events at the current time
+     * 
+     * @param events
+     *            - the number of events
+     * @param currentTime
+     */
+    public void mark(long events, long currentTime) {
+        advance(currentTime);
+        uncounted.addAndGet(events);
+        count.addAndGet(events);
+    }
+
+    /**
+     * Reset the meter. Events marked concurrently with the reset may survive
+     * it.
+     */
+    public void reset() {
+        count.set(0);
+        uncounted.set(0);
+        lastTick.set(UNSET);
+        start = UNSET;
+        oneMinute.reset();
+        fiveMinute.reset();
+        fifteenMinute.reset();
+    }
+
+    /**
+     * Mark the number of events of the sample at the current time of the
+     * meter's clock
+     */
+    @Override
+    public void sample(double sample) {
+        mark((long) sample, currentTime());
+    }
+
+    /**
+     * Answer the number of events marked, saturating at Integer.MAX_VALUE
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, count.get());
+    }
+
+    /**
+     * Answer the one minute rate, per second
+     */
+    @Override
+    public double value() {
+        return getOneMinuteRate();
+    }
+
+    private long currentTime() {
+        if (unit == TimeUnit.MILLISECONDS) {
+            return System.currentTimeMillis();
+        }
+        return unit.convert(System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -19,6 +19,16 @@ import java.util.NoSuchElementException;
 
 /**
  * A simple ring buffer for storing windows of samples of multiple variables.
+ * <p>
+ * The samples are stored by column, one array per variable, and are copied in
+ * when added, so recording a sample does not allocate. The mean of each
+ * variable and the co-moments between the variables are maintained
+ * incrementally as samples enter and leave the window, providing the sums,
+ * means, variances and covariances of the window without rescanning it.
+ * Removing a sample cancels its contribution only to within rounding, which
+ * for a large sample can swamp the co-moments of the samples that remain, so
+ * the means and co-moments are recomputed from the columns once every window
+ * length of removals.
  * 
  * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
  * 
@@ -26,7 +36,12 @@ import java.util.NoSuchElementException;
 public class MultiWindow implements Iterable<double[]> {
 
     private class It implements Iterator<double[]> {
-        private int index = 0;
+        private int            index = 0;
+        private final double[] row;
+
+        It(double[] row) {
+            this.row = row;
+        }
 
         /* (non-Javadoc)
          * @see java.util.Iterator#hasNext()
@@ -44,7 +59,8 @@ public class MultiWindow implements Iterable<double[]> {
             if (index == count) {
                 throw new NoSuchElementException();
             }
-            return samples[(index++ + head) % samples.length];
+            return get(index++, row == null ? new double[columns.length]
+                                           : row);
         }
 
         /* (non-Javadoc)
@@ -56,34 +72,191 @@ public class MultiWindow implements Iterable<double[]> {
         }
     }
 
+    protected final double[][] columns;
+    /**
+     * the co-moments of the variables, sum((x_i - mean_i) * (x_j - mean_j)),
+     * in a packed lower triangle
+     */
+    protected final double[]   comoments;
     protected int              count = 0;
     protected int              head  = 0;
-    protected final double[][] samples;
+    protected final double[]   means;
     protected int              tail  = 0;
+    private final double[]     deltas;
+    private final double[]     evicted;
+    private int                removals;
 
     public MultiWindow(int windowSize, int numVariables) {
-        samples = new double[windowSize][numVariables];
+        columns = new double[numVariables][windowSize];
+        comoments = new double[numVariables * (numVariables + 1) / 2];
+        deltas = new double[numVariables];
+        evicted = new double[numVariables];
+        means = new double[numVariables];
     }
 
+    /**
+     * Add the sample of the variables to the end of the window, removing the
+     * first sample if the window is full. The values are copied into the
+     * window.
+     */
     public void addLast(double... value) {
-        samples[tail] = value;
-        tail = (tail + 1) % samples.length;
+        assert value.length == columns.length;
+        if (count == capacity()) {
+            removeFirst(evicted);
+        }
+        int n = count + 1;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i][tail] = value[i];
+            deltas[i] = value[i] - means[i];
+            means[i] += deltas[i] / n;
+        }
+        updateComoments(value, 1.0);
+        tail = (tail + 1) % capacity();
         count++;
     }
 
+    /**
+     * @return the capacity of the window
+     */
+    public int capacity() {
+        return columns.length == 0 ? 0 : columns[0].length;
+    }
+
+    /**
+     * Copy the sample at the index of the window into the row
+     * 
+     * @param index
+     *            - the index of the sample, from the first in the window
+     * @param row
+     *            - the array to copy the values of the variables into
+     * @return the row
+     */
+    public double[] get(int index, double[] row) {
+        int position = position(index);
+        for (int i = 0; i < columns.length; i++) {
+            row[i] = columns[i][position];
+        }
+        return row;
+    }
+
+    /**
+     * @param index
+     *            - the index of the sample, from the first in the window
+     * @param variable
+     *            - the index of the variable
+     * @return the value of the variable in the sample
+     */
+    public double get(int index, int variable) {
+        return columns[variable][position(index)];
+    }
+
+    /**
+     * @return the sample covariance of the two variables in the window
+     */
+    public double getCovariance(int i, int j) {
+        if (count < 2) {
+            return 0.0D;
+        }
+        return comoments[i >= j ? i * (i + 1) / 2 + j : j * (j + 1) / 2 + i]
+               / (count - 1);
+    }
+
+    /**
+     * @return the mean of the variable in the window
+     */
+    public double getMean(int variable) {
+        return means[variable];
+    }
+
+    /**
+     * @return the sum of the variable in the window
+     */
+    public double getSum(int variable) {
+        return means[variable] * count;
+    }
+
+    /**
+     * @return the sample variance of the variable in the window
+     */
+    public double getVariance(int variable) {
+        return Math.max(0.0D, getCovariance(variable, variable));
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Iterable#iterator()
      */
     @Override
     public Iterator<double[]> iterator() {
-        return new It();
+        return new It(null);
+    }
+
+    /**
+     * Answer an iterator over the samples of the window that copies each
+     * sample into the row rather than allocating one
+     * 
+     * @param row
+     *            - the array to copy the values of the variables into
+     */
+    public Iterator<double[]> iterator(double[] row) {
+        assert row.length == columns.length;
+        return new It(row);
     }
 
+    /**
+     * @return the number of variables in each sample
+     */
+    public int numVariables() {
+        return columns.length;
+    }
+
+    /**
+     * Remove the first sample of the window
+     * 
+     * @return a copy of the values of the sample
+     */
     public double[] removeFirst() {
-        double[] items = samples[head];
+        return removeFirst(new double[columns.length]);
+    }
+
+    /**
+     * Remove the first sample of the window, copying its values into the row
+     * 
+     * @return the row
+     */
+    public double[] removeFirst(double[] row) {
+        get(0, row);
+        int n = count - 1;
+        if (n == 0) {
+            reset();
+            return row;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            deltas[i] = row[i] - means[i];
+            means[i] -= deltas[i] / n;
+        }
+        updateComoments(row, -1.0);
         count--;
-        head = (head + 1) % samples.length;
-        return items;
+        head = (head + 1) % capacity();
+        if (++removals == capacity()) {
+            recompute();
+        }
+        return row;
+    }
+
+    /**
+     * reset the state of the receiver
+     */
+    public void reset() {
+        count = 0;
+        head = 0;
+        removals = 0;
+        tail = 0;
+        for (int i = 0; i < means.length; i++) {
+            means[i] = 0.0D;
+        }
+        for (int i = 0; i < comoments.length; i++) {
+            comoments[i] = 0.0D;
+        }
     }
 
     public int size() {
@@ -95,10 +268,65 @@ public class MultiWindow implements Iterable<double[]> {
         final StringBuilder buf = new StringBuilder();
         buf.append("[ ");
         for (int i = 0; i < count; i++) {
-            buf.append(samples[(i + head) % samples.length]);
-            buf.append(", ");
+            buf.append("[");
+            for (int j = 0; j < columns.length; j++) {
+                if (j != 0) {
+                    buf.append(", ");
+                }
+                buf.append(get(i, j));
+            }
+            buf.append("], ");
         }
         buf.append("]");
         return buf.toString();
     }
+
+    private int position(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        return (head + index) % capacity();
+    }
+
+    /**
+     * Recompute the means and co-moments from the samples in the window
+     */
+    private void recompute() {
+        removals = 0;
+        for (int i = 0; i < columns.length; i++) {
+            double sum = 0.0D;
+            for (int index = 0; index < count; index++) {
+                sum += columns[i][(head + index) % capacity()];
+            }
+            means[i] = sum / count;
+        }
+        for (int k = 0; k < comoments.length; k++) {
+            comoments[k] = 0.0D;
+        }
+        for (int index = 0; index < count; index++) {
+            int position = (head + index) % capacity();
+            int k = 0;
+            for (int i = 0; i < columns.length; i++) {
+                double delta = columns[i][position] - means[i];
+                for (int j = 0; j <= i; j++) {
+                    comoments[k++] += delta * (columns[j][position] - means[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add or remove the sample's contribution to the co-moments, given the
+     * deltas of the sample from the means before the update and the updated
+     * means
+     */
+    private void updateComoments(double[] value, double sign) {
+        int k = 0;
+        for (int i = 0; i < columns.length; i++) {
+            double delta = sign * deltas[i];
+            for (int j = 0; j <= i; j++) {
+                comoments[k++] += delta * (value[j] - means[j]);
+            }
+        }
+    }
 }
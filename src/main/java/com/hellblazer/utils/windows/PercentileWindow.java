@@ -0,0 +1,55 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+/**
+ * A window of samples that can answer percentiles of its samples.
+ * 
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ * 
+ */
+public interface PercentileWindow extends SampledWindow {
+
+    /**
+     * @return the median of the samples in the window
+     */
+    double getMedian();
+
+    /**
+     * @param percentile
+     *            - the percentile, between 0 and 1
+     * @return the percentile of the samples in the window
+     */
+    double getPercentile(double percentile);
+
+    /**
+     * @return the capacity of the window
+     */
+    int getWindow();
+
+    /**
+     * reset the state of the receiver
+     */
+    void reset();
+
+    /**
+     * Add a sample taken at the current time. Windows that are not based on
+     * time ignore the time.
+     * 
+     * @param sample
+     * @param currentTime
+     */
+    void sample(double sample, long currentTime);
+}
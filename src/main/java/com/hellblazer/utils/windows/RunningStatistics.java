@@ -0,0 +1,220 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+import com.hellblazer.utils.math.TwoProduct;
+
+/**
+ * Provide the mean, variance, minimum and maximum of a windowed set of
+ * samples, maintained incrementally as samples enter and leave the window.
+ * <p>
+ * The sums of the samples and of their exact squares are kept as
+ * double-double values, as in {@link com.hellblazer.utils.math.DoubleDouble},
+ * accumulated with error free transformations. Removing a sample from the
+ * window subtracts what adding it added to within the double-double rounding
+ * of the sums, which is far below the precision of a double, so the sums
+ * drift only negligibly however many samples pass through the window. The
+ * variance is computed from them with compensated arithmetic, so it does not
+ * suffer the cancellation of the naive sum of squares formula.
+ * <p>
+ * The minimum and maximum are kept in monotonic queues of the positions of
+ * the samples in the window, which answer in constant time and are maintained
+ * in amortized constant time.
+ * 
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ * 
+ */
+public class RunningStatistics extends Window implements SampledWindow {
+    /**
+     * A double-double accumulator
+     */
+    private static class Sum {
+        private double hi = 0.0D;
+        private double lo = 0.0D;
+
+        private Sum() {
+        }
+
+        /**
+         * Add the value to the accumulator
+         */
+        private void add(double value) {
+            double s = hi + value;
+            double err = sumError(hi, value, s) + lo;
+            hi = s + err;
+            lo = err - (hi - s);
+        }
+
+        /**
+         * Add the exact product of a and b to the accumulator
+         */
+        private void addProduct(double a, double b) {
+            double product = a * b;
+            add(product);
+            add(TwoProduct.error(a, b, product));
+        }
+
+        private double value() {
+            return hi + lo;
+        }
+    }
+
+    /**
+     * @param sum
+     *            - the sum a+b
+     * @return a+b - sum, exactly (Knuth)
+     */
+    private static double sumError(double a, double b, double sum) {
+        double bb = sum - a;
+        return a - (sum - bb) + (b - bb);
+    }
+
+    private final long[]        maxima;
+    private int                 maxHead  = 0;
+    private int                 maxSize  = 0;
+    private final long[]        minima;
+    private int                 minHead  = 0;
+    private int                 minSize  = 0;
+    private long                sequence = 0;
+    private final Sum           squares  = new Sum();
+    private final Sum           sum      = new Sum();
+
+    public RunningStatistics(int windowSize) {
+        super(windowSize);
+        maxima = new long[windowSize];
+        minima = new long[windowSize];
+    }
+
+    public double getMax() {
+        checkEmpty();
+        return sampleAt(maxima[maxHead]);
+    }
+
+    public double getMean() {
+        checkEmpty();
+        return sum.value() / count;
+    }
+
+    public double getMin() {
+        checkEmpty();
+        return sampleAt(minima[minHead]);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return the sample variance of the window
+     */
+    public double getVariance() {
+        checkEmpty();
+        if (count == 1) {
+            return 0.0D;
+        }
+        // sum((x - m)^2) = sum(x^2) - 2m * sum(x) + n * m^2, for any m,
+        // accumulating the rounding errors of the terms separately
+        double mean = sum.value() / count;
+        double hi = squares.hi;
+        double lo = squares.lo;
+        double minusTwoMean = -2.0D * mean;
+        double product = minusTwoMean * sum.hi;
+        lo += TwoProduct.error(minusTwoMean, sum.hi, product) + minusTwoMean
+              * sum.lo;
+        double s = hi + product;
+        lo += sumError(hi, product, s);
+        hi = s;
+        double square = mean * mean;
+        product = count * square;
+        lo += TwoProduct.error(count, square, product) + count
+              * TwoProduct.error(mean, mean, square);
+        s = hi + product;
+        lo += sumError(hi, product, s);
+        hi = s;
+        return Math.max(0.0D, (hi + lo) / (count - 1));
+    }
+
+    /**
+     * reset the state of the receiver
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        maxHead = maxSize = 0;
+        minHead = minSize = 0;
+        sequence = 0;
+        squares.hi = squares.lo = 0.0D;
+        sum.hi = sum.lo = 0.0D;
+    }
+
+    @Override
+    public void sample(double sample) {
+        if (count == samples.length) {
+            double first = removeFirst();
+            sum.add(-first);
+            squares.addProduct(-first, first);
+            long expired = sequence - samples.length;
+            if (maxima[maxHead] == expired) {
+                maxHead = (maxHead + 1) % maxima.length;
+                maxSize--;
+            }
+            if (minima[minHead] == expired) {
+                minHead = (minHead + 1) % minima.length;
+                minSize--;
+            }
+        }
+        sum.add(sample);
+        squares.addProduct(sample, sample);
+        addLast(sample);
+
+        while (maxSize > 0
+               && sampleAt(maxima[last(maxHead, maxSize)]) <= sample) {
+            maxSize--;
+        }
+        maxima[(maxHead + maxSize++) % maxima.length] = sequence;
+        while (minSize > 0
+               && sampleAt(minima[last(minHead, minSize)]) >= sample) {
+            minSize--;
+        }
+        minima[(minHead + minSize++) % minima.length] = sequence;
+        sequence++;
+    }
+
+    /**
+     * Answer the mean of the window
+     */
+    @Override
+    public double value() {
+        if (count == 0) {
+            throw new IllegalStateException(
+                                            "Must have at least one sample to calculate the average");
+        }
+        return getMean();
+    }
+
+    private void checkEmpty() {
+        if (count == 0) {
+            throw new IllegalStateException("The window is empty");
+        }
+    }
+
+    private int last(int head, int size) {
+        return (head + size - 1) % samples.length;
+    }
+
+    private double sampleAt(long position) {
+        return samples[(int) (position % samples.length)];
+    }
+}
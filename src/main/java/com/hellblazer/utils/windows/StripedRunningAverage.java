@@ -0,0 +1,42 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+/**
+ * Provide the average value for a windowed set of samples recorded
+ * concurrently.
+ * 
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ * 
+ */
+public class StripedRunningAverage extends StripedWindow {
+
+    public StripedRunningAverage(int windowSize) {
+        super(windowSize);
+    }
+
+    public StripedRunningAverage(int windowSize, int stripes) {
+        super(windowSize, stripes);
+    }
+
+    @Override
+    protected double value(double[] samples, int count) {
+        double sum = 0.0D;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return sum / count;
+    }
+}
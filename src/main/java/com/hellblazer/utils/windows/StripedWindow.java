@@ -0,0 +1,250 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A window of samples that may be recorded concurrently by many threads.
+ * <p>
+ * The window is striped into ring buffers, each able to hold the whole window,
+ * and a thread records into the stripe chosen by its identity. Recording
+ * claims a slot of the stripe with an atomic increment and stores the sample
+ * into it, stamped with the time it was recorded, so it never blocks or
+ * retries. The stamp is marked while the sample is written and published
+ * after it, and a read skips the slots whose stamp is marked or changes
+ * while the sample is read, so a sample is never paired with the stamp of
+ * another. The stripes are merged lazily, when the value of the window is
+ * read: the last N samples by their stamps form the window, however the
+ * recording was spread across the stripes, and samples in the stripes of
+ * threads that have stopped recording expire as newer samples arrive.
+ * <p>
+ * A sample recorded concurrently with a read may not be seen by it, a sample
+ * whose slot is still being written by a thread that its stripe has lapped is
+ * dropped, and NaN samples are not recorded.
+ * 
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ * 
+ */
+abstract public class StripedWindow implements SampledWindow {
+    private static final long     EMPTY   = Double.doubleToRawLongBits(Double.NaN);
+    // Spread the sequences of the stripes across cache lines
+    private static final int      SPACING = 8;
+    // The stamp of a slot whose sample is being written
+    private static final long     WRITING = Long.MIN_VALUE;
+
+    private final int             capacity;
+    private final int             mask;
+    final double[]                merged;
+    private final AtomicLongArray sequences;
+    // The stamp and the sample of each slot
+    private final AtomicLongArray slots;
+    final long[]                  stamps;
+
+    public StripedWindow(int windowSize) {
+        this(windowSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param windowSize
+     *            - the size of the window
+     * @param stripes
+     *            - the number of stripes, rounded up to a power of two
+     */
+    public StripedWindow(int windowSize, int stripes) {
+        assert windowSize > 0;
+        assert stripes > 0;
+        int count = Integer.highestOneBit(stripes);
+        if (count < stripes) {
+            count <<= 1;
+        }
+        mask = count - 1;
+        capacity = windowSize;
+        sequences = new AtomicLongArray(count * SPACING);
+        slots = new AtomicLongArray(2 * count * capacity);
+        merged = new double[count * capacity];
+        stamps = new long[count * capacity];
+        for (int i = 0; i < slots.length(); i += 2) {
+            slots.set(i + 1, EMPTY);
+        }
+    }
+
+    /**
+     * @return the number of samples in the window
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getStripes() {
+        return mask + 1;
+    }
+
+    /**
+     * reset the state of the receiver. Samples recorded concurrently with the
+     * reset may survive it.
+     */
+    public void reset() {
+        for (int i = 0; i <= mask; i++) {
+            sequences.set(i * SPACING, 0);
+        }
+        for (int i = 0; i < slots.length(); i += 2) {
+            slots.set(i + 1, EMPTY);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.windows.SampledWindow#sample(double)
+     */
+    @Override
+    public void sample(double sample) {
+        sample(sample, System.nanoTime());
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.windows.SampledWindow#size()
+     */
+    @Override
+    public int size() {
+        long size = 0;
+        for (int i = 0; i <= mask; i++) {
+            size += Math.min(capacity, sequences.get(i * SPACING));
+        }
+        return (int) Math.min(capacity, size);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("[ ");
+        synchronized (merged) {
+            int count = merge();
+            for (int i = 0; i < count; i++) {
+                buf.append(merged[i]);
+                buf.append(", ");
+            }
+        }
+        buf.append("]");
+        return buf.toString();
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.windows.SampledWindow#value()
+     */
+    @Override
+    public double value() {
+        synchronized (merged) {
+            int count = merge();
+            if (count == 0) {
+                throw new IllegalStateException(
+                                                "Must have at least one sample to calculate the value");
+            }
+            return value(merged, count);
+        }
+    }
+
+    /**
+     * Answer the value of the merged samples of the window
+     * 
+     * @param samples
+     *            - the samples, which may be reordered
+     * @param count
+     *            - the number of samples
+     */
+    abstract protected double value(double[] samples, int count);
+
+    /**
+     * Record the sample with the stamp
+     */
+    void sample(double sample, long stamp) {
+        int stripe = index();
+        long sequence = sequences.getAndIncrement(stripe * SPACING);
+        int slot = 2 * (stripe * capacity + (int) (sequence % capacity));
+        long previous = slots.get(slot);
+        if (previous == WRITING
+            || !slots.compareAndSet(slot, previous, WRITING)) {
+            return;
+        }
+        slots.lazySet(slot + 1, Double.doubleToRawLongBits(sample));
+        slots.lazySet(slot, stamp);
+    }
+
+    int index() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ id >>> 32) * 0x9E3779B9;
+        return (h ^ h >>> 16) & mask;
+    }
+
+    /**
+     * Merge the samples of the stripes, keeping the most recent of them
+     * 
+     * @return the number of samples
+     */
+    int merge() {
+        int count = 0;
+        for (int i = 0; i < slots.length(); i += 2) {
+            long stamp = slots.get(i);
+            if (stamp == WRITING) {
+                continue;
+            }
+            long bits = slots.get(i + 1);
+            if (bits != EMPTY && slots.get(i) == stamp) {
+                stamps[count] = stamp;
+                merged[count++] = Double.longBitsToDouble(bits);
+            }
+        }
+        if (count > capacity) {
+            newest(count, capacity);
+            count = capacity;
+        }
+        return count;
+    }
+
+    /**
+     * Rearrange the first n merged samples so that the k most recent precede
+     * the others (Wirth)
+     */
+    private void newest(int n, int k) {
+        int lo = 0;
+        int hi = n - 1;
+        while (lo < hi) {
+            long pivot = stamps[k];
+            int i = lo;
+            int j = hi;
+            do {
+                while (stamps[i] - pivot > 0) {
+                    i++;
+                }
+                while (pivot - stamps[j] > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    long stamp = stamps[i];
+                    stamps[i] = stamps[j];
+                    stamps[j] = stamp;
+                    double sample = merged[i];
+                    merged[i++] = merged[j];
+                    merged[j--] = sample;
+                }
+            } while (i <= j);
+            if (j < k) {
+                lo = i;
+            }
+            if (k < i) {
+                hi = j;
+            }
+        }
+    }
+}
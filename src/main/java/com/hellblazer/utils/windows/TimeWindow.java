@@ -0,0 +1,396 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A sliding window of the samples taken over a period of time, rather than of
+ * the last N samples.
+ * <p>
+ * The period is divided into a ring of buckets, each covering a fixed interval
+ * of time and holding the count, sum, minimum and maximum of its samples, and a
+ * log linear histogram of their values. Buckets rotate on the clock: a bucket
+ * is cleared when it is first used for a new interval, so recording a sample
+ * does not allocate. The statistics of the window are computed over the
+ * buckets of the period ending at the latest time the window has seen. The
+ * histograms of those buckets are also merged as samples are recorded, and
+ * subtracted as buckets expire, so percentiles are answered from the merged
+ * histogram, in time proportional to the number of buckets. Percentiles are
+ * approximate, within the 1/16 relative error of the histogram, and bounded by
+ * the minimum and maximum of the window.
+ * <p>
+ * The window may either be driven by its own clock, in the unit of the window,
+ * or by the times supplied with the samples. As the window only moves forward
+ * when it sees a time, {@link #advance(long)} expires the buckets of a window
+ * that is not receiving samples.
+ * <p>
+ * The value of the window is the mean of its samples.
+ * 
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ * 
+ */
+public class TimeWindow implements PercentileWindow {
+    // Underflow, 16 bins for each of the 64 exponents, and overflow
+    private static final int    BINS           = 1026;
+    private static final int    MAX_EXPONENT   = 47;
+    private static final double MAX_VALUE      = Math.scalb(1.0,
+                                                            MAX_EXPONENT + 1);
+    private static final int    MIN_EXPONENT   = -16;
+    private static final double MIN_VALUE      = Math.scalb(1.0, MIN_EXPONENT);
+    private static final int    PRECISION_BITS = 4;
+    private static final long   UNSET          = Long.MIN_VALUE;
+
+    private final int[]         counts;
+    private long                current        = UNSET;
+    private final long[]        epochs;
+    private final int[]         histogram;
+    private final long          interval;
+    private final double[]      maxima;
+    // The histogram of the live buckets
+    private final int[]         merged         = new int[BINS];
+    private final double[]      minima;
+    private final double[]      sums;
+    // The number of samples in the live buckets
+    private int                 total;
+    private final TimeUnit      unit;
+
+    /**
+     * @param buckets
+     *            - the number of buckets in the window
+     * @param interval
+     *            - the interval of time covered by each bucket
+     * @param unit
+     *            - the unit of time of the window
+     */
+    public TimeWindow(int buckets, long interval, TimeUnit unit) {
+        assert buckets > 0;
+        assert interval > 0;
+        this.interval = interval;
+        this.unit = unit;
+        counts = new int[buckets];
+        epochs = new long[buckets];
+        histogram = new int[buckets * BINS];
+        maxima = new double[buckets];
+        minima = new double[buckets];
+        sums = new double[buckets];
+        Arrays.fill(epochs, UNSET);
+    }
+
+    /**
+     * Advance the window to the current time, expiring the buckets that have
+     * fallen out of the window
+     * 
+     * @param currentTime
+     */
+    public void advance(long currentTime) {
+        moveTo(epoch(currentTime));
+    }
+
+    /**
+     * @return the number of samples in the window
+     */
+    public int getCount() {
+        return total;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return the maximum sample in the window
+     */
+    public double getMax() {
+        checkEmpty();
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < epochs.length; i++) {
+            if (live(i) && counts[i] != 0) {
+                max = Math.max(max, maxima[i]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return the mean of the samples in the window
+     */
+    public double getMean() {
+        checkEmpty();
+        int count = 0;
+        double sum = 0.0;
+        for (int i = 0; i < epochs.length; i++) {
+            if (live(i)) {
+                count += counts[i];
+                sum += sums[i];
+            }
+        }
+        return sum / count;
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.windows.PercentileWindow#getMedian()
+     */
+    @Override
+    public double getMedian() {
+        return getPercentile(0.5);
+    }
+
+    /**
+     * @return the minimum sample in the window
+     */
+    public double getMin() {
+        checkEmpty();
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < epochs.length; i++) {
+            if (live(i) && counts[i] != 0) {
+                min = Math.min(min, minima[i]);
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Answer the approximate percentile of the samples in the window. The cost
+     * is proportional to the number of buckets.
+     */
+    @Override
+    public double getPercentile(double percentile) {
+        if (total == 0) {
+            throw new IllegalStateException(
+                                            "Must have at least one sample to calculate the percentile");
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < epochs.length; i++) {
+            if (live(i) && counts[i] != 0) {
+                min = Math.min(min, minima[i]);
+                max = Math.max(max, maxima[i]);
+            }
+        }
+        int rank = (int) ((total - 1) * percentile);
+        int seen = 0;
+        for (int bin = 0; bin < BINS; bin++) {
+            seen += merged[bin];
+            if (seen > rank) {
+                return Math.max(min, Math.min(max, binValue(bin)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return the sum of the samples in the window
+     */
+    public double getSum() {
+        double sum = 0.0;
+        for (int i = 0; i < epochs.length; i++) {
+            if (live(i)) {
+                sum += sums[i];
+            }
+        }
+        return sum;
+    }
+
+    public TimeUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Answer the number of buckets in the window
+     */
+    @Override
+    public int getWindow() {
+        return epochs.length;
+    }
+
+    /* (non-Javadoc)
+     * @see com.hellblazer.utils.windows.PercentileWindow#reset()
+     */
+    @Override
+    public void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(epochs, UNSET);
+        Arrays.fill(merged, 0);
+        current = UNSET;
+        total = 0;
+    }
+
+    /**
+     * Add a sample taken at the current time of the window's clock
+     */
+    @Override
+    public void sample(double sample) {
+        sample(sample, currentTime());
+    }
+
+    /**
+     * Add a sample taken at the current time. Samples older than the window
+     * are ignored.
+     */
+    @Override
+    public void sample(double sample, long currentTime) {
+        long epoch = epoch(currentTime);
+        moveTo(epoch);
+        if (current - epoch >= epochs.length) {
+            return;
+        }
+        int i = (int) (epoch % epochs.length);
+        if (i < 0) {
+            i += epochs.length;
+        }
+        if (epochs[i] != epoch) {
+            if (epochs[i] != UNSET) {
+                expire(i);
+            }
+            epochs[i] = epoch;
+            counts[i] = 0;
+            sums[i] = 0.0;
+            minima[i] = sample;
+            maxima[i] = sample;
+            Arrays.fill(histogram, i * BINS, (i + 1) * BINS, 0);
+        } else {
+            if (sample < minima[i]) {
+                minima[i] = sample;
+            }
+            if (sample > maxima[i]) {
+                maxima[i] = sample;
+            }
+        }
+        int bin = bin(sample);
+        counts[i]++;
+        sums[i] += sample;
+        histogram[i * BINS + bin]++;
+        merged[bin]++;
+        total++;
+    }
+
+    /**
+     * Answer the number of samples in the window
+     */
+    @Override
+    public int size() {
+        return getCount();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("[ ");
+        for (int i = 0; i < epochs.length; i++) {
+            if (live(i)) {
+                buf.append(epochs[i] * interval);
+                buf.append(": ");
+                buf.append(counts[i]);
+                buf.append(", ");
+            }
+        }
+        buf.append("]");
+        return buf.toString();
+    }
+
+    /**
+     * Answer the mean of the samples in the window
+     */
+    @Override
+    public double value() {
+        if (getCount() == 0) {
+            throw new IllegalStateException(
+                                            "Must have at least one sample to calculate the average");
+        }
+        return getMean();
+    }
+
+    private int bin(double sample) {
+        if (!(sample >= MIN_VALUE)) {
+            return 0;
+        }
+        if (sample >= MAX_VALUE) {
+            return BINS - 1;
+        }
+        int mantissa = (int) (Double.doubleToRawLongBits(sample) >>> 52 - PRECISION_BITS)
+                       & (1 << PRECISION_BITS) - 1;
+        return 1 + (Math.getExponent(sample) - MIN_EXPONENT << PRECISION_BITS)
+               + mantissa;
+    }
+
+    /**
+     * @return the midpoint of the range of values of the bin, or infinity for
+     *         the unbounded overflow bin
+     */
+    private double binValue(int bin) {
+        if (bin == 0) {
+            return 0.0;
+        }
+        if (bin == BINS - 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int exponent = (bin - 1 >> PRECISION_BITS) + MIN_EXPONENT;
+        int mantissa = bin - 1 & (1 << PRECISION_BITS) - 1;
+        return Math.scalb(1.0 + (mantissa + 0.5) / (1 << PRECISION_BITS),
+                          exponent);
+    }
+
+    private void checkEmpty() {
+        if (getCount() == 0) {
+            throw new IllegalStateException("The window is empty");
+        }
+    }
+
+    private long currentTime() {
+        if (unit == TimeUnit.MILLISECONDS) {
+            return System.currentTimeMillis();
+        }
+        return unit.convert(System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Remove the bucket from the merged histogram, as it expires
+     */
+    private void expire(int i) {
+        total -= counts[i];
+        int offset = i * BINS;
+        for (int bin = 0; bin < BINS; bin++) {
+            merged[bin] -= histogram[offset + bin];
+        }
+        epochs[i] = UNSET;
+    }
+
+    private long epoch(long time) {
+        return time >= 0 ? time / interval : (time + 1) / interval - 1;
+    }
+
+    private boolean live(int i) {
+        long epoch = epochs[i];
+        return epoch != UNSET && current - epoch < epochs.length;
+    }
+
+    /**
+     * Move the window forward to the epoch, expiring the buckets that fall
+     * out of it
+     */
+    private void moveTo(long epoch) {
+        if (current != UNSET && epoch <= current) {
+            return;
+        }
+        current = epoch;
+        for (int i = 0; i < epochs.length; i++) {
+            if (epochs[i] != UNSET && !live(i)) {
+                expire(i);
+            }
+        }
+    }
+}
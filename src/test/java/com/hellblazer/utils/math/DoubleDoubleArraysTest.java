@@ -0,0 +1,108 @@
+package com.hellblazer.utils.math;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Tests that the operations of {@link DoubleDoubleArrays} have the same
+ * results as those of {@link DoubleDouble}.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class DoubleDoubleArraysTest extends TestCase {
+    public static void main(String args[]) {
+        TestRunner.run(DoubleDoubleArraysTest.class);
+    }
+
+    private static void check(DoubleDouble expected, double[] actual, int i) {
+        assertTrue(expected.dump() + " != [" + actual[i] + ", "
+                   + actual[i + 1] + "]",
+                   expected.equals(new DoubleDouble(actual[i], actual[i + 1])));
+    }
+
+    /**
+     * @return n random double-doubles, packed
+     */
+    private static double[] random(Random random, int n) {
+        double[] x = new double[2 * n];
+        for (int i = 0; i < 2 * n; i += 2) {
+            double hi = Math.scalb(random.nextDouble() - 0.5,
+                                   random.nextInt(20) - 10);
+            double lo = Math.ulp(hi) * (random.nextDouble() - 0.5);
+            x[i] = hi + lo;
+            x[i + 1] = lo - (x[i] - hi);
+        }
+        return x;
+    }
+
+    private static DoubleDouble valueOf(double[] x, int i) {
+        return new DoubleDouble(x[i], x[i + 1]);
+    }
+
+    public void testScalar() {
+        Random random = new Random(0x666);
+        double[] x = random(random, 1000);
+        double[] y = random(random, 1000);
+        double[] out = new double[2];
+        for (int i = 0; i < x.length; i += 2) {
+            DoubleDouble a = valueOf(x, i);
+            DoubleDouble b = valueOf(y, i);
+            DoubleDoubleArrays.add(x, i, y, i, out, 0);
+            check(a.add(b), out, 0);
+            DoubleDoubleArrays.add(x, i, y[i], out, 0);
+            check(a.add(new DoubleDouble(y[i])), out, 0);
+            DoubleDoubleArrays.subtract(x, i, y, i, out, 0);
+            check(a.subtract(b), out, 0);
+            DoubleDoubleArrays.multiply(x, i, y, i, out, 0);
+            check(a.multiply(b), out, 0);
+            DoubleDoubleArrays.multiply(x, i, y[i], out, 0);
+            check(a.multiply(new DoubleDouble(y[i])), out, 0);
+            DoubleDoubleArrays.divide(x, i, y, i, out, 0);
+            check(a.divide(b), out, 0);
+            DoubleDoubleArrays.sqrt(x, i, out, 0);
+            if (a.isNegative()) {
+                assertTrue(Double.isNaN(out[0]));
+            } else {
+                check(a.sqrt(), out, 0);
+            }
+        }
+        // The result may overwrite an operand
+        double[] z = x.clone();
+        DoubleDoubleArrays.multiply(z, 0, z, 0, z, 0);
+        check(valueOf(x, 0).sqr(), z, 0);
+        DoubleDoubleArrays.sqrt(new double[2], 0, out, 0);
+        check(new DoubleDouble(0.0), out, 0);
+    }
+
+    public void testVector() {
+        Random random = new Random(0x1638);
+        int n = 1000;
+        double[] x = random(random, n);
+        double[] y = random(random, n);
+        double[] a = random(random, 1);
+        double[] out = new double[4];
+        DoubleDouble sum = new DoubleDouble(0.0);
+        DoubleDouble dot = new DoubleDouble(0.0);
+        for (int i = 0; i < 2 * n; i += 2) {
+            sum = sum.add(valueOf(x, i));
+            dot = dot.add(valueOf(x, i).multiply(valueOf(y, i)));
+        }
+        DoubleDoubleArrays.sum(x, 0, n, out, 2);
+        check(sum, out, 2);
+        DoubleDoubleArrays.dot(x, 0, y, 0, n, out, 2);
+        check(dot, out, 2);
+        // A sub-vector
+        DoubleDoubleArrays.sum(x, 2, 1, out, 0);
+        check(valueOf(x, 2), out, 0);
+
+        double[] z = y.clone();
+        DoubleDoubleArrays.axpy(a, 0, x, 0, z, 0, n);
+        for (int i = 0; i < 2 * n; i += 2) {
+            check(valueOf(a, 0).multiply(valueOf(x, i)).add(valueOf(y, i)),
+                  z, i);
+        }
+    }
+}
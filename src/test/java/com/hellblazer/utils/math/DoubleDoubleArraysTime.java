@@ -0,0 +1,93 @@
+package com.hellblazer.utils.math;
+
+import java.util.Random;
+
+/**
+ * Times the sum and dot product of vectors of double-doubles, accumulated with
+ * {@link DoubleDouble} values and with the kernels of
+ * {@link DoubleDoubleArrays}.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class DoubleDoubleArraysTime {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 22;
+        DoubleDoubleArraysTime test = new DoubleDoubleArraysTime(count);
+        test.run();
+    }
+
+    private final int      count;
+    private final double[] out = new double[2];
+    // Keeps the results from being optimized away
+    private double         sink;
+    private final double[] xs;
+    private final double[] ys;
+
+    public DoubleDoubleArraysTime(int count) {
+        this.count = count;
+        Random random = new Random(0x666);
+        xs = new double[2 * count];
+        ys = new double[2 * count];
+        for (int i = 0; i < 2 * count; i += 2) {
+            xs[i] = random.nextDouble();
+            ys[i] = random.nextDouble();
+        }
+    }
+
+    public void run() {
+        // Warm up
+        for (int i = 0; i < 5; i++) {
+            runArraysDot();
+            runArraysSum();
+            runObjectsDot();
+            runObjectsSum();
+        }
+        report("objects sum", runObjectsSum());
+        report("arrays sum ", runArraysSum());
+        report("objects dot", runObjectsDot());
+        report("arrays dot ", runArraysDot());
+    }
+
+    private void report(String name, double time) {
+        System.out.println(name + ":   count = " + count + "   time = " + time
+                           + " ms   rate = " + (int) (count / time * 1000.0)
+                           + " /s");
+    }
+
+    private double runArraysDot() {
+        long then = System.nanoTime();
+        DoubleDoubleArrays.dot(xs, 0, ys, 0, count, out, 0);
+        sink += out[0];
+        return (System.nanoTime() - then) / 1e6;
+    }
+
+    private double runArraysSum() {
+        long then = System.nanoTime();
+        DoubleDoubleArrays.sum(xs, 0, count, out, 0);
+        sink += out[0];
+        return (System.nanoTime() - then) / 1e6;
+    }
+
+    private double runObjectsDot() {
+        long then = System.nanoTime();
+        DoubleDouble dot = new DoubleDouble(0.0);
+        for (int i = 0; i < 2 * count; i += 2) {
+            DoubleDouble x = new DoubleDouble(xs[i], xs[i + 1]);
+            dot = dot.add(x.multiply(new DoubleDouble(ys[i], ys[i + 1])));
+        }
+        sink += dot.doubleValue();
+        return (System.nanoTime() - then) / 1e6;
+    }
+
+    private double runObjectsSum() {
+        long then = System.nanoTime();
+        DoubleDouble sum = new DoubleDouble(0.0);
+        for (int i = 0; i < 2 * count; i += 2) {
+            sum = sum.add(new DoubleDouble(xs[i], xs[i + 1]));
+        }
+        sink += sum.doubleValue();
+        return (System.nanoTime() - then) / 1e6;
+    }
+}
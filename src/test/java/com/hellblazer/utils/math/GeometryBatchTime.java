@@ -0,0 +1,109 @@
+package com.hellblazer.utils.math;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times the classification of points against a set of planes with the batch
+ * predicates of {@link Geometry}, sequentially and in parallel on 1 to N
+ * cores.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class GeometryBatchTime {
+
+    public static void main(String[] args) throws Exception {
+        int points = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 22;
+        int planes = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        GeometryBatchTime test = new GeometryBatchTime(points, planes);
+        test.run();
+    }
+
+    private final double[] planes;
+    private final byte[]   signs;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+
+    public GeometryBatchTime(int points, int planes) {
+        Random random = new Random(0x666);
+        xs = new double[points];
+        ys = new double[points];
+        zs = new double[points];
+        for (int i = 0; i < points; i++) {
+            xs[i] = random.nextDouble();
+            ys[i] = random.nextDouble();
+            zs[i] = random.nextDouble();
+        }
+        signs = new byte[points];
+        this.planes = new double[planes * 9];
+        for (int i = 0; i < this.planes.length; i++) {
+            this.planes[i] = random.nextDouble();
+        }
+    }
+
+    public void run() {
+        // Warm up
+        for (int i = 0; i < 3; i++) {
+            runSequential();
+        }
+        double sequential = runSequential();
+        System.out.println("sequential:      time = " + sequential + " ms");
+        int processors = Runtime.getRuntime().availableProcessors();
+        double single = 0.0;
+        for (int parallelism = 1; parallelism <= processors; parallelism *= 2) {
+            double time = runParallel(parallelism);
+            if (parallelism == 1) {
+                single = time;
+            }
+            System.out.println("parallelism = " + parallelism
+                               + ":   time = " + time + " ms   speedup = "
+                               + single / time);
+            if (parallelism < processors && parallelism * 2 > processors) {
+                parallelism = processors / 2;
+            }
+        }
+    }
+
+    public double runParallel(int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // Warm up the workers and their workspaces
+            classify(pool);
+            long then = System.nanoTime();
+            for (int i = 0; i < 5; i++) {
+                classify(pool);
+            }
+            return (System.nanoTime() - then) / 5 / 1e6;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public double runSequential() {
+        long then = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            classify(null);
+        }
+        return (System.nanoTime() - then) / 5 / 1e6;
+    }
+
+    private void classify(ForkJoinPool pool) {
+        double[] p = planes;
+        for (int i = 0; i < p.length; i += 9) {
+            if (pool == null) {
+                Geometry.leftOfPlane(p[i], p[i + 1], p[i + 2], p[i + 3],
+                                     p[i + 4], p[i + 5], p[i + 6], p[i + 7],
+                                     p[i + 8], xs, ys, zs, 0, xs.length,
+                                     signs, null);
+            } else {
+                Geometry.leftOfPlaneParallel(p[i], p[i + 1], p[i + 2],
+                                             p[i + 3], p[i + 4], p[i + 5],
+                                             p[i + 6], p[i + 7], p[i + 8],
+                                             xs, ys, zs, 0, xs.length, signs,
+                                             pool);
+            }
+        }
+    }
+}
@@ -0,0 +1,537 @@
+package com.hellblazer.utils.math;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Tests the robust predicates of {@link Geometry} against determinants
+ * evaluated exactly in {@link BigDecimal}.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class GeometryTest extends TestCase {
+    public static void main(String args[]) {
+        TestRunner.run(GeometryTest.class);
+    }
+
+    private static BigDecimal b(double x) {
+        return new BigDecimal(x);
+    }
+
+    private static double[] d(float[] p) {
+        double[] q = new double[p.length];
+        for (int i = 0; i < p.length; i++) {
+            q[i] = p[i];
+        }
+        return q;
+    }
+
+    private static BigDecimal det3(BigDecimal a, BigDecimal b, BigDecimal c,
+                                   BigDecimal d, BigDecimal e, BigDecimal f,
+                                   BigDecimal g, BigDecimal h, BigDecimal i) {
+        BigDecimal x = a.multiply(e.multiply(i).subtract(f.multiply(h)));
+        BigDecimal y = b.multiply(d.multiply(i).subtract(f.multiply(g)));
+        BigDecimal z = c.multiply(d.multiply(h).subtract(e.multiply(g)));
+        return x.subtract(y).add(z);
+    }
+
+    private static int inCircle(double[] a, double[] b, double[] c, double[] d) {
+        BigDecimal[][] m = new BigDecimal[3][3];
+        double[][] p = { a, b, c };
+        for (int i = 0; i < 3; i++) {
+            BigDecimal x = b(p[i][0]).subtract(b(d[0]));
+            BigDecimal y = b(p[i][1]).subtract(b(d[1]));
+            m[i][0] = x;
+            m[i][1] = y;
+            m[i][2] = x.multiply(x).add(y.multiply(y));
+        }
+        return det3(m[0][0], m[0][1], m[0][2], m[1][0], m[1][1], m[1][2],
+                    m[2][0], m[2][1], m[2][2]).signum();
+    }
+
+    private static int inOrthoSphere(double[] a, double[] b, double[] c,
+                                     double[] d, double[] e) {
+        return inSphere(a, b, c, d, e, true);
+    }
+
+    private static int inSphere(double[] a, double[] b, double[] c,
+                                double[] d, double[] e) {
+        return inSphere(a, b, c, d, e, false);
+    }
+
+    private static int inSphere(double[] a, double[] b, double[] c,
+                                double[] d, double[] e, boolean weighted) {
+        BigDecimal[][] m = new BigDecimal[4][4];
+        double[][] p = { a, b, c, d };
+        for (int i = 0; i < 4; i++) {
+            BigDecimal x = b(p[i][0]).subtract(b(e[0]));
+            BigDecimal y = b(p[i][1]).subtract(b(e[1]));
+            BigDecimal z = b(p[i][2]).subtract(b(e[2]));
+            m[i][0] = x;
+            m[i][1] = y;
+            m[i][2] = z;
+            m[i][3] = x.multiply(x).add(y.multiply(y)).add(z.multiply(z));
+            if (weighted) {
+                m[i][3] = m[i][3].subtract(b(p[i][3]).subtract(b(e[3])));
+            }
+        }
+        BigDecimal det = BigDecimal.ZERO;
+        for (int j = 0; j < 4; j++) {
+            BigDecimal[] r = new BigDecimal[9];
+            int k = 0;
+            for (int i = 1; i < 4; i++) {
+                for (int c2 = 0; c2 < 4; c2++) {
+                    if (c2 != j) {
+                        r[k++] = m[i][c2];
+                    }
+                }
+            }
+            BigDecimal minor = det3(r[0], r[1], r[2], r[3], r[4], r[5], r[6],
+                                    r[7], r[8]).multiply(m[0][j]);
+            det = j % 2 == 0 ? det.add(minor) : det.subtract(minor);
+        }
+        return det.signum();
+    }
+
+    private static int leftOfLine(double[] a, double[] b, double[] c) {
+        BigDecimal acx = b(a[0]).subtract(b(c[0]));
+        BigDecimal acy = b(a[1]).subtract(b(c[1]));
+        BigDecimal bcx = b(b[0]).subtract(b(c[0]));
+        BigDecimal bcy = b(b[1]).subtract(b(c[1]));
+        return acx.multiply(bcy).subtract(acy.multiply(bcx)).signum();
+    }
+
+    private static int leftOfPlane(double[] a, double[] b, double[] c,
+                                   double[] d) {
+        return det3(b(a[0]).subtract(b(d[0])), b(a[1]).subtract(b(d[1])),
+                    b(a[2]).subtract(b(d[2])), b(b[0]).subtract(b(d[0])),
+                    b(b[1]).subtract(b(d[1])), b(b[2]).subtract(b(d[2])),
+                    b(c[0]).subtract(b(d[0])), b(c[1]).subtract(b(d[1])),
+                    b(c[2]).subtract(b(d[2]))).signum();
+    }
+
+    private static double[] perturb(Random random, double[] p) {
+        double[] q = p.clone();
+        for (int i = 0; i < q.length; i++) {
+            q[i] += Math.ulp(q[i]) * (random.nextInt(9) - 4);
+        }
+        return q;
+    }
+
+    private static double[] point(Random random, int dimension) {
+        double[] p = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            p[i] = random.nextDouble();
+        }
+        return p;
+    }
+
+    private static int sign(double x) {
+        return x > 0.0 ? 1 : x < 0.0 ? -1 : 0;
+    }
+
+    public GeometryTest(String name) {
+        super(name);
+    }
+
+    public void testFloat() {
+        Random random = new Random(0x666);
+        Geometry.Context context = new Geometry.Context();
+        // The integer points on the circle of radius 5 and the sphere of
+        // radius 3
+        List<float[]> circle = new ArrayList<float[]>();
+        List<float[]> sphere = new ArrayList<float[]>();
+        for (int x = -5; x <= 5; x++) {
+            for (int y = -5; y <= 5; y++) {
+                if (x * x + y * y == 25) {
+                    circle.add(new float[] { x, y });
+                }
+                for (int z = -5; z <= 5; z++) {
+                    if (x * x + y * y + z * z == 9) {
+                        sphere.add(new float[] { x, y, z, 0.0f });
+                    }
+                }
+            }
+        }
+        for (int n = 0; n < 2000; n++) {
+            // Exactly cocircular or cospherical float points, scaled and
+            // translated, with the last point perturbed by a float ulp or not
+            boolean spherical = n % 2 == 0;
+            List<float[]> points = spherical ? sphere : circle;
+            float scale = (float) Math.scalb(1.0, random.nextInt(13) - 6);
+            float[] offset = { random.nextInt(101) - 50,
+                    random.nextInt(101) - 50, random.nextInt(101) - 50, 0.0f };
+            float[][] p = new float[5][];
+            double[][] d = new double[5][];
+            for (int i = 0; i < 5; i++) {
+                float[] q = points.get(random.nextInt(points.size()));
+                p[i] = new float[q.length];
+                for (int j = 0; j < q.length; j++) {
+                    p[i][j] = offset[j] + scale * q[j];
+                }
+                if (n % 4 >= 2 && i == 4) {
+                    for (int j = 0; j < Math.min(q.length, 3); j++) {
+                        p[i][j] += Math.ulp(p[i][j]) * (random.nextInt(3) - 1);
+                    }
+                }
+                d[i] = d(p[i]);
+            }
+            if (spherical) {
+                assertEquals(leftOfPlane(d[0], d[1], d[2], d[4]),
+                             sign(Geometry.leftOfPlane(p[0], p[1], p[2], p[4],
+                                                       context)));
+                int expected = inSphere(d[0], d[1], d[2], d[3], d[4]);
+                assertEquals(expected, sign(Geometry.inSphere(p[0], p[1], p[2],
+                                                              p[3], p[4],
+                                                              context)));
+                assertEquals(expected,
+                             sign(Geometry.inOrthoSphere(p[0], p[1], p[2],
+                                                         p[3], p[4], context)));
+            } else {
+                assertEquals(leftOfLine(d[0], d[1], d[4]),
+                             sign(Geometry.leftOfLine(p[0], p[1], p[4],
+                                                      context)));
+                assertEquals(inCircle(d[0], d[1], d[2], d[4]),
+                             sign(Geometry.inCircle(p[0], p[1], p[2], p[4],
+                                                    context)));
+            }
+        }
+
+        // Collinear and coplanar float points whose differences are not
+        // floats
+        for (int n = 0; n < 1000; n++) {
+            float[] u = { random.nextInt(21) - 10, random.nextInt(21) - 10,
+                    random.nextInt(21) - 10 };
+            float[] v = { random.nextInt(21) - 10, random.nextInt(21) - 10,
+                    random.nextInt(21) - 10 };
+            float[] m = { (float) Math.scalb(1.0, 20),
+                    (float) Math.scalb(1.0, -10), random.nextInt(100) };
+            float[] a = { m[0] * u[0], m[0] * u[1], m[0] * u[2] };
+            float[] b = { m[1] * u[0], m[1] * u[1], m[1] * u[2] };
+            float[] c = { m[2] * v[0], m[2] * v[1], m[2] * v[2] };
+            float[] e = { m[1] * v[0], m[1] * v[1], m[1] * v[2] };
+            assertEquals(0.0, Geometry.leftOfLine(a, b, new float[2], context));
+            assertEquals(0.0, Geometry.leftOfPlane(a, b, c, e, context));
+            assertEquals(leftOfLine(d(a), d(c), d(e)),
+                         sign(Geometry.leftOfLine(a, c, e, context)));
+            e[n % 3] += Math.ulp(e[n % 3]);
+            assertEquals(leftOfPlane(d(a), d(b), d(c), d(e)),
+                         sign(Geometry.leftOfPlane(a, b, c, e, context)));
+        }
+    }
+
+    public void testInCircle() {
+        Random random = new Random(0x666);
+        Geometry.Context context = new Geometry.Context();
+        for (int n = 0; n < 1000; n++) {
+            // Four points very nearly on the unit circle
+            double[][] p = new double[4][];
+            for (int i = 0; i < 4; i++) {
+                double theta = random.nextDouble() * 2.0 * Math.PI;
+                p[i] = perturb(random,
+                               new double[] { Math.cos(theta),
+                                       Math.sin(theta) });
+            }
+            if (leftOfLine(p[0], p[1], p[2]) <= 0) {
+                double[] swap = p[0];
+                p[0] = p[1];
+                p[1] = swap;
+            }
+            int expected = inCircle(p[0], p[1], p[2], p[3]);
+            assertEquals(expected,
+                         sign(Geometry.inCircle(p[0], p[1], p[2], p[3])));
+            assertEquals(expected, sign(Geometry.inCircle(p[0], p[1], p[2],
+                                                          p[3], context)));
+        }
+    }
+
+    public void testInSphere() {
+        Random random = new Random(0x666);
+        Geometry.Context context = new Geometry.Context();
+        for (int n = 0; n < 1000; n++) {
+            // Five points very nearly on the unit sphere
+            double[][] p = new double[5][];
+            for (int i = 0; i < 5; i++) {
+                double[] q = point(random, 3);
+                double r = Math.sqrt(q[0] * q[0] + q[1] * q[1] + q[2] * q[2]);
+                p[i] = perturb(random, new double[] { q[0] / r, q[1] / r,
+                        q[2] / r });
+            }
+            if (leftOfPlane(p[0], p[1], p[2], p[3]) <= 0) {
+                double[] swap = p[0];
+                p[0] = p[1];
+                p[1] = swap;
+            }
+            int expected = inSphere(p[0], p[1], p[2], p[3], p[4]);
+            assertEquals(expected, sign(Geometry.inSphere(p[0], p[1], p[2],
+                                                          p[3], p[4])));
+            assertEquals(expected, sign(Geometry.inSphere(p[0], p[1], p[2],
+                                                          p[3], p[4],
+                                                          context)));
+        }
+    }
+
+    public void testInOrthoSphere() {
+        Random random = new Random(0x666);
+        Geometry.Context context = new Geometry.Context();
+        for (int n = 0; n < 1000; n++) {
+            double[][] p = new double[5][];
+            for (int i = 0; i < 5; i++) {
+                double[] q = point(random, 3);
+                double r = Math.sqrt(q[0] * q[0] + q[1] * q[1] + q[2] * q[2]);
+                p[i] = perturb(random, new double[] { q[0] / r, q[1] / r,
+                        q[2] / r });
+            }
+            if (leftOfPlane(p[0], p[1], p[2], p[3]) <= 0) {
+                double[] swap = p[0];
+                p[0] = p[1];
+                p[1] = swap;
+            }
+            // With zero weights the ortho-sphere is the circumsphere
+            int expected = inSphere(p[0], p[1], p[2], p[3], p[4]);
+            double[][] w = new double[5][];
+            for (int i = 0; i < 5; i++) {
+                w[i] = new double[] { p[i][0], p[i][1], p[i][2], 0.0 };
+            }
+            assertEquals(expected, sign(Geometry.inOrthoSphere(w[0], w[1],
+                                                               w[2], w[3],
+                                                               w[4])));
+            assertEquals(expected, sign(Geometry.inOrthoSphere(w[0], w[1],
+                                                               w[2], w[3],
+                                                               w[4],
+                                                               context)));
+        }
+    }
+
+    public void testInOrthoSphereWeighted() {
+        Random random = new Random(0x666);
+        Geometry.Context context = new Geometry.Context();
+        for (int n = 0; n < 1000; n++) {
+            // Five weighted points very nearly orthogonal to the unit sphere
+            double[][] p = new double[5][];
+            for (int i = 0; i < 5; i++) {
+                double[] q = point(random, 3);
+                double s = 1.0 + random.nextDouble();
+                double x = q[0] * s;
+                double y = q[1] * s;
+                double z = q[2] * s;
+                p[i] = perturb(random, new double[] { x, y, z,
+                        x * x + y * y + z * z - 1.0 });
+            }
+            if (leftOfPlane(p[0], p[1], p[2], p[3]) <= 0) {
+                double[] swap = p[0];
+                p[0] = p[1];
+                p[1] = swap;
+            }
+            int expected = inOrthoSphere(p[0], p[1], p[2], p[3], p[4]);
+            assertEquals(expected, sign(Geometry.inOrthoSphere(p[0], p[1],
+                                                               p[2], p[3],
+                                                               p[4])));
+            assertEquals(expected, sign(Geometry.inOrthoSphere(p[0], p[1],
+                                                               p[2], p[3],
+                                                               p[4],
+                                                               context)));
+        }
+    }
+
+    public void testBatch() {
+        Random random = new Random(0x666);
+        int n = 10000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] zs = new double[n];
+        double[] a = { 0.0, 0.0, 0.0 };
+        double[] b = { 1.0, 0.0, 0.0 };
+        double[] c = { 0.0, 1.0, 0.0 };
+        double[] d = { 0.0, 0.0, 1.0 };
+        for (int i = 0; i < n; i++) {
+            // Points scattered about, and very near to, the plane and sphere
+            double[] p = point(random, 3);
+            if (i % 2 == 0) {
+                p[2] = 0.5;
+            } else {
+                double r = Math.sqrt(p[0] * p[0] + p[1] * p[1] + p[2] * p[2]);
+                for (int j = 0; j < 3; j++) {
+                    p[j] = 0.5 + Math.sqrt(0.75) * p[j] / r;
+                }
+            }
+            p = perturb(random, p);
+            xs[i] = p[0];
+            ys[i] = p[1];
+            zs[i] = p[2];
+        }
+        byte[] bytes = new byte[n];
+        int[] ints = new int[n];
+        Geometry.leftOfLine(a[0], a[1], b[0], b[1], xs, ys, 1, n - 1, bytes,
+                            null);
+        Geometry.leftOfLine(a[0], a[1], b[0], b[1], xs, ys, 1, n - 1, ints,
+                            null);
+        assertEquals(0, bytes[0]);
+        assertEquals(0, ints[n - 1]);
+        for (int i = 1; i < n - 1; i++) {
+            double[] p = { xs[i], ys[i] };
+            int expected = sign(Geometry.leftOfLine(a, b, p));
+            assertEquals(expected, bytes[i]);
+            assertEquals(expected, ints[i]);
+        }
+        double[] pa = { 0.0, 0.0, 0.5 };
+        double[] pb = { 1.0, 0.0, 0.5 };
+        double[] pc = { 0.0, 1.0, 0.5 };
+        Geometry.leftOfPlane(pa[0], pa[1], pa[2], pb[0], pb[1], pb[2], pc[0],
+                             pc[1], pc[2], xs, ys, zs, 0, n, bytes, null);
+        Geometry.leftOfPlane(pa[0], pa[1], pa[2], pb[0], pb[1], pb[2], pc[0],
+                             pc[1], pc[2], xs, ys, zs, 0, n, ints, null);
+        for (int i = 0; i < n; i++) {
+            double[] p = { xs[i], ys[i], zs[i] };
+            int expected = leftOfPlane(pa, pb, pc, p);
+            assertEquals(expected, bytes[i]);
+            assertEquals(expected, ints[i]);
+        }
+        Geometry.inCircle(a[0], a[1], b[0], b[1], c[0], c[1], xs, ys, 0, n,
+                          bytes, null);
+        Geometry.inCircle(a[0], a[1], b[0], b[1], c[0], c[1], xs, ys, 0, n,
+                          ints, null);
+        for (int i = 0; i < n; i++) {
+            double[] p = { xs[i], ys[i] };
+            int expected = sign(Geometry.inCircle(a, b, c, p));
+            assertEquals(expected, bytes[i]);
+            assertEquals(expected, ints[i]);
+        }
+        Geometry.Context context = new Geometry.Context();
+        Geometry.inSphere(a[0], a[1], a[2], c[0], c[1], c[2], b[0], b[1], b[2],
+                          d[0], d[1], d[2], xs, ys, zs, 0, n, bytes, context);
+        Geometry.inSphere(a[0], a[1], a[2], c[0], c[1], c[2], b[0], b[1], b[2],
+                          d[0], d[1], d[2], xs, ys, zs, 0, n, ints, context);
+        for (int i = 0; i < n; i += 10) {
+            double[] p = { xs[i], ys[i], zs[i] };
+            int expected = inSphere(a, c, b, d, p);
+            assertEquals(expected, bytes[i]);
+            assertEquals(expected, ints[i]);
+        }
+    }
+
+    public void testParallel() {
+        Random random = new Random(0x666);
+        int n = 100000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] zs = new double[n];
+        for (int i = 0; i < n; i++) {
+            // Points scattered about, and very near to, the plane z = y
+            double[] p = point(random, 3);
+            p[2] = p[1];
+            p = perturb(random, p);
+            xs[i] = p[0];
+            ys[i] = p[1];
+            zs[i] = p[2];
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            byte[] expected = new byte[n];
+            byte[] bytes = new byte[n];
+            int[] ints = new int[n];
+            Geometry.leftOfPlane(0.0, 0.0, 0.0, 1.0, 0.0, 0.0, 0.0, 1.0, 1.0,
+                                 xs, ys, zs, 0, n, expected, null);
+            Geometry.leftOfPlaneParallel(0.0, 0.0, 0.0, 1.0, 0.0, 0.0, 0.0,
+                                         1.0, 1.0, xs, ys, zs, 0, n, bytes,
+                                         pool);
+            Geometry.leftOfPlaneParallel(0.0, 0.0, 0.0, 1.0, 0.0, 0.0, 0.0,
+                                         1.0, 1.0, xs, ys, zs, 0, n, ints,
+                                         pool);
+            int zeros = 0;
+            for (int i = 0; i < n; i++) {
+                assertEquals(expected[i], bytes[i]);
+                assertEquals(expected[i], ints[i]);
+                if (expected[i] == 0) {
+                    zeros++;
+                }
+            }
+            assertTrue(zeros > 0);
+            assertTrue(zeros < n);
+
+            Geometry.inCircle(0.0, 0.0, 1.0, 0.0, 0.0, 1.0, xs, ys, 0, n,
+                              expected, null);
+            Geometry.inCircleParallel(0.0, 0.0, 1.0, 0.0, 0.0, 1.0, xs, ys, 0,
+                                      n, bytes, pool);
+            for (int i = 0; i < n; i++) {
+                assertEquals(expected[i], bytes[i]);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testDegenerate() {
+        // Exactly cocircular, cospherical and coplanar points on a grid
+        double[] a = { 5.0, 0.0, 0.0 };
+        double[] b = { 0.0, 5.0, 0.0 };
+        double[] c = { -5.0, 0.0, 0.0 };
+        double[] d = { 0.0, 0.0, 5.0 };
+        double[] e = { 3.0, 4.0, 0.0 };
+        assertEquals(0.0, Geometry.inCircle(a, b, c, e));
+        assertEquals(0.0, Geometry.inSphere(a, b, c, d, e));
+        assertEquals(0.0, Geometry.leftOfPlane(a, b, c, e));
+        double[][] w = { { 5.0, 0.0, 0.0, 1.0 }, { 0.0, 5.0, 0.0, 1.0 },
+                { -5.0, 0.0, 0.0, 1.0 }, { 0.0, 0.0, 5.0, 1.0 },
+                { 3.0, 4.0, 0.0, 1.0 } };
+        assertEquals(0.0, Geometry.inOrthoSphere(w[0], w[1], w[2], w[3], w[4]));
+        w[4][3] = 2.0;
+        assertEquals(inOrthoSphere(w[0], w[1], w[2], w[3], w[4]),
+                     sign(Geometry.inOrthoSphere(w[0], w[1], w[2], w[3], w[4])));
+    }
+
+    public void testLeftOfLine() {
+        Random random = new Random(0x666);
+        Geometry.Context context = new Geometry.Context();
+        double[] a = { 12.0, 12.0 };
+        double[] b = { 24.0, 24.0 };
+        for (int i = 0; i < 256; i++) {
+            for (int j = 0; j < 256; j++) {
+                double[] c = { 0.5 + i * Math.ulp(0.5), 0.5 + j * Math.ulp(0.5) };
+                int expected = leftOfLine(a, b, c);
+                assertEquals(expected, sign(Geometry.leftOfLine(a, b, c)));
+                assertEquals(expected,
+                             sign(Geometry.leftOfLine(a, b, c, context)));
+            }
+        }
+        for (int n = 0; n < 1000; n++) {
+            double[] p = point(random, 2);
+            double[] q = point(random, 2);
+            double s = random.nextDouble();
+            double[] c = perturb(random,
+                                 new double[] { p[0] + s * (q[0] - p[0]),
+                                         p[1] + s * (q[1] - p[1]) });
+            int expected = leftOfLine(p, q, c);
+            assertEquals(expected, sign(Geometry.leftOfLine(p, q, c)));
+            assertEquals(expected, sign(Geometry.leftOfLine(p, q, c, context)));
+        }
+    }
+
+    public void testLeftOfPlane() {
+        Random random = new Random(0x666);
+        Geometry.Context context = new Geometry.Context();
+        for (int n = 0; n < 1000; n++) {
+            double[] a = point(random, 3);
+            double[] b = point(random, 3);
+            double[] c = point(random, 3);
+            double s = random.nextDouble();
+            double t = random.nextDouble();
+            double[] d = new double[3];
+            for (int i = 0; i < 3; i++) {
+                d[i] = a[i] + s * (b[i] - a[i]) + t * (c[i] - a[i]);
+            }
+            d = perturb(random, d);
+            int expected = leftOfPlane(a, b, c, d);
+            assertEquals(expected, sign(Geometry.leftOfPlane(a, b, c, d)));
+            assertEquals(expected,
+                         sign(Geometry.leftOfPlane(a, b, c, d, context)));
+        }
+    }
+}
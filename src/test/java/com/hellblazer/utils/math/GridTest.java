@@ -0,0 +1,57 @@
+package com.hellblazer.utils.math;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.textui.TestRunner;
+
+/**
+ * Tests the queries of {@link Grid}.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class GridTest extends SpatialIndexTest {
+    public static void main(String args[]) {
+        TestRunner.run(GridTest.class);
+    }
+
+    public void testCellSize() {
+        Random random = new Random(0x666);
+        double[] xs = new double[1000];
+        double[] ys = new double[1000];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble();
+            ys[i] = random.nextDouble();
+        }
+        KdTree tree = new KdTree(xs, ys);
+        // Cells much larger and much smaller than the default
+        for (double size : new double[] { 10.0, 0.1, 0.001 }) {
+            Grid grid = new Grid(xs, ys, size);
+            assertEquals(size, grid.getCellSize());
+            for (int i = 0; i < 100; i++) {
+                double[] point = { random.nextDouble(), random.nextDouble() };
+                double[] direction = { random.nextGaussian(),
+                        random.nextGaussian() };
+                assertTrue(Arrays.equals(tree.nearest(point, 5),
+                                         grid.nearest(point, 5)));
+                assertTrue(Arrays.equals(tree.alongRay(point, direction, 0.01),
+                                         grid.alongRay(point, direction, 0.01)));
+            }
+        }
+        try {
+            new Grid(xs, ys, 0.0);
+            fail("Constructed a grid of empty cells");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Override
+    protected SpatialIndex index(double[][] axes) {
+        if (axes.length == 2) {
+            return new Grid(axes[0], axes[1]);
+        }
+        return new Grid(axes[0], axes[1], axes[2]);
+    }
+}
@@ -0,0 +1,23 @@
+package com.hellblazer.utils.math;
+
+import junit.textui.TestRunner;
+
+/**
+ * Tests the queries of {@link KdTree}.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class KdTreeTest extends SpatialIndexTest {
+    public static void main(String args[]) {
+        TestRunner.run(KdTreeTest.class);
+    }
+
+    @Override
+    protected SpatialIndex index(double[][] axes) {
+        if (axes.length == 2) {
+            return new KdTree(axes[0], axes[1]);
+        }
+        return new KdTree(axes[0], axes[1], axes[2]);
+    }
+}
@@ -0,0 +1,286 @@
+package com.hellblazer.utils.math;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the queries of a {@link SpatialIndex} against linear scans of the
+ * points.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public abstract class SpatialIndexTest extends TestCase {
+
+    private static double[][] clustered(Random random, int dimension, int n) {
+        double[][] axes = new double[dimension][n];
+        double[][] centers = random(random, dimension, 8);
+        for (int i = 0; i < n; i++) {
+            int c = random.nextInt(8);
+            for (int d = 0; d < dimension; d++) {
+                axes[d][i] = centers[d][c] + 0.01 * random.nextGaussian();
+            }
+        }
+        return axes;
+    }
+
+    private static double distance(double[][] axes, int i, double[] point) {
+        double distance = 0.0;
+        for (int d = 0; d < point.length; d++) {
+            double delta = axes[d][i] - point[d];
+            distance += delta * delta;
+        }
+        return distance;
+    }
+
+    /**
+     * A lattice of points, with duplicates, at many equal distances
+     */
+    private static double[][] lattice(Random random, int dimension, int n) {
+        double[][] axes = new double[dimension][n];
+        for (int i = 0; i < n; i++) {
+            for (int d = 0; d < dimension; d++) {
+                axes[d][i] = random.nextInt(8);
+            }
+        }
+        return axes;
+    }
+
+    /**
+     * @return the indices of the keys that are not NaN, in order of key, then
+     *         index
+     */
+    private static int[] order(final double[] keys) {
+        List<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < keys.length; i++) {
+            if (!Double.isNaN(keys[i])) {
+                order.add(i);
+            }
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int c = Double.compare(keys[a], keys[b]);
+                return c != 0 ? c : a.compareTo(b);
+            }
+        });
+        int[] result = new int[order.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = order.get(i);
+        }
+        return result;
+    }
+
+    private static double[] point(Random random, int dimension) {
+        double[] point = new double[dimension];
+        for (int d = 0; d < dimension; d++) {
+            point[d] = 1.2 * random.nextDouble() - 0.1;
+        }
+        return point;
+    }
+
+    private static double[][] random(Random random, int dimension, int n) {
+        double[][] axes = new double[dimension][n];
+        for (int i = 0; i < n; i++) {
+            for (int d = 0; d < dimension; d++) {
+                axes[d][i] = random.nextDouble();
+            }
+        }
+        return axes;
+    }
+
+    public void testClustered() {
+        Random random = new Random(0x666);
+        for (int dimension = 2; dimension <= 3; dimension++) {
+            verify(random, clustered(random, dimension, 3000), 0.02);
+        }
+    }
+
+    public void testConcurrent() throws Exception {
+        Random random = new Random(0x42);
+        final double[][] axes = random(random, 3, 5000);
+        final SpatialIndex index = index(axes);
+        final double[][] points = new double[50][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = point(random, 3);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (double[] point : points) {
+                            if (!Arrays.equals(nearest(axes, point, 10),
+                                               index.nearest(point, 10))
+                                || !Arrays.equals(within(axes, point, 0.05),
+                                                  index.within(point, 0.05))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testEmpty() {
+        SpatialIndex index = index(new double[3][0]);
+        assertEquals(0, index.size());
+        double[] point = { 0.0, 0.0, 0.0 };
+        assertEquals(-1, index.nearest(point));
+        assertEquals(0, index.within(point, 1.0).length);
+        assertEquals(0, index.inBox(point, point).length);
+        assertEquals(0, index.alongRay(point, new double[] { 1.0, 0.0, 0.0 },
+                                       1.0).length);
+        try {
+            index.nearest(new double[2]);
+            fail("Queried a 3D index with a 2D point");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testLattice() {
+        Random random = new Random(0x1638);
+        for (int dimension = 2; dimension <= 3; dimension++) {
+            double[][] axes = lattice(random, dimension, 2000);
+            verify(random, axes, 1.5);
+            // Every point of the lattice is its own nearest, at the first of
+            // its duplicates
+            SpatialIndex index = index(axes);
+            for (int i = 0; i < 100; i++) {
+                double[] point = new double[dimension];
+                for (int d = 0; d < dimension; d++) {
+                    point[d] = axes[d][i];
+                }
+                int nearest = index.nearest(point);
+                assertTrue(nearest <= i);
+                assertEquals(0.0, distance(axes, nearest, point));
+            }
+        }
+    }
+
+    public void testRandom() {
+        Random random = new Random(0x666);
+        for (int dimension = 2; dimension <= 3; dimension++) {
+            verify(random, random(random, dimension, 5000), 0.05);
+        }
+    }
+
+    private int[] alongRay(double[][] axes, double[] origin,
+                           double[] direction, double radius) {
+        double length2 = 0.0;
+        for (double v : direction) {
+            length2 += v * v;
+        }
+        double[] keys = new double[axes[0].length];
+        for (int i = 0; i < keys.length; i++) {
+            double t = 0.0;
+            for (int d = 0; d < origin.length; d++) {
+                t += (axes[d][i] - origin[d]) * direction[d];
+            }
+            t = Math.max(0.0, t / length2);
+            double distance = 0.0;
+            for (int d = 0; d < origin.length; d++) {
+                double delta = axes[d][i] - origin[d] - t * direction[d];
+                distance += delta * delta;
+            }
+            keys[i] = distance <= radius * radius ? t : Double.NaN;
+        }
+        return order(keys);
+    }
+
+    private int[] inBox(double[][] axes, double[] lower, double[] upper) {
+        double[] keys = new double[axes[0].length];
+        for (int i = 0; i < keys.length; i++) {
+            for (int d = 0; d < lower.length; d++) {
+                if (axes[d][i] < lower[d] || axes[d][i] > upper[d]) {
+                    keys[i] = Double.NaN;
+                }
+            }
+        }
+        return order(keys);
+    }
+
+    private int[] nearest(double[][] axes, double[] point, int k) {
+        double[] keys = new double[axes[0].length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = distance(axes, i, point);
+        }
+        int[] order = order(keys);
+        return Arrays.copyOf(order, Math.min(k, order.length));
+    }
+
+    /**
+     * Compare the queries of the index of the points with linear scans
+     */
+    private void verify(Random random, double[][] axes, double radius) {
+        int dimension = axes.length;
+        SpatialIndex index = index(axes);
+        assertEquals(axes[0].length, index.size());
+        assertEquals(dimension, index.getDimension());
+        double scale = 1.0;
+        for (double x : axes[0]) {
+            scale = Math.max(scale, x);
+        }
+        for (int n = 0; n < 100; n++) {
+            double[] point = point(random, dimension);
+            double[] other = point(random, dimension);
+            for (int d = 0; d < dimension; d++) {
+                point[d] *= scale;
+                other[d] *= scale;
+            }
+            int k = 1 + random.nextInt(20);
+            assertTrue(Arrays.equals(nearest(axes, point, k),
+                                     index.nearest(point, k)));
+            assertTrue(Arrays.equals(within(axes, point, radius),
+                                     index.within(point, radius)));
+
+            double[] lower = new double[dimension];
+            double[] upper = new double[dimension];
+            double[] direction = new double[dimension];
+            for (int d = 0; d < dimension; d++) {
+                lower[d] = Math.min(point[d], other[d]);
+                upper[d] = Math.max(point[d], other[d]);
+                direction[d] = n % 4 == 0 && d > 0 ? 0.0 : other[d] - point[d];
+            }
+            assertTrue(Arrays.equals(inBox(axes, lower, upper),
+                                     index.inBox(lower, upper)));
+            assertTrue(Arrays.equals(alongRay(axes, point, direction, radius),
+                                     index.alongRay(point, direction, radius)));
+        }
+    }
+
+    private int[] within(double[][] axes, double[] point, double radius) {
+        double[] keys = new double[axes[0].length];
+        for (int i = 0; i < keys.length; i++) {
+            double distance = distance(axes, i, point);
+            keys[i] = distance <= radius * radius ? distance : Double.NaN;
+        }
+        return order(keys);
+    }
+
+    /**
+     * @return the index under test of the points whose coordinates are the
+     *         arrays of the axes
+     */
+    protected abstract SpatialIndex index(double[][] axes);
+}
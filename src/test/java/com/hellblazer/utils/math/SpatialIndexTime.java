@@ -0,0 +1,96 @@
+package com.hellblazer.utils.math;
+
+import java.util.Random;
+
+/**
+ * Times the construction of the spatial indices of random points in the unit
+ * cube and their nearest neighbor queries, against a linear scan.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class SpatialIndexTime {
+
+    public static void main(String[] args) throws Exception {
+        int points = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        SpatialIndexTime test = new SpatialIndexTime(points);
+        test.run();
+    }
+
+    private final double[][] queries;
+    private final double[]   xs;
+    private final double[]   ys;
+    private final double[]   zs;
+
+    public SpatialIndexTime(int points) {
+        Random random = new Random(0x666);
+        xs = new double[points];
+        ys = new double[points];
+        zs = new double[points];
+        for (int i = 0; i < points; i++) {
+            xs[i] = random.nextDouble();
+            ys[i] = random.nextDouble();
+            zs[i] = random.nextDouble();
+        }
+        queries = new double[100000][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new double[] { random.nextDouble(),
+                    random.nextDouble(), random.nextDouble() };
+        }
+    }
+
+    public void run() {
+        // Warm up
+        for (int i = 0; i < 3; i++) {
+            query(new KdTree(xs, ys, zs), 10000);
+            query(new Grid(xs, ys, zs), 10000);
+        }
+        long then = System.nanoTime();
+        KdTree tree = new KdTree(xs, ys, zs);
+        report("kd-tree build", then, xs.length);
+        then = System.nanoTime();
+        query(tree, queries.length);
+        report("kd-tree 10-nn", then, queries.length);
+        then = System.nanoTime();
+        Grid grid = new Grid(xs, ys, zs);
+        report("grid build   ", then, xs.length);
+        then = System.nanoTime();
+        query(grid, queries.length);
+        report("grid 10-nn   ", then, queries.length);
+        then = System.nanoTime();
+        scan(100);
+        report("linear 1-nn  ", then, 100);
+    }
+
+    private void query(SpatialIndex index, int count) {
+        for (int i = 0; i < count; i++) {
+            index.nearest(queries[i], 10);
+        }
+    }
+
+    private void report(String name, long then, int count) {
+        double time = (System.nanoTime() - then) / 1e6;
+        System.out.println(name + ":   count = " + count + "   time = " + time
+                           + " ms   rate = " + (int) (count / time * 1000.0)
+                           + " /s");
+    }
+
+    private int scan(int count) {
+        int nearest = -1;
+        for (int q = 0; q < count; q++) {
+            double[] p = queries[q];
+            double min = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < xs.length; i++) {
+                double dx = xs[i] - p[0];
+                double dy = ys[i] - p[1];
+                double dz = zs[i] - p[2];
+                double d = dx * dx + dy * dy + dz * dz;
+                if (d < min) {
+                    min = d;
+                    nearest = i;
+                }
+            }
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,236 @@
+package com.hellblazer.utils.math;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Tests the Delaunay and regular tetrahedralizations of
+ * {@link Tetrahedralization}.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class TetrahedralizationTest extends TestCase {
+    public static void main(String args[]) {
+        TestRunner.run(TetrahedralizationTest.class);
+    }
+
+    private static double inSphere(Tetrahedralization tetrahedralization,
+                                   int t, double x, double y, double z,
+                                   double w) {
+        int a = tetrahedralization.getVertex(t, 0);
+        int b = tetrahedralization.getVertex(t, 1);
+        int c = tetrahedralization.getVertex(t, 2);
+        int d = tetrahedralization.getVertex(t, 3);
+        Tetrahedralization s = tetrahedralization;
+        if (s.isWeighted()) {
+            return Geometry.inOrthoSphere(s.getX(a), s.getY(a), s.getZ(a),
+                                          s.getW(a), s.getX(b), s.getY(b),
+                                          s.getZ(b), s.getW(b), s.getX(c),
+                                          s.getY(c), s.getZ(c), s.getW(c),
+                                          s.getX(d), s.getY(d), s.getZ(d),
+                                          s.getW(d), x, y, z, w);
+        }
+        return Geometry.inSphere(s.getX(a), s.getY(a), s.getZ(a), s.getX(b),
+                                 s.getY(b), s.getZ(b), s.getX(c), s.getY(c),
+                                 s.getZ(c), s.getX(d), s.getY(d), s.getZ(d), x,
+                                 y, z);
+    }
+
+    private static double orient(Tetrahedralization s, int a, int b, int c,
+                                 int d) {
+        return Geometry.leftOfPlane(s.getX(a), s.getY(a), s.getZ(a), s.getX(b),
+                                    s.getY(b), s.getZ(b), s.getX(c), s.getY(c),
+                                    s.getZ(c), s.getX(d), s.getY(d), s.getZ(d));
+    }
+
+    /**
+     * Check the structure of the tetrahedralization: the tetrahedra are
+     * positively oriented, the neighbors are mutual and share a face, the
+     * vertex opposite each face is outside the sphere of the tetrahedron
+     * across it, and the count of tetrahedra is consistent
+     */
+    private static void verify(Tetrahedralization s) {
+        int count = 0;
+        for (int t = 0; t < s.getLimit(); t++) {
+            if (s.isDeleted(t)) {
+                continue;
+            }
+            count++;
+            assertTrue(orient(s, s.getVertex(t, 0), s.getVertex(t, 1),
+                              s.getVertex(t, 2), s.getVertex(t, 3)) > 0.0);
+            for (int i = 0; i < 4; i++) {
+                int n = s.getNeighbor(t, i);
+                if (n < 0) {
+                    for (int j = 0; j < 4; j++) {
+                        if (j != i) {
+                            assertTrue(s.getVertex(t, j) < 0);
+                        }
+                    }
+                    continue;
+                }
+                assertFalse(s.isDeleted(n));
+                int shared = 0;
+                int opposite = -1;
+                for (int j = 0; j < 4; j++) {
+                    if (s.getNeighbor(n, j) == t) {
+                        opposite = s.getVertex(n, j);
+                    }
+                    for (int k = 0; k < 4; k++) {
+                        if (k != i && s.getVertex(t, k) == s.getVertex(n, j)) {
+                            shared++;
+                        }
+                    }
+                }
+                assertEquals(3, shared);
+                assertTrue(opposite != s.getVertex(t, i));
+                assertTrue(inSphere(s, t, s.getX(opposite), s.getY(opposite),
+                                    s.getZ(opposite), s.getW(opposite)) <= 0.0);
+            }
+        }
+        assertEquals(s.getTetrahedronCount(), count);
+    }
+
+    public void testDegenerate() {
+        // A grid, in which every cube of eight points is cospherical
+        int n = 6;
+        double[] xs = new double[n * n * n];
+        double[] ys = new double[n * n * n];
+        double[] zs = new double[n * n * n];
+        for (int i = 0; i < n * n * n; i++) {
+            xs[i] = i % n;
+            ys[i] = i / n % n;
+            zs[i] = i / (n * n);
+        }
+        Tetrahedralization s = new Tetrahedralization(0, 0, 0, n - 1, n - 1,
+                                                      n - 1);
+        int[] vertices = s.insert(xs, ys, zs);
+        for (int v : vertices) {
+            assertTrue(v >= 0);
+        }
+        verify(s);
+
+        // The grid fills cubes of unit volume
+        int[] tetrahedra = s.getTetrahedra();
+        double volume = 0.0;
+        for (int i = 0; i < tetrahedra.length; i += 4) {
+            volume += orient(s, tetrahedra[i], tetrahedra[i + 1],
+                             tetrahedra[i + 2], tetrahedra[i + 3]);
+        }
+        assertEquals(6.0 * (n - 1) * (n - 1) * (n - 1), volume, 1.0e-9);
+
+        // Duplicates are not inserted
+        assertEquals(-1, s.insert(2.0, 3.0, 4.0));
+        assertEquals(n * n * n, s.size());
+    }
+
+    public void testDelaunay() {
+        Random random = new Random(0x666);
+        int n = 500;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] zs = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble();
+            ys[i] = random.nextDouble();
+            zs[i] = random.nextDouble();
+        }
+        Tetrahedralization s = new Tetrahedralization(0, 0, 0, 1, 1, 1);
+        int[] vertices = s.insert(xs, ys, zs);
+        for (int i = 0; i < n; i++) {
+            assertTrue(vertices[i] >= 0);
+            assertEquals(xs[i], s.getX(vertices[i]));
+        }
+        verify(s);
+
+        // No point is inside the sphere of a tetrahedron
+        int[] tetrahedra = s.getTetrahedra();
+        assertTrue(tetrahedra.length > 0);
+        for (int i = 0; i < tetrahedra.length; i += 4) {
+            int a = tetrahedra[i];
+            int b = tetrahedra[i + 1];
+            int c = tetrahedra[i + 2];
+            int d = tetrahedra[i + 3];
+            for (int v = 0; v < n; v++) {
+                assertTrue(Geometry.inSphere(s.getX(a), s.getY(a), s.getZ(a),
+                                             s.getX(b), s.getY(b), s.getZ(b),
+                                             s.getX(c), s.getY(c), s.getZ(c),
+                                             s.getX(d), s.getY(d), s.getZ(d),
+                                             s.getX(v), s.getY(v), s.getZ(v)) <= 0.0);
+            }
+        }
+    }
+
+    public void testLocate() {
+        Random random = new Random(0x1638);
+        Tetrahedralization s = new Tetrahedralization(0, 0, 0, 1, 1, 1);
+        for (int i = 0; i < 200; i++) {
+            s.insert(random.nextDouble(), random.nextDouble(),
+                     random.nextDouble());
+        }
+        verify(s);
+        for (int i = 0; i < 1000; i++) {
+            double x = random.nextDouble();
+            double y = random.nextDouble();
+            double z = random.nextDouble();
+            int t = s.locate(x, y, z);
+            assertFalse(s.isDeleted(t));
+            // The point is not beyond any face of the tetrahedron
+            for (int j = 0; j < 4; j++) {
+                double[] p = new double[12];
+                for (int k = 0; k < 4; k++) {
+                    int v = s.getVertex(t, k);
+                    p[3 * k] = k == j ? x : s.getX(v);
+                    p[3 * k + 1] = k == j ? y : s.getY(v);
+                    p[3 * k + 2] = k == j ? z : s.getZ(v);
+                }
+                assertTrue(Geometry.leftOfPlane(p[0], p[1], p[2], p[3], p[4],
+                                                p[5], p[6], p[7], p[8], p[9],
+                                                p[10], p[11]) >= 0.0);
+            }
+        }
+        try {
+            s.locate(1.0e9, 0.0, 0.0);
+            fail("Located a point outside the enclosing tetrahedron");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testRegular() {
+        Random random = new Random(0x42);
+        int n = 400;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] zs = new double[n];
+        double[] ws = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble();
+            ys[i] = random.nextDouble();
+            zs[i] = random.nextDouble();
+            ws[i] = 0.01 * random.nextDouble();
+        }
+        Tetrahedralization s = new Tetrahedralization(0, 0, 0, 1, 1, 1, true);
+        int[] vertices = s.insert(xs, ys, zs, ws);
+        verify(s);
+
+        // No weighted point, redundant or not, is inside an ortho-sphere
+        int redundant = 0;
+        for (int v : vertices) {
+            if (v < 0) {
+                redundant++;
+            }
+        }
+        assertTrue(redundant < n);
+        for (int t = 0; t < s.getLimit(); t++) {
+            if (s.isDeleted(t)) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                assertTrue(inSphere(s, t, xs[i], ys[i], zs[i], ws[i]) <= 0.0);
+            }
+        }
+    }
+}
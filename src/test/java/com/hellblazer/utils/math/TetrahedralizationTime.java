@@ -0,0 +1,79 @@
+package com.hellblazer.utils.math;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Times the Delaunay and regular tetrahedralizations of random points in the
+ * unit cube. A million points require a heap of about 1 GB.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class TetrahedralizationTime {
+
+    public static void main(String[] args) throws Exception {
+        int points = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        TetrahedralizationTime test = new TetrahedralizationTime(points);
+        test.run();
+    }
+
+    private final double[] ws;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+
+    public TetrahedralizationTime(int points) {
+        Random random = new Random(0x666);
+        xs = new double[points];
+        ys = new double[points];
+        zs = new double[points];
+        ws = new double[points];
+        double spacing = Math.pow(points, -1.0 / 3.0);
+        for (int i = 0; i < points; i++) {
+            xs[i] = random.nextDouble();
+            ys[i] = random.nextDouble();
+            zs[i] = random.nextDouble();
+            ws[i] = 0.1 * spacing * spacing * random.nextDouble();
+        }
+    }
+
+    public void run() {
+        // Warm up
+        for (int i = 0; i < 3; i++) {
+            tetrahedralize(false, Math.min(xs.length, 100000));
+        }
+        report("delaunay", false);
+        report("regular ", true);
+    }
+
+    private void report(String name, boolean weighted) {
+        long then = System.nanoTime();
+        Tetrahedralization tetrahedralization = tetrahedralize(weighted,
+                                                               xs.length);
+        double time = (System.nanoTime() - then) / 1e6;
+        System.out.println(name + ":   points = " + xs.length
+                           + "   tetrahedra = "
+                           + tetrahedralization.getTetrahedronCount()
+                           + "   time = " + time + " ms   rate = "
+                           + (int) (xs.length / time * 1000.0)
+                           + " points/s");
+    }
+
+    private Tetrahedralization tetrahedralize(boolean weighted, int points) {
+        Tetrahedralization tetrahedralization = new Tetrahedralization(0, 0,
+                                                                       0, 1,
+                                                                       1, 1,
+                                                                       weighted);
+        if (points == xs.length) {
+            tetrahedralization.insert(xs, ys, zs, weighted ? ws : null);
+        } else {
+            tetrahedralization.insert(Arrays.copyOf(xs, points),
+                                      Arrays.copyOf(ys, points),
+                                      Arrays.copyOf(zs, points),
+                                      weighted ? Arrays.copyOf(ws, points)
+                                              : null);
+        }
+        return tetrahedralization;
+    }
+}
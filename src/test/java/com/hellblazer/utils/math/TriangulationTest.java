@@ -0,0 +1,159 @@
+package com.hellblazer.utils.math;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Tests the Delaunay triangulation and convex hull of {@link Triangulation}.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class TriangulationTest extends TestCase {
+    public static void main(String args[]) {
+        TestRunner.run(TriangulationTest.class);
+    }
+
+    private static double[][] random(Random random, int n) {
+        double[][] points = new double[2][n];
+        for (int i = 0; i < n; i++) {
+            points[0][i] = random.nextDouble();
+            points[1][i] = random.nextDouble();
+        }
+        return points;
+    }
+
+    /**
+     * Check the structure of the triangulation: the triangles are
+     * counter-clockwise, the half-edges are mutual and reversed, and no point
+     * is inside the circle of a triangle
+     *
+     * @return the number of half-edges on the convex hull
+     */
+    private static int verify(Triangulation triangulation, double[] xs,
+                              double[] ys, boolean circles) {
+        int[] t = triangulation.getTriangles();
+        int[] h = triangulation.getHalfedges();
+        assertEquals(t.length, h.length);
+        int hull = 0;
+        for (int i = 0; i < t.length; i++) {
+            int next = i % 3 == 2 ? i - 2 : i + 1;
+            if (h[i] < 0) {
+                hull++;
+                continue;
+            }
+            int o = h[i];
+            int onext = o % 3 == 2 ? o - 2 : o + 1;
+            assertEquals(i, h[o]);
+            assertEquals(t[i], t[onext]);
+            assertEquals(t[next], t[o]);
+        }
+        for (int i = 0; i < t.length; i += 3) {
+            int a = t[i];
+            int b = t[i + 1];
+            int c = t[i + 2];
+            assertTrue(Geometry.leftOfLine(xs[a], ys[a], xs[b], ys[b], xs[c],
+                                           ys[c]) > 0.0);
+            if (circles) {
+                for (int d = 0; d < xs.length; d++) {
+                    assertTrue(Geometry.inCircle(xs[a], ys[a], xs[b], ys[b],
+                                                 xs[c], ys[c], xs[d], ys[d]) <= 0.0);
+                }
+            }
+        }
+        return hull;
+    }
+
+    public void testCollinear() {
+        double[] xs = { 0, 1, 2, 3, 4, 5 };
+        double[] ys = { 0, 2, 4, 6, 8, 10 };
+        Triangulation triangulation = new Triangulation(xs, ys);
+        assertEquals(0, triangulation.size());
+        int[] hull = Triangulation.convexHull(xs, ys);
+        assertTrue(Arrays.equals(new int[] { 0, 5 }, hull));
+        assertEquals(0, new Triangulation(new double[1], new double[1]).size());
+    }
+
+    public void testConvexHull() {
+        Random random = new Random(0x1638);
+        double[][] points = random(random, 2000);
+        double[] xs = points[0];
+        double[] ys = points[1];
+        int[] hull = Triangulation.convexHull(xs, ys);
+        assertTrue(hull.length >= 3);
+        for (int i = 0; i < hull.length; i++) {
+            int a = hull[i];
+            int b = hull[(i + 1) % hull.length];
+            int c = hull[(i + 2) % hull.length];
+            // Strictly convex
+            assertTrue(Geometry.leftOfLine(xs[a], ys[a], xs[b], ys[b], xs[c],
+                                           ys[c]) > 0.0);
+            // Every point is inside or on the hull
+            for (int d = 0; d < xs.length; d++) {
+                assertTrue(Geometry.leftOfLine(xs[a], ys[a], xs[b], ys[b],
+                                               xs[d], ys[d]) >= 0.0);
+            }
+        }
+
+        // The hull of the triangulation
+        Triangulation triangulation = new Triangulation(xs, ys);
+        assertEquals(hull.length, verify(triangulation, xs, ys, false));
+    }
+
+    public void testDegenerate() {
+        // A grid of cocircular squares, with duplicates
+        int n = 20;
+        double[] xs = new double[n * n + 10];
+        double[] ys = new double[n * n + 10];
+        for (int i = 0; i < n * n; i++) {
+            xs[i] = i % n;
+            ys[i] = i / n;
+        }
+        for (int i = 0; i < 10; i++) {
+            xs[n * n + i] = xs[7 * i];
+            ys[n * n + i] = ys[7 * i];
+        }
+        Triangulation triangulation = new Triangulation(xs, ys);
+        assertEquals(2 * (n - 1) * (n - 1), triangulation.size());
+        assertEquals(4 * (n - 1), verify(triangulation, xs, ys, true));
+        for (int v : triangulation.getTriangles()) {
+            assertTrue(v < n * n);
+        }
+        assertEquals(4, Triangulation.convexHull(xs, ys).length);
+    }
+
+    public void testDelaunay() {
+        Random random = new Random(0x666);
+        double[][] points = random(random, 1000);
+        double[] xs = points[0];
+        double[] ys = points[1];
+        Triangulation triangulation = new Triangulation(xs, ys);
+        int hull = verify(triangulation, xs, ys, true);
+        // Euler's formula for a triangulation of points in general position
+        assertEquals(2 * xs.length - 2 - hull, triangulation.size());
+    }
+
+    public void testParallel() {
+        Random random = new Random(0x42);
+        double[][] points = random(random, 200000);
+        double[] xs = points[0];
+        double[] ys = points[1];
+        Triangulation sequential = new Triangulation(xs, ys);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Triangulation parallel = new Triangulation(xs, ys, pool);
+            verify(parallel, xs, ys, false);
+            // The halves and their merges are the same
+            assertTrue(Arrays.equals(sequential.getTriangles(),
+                                     parallel.getTriangles()));
+            assertTrue(Arrays.equals(sequential.getHalfedges(),
+                                     parallel.getHalfedges()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.hellblazer.utils.math;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Tests that the roundoff errors of products by {@link TwoProduct} are exact,
+ * whether computed by a fused multiply-add or by Dekker's algorithm.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class TwoProductTest extends TestCase {
+    public static void main(String args[]) {
+        TestRunner.run(TwoProductTest.class);
+    }
+
+    private static void check(double a, double b) {
+        double product = a * b;
+        BigDecimal exact = new BigDecimal(a).multiply(new BigDecimal(b));
+        double error = exact.subtract(new BigDecimal(product)).doubleValue();
+        assertEquals(error, TwoProduct.dekker(a, b, product));
+        assertEquals(error, TwoProduct.error(a, b, product));
+    }
+
+    public void testError() {
+        Random random = new Random(0x666);
+        for (int i = 0; i < 100000; i++) {
+            double a = random.nextDouble() - 0.5;
+            double b = random.nextDouble() - 0.5;
+            int exponent = random.nextInt(200) - 100;
+            check(Math.scalb(a, exponent), b);
+        }
+        // Products that are exact, and that round up and down
+        check(3.0, 7.0);
+        check(0.1, 10.0);
+        check(1.0 + Math.ulp(1.0), 1.0 - Math.ulp(1.0));
+        check(Math.nextUp(1.0), Math.nextUp(1.0));
+    }
+
+    public void testMultiply() {
+        // The products and quotients of double-doubles, by whichever
+        // error-free transformation, are within the precision of a
+        // double-double
+        Random random = new Random(0x1638);
+        for (int i = 0; i < 10000; i++) {
+            double ahi = random.nextDouble() + 0.5;
+            double alo = Math.ulp(ahi) * (random.nextDouble() - 0.5);
+            double bhi = random.nextDouble() + 0.5;
+            double blo = Math.ulp(bhi) * (random.nextDouble() - 0.5);
+            DoubleDouble a = new DoubleDouble(ahi, alo);
+            DoubleDouble b = new DoubleDouble(bhi, blo);
+            BigDecimal exact = new BigDecimal(ahi).add(new BigDecimal(alo));
+            exact = exact.multiply(new BigDecimal(bhi).add(new BigDecimal(blo)));
+            double hi = exact.doubleValue();
+            double lo = exact.subtract(new BigDecimal(hi)).doubleValue();
+            DoubleDouble product = a.multiply(b);
+            double relative = product.subtract(new DoubleDouble(hi, lo))
+                                     .doubleValue() / hi;
+            assertTrue(Math.abs(relative) < 8.0 * DoubleDouble.EPS);
+            relative = product.divide(b).subtract(a).doubleValue() / ahi;
+            assertTrue(Math.abs(relative) < 16.0 * DoubleDouble.EPS);
+            DoubleDouble one = b.reciprocal().multiply(b);
+            relative = one.subtract(new DoubleDouble(1.0)).doubleValue();
+            assertTrue(Math.abs(relative) < 16.0 * DoubleDouble.EPS);
+        }
+    }
+}
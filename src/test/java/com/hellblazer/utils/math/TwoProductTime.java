@@ -0,0 +1,123 @@
+package com.hellblazer.utils.math;
+
+import java.util.Random;
+
+/**
+ * Times the roundoff errors of products by Dekker's algorithm and by the
+ * error-free transformation chosen by {@link TwoProduct}, and the double-double
+ * arithmetic and exact predicates that depend on it. Run with the system
+ * property com.hellblazer.utils.math.fma set to false to time the latter with
+ * Dekker's algorithm.
+ *
+ * @author <a href="mailto:hal.hildebrand@gmail.com">Hal Hildebrand</a>
+ *
+ */
+public class TwoProductTime {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+        TwoProductTime test = new TwoProductTime(count);
+        test.run();
+    }
+
+    private final double[] as;
+    private final double[] bs;
+    // Keeps the results from being optimized away
+    private double         sink;
+
+    public TwoProductTime(int count) {
+        Random random = new Random(0x666);
+        as = new double[count];
+        bs = new double[count];
+        for (int i = 0; i < count; i++) {
+            as[i] = random.nextDouble() + 0.5;
+            bs[i] = random.nextDouble() + 0.5;
+        }
+    }
+
+    public void run() {
+        System.out.println("fused multiply-add: " + TwoProduct.FMA);
+        // Warm up
+        for (int i = 0; i < 10; i++) {
+            runDekker();
+            runError();
+            runMultiply();
+            runDivide();
+            runInSphere();
+        }
+        report("dekker   ", as.length, runDekker());
+        report("error    ", as.length, runError());
+        report("multiply ", as.length, runMultiply());
+        report("divide   ", as.length, runDivide());
+        report("inSphere ", as.length / 64, runInSphere());
+    }
+
+    private void report(String name, int count, double time) {
+        System.out.println(name + ":   count = " + count + "   time = " + time
+                           + " ms   rate = " + (int) (count / time * 1000.0)
+                           + " /s");
+    }
+
+    private double runDekker() {
+        long then = System.nanoTime();
+        double sum = 0.0;
+        for (int i = 0; i < as.length; i++) {
+            double a = as[i];
+            double b = bs[i];
+            sum += TwoProduct.dekker(a, b, a * b);
+        }
+        sink += sum;
+        return (System.nanoTime() - then) / 1e6;
+    }
+
+    private double runDivide() {
+        long then = System.nanoTime();
+        DoubleDouble sum = new DoubleDouble(0.0);
+        for (int i = 0; i < as.length; i++) {
+            sum = sum.add(new DoubleDouble(as[i]).divide(new DoubleDouble(bs[i])));
+        }
+        sink += sum.doubleValue();
+        return (System.nanoTime() - then) / 1e6;
+    }
+
+    private double runError() {
+        long then = System.nanoTime();
+        double sum = 0.0;
+        for (int i = 0; i < as.length; i++) {
+            double a = as[i];
+            double b = bs[i];
+            sum += TwoProduct.error(a, b, a * b);
+        }
+        sink += sum;
+        return (System.nanoTime() - then) / 1e6;
+    }
+
+    /**
+     * Time the exact stage of the in-sphere test, with points on a sphere of
+     * integer radius
+     */
+    private double runInSphere() {
+        Geometry.Context context = new Geometry.Context();
+        long then = System.nanoTime();
+        double sum = 0.0;
+        int n = as.length / 64;
+        for (int i = 0; i < n; i++) {
+            double s = 1 + (i & 15);
+            sum += Geometry.inSphere(3.0 * s, 0.0, 0.0, 0.0, 3.0 * s, 0.0,
+                                     -3.0 * s, 0.0, 0.0, 0.0, 0.0, 3.0 * s,
+                                     s, 2.0 * s, 2.0 * s, context);
+        }
+        sink += sum;
+        return (System.nanoTime() - then) / 1e6;
+    }
+
+    private double runMultiply() {
+        long then = System.nanoTime();
+        DoubleDouble sum = new DoubleDouble(0.0);
+        for (int i = 0; i < as.length; i++) {
+            sum = sum.add(new DoubleDouble(as[i]).multiply(new DoubleDouble(bs[i])));
+        }
+        sink += sum.doubleValue();
+        return (System.nanoTime() - then) / 1e6;
+    }
+}
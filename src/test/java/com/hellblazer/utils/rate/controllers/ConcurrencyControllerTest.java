@@ -0,0 +1,124 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author hhildebrand
+ *
+ */
+public class ConcurrencyControllerTest {
+
+    /**
+     * Drive the controller with the limit saturated, sampling the response
+     * time of a backend with the given capacity
+     */
+    private static void drive(ConcurrencyController controller, int capacity,
+                              double baseResponseTime, int rounds) {
+        drive(controller, capacity, baseResponseTime, rounds, 0);
+    }
+
+    /**
+     * Drive the controller from the start time
+     */
+    private static void drive(ConcurrencyController controller, int capacity,
+                              double baseResponseTime, int rounds, long start) {
+        long time = start;
+        for (int i = 0; i < rounds; i++) {
+            int accepted = 0;
+            while (controller.accept(time)) {
+                accepted++;
+            }
+            double responseTime = baseResponseTime
+                                  * Math.max(1.0, accepted / (double) capacity);
+            for (int j = 0; j < accepted; j++) {
+                controller.sample(responseTime, time++);
+            }
+        }
+    }
+
+    @Test
+    public void testAccept() {
+        ConcurrencyController controller = new VegasController(2, 1, 10, 10);
+        assertTrue(controller.accept(0));
+        assertTrue(controller.accept(0));
+        assertFalse(controller.accept(0));
+        assertEquals(2, controller.getInFlight());
+        controller.release(1);
+        assertTrue(controller.accept(0));
+        controller.sample(10, 0);
+        controller.sample(10, 0);
+        assertEquals(0, controller.getInFlight());
+        assertTrue(controller.accept(5, 0));
+    }
+
+    @Test
+    public void testGradient() {
+        GradientController controller = new GradientController(10, 1, 1000, 100);
+        drive(controller, 1000, 10.0, 10);
+        double limit = controller.getLimit();
+        assertTrue(limit > 100);
+
+        // The backend saturates
+        drive(controller, 1, 30.0, 1);
+        assertTrue(controller.getLimit() < limit / 2);
+    }
+
+    @Test
+    public void testPid() {
+        PidController controller = new PidController(12.0, 10, 1, 1000, 100);
+        drive(controller, 50, 10.0, 1000);
+        assertTrue(controller.getLimit() > 40);
+        assertTrue(controller.getLimit() < 75);
+    }
+
+    @Test
+    public void testPidNegativeTime() {
+        PidController controller = new PidController(12.0, 10, 1, 1000, 100);
+        drive(controller, 50, 10.0, 1000);
+        // Time supplied by System.nanoTime() may be negative
+        PidController negative = new PidController(12.0, 10, 1, 1000, 100);
+        drive(negative, 50, 10.0, 1000, -25000);
+        assertEquals(controller.getLimit(), negative.getLimit(), 0.0);
+    }
+
+    @Test
+    public void testTarget() {
+        PidController controller = new PidController(12.0, 10, 1, 1000, 100);
+        // The target is the target response time, not the limit
+        assertEquals(12.0, controller.getTarget(), 0.0);
+        assertEquals(10.0, controller.getLimit(), 0.0);
+        controller.setTarget(20.0);
+        assertEquals(20.0, controller.getTargetResponseTime(), 0.0);
+        assertEquals(10.0, controller.getLimit(), 0.0);
+        controller.setLimit(5000);
+        assertEquals(1000.0, controller.getLimit(), 0.0);
+    }
+
+    @Test
+    public void testVegas() {
+        VegasController controller = new VegasController(10, 1, 1000, 100);
+        drive(controller, 50, 10.0, 1000);
+        assertEquals(10.0, controller.getNoLoadResponseTime(), 0.0);
+        assertTrue(controller.getLimit() > 40);
+        assertTrue(controller.getLimit() < 75);
+    }
+}
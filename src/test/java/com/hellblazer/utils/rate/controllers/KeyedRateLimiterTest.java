@@ -0,0 +1,109 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.hellblazer.utils.rate.Predicate;
+
+/**
+ *
+ * @author hhildebrand
+ *
+ */
+public class KeyedRateLimiterTest {
+
+    @Test
+    public void testEviction() {
+        KeyedRateLimiter<Integer> limiter = new KeyedRateLimiter<Integer>(
+                                                                          10.0,
+                                                                          10,
+                                                                          64,
+                                                                          TimeUnit.MILLISECONDS);
+        assertEquals(1000, limiter.getIdleTime());
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(limiter.accept(i, 5, i));
+        }
+        assertTrue(limiter.size() <= 64);
+
+        // Recently used keys are retained
+        assertEquals(5, limiter.getCurrentTokens(9999));
+        assertTrue(limiter.accept(9999, 5, 9999));
+        assertFalse(limiter.accept(9999, 9999));
+    }
+
+    @Test
+    public void testEvictionWithoutIdleKeys() {
+        KeyedRateLimiter<Integer> limiter = new KeyedRateLimiter<Integer>(
+                                                                          10.0,
+                                                                          10,
+                                                                          64,
+                                                                          Long.MAX_VALUE,
+                                                                          TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(limiter.accept(i, 5, i));
+        }
+        assertTrue(limiter.size() <= 64);
+        assertEquals(5, limiter.getCurrentTokens(99999));
+    }
+
+    @Test
+    public void testIdle() {
+        KeyedRateLimiter<String> limiter = new KeyedRateLimiter<String>(
+                                                                        10.0,
+                                                                        10,
+                                                                        2,
+                                                                        100L,
+                                                                        TimeUnit.MILLISECONDS);
+        assertTrue(limiter.accept("a", 10, 0));
+        assertTrue(limiter.accept("b", 10, 50));
+        // c evicts a, which is idle
+        assertTrue(limiter.accept("c", 10, 100));
+        assertEquals(2, limiter.size());
+        assertEquals(10, limiter.getCurrentTokens("a"));
+        assertFalse(limiter.accept("b", 100));
+        // idle keys are refilled
+        assertTrue(limiter.accept("b", 10, 200));
+    }
+
+    @Test
+    public void testKeys() {
+        KeyedRateLimiter<String> limiter = new KeyedRateLimiter<String>(
+                                                                        10.0,
+                                                                        10,
+                                                                        1000,
+                                                                        TimeUnit.MILLISECONDS);
+        Predicate a = limiter.predicate("a");
+        for (int i = 0; i < 10; i++) {
+            assertTrue(a.accept(0));
+        }
+        assertFalse(a.accept(0));
+        assertTrue(limiter.accept("b", 10, 0));
+        assertFalse(limiter.accept("b", 0));
+        assertTrue(a.accept(100));
+        assertFalse(a.accept(100));
+
+        a.setTargetRate(2.0);
+        assertEquals(500.0, limiter.getRegenerationTime(), 0.0);
+        assertTrue(limiter.accept("b", 500));
+        assertFalse(limiter.accept("b", 500));
+    }
+}
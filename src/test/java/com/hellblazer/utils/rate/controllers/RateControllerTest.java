@@ -14,14 +14,21 @@
  */
 package com.hellblazer.utils.rate.controllers;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
 import com.hellblazer.utils.rate.Predicate;
+import com.hellblazer.utils.rate.RateListener;
+import com.hellblazer.utils.windows.TimeWindow;
 
 /**
  * 
@@ -29,6 +36,36 @@ import com.hellblazer.utils.rate.Predicate;
  * 
  */
 public class RateControllerTest {
+    @Test
+    public void testCooldown() {
+        Predicate predicate = mock(Predicate.class);
+        RateController controller = new RateController(predicate, 0.01, 1, 10,
+                                                       1, 0.9);
+        controller.setTarget(1);
+        controller.setSampleRate(0);
+        controller.setCooldown(50);
+        final List<Long> changes = new ArrayList<Long>();
+        controller.addListener(new RateListener() {
+            @Override
+            public void rateChanged(double previousRate, double rate,
+                                    long currentTime) {
+                assertEquals(previousRate / 2, rate, 0.0);
+                changes.add(currentTime);
+            }
+        });
+
+        for (long sampleTime = 0; sampleTime <= 60; sampleTime += 10) {
+            controller.sample(10, sampleTime);
+        }
+        verify(predicate).setTargetRate(1.0);
+        verify(predicate).setTargetRate(0.5);
+        verify(predicate).setTargetRate(0.25);
+        verifyNoMoreInteractions(predicate);
+        assertEquals(2, changes.size());
+        assertEquals(0L, (long) changes.get(0));
+        assertEquals(50L, (long) changes.get(1));
+    }
+
     @Test
     public void testRateController() {
         Predicate predicate = mock(Predicate.class);
@@ -80,4 +117,54 @@ public class RateControllerTest {
         verify(predicate, times(2)).setTargetRate(1.0);
         verifyNoMoreInteractions(predicate);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSmoothing() {
+        Predicate predicate = mock(Predicate.class);
+        RateController controller = new RateController(predicate, 0.01, 1, 10,
+                                                       1, 1.0);
+        controller.setTarget(1);
+        controller.setSampleRate(0);
+        controller.setSmoothing(true);
+
+        controller.sample(0, 0);
+        assertEquals(0.0, controller.getSmoothedResponseTime(), 0.0);
+        // A single spike is damped below the high water mark
+        controller.sample(3, 10);
+        assertEquals(0.9, controller.getSmoothedResponseTime(), 0.000001);
+        verify(predicate).setTargetRate(1.0);
+        verifyNoMoreInteractions(predicate);
+
+        // A sustained increase is not
+        controller.sample(3, 20);
+        verify(predicate).setTargetRate(0.5);
+        verifyNoMoreInteractions(predicate);
+    }
+
+    @Test
+    public void testTimeWindow() {
+        Predicate predicate = mock(Predicate.class);
+        RateController controller = new RateController(
+                                                       predicate,
+                                                       new TimeWindow(
+                                                                      10,
+                                                                      10,
+                                                                      TimeUnit.MILLISECONDS),
+                                                       1, 1.0);
+        controller.setMinimum(0.01);
+        controller.setMaximum(1);
+        controller.setTarget(1);
+        controller.setSampleRate(0);
+
+        controller.sample(10, 0);
+        verify(predicate).setTargetRate(0.5);
+        // The slow sample remains in the window until it expires
+        controller.sample(0.1, 50);
+        verify(predicate).setTargetRate(0.25);
+        controller.sample(0.1, 100);
+        verify(predicate).setTargetRate(0.75);
+        controller.sample(0.1, 110);
+        verify(predicate, times(2)).setTargetRate(1.0);
+        verifyNoMoreInteractions(predicate);
+    }
+}
@@ -18,6 +18,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
 /**
@@ -49,4 +56,145 @@ public class RateLimiterTest {
         assertTrue(limiter.accept(1000));
         assertFalse(limiter.accept(1000));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testConcurrentAdmission() throws InterruptedException {
+        final RateLimiter limiter = new RateLimiter(1000.0, 10000, 0);
+        final AtomicInteger accepted = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 5000; j++) {
+                        if (limiter.accept(0)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(10000, accepted.get());
+        assertEquals(0, limiter.getCurrentTokens());
+        assertTrue(limiter.accept(1));
+        assertFalse(limiter.accept(1));
+    }
+
+    @Test
+    public void testMaxTokens() {
+        RateLimiter limiter = new RateLimiter(10.0, 10, 0);
+        assertTrue(limiter.accept(5, 0));
+        limiter.setMaxTokens(20);
+        assertEquals(5, limiter.getCurrentTokens());
+        limiter.setMaxTokens(2);
+        assertEquals(2, limiter.getCurrentTokens());
+        assertTrue(limiter.accept(2, 0));
+        assertFalse(limiter.accept(0));
+    }
+
+    @Test
+    public void testStaleTime() {
+        RateLimiter limiter = new RateLimiter(1000.0, 10, 0);
+        assertTrue(limiter.accept(10, 1000));
+        assertTrue(limiter.accept(1, 1005));
+        assertEquals(4, limiter.getCurrentTokens());
+        // A request with an older time is admitted as of the last
+        // regeneration, which it does not move back
+        assertTrue(limiter.accept(1, 900));
+        assertEquals(3, limiter.getCurrentTokens());
+        assertTrue(limiter.accept(3, 1005));
+        assertFalse(limiter.accept(1, 1005));
+    }
+
+    @Test
+    public void testNanoseconds() {
+        RateLimiter limiter = new RateLimiter(50000.0, 100, 0,
+                                              TimeUnit.NANOSECONDS);
+        assertEquals(20000.0, limiter.getRegenerationTime(), 0.0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.accept(start));
+        }
+        assertFalse(limiter.accept(start + 19999));
+        assertTrue(limiter.accept(start + 20000));
+        assertFalse(limiter.accept(start + 20000));
+
+        // Drive the limiter for a second at one request per microsecond
+        int accepted = 0;
+        for (long t = 1; t <= 1000000; t++) {
+            if (limiter.accept(start + 20000 + t * 1000)) {
+                accepted++;
+            }
+        }
+        assertEquals(50000, accepted);
+    }
+
+    @Test
+    public void testHighRate() {
+        RateLimiter limiter = new RateLimiter(3.0e7, 100, 0,
+                                              TimeUnit.NANOSECONDS);
+        int accepted = 0;
+        for (long t = 0; t < 1000000000L; t += 10) {
+            if (limiter.accept(t)) {
+                accepted++;
+            }
+        }
+        assertEquals(3.0e7, accepted, 3.0e7 * 1.0e-4);
+
+        limiter = new RateLimiter(0.5, 1, 0, TimeUnit.NANOSECONDS);
+        assertTrue(limiter.accept(0));
+        assertFalse(limiter.accept(1999999999L));
+        assertTrue(limiter.accept(2000000000L));
+    }
+
+    @Test
+    public void testReserve() {
+        RateLimiter limiter = new RateLimiter(10.0, 1, 0);
+        assertEquals(0, limiter.reserve(1, 0, Long.MAX_VALUE));
+        assertEquals(100, limiter.reserve(1, 0, Long.MAX_VALUE));
+        assertEquals(200, limiter.reserve(1, 0, Long.MAX_VALUE));
+        assertEquals(-1, limiter.reserve(1, 0, 250));
+        assertEquals(-2, limiter.getCurrentTokens());
+        assertFalse(limiter.accept(250));
+        assertTrue(limiter.accept(300));
+    }
+
+    @Test
+    public void testAcquire() throws Exception {
+        final RateLimiter limiter = new RateLimiter(1000.0, 1, 0,
+                                                    TimeUnit.NANOSECONDS);
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire(1);
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(3));
+        assertFalse(limiter.tryAcquire(20, 1, TimeUnit.MILLISECONDS));
+        assertTrue(limiter.tryAcquire(1, 2, TimeUnit.MILLISECONDS));
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            start = System.nanoTime();
+            assertEquals("done",
+                         limiter.acquireAsync(5, new Callable<String>() {
+                             @Override
+                             public String call() {
+                                 return "done";
+                             }
+                         }, scheduler).get());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(4));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
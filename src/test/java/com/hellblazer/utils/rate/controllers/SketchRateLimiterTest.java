@@ -0,0 +1,118 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author hhildebrand
+ *
+ */
+public class SketchRateLimiterTest {
+
+    @Test
+    public void testConcurrentAdmission() throws InterruptedException {
+        final SketchRateLimiter<String> limiter = new SketchRateLimiter<String>(
+                                                                                10.0,
+                                                                                1000,
+                                                                                1024,
+                                                                                4,
+                                                                                TimeUnit.MILLISECONDS);
+        final AtomicInteger accepted = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 20000; j++) {
+                        if (limiter.accept("a", 0)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(accepted.get() <= 1000);
+        // The tokens not admitted concurrently remain in the bucket
+        while (limiter.accept("a", 0)) {
+            accepted.incrementAndGet();
+        }
+        assertEquals(1000, accepted.get());
+    }
+
+    @Test
+    public void testHeavyHitter() {
+        SketchRateLimiter<Integer> limiter = new SketchRateLimiter<Integer>(
+                                                                            10.0,
+                                                                            10,
+                                                                            4096,
+                                                                            4,
+                                                                            TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.accept(-1, 0));
+        }
+        assertFalse(limiter.accept(-1, 0));
+
+        // Light keys are not limited by the heavy hitter
+        int accepted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (limiter.accept(i, 5, 0)) {
+                accepted++;
+            }
+        }
+        assertEquals(1000, accepted);
+
+        assertFalse(limiter.accept(-1, 99));
+        assertTrue(limiter.accept(-1, 100));
+        assertFalse(limiter.accept(-1, 100));
+    }
+
+    @Test
+    public void testRate() {
+        SketchRateLimiter<String> limiter = new SketchRateLimiter<String>(
+                                                                          50000.0,
+                                                                          100,
+                                                                          1024,
+                                                                          4,
+                                                                          TimeUnit.NANOSECONDS);
+        int accepted = 0;
+        for (long t = 0; t < 1000000000L; t += 1000) {
+            if (limiter.accept("a", t)) {
+                accepted++;
+            }
+        }
+        assertEquals(50100, accepted, 1);
+    }
+}
@@ -0,0 +1,79 @@
+/** (C) Copyright 2015 Chiral Behaviors LLC, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.rate.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author hhildebrand
+ *
+ */
+public class StripedRateLimiterTest {
+
+    @Test
+    public void testBorrow() {
+        StripedRateLimiter limiter = new StripedRateLimiter(1000.0, 100, 0, 3,
+                                                            1000L);
+        assertEquals(4, limiter.getStripes());
+        assertEquals(100, limiter.getCurrentTokens());
+        // The local bucket and the next two
+        for (int i = 0; i < 75; i++) {
+            assertTrue(limiter.accept(0));
+        }
+        assertFalse(limiter.accept(0));
+        assertEquals(25, limiter.getCurrentTokens());
+    }
+
+    @Test
+    public void testRebalance() {
+        StripedRateLimiter limiter = new StripedRateLimiter(1000.0, 100, 0, 4,
+                                                            100L);
+        int local = limiter.index();
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0.25, limiter.getShare(i), 0.0);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.accept(0));
+        }
+        assertTrue(limiter.accept(100));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i == local ? 0.925 : 0.025, limiter.getShare(i),
+                         1.0e-9);
+        }
+
+        limiter.setTargetRate(2000.0);
+        assertEquals(2000.0, limiter.getTargetRate(), 0.0);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i == local ? 0.925 : 0.025, limiter.getShare(i),
+                         1.0e-9);
+        }
+    }
+
+    @Test
+    public void testTokens() {
+        StripedRateLimiter limiter = new StripedRateLimiter(1000.0, 10, 0, 4,
+                                                            1000L);
+        assertEquals(4, limiter.getStripes());
+        assertEquals(10, limiter.getCurrentTokens());
+        limiter = new StripedRateLimiter(1000.0, 3, 0, 4, 1000L);
+        assertEquals(2, limiter.getStripes());
+        assertEquals(3, limiter.getCurrentTokens());
+    }
+}
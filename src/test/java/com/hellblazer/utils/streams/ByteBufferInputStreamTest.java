@@ -0,0 +1,96 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hellblazer.utils.streams;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.hellblazer.utils.ByteBufferPool;
+
+/**
+ * @author hhildebrand
+ *
+ */
+public class ByteBufferInputStreamTest {
+
+    @Test
+    public void testChained() throws IOException {
+        ByteBufferPool pool = new ByteBufferPool("test", 100, true);
+        @SuppressWarnings("resource")
+        ByteBufferOutputStream out = new ByteBufferOutputStream(pool, 16, true);
+        for (int i = 0; i < 100; i++) {
+            out.write(i);
+        }
+        ByteBufferInputStream in = new ByteBufferInputStream(
+                                                             out.toByteBuffers());
+        assertEquals(100, in.available());
+        byte[] read = new byte[100];
+        assertEquals(100, in.read(read, 0, 100));
+        for (int i = 0; i < 100; i++) {
+            assertEquals((byte) i, read[i]);
+        }
+        assertEquals(-1, in.read());
+        assertEquals(-1, in.read(read, 0, 10));
+        in.close();
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        ByteBufferPool pool = new ByteBufferPool("test", 100);
+        ByteBufferInputStream in = new ByteBufferInputStream(
+                                                             pool,
+                                                             ByteBuffer.allocate(10),
+                                                             ByteBuffer.allocate(10));
+        in.close();
+        assertEquals(2, pool.size());
+        try {
+            in.read();
+            fail("Expected stream to be closed");
+        } catch (IOException e) {
+            // expected
+        }
+        in.close();
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void testMarkReset() throws IOException {
+        ByteBufferInputStream in = new ByteBufferInputStream(
+                                                             ByteBuffer.wrap(new byte[] {
+                                                                     0, 1, 2 }),
+                                                             ByteBuffer.wrap(new byte[] {
+                                                                     3, 4 }),
+                                                             ByteBuffer.wrap(new byte[] {
+                                                                     5, 6, 7 }));
+        assertEquals(0, in.read());
+        in.mark(0);
+        assertEquals(5, in.skip(5));
+        assertEquals(6, in.read());
+        in.reset();
+        assertEquals(7, in.available());
+        for (int i = 1; i < 8; i++) {
+            assertEquals(i, in.read());
+        }
+        assertEquals(0, in.skip(10));
+        in.reset();
+        assertEquals(1, in.read());
+        in.close();
+    }
+}
@@ -15,8 +15,13 @@
 package com.hellblazer.utils.streams;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 
 import org.junit.Test;
 
@@ -42,4 +47,137 @@ public class ByteBufferOutputStreamTest {
                      pool.getBytesAllocated());
         assertEquals("Invalid buffer allocations", 16, pool.getCreated());
     }
+
+    @Test
+    public void testGrowDirect() {
+        ByteBufferPool pool = new ByteBufferPool("test", 100, true);
+        @SuppressWarnings("resource")
+        ByteBufferOutputStream test = new ByteBufferOutputStream(pool);
+        for (int i = 0; i < 1024; i++) {
+            test.write(i);
+        }
+        ByteBuffer produced = test.toByteBuffer();
+        assertTrue(produced.isDirect());
+        assertEquals("Invalid buffer limit", 1024, produced.limit());
+        for (int i = 0; i < 1024; i++) {
+            assertEquals((byte) i, produced.get(i));
+        }
+    }
+
+    @Test
+    public void testChained() {
+        ByteBufferPool pool = new ByteBufferPool("test", 100);
+        @SuppressWarnings("resource")
+        ByteBufferOutputStream test = new ByteBufferOutputStream(pool, 1024,
+                                                                 true);
+        byte[] bytes = new byte[100];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        for (int i = 0; i < 1024; i++) {
+            test.write(bytes, 0, bytes.length);
+        }
+        assertEquals(102400, test.size());
+        assertEquals("Invalid buffer allocations", 100, pool.getCreated());
+        assertEquals("Invalid bytes allocated", 102400,
+                     pool.getBytesAllocated());
+
+        ByteBuffer[] buffers = test.toByteBuffers();
+        assertEquals(100, buffers.length);
+        int i = 0;
+        for (ByteBuffer buffer : buffers) {
+            assertEquals(0, buffer.position());
+            assertEquals(1024, buffer.limit());
+            while (buffer.hasRemaining()) {
+                assertEquals((byte) (i++ % 100), buffer.get());
+            }
+        }
+        assertEquals(102400, i);
+
+        test.reset();
+        assertEquals(0, test.size());
+        assertEquals(99, pool.size());
+        test.write(bytes, 0, bytes.length);
+        assertEquals(1, test.toByteBuffers().length);
+    }
+
+    @Test
+    public void testChainedCoalesce() {
+        ByteBufferPool pool = new ByteBufferPool("test", 100);
+        @SuppressWarnings("resource")
+        ByteBufferOutputStream test = new ByteBufferOutputStream(pool, 16, true);
+        for (int i = 0; i < 100; i++) {
+            test.write(i);
+        }
+        ByteBuffer produced = test.toByteBuffer();
+        assertEquals(100, produced.limit());
+        for (int i = 0; i < 100; i++) {
+            assertEquals((byte) i, produced.get(i));
+        }
+        assertEquals(7, pool.size());
+    }
+
+    @Test
+    public void testPrimitives() throws IOException {
+        ByteBufferPool pool = new ByteBufferPool("test", 100, true);
+        ByteBufferOutputStream[] streams = new ByteBufferOutputStream[] {
+                new ByteBufferOutputStream(pool, 4),
+                new ByteBufferOutputStream(pool, 7, true) };
+        String text = "h\u00e9llo \u20ac \ud83d\ude00 \ud83d!";
+        for (ByteBufferOutputStream test : streams) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            DataOutputStream expected = new DataOutputStream(baos);
+            for (int i = 0; i < 20; i++) {
+                test.write(i);
+                expected.write(i);
+                test.writeInt(i * 0x01020304);
+                expected.writeInt(i * 0x01020304);
+                test.writeLong(i * 0x0102030405060708L);
+                expected.writeLong(i * 0x0102030405060708L);
+                test.writeDouble(i * Math.PI);
+                expected.writeDouble(i * Math.PI);
+                assertEquals(ByteBufferOutputStream.utf8Length(text),
+                             test.writeUtf8(text));
+                expected.write(text.getBytes(Charset.forName("UTF-8")));
+            }
+            assertEquals(baos.size(), test.size());
+            ByteBufferInputStream in = new ByteBufferInputStream(
+                                                                 test.toByteBuffers());
+            for (byte b : baos.toByteArray()) {
+                assertEquals(b, (byte) in.read());
+            }
+            assertEquals(-1, in.read());
+            in.close();
+        }
+    }
+
+    @Test
+    public void testVarInt() throws IOException {
+        ByteBufferPool pool = new ByteBufferPool("test", 100);
+        @SuppressWarnings("resource")
+        ByteBufferOutputStream test = new ByteBufferOutputStream(pool, 3, true);
+        int[] values = new int[] { 0, 1, 127, 128, 16383, 16384, 2097151,
+                2097152, 268435455, 268435456, Integer.MAX_VALUE, -1,
+                Integer.MIN_VALUE };
+        int length = 0;
+        for (int v : values) {
+            test.writeVarInt(v);
+            length += ByteBufferOutputStream.varIntLength(v);
+        }
+        assertEquals(length, test.size());
+        ByteBufferInputStream in = new ByteBufferInputStream(
+                                                             test.toByteBuffers());
+        for (int v : values) {
+            int decoded = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = in.read();
+                decoded |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            assertEquals(v, decoded);
+        }
+        in.close();
+    }
 }
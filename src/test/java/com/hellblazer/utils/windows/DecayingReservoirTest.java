@@ -0,0 +1,78 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class DecayingReservoirTest extends TestCase {
+    public void testRecencyBias() {
+        DecayingReservoir reservoir = new DecayingReservoir(100, 0.015,
+                                                            TimeUnit.SECONDS);
+        for (int i = 0; i < 1000; i++) {
+            reservoir.sample(0.0, 0);
+        }
+        assertEquals(100, reservoir.size());
+        assertEquals(0.0, reservoir.value());
+        // Ten minutes later, the old samples have a weight of e^-9
+        for (int i = 0; i < 1000; i++) {
+            reservoir.sample(1.0, 600);
+        }
+        assertEquals(100, reservoir.size());
+        assertEquals(1.0, reservoir.getMean(), 0.001);
+        assertEquals(1.0, reservoir.getMedian());
+    }
+
+    public void testLargeAlpha() {
+        DecayingReservoir reservoir = new DecayingReservoir(10, 1.0,
+                                                            TimeUnit.MILLISECONDS);
+        // Past an hour, with weights that would reach e^4000
+        for (long time = 0; time < 4000000; time += 100) {
+            reservoir.sample(time / 1000.0, time);
+        }
+        double mean = reservoir.getMean();
+        assertFalse(Double.isNaN(mean));
+        assertTrue(mean > 3990);
+        assertTrue(reservoir.getPercentile(0.5) > 3990);
+    }
+
+    public void testRescale() {
+        DecayingReservoir reservoir = new DecayingReservoir(10, 0.015,
+                                                            TimeUnit.SECONDS);
+        for (long time = 0; time < 100000; time += 100) {
+            reservoir.sample(time, time);
+        }
+        double mean = reservoir.getMean();
+        assertFalse(Double.isNaN(mean));
+        assertTrue(mean > 99000);
+    }
+
+    public void testUniform() {
+        DecayingReservoir reservoir = new DecayingReservoir(1000, 0.0,
+                                                            TimeUnit.SECONDS);
+        for (int i = 0; i < 100000; i++) {
+            reservoir.sample(i % 100, i);
+        }
+        assertEquals(1000, reservoir.size());
+        assertEquals(49.5, reservoir.getMean(), 3.0);
+        assertEquals(50.0, reservoir.getPercentile(0.5), 5.0);
+        assertEquals(90.0, reservoir.getPercentile(0.9), 5.0);
+        assertEquals(0.0, reservoir.getPercentile(0.0));
+        assertEquals(99.0, reservoir.getPercentile(1.0));
+        reservoir.reset();
+        assertEquals(0, reservoir.size());
+    }
+}
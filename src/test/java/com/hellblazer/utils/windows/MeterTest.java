@@ -0,0 +1,64 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class MeterTest extends TestCase {
+    public void testDecay() {
+        Meter meter = new Meter(TimeUnit.MILLISECONDS);
+        meter.mark(60, 0);
+        assertEquals(0.0, meter.value());
+        meter.advance(5000);
+        assertEquals(12.0, meter.getOneMinuteRate(), 0.000001);
+        assertEquals(12.0, meter.getFiveMinuteRate(), 0.000001);
+        assertEquals(12.0, meter.getFifteenMinuteRate(), 0.000001);
+
+        // A minute without events decays the one minute rate by 1/e
+        meter.advance(65000);
+        assertEquals(12.0 / Math.E, meter.getOneMinuteRate(), 0.000001);
+        assertEquals(12.0 * Math.exp(-0.2), meter.getFiveMinuteRate(),
+                     0.000001);
+        assertEquals(12.0 * Math.exp(-1.0 / 15), meter.getFifteenMinuteRate(),
+                     0.000001);
+        assertEquals(60, meter.getCount());
+        assertEquals(60.0 / 65, meter.getMeanRate(65000), 0.000001);
+    }
+
+    public void testMinutes() {
+        Meter meter = new Meter(TimeUnit.MINUTES);
+        meter.mark(60, 0);
+        meter.advance(1);
+        // The first tick counts the events, and the rest of the minute decays
+        assertEquals(12.0 * Math.exp(-11.0 / 12), meter.getOneMinuteRate(),
+                     0.000001);
+        assertEquals(1.0, meter.getMeanRate(1), 0.000001);
+    }
+
+    public void testSteadyRate() {
+        Meter meter = new Meter(TimeUnit.MILLISECONDS);
+        for (long time = 0; time < 3600000; time += 10) {
+            meter.mark(1, time);
+        }
+        assertEquals(100.0, meter.getOneMinuteRate(), 1.0);
+        assertEquals(100.0, meter.getFiveMinuteRate(), 1.0);
+        assertEquals(100.0, meter.getFifteenMinuteRate(), 1.0);
+        meter.reset();
+        assertEquals(0, meter.size());
+        assertEquals(0.0, meter.value());
+    }
+}
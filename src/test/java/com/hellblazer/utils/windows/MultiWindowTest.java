@@ -0,0 +1,132 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class MultiWindowTest extends TestCase {
+    public void testAggregates() {
+        Random random = new Random(666);
+        int windowSize = 50;
+        MultiWindow window = new MultiWindow(windowSize, 3);
+        double[][] input = new double[500][];
+        double[] sample = new double[3];
+        for (int i = 0; i < input.length; i++) {
+            sample[0] = random.nextGaussian() * 10 + 100;
+            sample[1] = sample[0] * 2 + random.nextGaussian();
+            sample[2] = random.nextDouble() * 1000;
+            input[i] = sample.clone();
+            window.addLast(sample);
+            int start = Math.max(0, i + 1 - windowSize);
+            assertAggregates(input, start, i + 1, window);
+        }
+        // The window copies the samples
+        sample[0] = -1;
+        assertEquals(input[input.length - 1][0],
+                     window.get(window.size() - 1, 0));
+
+        double[] row = new double[3];
+        while (window.size() > 1) {
+            int start = input.length - window.size();
+            window.removeFirst(row);
+            assertEquals(input[start][1], row[1]);
+            assertAggregates(input, start + 1, input.length, window);
+        }
+        window.removeFirst();
+        assertEquals(0, window.size());
+        assertEquals(0.0, window.getMean(0));
+    }
+
+    public void testDrift() {
+        Random random = new Random(666);
+        int windowSize = 20;
+        MultiWindow window = new MultiWindow(windowSize, 2);
+        double[][] input = new double[200][];
+        for (int i = 0; i < input.length; i++) {
+            double x = 1.0e6 + random.nextGaussian();
+            // A spike that swamps the co-moments while it is in the window
+            input[i] = i == 50 ? new double[] { 1.0e12, -1.0e12 }
+                              : new double[] { x, x + random.nextGaussian() };
+            window.addLast(input[i]);
+        }
+        // The spike has left the window and a window length of removals
+        // has passed since
+        assertAggregates(input, input.length - windowSize, input.length,
+                         window);
+    }
+
+    public void testIterator() {
+        MultiWindow window = new MultiWindow(3, 2);
+        for (int i = 0; i < 5; i++) {
+            window.addLast(i, -i);
+        }
+        assertEquals(3, window.size());
+        int i = 2;
+        for (double[] row : window) {
+            assertEquals((double) i, row[0]);
+            assertEquals((double) -i, row[1]);
+            i++;
+        }
+        assertEquals(5, i);
+    }
+
+    public void testIteratorRow() {
+        MultiWindow window = new MultiWindow(3, 2);
+        for (int i = 0; i < 5; i++) {
+            window.addLast(i, -i);
+        }
+        double[] row = new double[2];
+        Iterator<double[]> iterator = window.iterator(row);
+        for (int i = 2; i < 5; i++) {
+            assertSame(row, iterator.next());
+            assertEquals((double) i, row[0]);
+            assertEquals((double) -i, row[1]);
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    private void assertAggregates(double[][] input, int start, int end,
+                                  MultiWindow window) {
+        int n = end - start;
+        assertEquals(n, window.size());
+        int variables = window.numVariables();
+        double[] means = new double[variables];
+        for (int v = 0; v < variables; v++) {
+            for (int i = start; i < end; i++) {
+                means[v] += input[i][v];
+            }
+            assertEquals(means[v], window.getSum(v), Math.abs(means[v]) * 1.0e-9);
+            means[v] /= n;
+            assertEquals(means[v], window.getMean(v),
+                         Math.abs(means[v]) * 1.0e-9);
+        }
+        for (int v = 0; v < variables; v++) {
+            for (int w = 0; w < variables; w++) {
+                double covariance = 0.0;
+                for (int i = start; i < end; i++) {
+                    covariance += (input[i][v] - means[v])
+                                  * (input[i][w] - means[w]);
+                }
+                covariance = n == 1 ? 0.0 : covariance / (n - 1);
+                assertEquals(covariance, window.getCovariance(v, w),
+                             1.0e-6 * (1 + Math.abs(covariance)));
+            }
+            assertEquals(window.getCovariance(v, v), window.getVariance(v));
+        }
+    }
+}
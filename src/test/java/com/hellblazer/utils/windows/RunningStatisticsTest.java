@@ -0,0 +1,83 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class RunningStatisticsTest extends TestCase {
+    public void testDrift() {
+        Random random = new Random(666);
+        int windowSize = 100;
+        RunningStatistics statistics = new RunningStatistics(windowSize);
+        double[] input = new double[1000000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (i % 2 == 0 ? 1.0e8 : 1.0e-3) * random.nextDouble();
+            statistics.sample(input[i]);
+        }
+        for (int i = 0; i < windowSize; i++) {
+            input[i] = 1.0e6 + random.nextDouble();
+            statistics.sample(input[i]);
+        }
+        assertStatistics(input, 0, windowSize, statistics);
+    }
+
+    public void testStatistics() {
+        Random random = new Random(666);
+        int windowSize = 100;
+        RunningStatistics statistics = new RunningStatistics(windowSize);
+        double[] input = new double[1000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = random.nextGaussian() * 10 + 50;
+            statistics.sample(input[i]);
+            int start = Math.max(0, i + 1 - windowSize);
+            assertStatistics(input, start, i + 1, statistics);
+        }
+        statistics.reset();
+        assertEquals(0, statistics.size());
+        statistics.sample(3.0);
+        assertEquals(3.0, statistics.value());
+        assertEquals(0.0, statistics.getVariance());
+        assertEquals(3.0, statistics.getMin());
+        assertEquals(3.0, statistics.getMax());
+    }
+
+    private void assertStatistics(double[] input, int start, int end,
+                                  RunningStatistics statistics) {
+        int n = end - start;
+        double mean = 0.0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = start; i < end; i++) {
+            mean += input[i];
+            min = Math.min(min, input[i]);
+            max = Math.max(max, input[i]);
+        }
+        mean /= n;
+        double variance = 0.0;
+        for (int i = start; i < end; i++) {
+            variance += (input[i] - mean) * (input[i] - mean);
+        }
+        variance = n == 1 ? 0.0 : variance / (n - 1);
+        assertEquals(n, statistics.size());
+        assertEquals(mean, statistics.getMean(), Math.abs(mean) * 1.0e-12);
+        assertEquals(variance, statistics.getVariance(), variance * 1.0e-9);
+        assertEquals(Math.sqrt(variance), statistics.getStandardDeviation(),
+                     Math.sqrt(variance) * 1.0e-9);
+        assertEquals(min, statistics.getMin());
+        assertEquals(max, statistics.getMax());
+    }
+}
@@ -0,0 +1,146 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+public class StripedWindowTest extends TestCase {
+    public void testConcurrentRecording() throws Exception {
+        final int threads = 8;
+        final int samples = 100000;
+        final StripedRunningAverage average = new StripedRunningAverage(
+                                                                        1024,
+                                                                        threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final double value = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < samples; i++) {
+                        average.sample(value);
+                    }
+                    finished.countDown();
+                }
+            }.start();
+        }
+        average.sample(0);
+        start.countDown();
+        while (finished.getCount() != 0) {
+            double value = average.value();
+            assertTrue(value >= 0 && value <= threads - 1);
+        }
+        finished.await();
+        assertTrue(average.size() <= 1024);
+        double value = average.value();
+        assertTrue(value >= 0 && value <= threads - 1);
+        average.reset();
+        assertEquals(0, average.size());
+    }
+
+    public void testConsistentStamps() throws Exception {
+        final int threads = 4;
+        final int samples = 1000000;
+        final StripedRunningAverage average = new StripedRunningAverage(2,
+                                                                        threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (long i = 1; i <= samples; i++) {
+                        long stamp = i * threads + offset;
+                        average.sample(stamp, stamp);
+                    }
+                    finished.countDown();
+                }
+            }.start();
+        }
+        start.countDown();
+        // Every merged sample carries the stamp it was recorded with
+        while (finished.getCount() != 0) {
+            int count = average.merge();
+            for (int i = 0; i < count; i++) {
+                assertEquals((double) average.stamps[i], average.merged[i]);
+            }
+        }
+        finished.await();
+    }
+
+    public void testMedian() {
+        Random random = new Random(666);
+        StripedRunningMedian striped = new StripedRunningMedian(1000, 1);
+        RunningMedian median = new RunningMedian(1000);
+        for (int i = 0; i < 1500; i++) {
+            double sample = random.nextDouble();
+            striped.sample(sample);
+            median.sample(sample);
+            assertEquals(median.size(), striped.size());
+            assertEquals(median.value(), striped.value());
+        }
+    }
+
+    public void testStale() throws Exception {
+        final StripedRunningAverage average = new StripedRunningAverage(100, 8);
+        // A spike recorded by a thread that then stops recording
+        Thread spike = new Thread() {
+            @Override
+            public void run() {
+                average.sample(1000.0);
+            }
+        };
+        spike.start();
+        spike.join();
+        for (int i = 0; i < 99; i++) {
+            average.sample(1.0);
+        }
+        assertEquals(100, average.size());
+        assertEquals((1000.0 + 99) / 100, average.value());
+        // The spike falls out of the last 100 samples
+        average.sample(1.0);
+        assertEquals(100, average.size());
+        assertEquals(1.0, average.value());
+    }
+
+    public void testStripes() {
+        StripedRunningAverage average = new StripedRunningAverage(1000, 3);
+        assertEquals(4, average.getStripes());
+        assertEquals(1000, average.getCapacity());
+        int stripe = average.index();
+        for (int i = 0; i < 1300; i++) {
+            average.sample(i);
+        }
+        // A single thread sees the whole window
+        assertEquals(1000, average.size());
+        assertEquals((300 + 1299) / 2.0, average.value());
+        assertEquals(stripe, average.index());
+    }
+}
@@ -0,0 +1,115 @@
+/** (C) Copyright 2010 Hal Hildebrand, All Rights Reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package com.hellblazer.utils.windows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class TimeWindowTest extends TestCase {
+    public void testExpiry() {
+        TimeWindow window = new TimeWindow(10, 100, TimeUnit.MILLISECONDS);
+        for (long time = 0; time < 2000; time += 10) {
+            window.sample(time, time);
+        }
+        // The last 10 buckets: 1000 - 1990
+        assertEquals(100, window.getCount());
+        assertEquals(1000.0, window.getMin());
+        assertEquals(1990.0, window.getMax());
+        assertEquals(1495.0, window.getMean(), 0.000001);
+
+        window.advance(2450);
+        assertEquals(50, window.getCount());
+        assertEquals(1500.0, window.getMin());
+        assertEquals(1500.0, window.getPercentile(0.0), 1500.0 / 16);
+        assertEquals(1990.0, window.getPercentile(1.0));
+
+        // Samples older than the window are ignored
+        window.sample(-5, 1000);
+        assertEquals(50, window.getCount());
+
+        window.advance(3000);
+        assertEquals(0, window.size());
+        try {
+            window.value();
+            fail("Expected the window to be empty");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        window.sample(1, 3000);
+        assertEquals(1.0, window.value());
+        window.reset();
+        assertEquals(0, window.size());
+    }
+
+    public void testLateSamples() {
+        TimeWindow window = new TimeWindow(4, 100, TimeUnit.MILLISECONDS);
+        for (long time = 0; time < 1000; time += 100) {
+            window.sample(1000.0, time);
+            // A late sample for the previous bucket
+            window.sample(1.0, time - 50);
+        }
+        // Buckets 600 - 900, and the late sample from 550 is gone
+        assertEquals(7, window.getCount());
+        assertEquals(1.0, window.getPercentile(0.0), 1.0 / 16);
+        assertEquals(1.0, window.getPercentile(0.4), 1.0 / 16);
+        assertEquals(1000.0, window.getPercentile(0.5), 1000.0 / 16);
+
+        window.advance(1250);
+        assertEquals(1, window.getCount());
+        assertEquals(1000.0, window.getPercentile(0.0), 1000.0 / 16);
+        window.advance(5000);
+        assertEquals(0, window.getCount());
+        window.sample(3.0, 5000);
+        assertEquals(3.0, window.getPercentile(0.5));
+    }
+
+    public void testOverflow() {
+        TimeWindow window = new TimeWindow(10, 100, TimeUnit.MILLISECONDS);
+        // The largest regular bin
+        double largest = Math.scalb(1.99, 47);
+        window.sample(largest, 0);
+        window.sample(Long.MAX_VALUE, 0);
+        assertEquals(largest, window.getPercentile(0.0));
+        assertEquals((double) Long.MAX_VALUE, window.getPercentile(1.0));
+        assertEquals((double) Long.MAX_VALUE, window.getMax());
+    }
+
+    public void testPercentile() {
+        Random random = new Random(666);
+        TimeWindow window = new TimeWindow(8, 1, TimeUnit.SECONDS);
+        List<Double> input = new ArrayList<Double>();
+        for (int i = 0; i < 10000; i++) {
+            double sample = Math.exp(random.nextGaussian() * 3);
+            input.add(sample);
+            window.sample(sample, i / 1000);
+        }
+        input = input.subList(2000, 10000);
+        Collections.sort(input);
+        for (double percentile : new double[] { 0.0, 0.1, 0.5, 0.9, 0.99,
+                0.999, 1.0 }) {
+            double expected = input.get((int) ((input.size() - 1) * percentile));
+            assertEquals(expected, window.getPercentile(percentile),
+                         expected / 16);
+        }
+        assertEquals(input.get(input.size() / 2), window.getMedian(),
+                     input.get(input.size() / 2) / 16);
+    }
+}